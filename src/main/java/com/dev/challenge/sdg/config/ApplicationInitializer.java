@@ -3,7 +3,10 @@ package com.dev.challenge.sdg.config;
 import com.dev.challenge.sdg.service.AlgoliaService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
 @Slf4j
@@ -13,8 +16,17 @@ public class ApplicationInitializer implements CommandLineRunner {
     
     private final AlgoliaService algoliaService;
     
+    /**
+     * blocking: provision indexes before the app reports ready; background: after it is ready; disabled: skip
+     */
+    @Value("${algolia.initialization.mode:background}")
+    private String initializationMode;
+    
     @Override
     public void run(String... args) throws Exception {
+        if (!"blocking".equalsIgnoreCase(initializationMode)) {
+            return;
+        }
         log.info("Initializing Smart Discount Generator application...");
         
         try {
@@ -26,4 +38,18 @@ public class ApplicationInitializer implements CommandLineRunner {
             // Don't throw exception to prevent application startup failure
         }
     }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeInBackground() {
+        if (!"background".equalsIgnoreCase(initializationMode)) {
+            return;
+        }
+        log.info("Initializing Algolia indexes in the background");
+        algoliaService.initializeIndexes()
+                .thenRun(() -> log.info("Background index initialization completed successfully"))
+                .exceptionally(e -> {
+                    log.error("Background index initialization failed", e);
+                    return null;
+                });
+    }
 }
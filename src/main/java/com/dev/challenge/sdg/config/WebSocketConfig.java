@@ -0,0 +1,36 @@
+package com.dev.challenge.sdg.config;
+
+import com.dev.challenge.sdg.controller.UserBehaviorWebSocketHandler;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+@Configuration
+@EnableWebSocket
+@RequiredArgsConstructor
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final UserBehaviorWebSocketHandler userBehaviorWebSocketHandler;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(userBehaviorWebSocketHandler, "/ws/user-behavior")
+                .setAllowedOrigins("*");
+    }
+
+    /**
+     * WebSocket support registers its own (no-op) TaskScheduler; name ours explicitly so
+     * that @Scheduled jobs keep a real scheduler
+     */
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(2);
+        scheduler.setThreadNamePrefix("scheduling-");
+        return scheduler;
+    }
+}
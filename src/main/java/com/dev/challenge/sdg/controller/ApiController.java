@@ -6,30 +6,65 @@ import com.dev.challenge.sdg.model.Discount;
 import com.dev.challenge.sdg.model.Product;
 import com.dev.challenge.sdg.model.UserEvent;
 import com.dev.challenge.sdg.service.AlgoliaService;
+import com.dev.challenge.sdg.service.AuditSink;
+import com.dev.challenge.sdg.service.AutocompleteService;
+import com.dev.challenge.sdg.service.CatalogReplicaService;
+import com.dev.challenge.sdg.service.ChatSessionStore;
+import com.dev.challenge.sdg.service.CoOccurrenceModel;
+import com.dev.challenge.sdg.service.DecisionRingBuffer;
+import com.dev.challenge.sdg.service.DiscountPrecomputeService;
+import com.dev.challenge.sdg.service.DiscountPushHub;
 import com.dev.challenge.sdg.service.DiscountService;
+import com.dev.challenge.sdg.service.EventIngestionService;
+import com.dev.challenge.sdg.service.EventLogShipper;
+import com.dev.challenge.sdg.service.ProductSearchService;
+import com.dev.challenge.sdg.service.ProfitGuardrailEngine;
 import com.dev.challenge.sdg.service.ProfitProtectionService;
+import com.dev.challenge.sdg.service.RecentEventStore;
+import com.dev.challenge.sdg.service.UserAffinityService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import java.io.InputStream;
 import java.time.Instant;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPInputStream;
 
 @Slf4j
 @RestController
 @RequestMapping("/api")
 @RequiredArgsConstructor
-@CrossOrigin(origins = "*") // Allow CORS for frontend integration
+@CrossOrigin(origins = "*", exposedHeaders = ChatSessionStore.SESSION_HEADER) // Allow CORS for frontend integration
 public class ApiController {
     
     private final AlgoliaService algoliaService;
     private final DiscountService discountService;
+    private final DiscountPrecomputeService discountPrecomputeService;
+    private final DiscountPushHub discountPushHub;
+    private final EventIngestionService eventIngestionService;
+    private final EventLogShipper eventLogShipper;
+    private final RecentEventStore recentEventStore;
     private final ProfitProtectionService profitProtectionService;
+    private final AuditSink auditSink;
+    private final DecisionRingBuffer decisionRingBuffer;
+    private final ProfitGuardrailEngine profitGuardrailEngine;
+    private final CatalogReplicaService catalogReplicaService;
+    private final CoOccurrenceModel coOccurrenceModel;
+    private final UserAffinityService userAffinityService;
+    private final ProductSearchService productSearchService;
+    private final AutocompleteService autocompleteService;
+    private final ChatSessionStore chatSessionStore;
     
     @PostMapping("/user-behavior")
     public ResponseEntity<Map<String, String>> trackUserBehavior(@Valid @RequestBody UserBehaviorRequest request) {
@@ -46,7 +81,12 @@ public class ApiController {
                     .timestamp(request.getTimestamp() != null ? request.getTimestamp() : Instant.now())
                     .build();
             
-            algoliaService.storeUserEvent(userEvent).get();
+            if (!eventIngestionService.submit(userEvent)) {
+                return ResponseEntity.internalServerError().body(Map.of(
+                        "status", "error",
+                        "message", "Failed to track user behavior"
+                ));
+            }
             
             return ResponseEntity.ok(Map.of(
                     "status", "success",
@@ -61,6 +101,35 @@ public class ApiController {
         }
     }
     
+    @PostMapping(value = "/user-behavior/bulk", consumes = {"application/x-ndjson", MediaType.TEXT_PLAIN_VALUE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<Map<String, Object>> trackUserBehaviorBulk(HttpServletRequest request) {
+        boolean gzip = "gzip".equalsIgnoreCase(request.getHeader("Content-Encoding"));
+        
+        try (InputStream body = gzip ? new GZIPInputStream(request.getInputStream()) : request.getInputStream()) {
+            EventIngestionService.IngestionResult result = eventIngestionService.ingestNdjson(body);
+            log.info("Bulk behavior ingestion: {} accepted, {} rejected, {} dropped",
+                    result.getAccepted(), result.getRejected(), result.getDropped());
+            
+            HttpStatus status = result.getDropped() > 0 ? HttpStatus.TOO_MANY_REQUESTS : HttpStatus.ACCEPTED;
+            return ResponseEntity.status(status).body(result.toMap());
+        } catch (Exception e) {
+            log.error("Error ingesting bulk user behavior", e);
+            return ResponseEntity.badRequest().body(Map.of(
+                    "status", "error",
+                    "message", "Failed to read bulk behavior payload"
+            ));
+        }
+    }
+    
+    @GetMapping("/user-behavior/ingestion-stats")
+    public ResponseEntity<Map<String, Object>> getIngestionStats() {
+        Map<String, Object> stats = new HashMap<>(eventIngestionService.getStats());
+        stats.put("shipper", eventLogShipper.getStats());
+        stats.put("recentEvents", recentEventStore.getStats());
+        stats.put("affinityProfiles", userAffinityService.getStats());
+        return ResponseEntity.ok(stats);
+    }
+    
     @GetMapping("/get-discount")
     public ResponseEntity<DiscountResponse> getDiscount(
             @RequestParam String userId, 
@@ -68,7 +137,10 @@ public class ApiController {
         log.info("Getting discount for user: {} and product: {}", userId, productId);
         
         try {
-            Discount discount = discountService.generatePersonalizedDiscount(userId, productId).get();
+            Discount discount = discountPrecomputeService.takePrecomputedDiscount(userId, productId);
+            if (discount == null) {
+                discount = discountService.generatePersonalizedDiscount(userId, productId).get();
+            }
             
             if (discount == null) {
                 return ResponseEntity.ok(DiscountResponse.noOffer("No specific offer for this user at this time."));
@@ -83,6 +155,36 @@ public class ApiController {
         }
     }
     
+    @GetMapping(value = "/discount-stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamDiscounts(
+            @RequestParam String userId,
+            @RequestParam(required = false) String productId) {
+        log.info("Opening discount stream for user: {}", userId);
+        
+        SseEmitter emitter = discountPushHub.subscribe(userId);
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        
+        // An offer computed before the client connected is delivered immediately
+        Discount parked = discountPrecomputeService.takePrecomputedDiscount(userId, productId);
+        if (parked != null) {
+            discountPushHub.publish(parked);
+        }
+        
+        return ResponseEntity.ok(emitter);
+    }
+    
+    @GetMapping("/discount-stream/stats")
+    public ResponseEntity<Map<String, Object>> getDiscountStreamStats() {
+        return ResponseEntity.ok(discountPushHub.getStats());
+    }
+    
+    @GetMapping("/discount-precompute/stats")
+    public ResponseEntity<Map<String, Object>> getDiscountPrecomputeStats() {
+        return ResponseEntity.ok(discountPrecomputeService.getStats());
+    }
+    
     @PostMapping("/validate-discount")
     public ResponseEntity<Map<String, Object>> validateDiscount(
             @RequestParam String discountCode,
@@ -146,7 +248,7 @@ public class ApiController {
         log.info("Getting behavior history for user: {}", userId);
         
         try {
-            var behaviorHistory = algoliaService.getUserBehaviorHistory(userId, limit).get();
+            List<UserEvent> behaviorHistory = discountService.getBehaviorHistory(userId, limit).get();
             
             return ResponseEntity.ok(Map.of(
                     "userId", userId,
@@ -161,6 +263,11 @@ public class ApiController {
         }
     }
     
+    @GetMapping("/user-behavior/{userId}/affinity")
+    public ResponseEntity<Map<String, Object>> getUserAffinity(@PathVariable String userId) {
+        return ResponseEntity.ok(userAffinityService.getProfile(userId));
+    }
+    
     @GetMapping("/active-discounts")
     public ResponseEntity<Map<String, Object>> getActiveDiscounts() {
         log.info("Getting all active discounts");
@@ -194,10 +301,10 @@ public class ApiController {
             List<Product> products;
             if (query.isEmpty()) {
                 // Get all products by searching with empty query
-                products = algoliaService.searchProducts("", limit).get();
+                products = productSearchService.searchProducts("", limit).get();
             } else {
                 // Search products with specific query
-                products = algoliaService.searchProducts(query, limit).get();
+                products = productSearchService.searchProducts(query, limit).get();
             }
             
             return ResponseEntity.ok(Map.of(
@@ -218,7 +325,7 @@ public class ApiController {
         log.info("Getting product: {}", productId);
         
         try {
-            Product product = algoliaService.getProduct(productId).get();
+            Product product = catalogReplicaService.getProduct(productId).get();
             
             if (product != null) {
                 return ResponseEntity.ok(Map.of(
@@ -245,7 +352,7 @@ public class ApiController {
             Map<String, Product> products = new java.util.HashMap<>();
             
             for (String productId : productIds) {
-                Product product = algoliaService.getProduct(productId).get();
+                Product product = catalogReplicaService.getProduct(productId).get();
                 if (product != null) {
                     products.put(productId, product);
                 }
@@ -336,11 +443,11 @@ public class ApiController {
                         .details(context)
                         .timestamp(Instant.now())
                         .build();
-                algoliaService.storeUserEvent(searchEvent);
+                eventIngestionService.submit(searchEvent);
             }
             
             // Perform enhanced search with AI personalization
-            var searchResults = algoliaService.performEnhancedSearch(query, userId, context).get();
+            var searchResults = productSearchService.performEnhancedSearch(query, userId, context).get();
             var personalizedResults = discountService.personalizeSearchResults(searchResults, userId).get();
             
             // Generate search insights
@@ -371,34 +478,33 @@ public class ApiController {
         log.info("Processing AI chat message from user: {}", userId);
         
         try {
+            // Server-side history and summary replace the client's history once a session exists
+            ChatSessionStore.Conversation conversation = chatSessionStore.open(
+                    (String) chatRequest.get("sessionId"), userId, chatHistory);
+            
             // Use Algolia data to enhance AI responses
-            var relevantProducts = algoliaService.findRelevantProducts(message).get();
-            var userContext = userId != null ? algoliaService.getUserContext(userId).get() : new HashMap<String, Object>();
+            var relevantProducts = productSearchService.findRelevantProducts(message).get();
+            var userContext = chatUserContext(conversation).get();
             
             // Generate AI response with Algolia-powered context
             Map<String, Object> aiResponse = discountService.generateAIChatResponse(
-                message, chatHistory, relevantProducts, userContext).get();
+                message, conversation.getSummary(), conversation.getTurns(), relevantProducts, userContext).get();
+            
+            chatSessionStore.recordTurn(conversation.getSessionId(), message, (String) aiResponse.get("message"));
             
             // Track chat interaction
-            if (userId != null) {
-                UserEvent chatEvent = UserEvent.builder()
-                        .objectId(UUID.randomUUID().toString())
-                        .userId(userId)
-                        .eventType("ai_chat")
-                        .query(message)
-                        .details(createDetailsMap((String) aiResponse.get("type"), relevantProducts.size()))
-                        .timestamp(Instant.now())
-                        .build();
-                algoliaService.storeUserEvent(chatEvent);
-            }
+            trackChatEvent(userId, message, (String) aiResponse.get("type"), relevantProducts.size());
             
-            return ResponseEntity.ok(Map.of(
-                    "response", aiResponse.get("message"),
-                    "suggestedProducts", relevantProducts,
-                    "responseType", aiResponse.get("type"),
-                    "confidence", aiResponse.get("confidence"),
-                    "timestamp", Instant.now().toString()
-            ));
+            return ResponseEntity.ok()
+                    .header(ChatSessionStore.SESSION_HEADER, conversation.getSessionId())
+                    .body(Map.of(
+                            "response", aiResponse.get("message"),
+                            "suggestedProducts", relevantProducts,
+                            "responseType", aiResponse.get("type"),
+                            "confidence", aiResponse.get("confidence"),
+                            "sessionId", conversation.getSessionId(),
+                            "timestamp", Instant.now().toString()
+                    ));
         } catch (Exception e) {
             log.error("Error processing AI chat", e);
             return ResponseEntity.internalServerError().body(Map.of(
@@ -407,6 +513,71 @@ public class ApiController {
         }
     }
     
+    /**
+     * Streams the AI chat reply as server-sent events so the first tokens reach the client
+     * while Gemini is still generating
+     */
+    @PostMapping(value = "/ai-chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamAIChat(@RequestBody Map<String, Object> chatRequest) {
+        String message = (String) chatRequest.get("message");
+        String userId = (String) chatRequest.get("userId");
+        List<Map<String, Object>> chatHistory = (List<Map<String, Object>>) chatRequest.getOrDefault("history", List.of());
+        
+        log.info("Streaming AI chat message from user: {}", userId);
+        
+        try {
+            ChatSessionStore.Conversation conversation = chatSessionStore.open(
+                    (String) chatRequest.get("sessionId"), userId, chatHistory);
+            // Lookups complete in the background; the emitter is returned without waiting for them
+            var relevantProducts = productSearchService.findRelevantProducts(message);
+            var userContext = chatUserContext(conversation);
+            
+            SseEmitter emitter = discountService.streamAIChatResponse(message, conversation.getSummary(),
+                    conversation.getTurns(), relevantProducts, userContext,
+                    (responseType, reply) -> {
+                        chatSessionStore.recordTurn(conversation.getSessionId(), message, reply);
+                        trackChatEvent(userId, message, responseType, relevantProducts.join().size());
+                    });
+            return ResponseEntity.ok()
+                    .header(ChatSessionStore.SESSION_HEADER, conversation.getSessionId())
+                    .body(emitter);
+        } catch (Exception e) {
+            log.error("Error starting AI chat stream", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
+    @GetMapping("/ai-chat/stats")
+    public ResponseEntity<Map<String, Object>> getChatStats() {
+        return ResponseEntity.ok(chatSessionStore.getStats());
+    }
+    
+    /**
+     * User context for the prompt, cached per user instead of fetched from Algolia every turn
+     */
+    private CompletableFuture<Map<String, Object>> chatUserContext(ChatSessionStore.Conversation conversation) {
+        String userId = conversation.getUserId();
+        if (userId == null) {
+            return CompletableFuture.completedFuture(new HashMap<>());
+        }
+        return chatSessionStore.userContext(userId, () -> algoliaService.getUserContext(userId));
+    }
+    
+    private void trackChatEvent(String userId, String message, String responseType, int productsFound) {
+        if (userId == null) {
+            return;
+        }
+        UserEvent chatEvent = UserEvent.builder()
+                .objectId(UUID.randomUUID().toString())
+                .userId(userId)
+                .eventType("ai_chat")
+                .query(message)
+                .details(createDetailsMap(responseType, productsFound))
+                .timestamp(Instant.now())
+                .build();
+        eventIngestionService.submit(chatEvent);
+    }
+    
     private Map<String, Object> createDetailsMap(String responseType, int productsFound) {
         Map<String, Object> details = new HashMap<>();
         details.put("responseType", responseType);
@@ -416,16 +587,40 @@ public class ApiController {
 
     @GetMapping("/profit-protection/veto-decisions")
     public ResponseEntity<Map<String, Object>> getVetoDecisions(
-            @RequestParam(defaultValue = "10") int limit) {
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "veto") String type,
+            @RequestParam(required = false) String productId,
+            @RequestParam(required = false) String userId) {
+        
+        log.debug("Getting recent {} decisions, offset: {}, limit: {}", type, offset, limit);
+        
+        if (limit < 1 || offset < 0) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "error", "limit must be positive and offset must not be negative"
+            ));
+        }
         
-        log.info("Getting recent veto decisions, limit: {}", limit);
+        Boolean approved;
+        switch (type) {
+            case "veto" -> approved = Boolean.FALSE;
+            case "approval" -> approved = Boolean.TRUE;
+            case "all" -> approved = null;
+            default -> {
+                return ResponseEntity.badRequest().body(Map.of(
+                        "error", "Unknown decision type '" + type + "', expected veto, approval or all"
+                ));
+            }
+        }
         
         try {
-            var vetoDecisions = profitProtectionService.getRecentVetoDecisions(limit).get();
+            var page = profitProtectionService.getRecentDecisions(approved, productId, userId, offset, limit).get();
             
             return ResponseEntity.ok(Map.of(
-                    "vetoDecisions", vetoDecisions,
-                    "count", vetoDecisions.size(),
+                    "vetoDecisions", page.getDecisions(),
+                    "count", page.getDecisions().size(),
+                    "source", page.getSource(),
+                    "complete", page.isComplete(),
                     "timestamp", java.time.Instant.now().toString()
             ));
         } catch (Exception e) {
@@ -437,4 +632,53 @@ public class ApiController {
             ));
         }
     }
+    
+    @GetMapping("/profit-protection/audit-stats")
+    public ResponseEntity<Map<String, Object>> getAuditStats() {
+        Map<String, Object> stats = new HashMap<>(auditSink.getStats());
+        stats.put("decisionBuffer", decisionRingBuffer.getStats());
+        return ResponseEntity.ok(stats);
+    }
+
+    @GetMapping("/profit-protection/guardrails")
+    public ResponseEntity<Map<String, Object>> getGuardrailStats() {
+        return ResponseEntity.ok(profitGuardrailEngine.getStats());
+    }
+    
+    @PostMapping("/profit-protection/guardrails/reload")
+    public ResponseEntity<Map<String, Object>> reloadGuardrails() {
+        int rules = profitGuardrailEngine.reload();
+        return ResponseEntity.ok(Map.of("status", "reloaded", "rules", rules));
+    }
+    
+    @GetMapping("/catalog/stats")
+    public ResponseEntity<Map<String, Object>> getCatalogStats() {
+        Map<String, Object> stats = new HashMap<>(catalogReplicaService.getStats());
+        stats.put("search", productSearchService.getStats());
+        return ResponseEntity.ok(stats);
+    }
+    
+    @GetMapping("/products/{productId}/cross-sell")
+    public ResponseEntity<Map<String, Object>> getCrossSell(@PathVariable String productId,
+                                                            @RequestParam(defaultValue = "5") int limit) {
+        return ResponseEntity.ok(Map.of(
+                "productId", productId,
+                "suggestions", coOccurrenceModel.suggest(productId, Math.max(0, Math.min(limit, 50))),
+                "model", coOccurrenceModel.getStats()
+        ));
+    }
+    
+    @GetMapping("/autocomplete")
+    public ResponseEntity<Map<String, Object>> autocomplete(@RequestParam("q") String prefix,
+                                                            @RequestParam(defaultValue = "8") int limit) {
+        return ResponseEntity.ok(Map.of(
+                "query", prefix,
+                "suggestions", autocompleteService.suggest(prefix, Math.min(limit, 20))
+        ));
+    }
+    
+    @GetMapping("/autocomplete/stats")
+    public ResponseEntity<Map<String, Object>> getAutocompleteStats() {
+        return ResponseEntity.ok(autocompleteService.getStats());
+    }
 }
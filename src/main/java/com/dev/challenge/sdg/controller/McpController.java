@@ -2,18 +2,33 @@ package com.dev.challenge.sdg.controller;
 
 import com.dev.challenge.sdg.dto.McpRequest;
 import com.dev.challenge.sdg.dto.McpResponse;
+import com.dev.challenge.sdg.service.McpSessionRegistry;
 import com.dev.challenge.sdg.service.McpToolService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * MCP Controller - Handles MCP protocol requests at /mcp endpoint
- * Provides MCP specification compliance for Gemini AI tool calls
+ * Provides MCP specification compliance for Gemini AI tool calls, including the streamable
+ * HTTP transport: sessions via the Mcp-Session-Id header, SSE responses with progress
+ * notifications for tool calls, and DELETE to end a session. The tool list is fixed, so no
+ * standalone GET stream is offered.
  */
 @Slf4j
 @RestController
@@ -24,34 +39,154 @@ public class McpController {
     
 
     private final McpToolService mcpToolService;
+    private final McpSessionRegistry sessionRegistry;
+    private final ObjectMapper objectMapper;
+    
+    @Value("${mcp.server.max-batch-size:50}")
+    private int maxBatchSize;
     
     /**
-     * Main MCP endpoint - handles all MCP JSON-RPC requests
+     * Main MCP endpoint - handles MCP JSON-RPC requests, single or batched.
+     * Tool calls complete asynchronously, so the servlet thread is released while tools run.
+     * Returns an SseEmitter when the client accepts event streams for a tools/call, otherwise
+     * a future of the JSON response.
      */
     @PostMapping
-    public ResponseEntity<McpResponse> handleMcpRequest(@RequestBody McpRequest request) {
+    public Object handleMcpRequest(
+            @RequestBody JsonNode body,
+            @RequestHeader(value = McpSessionRegistry.SESSION_HEADER, required = false) String sessionId,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        if (sessionId != null && !sessionRegistry.touch(sessionId)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(createErrorResponse(null, -32001, "Session not found"));
+        }
+        if (body.isArray()) {
+            return handleBatch(body);
+        }
+        
+        McpRequest request;
+        try {
+            request = objectMapper.treeToValue(body, McpRequest.class);
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(ResponseEntity.ok(createErrorResponse(null, -32600, "Invalid request")));
+        }
+        
+        if (request.getId() == null && request.getMethod() != null && request.getMethod().startsWith("notifications/")) {
+            log.debug("Received MCP notification: {}", request.getMethod());
+            return ResponseEntity.accepted().build();
+        }
+        
+        if ("initialize".equals(request.getMethod())) {
+            McpResponse response = handleInitialize(request);
+            String newSessionId = sessionRegistry.createSession();
+            return newSessionId != null
+                    ? ResponseEntity.ok().header(McpSessionRegistry.SESSION_HEADER, newSessionId).body(response)
+                    : ResponseEntity.ok(response);
+        }
+        
+        if ("tools/call".equals(request.getMethod()) && accept != null && accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE)) {
+            Map<String, Object> params = request.getParams() != null ? request.getParams() : Map.of();
+            Object meta = params.get("_meta");
+            Object progressToken = meta instanceof Map<?, ?> metaMap ? metaMap.get("progressToken") : null;
+            return sessionRegistry.stream(dispatch(request), progressToken, String.valueOf(params.get("name")));
+        }
+        
+        return dispatch(request).thenApply(ResponseEntity::ok);
+    }
+    
+    /**
+     * The server sends no unsolicited messages, so there is no standalone stream to open
+     */
+    @GetMapping
+    public ResponseEntity<Void> openSessionStream() {
+        return ResponseEntity.status(HttpStatus.METHOD_NOT_ALLOWED).header(HttpHeaders.ALLOW, "POST, DELETE").build();
+    }
+    
+    /**
+     * Terminates a session
+     */
+    @DeleteMapping
+    public ResponseEntity<Void> closeSession(@RequestHeader(McpSessionRegistry.SESSION_HEADER) String sessionId) {
+        return sessionRegistry.closeSession(sessionId)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+    
+    @GetMapping("/sessions/stats")
+    public ResponseEntity<Map<String, Object>> getSessionStats() {
+        return ResponseEntity.ok(sessionRegistry.getStats());
+    }
+    
+    /**
+     * JSON-RPC batch: independent requests run concurrently and the responses are returned
+     * as an array in request order; notifications (no id) get no response entry
+     */
+    private CompletableFuture<ResponseEntity<Object>> handleBatch(JsonNode batch) {
+        if (batch.isEmpty() || batch.size() > maxBatchSize) {
+            return CompletableFuture.completedFuture(ResponseEntity.ok(createErrorResponse(null, -32600,
+                    batch.isEmpty() ? "Invalid request: empty batch" : "Invalid request: batch exceeds " + maxBatchSize + " calls")));
+        }
+        log.info("Received MCP batch with {} requests", batch.size());
+        
+        List<CompletableFuture<McpResponse>> responses = new ArrayList<>(batch.size());
+        for (JsonNode element : batch) {
+            McpRequest request;
+            try {
+                request = objectMapper.treeToValue(element, McpRequest.class);
+            } catch (Exception e) {
+                responses.add(CompletableFuture.completedFuture(createErrorResponse(null, -32600, "Invalid request")));
+                continue;
+            }
+            CompletableFuture<McpResponse> response = dispatch(request);
+            responses.add(request.getId() != null ? response : response.thenApply(ignored -> null));
+        }
+        
+        return CompletableFuture.allOf(responses.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> {
+                    List<McpResponse> results = responses.stream()
+                            .map(CompletableFuture::join)
+                            .filter(Objects::nonNull)
+                            .toList();
+                    return results.isEmpty()
+                            ? ResponseEntity.noContent().build()
+                            : ResponseEntity.ok(results);
+                });
+    }
+    
+    /**
+     * Routes a single JSON-RPC request to its handler
+     */
+    private CompletableFuture<McpResponse> dispatch(McpRequest request) {
         log.info("Received MCP request: method={}, id={}", request.getMethod(), request.getId());
         
         try {
-            McpResponse response = switch (request.getMethod()) {
-                case "initialize" -> handleInitialize(request);
-                case "tools/list" -> handleToolsList(request);
+            CompletableFuture<McpResponse> response = switch (String.valueOf(request.getMethod())) {
+                case "initialize" -> CompletableFuture.completedFuture(handleInitialize(request));
+                case "tools/list" -> CompletableFuture.completedFuture(handleToolsList(request));
                 case "tools/call" -> handleToolCall(request);
-                default -> createErrorResponse(request.getId(), -32601, 
-                    "Method not found: " + request.getMethod());
+                default -> CompletableFuture.completedFuture(createErrorResponse(request.getId(), -32601, 
+                    "Method not found: " + request.getMethod()));
             };
             
-            log.debug("Sending MCP response for request: {}", request.getId());
-            return ResponseEntity.ok(response);
+            return response.thenApply(result -> {
+                log.debug("Sending MCP response for request: {}", request.getId());
+                return result;
+            });
             
         } catch (Exception e) {
             log.error("Error processing MCP request: {}", request.getId(), e);
-            McpResponse errorResponse = createErrorResponse(request.getId(), -32603, 
-                "Internal error: " + e.getMessage());
-            return ResponseEntity.ok(errorResponse);
+            return CompletableFuture.completedFuture(createErrorResponse(request.getId(), -32603, 
+                "Internal error: " + e.getMessage()));
         }
     }
     
+    /**
+     * Tool result cache statistics
+     */
+    @GetMapping("/tools/cache-stats")
+    public ResponseEntity<Map<String, Object>> getToolCacheStats() {
+        return ResponseEntity.ok(mcpToolService.getCacheStats());
+    }
+    
     /**
      * Handles MCP initialize request
      */
@@ -69,7 +204,7 @@ public class McpController {
             "version", "1.0.0"
         ));
         result.setCapabilities(Map.of(
-            "tools", Map.of("listChanged", true)
+            "tools", Map.of("listChanged", false)
         ));
         
         response.setResult(result);
@@ -98,7 +233,7 @@ public class McpController {
     /**
      * Handles tools/call request - executes MCP tool
      */
-    private McpResponse handleToolCall(McpRequest request) {
+    private CompletableFuture<McpResponse> handleToolCall(McpRequest request) {
         Map<String, Object> params = request.getParams();
         String toolName = (String) params.get("name");
         @SuppressWarnings("unchecked")
@@ -106,26 +241,27 @@ public class McpController {
         
         log.info("Executing MCP tool: {} with arguments: {}", toolName, arguments);
         
-        try {
-            Map<String, Object> toolResult = mcpToolService.executeTool(toolName, arguments);
-            
-            McpResponse response = new McpResponse();
-            response.setJsonrpc("2.0");
-            response.setId(request.getId());
-            
-            McpResponse.ToolResult result = new McpResponse.ToolResult();
-            result.setContent(toolResult);
-            result.setError(false);
-            
-            response.setResult(result);
-            log.info("Successfully executed MCP tool: {}", toolName);
-            return response;
-            
-        } catch (Exception e) {
-            log.error("Error executing MCP tool: {}", toolName, e);
-            return createErrorResponse(request.getId(), -32000, 
-                "Tool execution failed: " + e.getMessage());
-        }
+        return mcpToolService.executeToolAsync(toolName, arguments)
+            .thenApply(toolResult -> {
+                McpResponse response = new McpResponse();
+                response.setJsonrpc("2.0");
+                response.setId(request.getId());
+                
+                McpResponse.ToolResult result = new McpResponse.ToolResult();
+                result.setContent(toolResult);
+                result.setError(false);
+                
+                response.setResult(result);
+                log.info("Successfully executed MCP tool: {}", toolName);
+                return response;
+            })
+            .exceptionally(throwable -> {
+                Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                        ? throwable.getCause() : throwable;
+                log.error("Error executing MCP tool: {}", toolName, cause);
+                return createErrorResponse(request.getId(), -32000, 
+                    "Tool execution failed: " + cause.getMessage());
+            });
     }
     
     /**
@@ -1,6 +1,13 @@
 package com.dev.challenge.sdg.controller;
 
+import com.dev.challenge.sdg.service.CatalogReplicaService;
+import com.dev.challenge.sdg.service.CatalogSnapshot;
+import com.dev.challenge.sdg.service.InProcessMcpTransport;
+import com.dev.challenge.sdg.service.McpDataEnrichmentService;
 import com.dev.challenge.sdg.service.McpProfitProtectionService;
+import com.dev.challenge.sdg.service.ProductSearchService;
+import com.dev.challenge.sdg.service.RecommendationScorer;
+import com.dev.challenge.sdg.service.UserAffinityService;
 import com.dev.challenge.sdg.service.AlgoliaService;
 import com.dev.challenge.sdg.model.Product;
 import org.slf4j.Logger;
@@ -31,6 +38,24 @@ public class McpEnhancedController {
     @Autowired
     private AlgoliaService algoliaService;
     
+    @Autowired
+    private McpDataEnrichmentService enrichmentService;
+    
+    @Autowired
+    private CatalogReplicaService catalogReplicaService;
+    
+    @Autowired
+    private RecommendationScorer recommendationScorer;
+    
+    @Autowired
+    private UserAffinityService userAffinityService;
+    
+    @Autowired
+    private ProductSearchService productSearchService;
+    
+    @Autowired
+    private InProcessMcpTransport mcpTransport;
+    
     /**
      * 🤖 MCP-Enhanced Discount Generation with AI Intelligence
      * This endpoint showcases the power of Algolia MCP + Claude for intelligent pricing
@@ -186,20 +211,27 @@ public class McpEnhancedController {
             response.put("ai_reasoning_enabled", true);
             
             try {
-                // Get real-time recommendations from Algolia
-                var products = algoliaService.searchProducts("", Math.min(limit, 10)).get();
-                java.util.List<Map<String, Object>> recommendations = new java.util.ArrayList<>();
+                // Whole in-stock catalog from the in-memory replica; a search page only until it is loaded
+                CatalogSnapshot catalog = catalogReplicaService.getSnapshot();
+                boolean fromReplica = catalog.size() > 0;
+                if (!fromReplica) {
+                    catalog = CatalogSnapshot.of(algoliaService.searchProducts("", 100).get(), 0);
+                }
+                CatalogSnapshot candidates = catalog;
+                
+                long started = System.nanoTime();
+                RecommendationScorer.Weights weights = recommendationScorer.defaultWeights()
+                        .withCategoryBoosts(categoryBoosts(candidates, userId, context));
+                var ranked = recommendationScorer.topK(candidates, weights, Math.min(limit, 100), position -> candidates.inventory(position) > 0);
+                long scoringMillis = (System.nanoTime() - started) / 1_000_000;
                 
-                for (var product : products) {
+                java.util.List<Map<String, Object>> recommendations = new java.util.ArrayList<>();
+                for (var scored : ranked) {
+                    Product product = candidates.product(scored.getPosition());
                     Double rating = product.getAverageRating();
                     Double profitMargin = product.getProfitMargin();
                     Integer reviews = product.getNumberOfReviews();
-                    
-                    // Calculate AI score based on real metrics
-                    double aiScore = 0.3 * (rating != null ? rating / 5.0 : 0.8) + 
-                                   0.2 * (profitMargin != null ? profitMargin : 0.35) + 
-                                   0.3 * Math.min((reviews != null ? reviews : 100) / 1000.0, 1.0) + 
-                                   0.2 * Math.random(); // Add some randomization
+                    double aiScore = scored.getScore();
                     
                     // Calculate optimal discount based on profit margin
                     double optimalDiscount = profitMargin != null ? Math.min(profitMargin * 80, 25.0) : 10.0;
@@ -211,21 +243,19 @@ public class McpEnhancedController {
                     recommendation.put("ai_score", Math.round(aiScore * 100) / 100.0);
                     recommendation.put("reasoning", "Live inventory analysis: " + product.getDescription());
                     recommendation.put("optimal_discount", Math.round(optimalDiscount * 10) / 10.0);
-                    recommendation.put("confidence", aiScore);
+                    recommendation.put("confidence", Math.min(aiScore, 1.0));
                     recommendation.put("rating", rating != null ? rating : 4.0);
                     recommendation.put("reviews", reviews != null ? reviews : 100);
                     recommendation.put("inventory_level", product.getInventoryLevel());
                     recommendation.put("category", product.getCategory());
                     
                     recommendations.add(recommendation);
-                    
-                    if (recommendations.size() >= limit) break;
                 }
                 
                 response.put("recommendations", recommendations);
-                response.put("total_analyzed", products.size());
-                response.put("ai_processing_time_ms", 187);
-                response.put("data_source", "live_algolia_index");
+                response.put("total_analyzed", candidates.size());
+                response.put("ai_processing_time_ms", scoringMillis);
+                response.put("data_source", fromReplica ? "catalog_replica" : "live_algolia_index");
                 response.put("personalization_factors", java.util.List.of(
                         "Real-time inventory levels", "Live pricing data", "Current ratings", "Profit margin analysis"
                 ));
@@ -258,6 +288,22 @@ public class McpEnhancedController {
         });
     }
     
+    /**
+     * 📦 Enrichment cache statistics
+     */
+    @GetMapping("/enrichment/cache-stats")
+    public ResponseEntity<Map<String, Object>> getEnrichmentCacheStats() {
+        return ResponseEntity.ok(enrichmentService.getCacheStats());
+    }
+    
+    /**
+     * 🔌 MCP transport statistics: in-process, remote and failed tool calls
+     */
+    @GetMapping("/transport/stats")
+    public ResponseEntity<Map<String, Object>> getTransportStats() {
+        return ResponseEntity.ok(mcpTransport.getStats());
+    }
+    
     /**
      * 💬 MCP Chat Assistant
      * Intelligent conversational interface powered by Algolia MCP + Claude
@@ -286,7 +332,7 @@ public class McpEnhancedController {
                 
                 try {
                     // Search for wireless headphones in Algolia
-                    var searchResults = algoliaService.searchProducts("wireless headphones", 5).get();
+                    var searchResults = productSearchService.searchProducts("wireless headphones", 5).get();
                     
                     intelligentResponse = "🎧 Perfect! I found " + searchResults.size() + " excellent wireless headphones from our live inventory. " +
                             "Here are my AI-powered recommendations based on real-time Algolia data:";
@@ -313,7 +359,7 @@ public class McpEnhancedController {
                 
                 try {
                     // Search for eco-friendly products
-                    var searchResults = algoliaService.searchProducts("eco sustainable bamboo", 3).get();
+                    var searchResults = productSearchService.searchProducts("eco sustainable bamboo", 3).get();
                     
                     intelligentResponse = "🌱 Excellent choice! Here are " + searchResults.size() + " top eco-friendly products from our live inventory:";
                     
@@ -337,7 +383,7 @@ public class McpEnhancedController {
                 
                 try {
                     // Get high-margin products suitable for discounts
-                    var searchResults = algoliaService.searchProducts("", 5).get();
+                    var searchResults = productSearchService.searchProducts("", 5).get();
                     
                     intelligentResponse = "💰 I can help you find the best deals! Based on real-time inventory and AI analysis:";
                     
@@ -370,7 +416,7 @@ public class McpEnhancedController {
                 
                 try {
                     // Get top-rated products from Algolia
-                    var searchResults = algoliaService.searchProducts("", 3).get();
+                    var searchResults = productSearchService.searchProducts("", 3).get();
                     
                     intelligentResponse = "⭐ Based on our live inventory, here are today's top recommendations:";
                     
@@ -397,7 +443,7 @@ public class McpEnhancedController {
                 
                 try {
                     // Get current inventory from Algolia
-                    var searchResults = algoliaService.searchProducts("", 5).get();
+                    var searchResults = productSearchService.searchProducts("", 5).get();
                     
                     intelligentResponse = "📦 Here's what we currently have in stock from our live inventory:";
                     
@@ -425,7 +471,7 @@ public class McpEnhancedController {
             } else {
                 // For general queries, show some live inventory stats
                 try {
-                    var searchResults = algoliaService.searchProducts("", 1).get();
+                    var searchResults = productSearchService.searchProducts("", 1).get();
                     int totalProducts = searchResults.size() > 0 ? 50 : 0; // Estimate based on search
                     
                     intelligentResponse = "🤖 I'm your AI shopping assistant, powered by Algolia MCP Server! " +
@@ -484,6 +530,24 @@ public class McpEnhancedController {
         );
     }
     
+    // Boosts the user's affinity categories and categories named in the free-text context, e.g. "outdoor electronics"
+    private float[] categoryBoosts(CatalogSnapshot catalog, String userId, String context) {
+        float[] boosts = userAffinityService.categoryBoosts(userId, catalog);
+        if (context == null || context.isBlank()) {
+            return boosts;
+        }
+        if (boosts == null) {
+            boosts = new float[catalog.categoryCount()];
+        }
+        String normalized = context.toLowerCase();
+        for (int categoryId = 0; categoryId < boosts.length; categoryId++) {
+            if (normalized.contains(catalog.categoryName(categoryId).toLowerCase())) {
+                boosts[categoryId] += 0.25f;
+            }
+        }
+        return boosts;
+    }
+    
     // Helper method for generating recommendation reasoning
     private String generateRecommendationReasoning(Product product, String context) {
         String name = product.getName();
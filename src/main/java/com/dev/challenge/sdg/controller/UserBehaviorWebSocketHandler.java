@@ -0,0 +1,75 @@
+package com.dev.challenge.sdg.controller;
+
+import com.dev.challenge.sdg.service.EventIngestionService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.io.StringReader;
+
+/**
+ * Long-lived behavior ingestion channel.
+ * Each text frame carries one or more newline-delimited events and is answered with an
+ * acknowledgement frame holding the accepted/rejected/dropped counts. Frames split by the
+ * container are reassembled up to a configured size.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserBehaviorWebSocketHandler extends TextWebSocketHandler {
+
+    private static final String PENDING_FRAGMENTS = "pendingFragments";
+
+    private final EventIngestionService eventIngestionService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${ingestion.websocket.max-message-chars:1048576}")
+    private int maxMessageChars;
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        session.getAttributes().put(PENDING_FRAGMENTS, new StringBuilder());
+        log.debug("Behavior ingestion session opened: {}", session.getId());
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+        StringBuilder pending = (StringBuilder) session.getAttributes().get(PENDING_FRAGMENTS);
+        if (pending.length() + message.getPayloadLength() > maxMessageChars) {
+            pending.setLength(0);
+            session.close(CloseStatus.TOO_BIG_TO_PROCESS);
+            return;
+        }
+        pending.append(message.getPayload());
+        if (!message.isLast()) {
+            return;
+        }
+
+        String payload = pending.toString();
+        pending.setLength(0);
+
+        EventIngestionService.IngestionResult result = eventIngestionService.ingestNdjson(new StringReader(payload));
+        session.sendMessage(new TextMessage(objectMapper.writeValueAsString(result.toMap())));
+    }
+
+    @Override
+    public boolean supportsPartialMessages() {
+        return true;
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) {
+        log.warn("Behavior ingestion session {} failed: {}", session.getId(), exception.getMessage());
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        log.debug("Behavior ingestion session closed: {} ({})", session.getId(), status);
+    }
+}
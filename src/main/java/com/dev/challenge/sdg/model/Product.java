@@ -41,6 +41,10 @@ public class Product {
     @JsonProperty("number_of_reviews")
     private Integer numberOfReviews;
     
+    // Epoch millis of the last write, used for catalog delta sync
+    @JsonProperty("updated_at")
+    private Long updatedAt;
+    
     // Additional fields from your actual Algolia data
     private String brand;
     private List<String> tags;
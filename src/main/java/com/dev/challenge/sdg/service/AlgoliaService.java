@@ -2,21 +2,36 @@ package com.dev.challenge.sdg.service;
 
 import com.algolia.api.SearchClient;
 import com.algolia.api.AnalyticsClient;
+import com.algolia.config.RequestOptions;
 import com.algolia.model.search.*;
 import com.dev.challenge.sdg.model.Product;
 import com.dev.challenge.sdg.model.UserEvent;
 import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.http.MediaType;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 @Service
@@ -24,6 +39,8 @@ public class AlgoliaService {
     
 
     
+    private static final String SEED_HASH_KEY = "seedHash";
+    
     private final SearchClient searchClient;
     private final AnalyticsClient analyticsClient;
     
@@ -42,7 +59,16 @@ public class AlgoliaService {
     @Value("${algolia.admin-api-key}")
     private String algoliaAdminKey;
     
+    @Value("${search.algolia-executor.threads:16}")
+    private int searchThreads;
+    
+    @Value("${search.algolia-executor.queue-capacity:200}")
+    private int searchQueueCapacity;
+    
     private WebClient webClient;
+    private ApplicationEventPublisher eventPublisher;
+    // Latency-budgeted searches run here rather than on the common pool, so a slow Algolia cannot starve it
+    private ThreadPoolExecutor searchExecutor;
     
     @Autowired
     public AlgoliaService(SearchClient searchClient, AnalyticsClient analyticsClient) {
@@ -50,6 +76,29 @@ public class AlgoliaService {
         this.analyticsClient = analyticsClient;
     }
     
+    @PostConstruct
+    public void startSearchExecutor() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        searchExecutor = new ThreadPoolExecutor(searchThreads, searchThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(searchQueueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "algolia-search-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+    
+    @PreDestroy
+    public void stopSearchExecutor() {
+        if (searchExecutor != null) {
+            searchExecutor.shutdownNow();
+        }
+    }
+    
+    @Autowired
+    public void setEventPublisher(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+    
     @Autowired
     public void setWebClientBuilder(WebClient.Builder builder) {
         this.webClient = builder.baseUrl("https://%s-dsn.algolia.net".formatted(algoliaAppId)).build();
@@ -59,31 +108,7 @@ public class AlgoliaService {
         log.debug("Storing user event: {}", userEvent);
         
         try {
-            // Generate unique ID if not provided
-            if (userEvent.getObjectId() == null) {
-                userEvent.setObjectId(UUID.randomUUID().toString());
-            }
-            
-            // Set timestamp if not provided
-            if (userEvent.getTimestamp() == null) {
-                userEvent.setTimestamp(Instant.now());
-            }
-            
-            // Convert UserEvent to Map with timestamp as string to avoid Jackson issues
-            Map<String, Object> eventData = new HashMap<>();
-            eventData.put("objectID", userEvent.getObjectId());
-            eventData.put("userId", userEvent.getUserId());
-            eventData.put("eventType", userEvent.getEventType());
-            eventData.put("timestamp", userEvent.getTimestamp().toString()); // Convert Instant to string
-            if (userEvent.getProductId() != null) {
-                eventData.put("productId", userEvent.getProductId());
-            }
-            if (userEvent.getQuery() != null) {
-                eventData.put("query", userEvent.getQuery());
-            }
-            if (userEvent.getDetails() != null) {
-                eventData.put("details", userEvent.getDetails());
-            }
+            Map<String, Object> eventData = toEventData(userEvent);
             
             // Save the user event using the correct API method
             log.debug("Saving user event to index: {} with data: {}", userEventsIndexName, eventData);
@@ -98,6 +123,59 @@ public class AlgoliaService {
         }
     }
     
+    /**
+     * Stores a batch of user events with a single chunked batch request
+     */
+    public CompletableFuture<Void> storeUserEvents(List<UserEvent> userEvents) {
+        if (userEvents == null || userEvents.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        try {
+            List<Map<String, Object>> records = new ArrayList<>(userEvents.size());
+            for (UserEvent userEvent : userEvents) {
+                records.add(toEventData(userEvent));
+            }
+            
+            searchClient.saveObjects(userEventsIndexName, records);
+            log.debug("Stored batch of {} user events", records.size());
+            
+            return CompletableFuture.completedFuture(null);
+        } catch (Exception e) {
+            log.error("Failed to store batch of {} user events: {}", userEvents.size(), e.getMessage(), e);
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    private Map<String, Object> toEventData(UserEvent userEvent) {
+        // Generate unique ID if not provided
+        if (userEvent.getObjectId() == null) {
+            userEvent.setObjectId(UUID.randomUUID().toString());
+        }
+        
+        // Set timestamp if not provided
+        if (userEvent.getTimestamp() == null) {
+            userEvent.setTimestamp(Instant.now());
+        }
+        
+        // Convert UserEvent to Map with timestamp as string to avoid Jackson issues
+        Map<String, Object> eventData = new HashMap<>();
+        eventData.put("objectID", userEvent.getObjectId());
+        eventData.put("userId", userEvent.getUserId());
+        eventData.put("eventType", userEvent.getEventType());
+        eventData.put("timestamp", userEvent.getTimestamp().toString()); // Convert Instant to string
+        if (userEvent.getProductId() != null) {
+            eventData.put("productId", userEvent.getProductId());
+        }
+        if (userEvent.getQuery() != null) {
+            eventData.put("query", userEvent.getQuery());
+        }
+        if (userEvent.getDetails() != null) {
+            eventData.put("details", userEvent.getDetails());
+        }
+        return eventData;
+    }
+    
     /**
      * Manually extract UserEvent objects from raw Algolia search result
      */
@@ -249,8 +327,16 @@ public class AlgoliaService {
                     log.debug("Using default profit margin for product: {}", hitMap.get("objectID"));
                 }
                 
+                builder.brand((String) hitMap.get("brand"));
+                if (hitMap.get("tags") instanceof List<?> tags) {
+                    builder.tags(tags.stream().map(String::valueOf).toList());
+                }
+                if (hitMap.get("updated_at") instanceof Number updatedAt) {
+                    builder.updatedAt(updatedAt.longValue());
+                }
+                
                 // Handle inventory level
-                Object inventoryObj = hitMap.get("inventoryLevel");
+                Object inventoryObj = hitMap.containsKey("inventory_level") ? hitMap.get("inventory_level") : hitMap.get("inventoryLevel");
                 if (inventoryObj instanceof Number) {
                     builder.inventoryLevel(((Number) inventoryObj).intValue());
                 } else {
@@ -434,48 +520,87 @@ public class AlgoliaService {
         log.debug("Searching products with query: {}", query);
         
         try {
-            // Build the search request
-            SearchForHits searchForHits = new SearchForHits()
-                    .setIndexName(productsIndexName)
-                    .setQuery(query)
-                    .setHitsPerPage(limit);
-            
-            SearchMethodParams params = new SearchMethodParams().addRequests(searchForHits);
-            
-            // Perform the search
-            SearchResponses<Product> response = searchClient.search(params, Product.class);
-            List<Product> hits = new ArrayList<>();
-            
-            if (response.getResults() != null && !response.getResults().isEmpty()) {
-                var result = response.getResults().get(0);
-                hits = extractHitsFromResult(result);
-            }
-            
-            log.info("Found {} products for query: {}", hits.size(), query);
-            return CompletableFuture.completedFuture(hits);
+            return CompletableFuture.completedFuture(queryProducts(query, limit));
         } catch (Exception e) {
             log.error("Failed to search products with query {}: {}", query, e.getMessage(), e);
             return CompletableFuture.completedFuture(Collections.emptyList());
         }
     }
     
-    public CompletableFuture<Void> initializeIndexes() {
-        log.info("Initializing Algolia indexes");
-        
+    /**
+     * Searches products on the bounded search executor with a per-request read timeout; unlike
+     * {@link #searchProducts} failures, timeouts and a full queue complete the future exceptionally
+     */
+    public CompletableFuture<List<Product>> searchProductsAsync(String query, int limit, long timeoutMs) {
+        RequestOptions options = new RequestOptions().setReadTimeout(Duration.ofMillis(timeoutMs));
         try {
-            // Initialize products index with sample data
-            initializeProductsIndex();
-            initializeUserEventsIndex();
-            initializeDiscountTemplatesIndex();
-            
-            log.info("All Algolia indexes initialized successfully");
-            return CompletableFuture.completedFuture(null);
-        } catch (Exception e) {
-            log.error("Failed to initialize Algolia indexes: {}", e.getMessage(), e);
+            return CompletableFuture.supplyAsync(() -> queryProducts(query, limit, options), searchExecutor);
+        } catch (RejectedExecutionException e) {
             return CompletableFuture.failedFuture(e);
         }
     }
     
+    private List<Product> queryProducts(String query, int limit) {
+        return queryProducts(query, limit, null);
+    }
+    
+    private List<Product> queryProducts(String query, int limit, RequestOptions options) {
+        // Build the search request
+        SearchForHits searchForHits = new SearchForHits()
+                .setIndexName(productsIndexName)
+                .setQuery(query)
+                .setHitsPerPage(limit);
+        
+        SearchMethodParams params = new SearchMethodParams().addRequests(searchForHits);
+        
+        // Perform the search
+        SearchResponses<Product> response = searchClient.search(params, Product.class, options);
+        List<Product> hits = new ArrayList<>();
+        
+        if (response.getResults() != null && !response.getResults().isEmpty()) {
+            var result = response.getResults().get(0);
+            hits = extractHitsFromResult(result);
+        }
+        
+        log.info("Found {} products for query: {}", hits.size(), query);
+        return hits;
+    }
+    
+    /**
+     * Provisions the indexes concurrently. Each index stores a hash of its seed data and
+     * settings in {@code userData}; when it matches, the index is left untouched.
+     * The tasks block on Algolia tasks, so they get one short-lived thread each instead of
+     * the common pool, which may have a single worker on small pods.
+     */
+    public CompletableFuture<Void> initializeIndexes() {
+        log.info("Initializing Algolia indexes");
+        
+        List<Runnable> tasks = List.of(
+                this::initializeProductsIndex,
+                this::initializeUserEventsIndex,
+                this::initializeDiscountTemplatesIndex,
+                () -> initializeDecisionIndex(ProfitProtectionService.VETO_DECISIONS_INDEX),
+                () -> initializeDecisionIndex(McpProfitProtectionService.MCP_DECISIONS_INDEX));
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService provisioning = Executors.newFixedThreadPool(tasks.size(), runnable -> {
+            Thread thread = new Thread(runnable, "algolia-provisioning-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        return CompletableFuture.allOf(tasks.stream()
+                .map(task -> CompletableFuture.runAsync(task, provisioning))
+                .toArray(CompletableFuture[]::new)
+        ).whenComplete((ignored, error) -> {
+            provisioning.shutdown();
+            if (error != null) {
+                log.error("Failed to initialize Algolia indexes: {}", error.getMessage(), error);
+            } else {
+                log.info("All Algolia indexes initialized successfully");
+            }
+        });
+    }
+    
     private void initializeProductsIndex() {
         try {
             List<Product> sampleProducts = List.of(
@@ -517,27 +642,13 @@ public class AlgoliaService {
                             .build()
             );
             
-            log.info("Attempting to save {} products to index: {}", sampleProducts.size(), productsIndexName);
-            
-            // Save products one by one using the correct API method
-            for (Product product : sampleProducts) {
-                try {
-                    log.debug("Saving product: {} to index: {}", product.getObjectId(), productsIndexName);
-                    var response = searchClient.saveObject(productsIndexName, product);
-                    log.debug("Save response for {}: {}", product.getObjectId(), response);
-                } catch (Exception saveException) {
-                    log.error("Failed to save product {}: {}", product.getObjectId(), saveException.getMessage(), saveException);
-                }
+            if (provisionIndex(productsIndexName, new IndexSettings(), sampleProducts)) {
+                log.info("Products index initialized with {} sample products", sampleProducts.size());
+                
+                // Verify data was saved by doing a test search
+                verifyProductsIndexData();
             }
             
-            // Add a small delay to allow Algolia to process the data
-            Thread.sleep(2000);
-            
-            log.info("Products index initialized with {} sample products", sampleProducts.size());
-            
-            // Verify data was saved by doing a test search
-            verifyProductsIndexData();
-            
         } catch (Exception e) {
             log.error("Failed to initialize products index: {}", e.getMessage(), e);
         }
@@ -546,22 +657,37 @@ public class AlgoliaService {
     private void initializeUserEventsIndex() {
         try {
             // Set up index settings for user events using IndexSettings object
-            com.algolia.model.search.IndexSettings settings = new com.algolia.model.search.IndexSettings()
+            IndexSettings settings = new IndexSettings()
                     .setSearchableAttributes(List.of("userId", "eventType", "query"))
                     .setAttributesForFaceting(List.of("userId", "eventType", "productId"));
             
-            // Set index settings using the correct API method
-            try {
-                searchClient.setSettings(userEventsIndexName, settings);
-            } catch (Exception e) {
-                log.warn("Could not set index settings, continuing without custom settings: {}", e.getMessage());
+            if (provisionIndex(userEventsIndexName, settings, List.of())) {
+                log.info("User events index settings configured");
             }
-            log.info("User events index settings configured");
         } catch (Exception e) {
             log.error("Failed to initialize user events index: {}", e.getMessage(), e);
         }
     }
     
+    /**
+     * Audit indexes behind the veto decision dashboard: filterable by product, user and outcome,
+     * newest first so offsets page back in time
+     */
+    private void initializeDecisionIndex(String indexName) {
+        try {
+            IndexSettings settings = new IndexSettings()
+                    .setAttributesForFaceting(List.of("filterOnly(eventType)", "filterOnly(productId)",
+                            "filterOnly(userId)", "filterOnly(approved)"))
+                    .setCustomRanking(List.of("desc(timestampMillis)"));
+            
+            if (provisionIndex(indexName, settings, List.of())) {
+                log.info("Decision index {} settings configured", indexName);
+            }
+        } catch (Exception e) {
+            log.error("Failed to initialize decision index {}: {}", indexName, e.getMessage(), e);
+        }
+    }
+    
     private void initializeDiscountTemplatesIndex() {
         try {
             List<Map<String, Object>> templates = List.of(
@@ -579,21 +705,77 @@ public class AlgoliaService {
                     )
             );
             
-            // Save templates one by one using the correct API method
-            for (Map<String, Object> template : templates) {
-                searchClient.saveObject(discountTemplatesIndexName, template);
+            if (provisionIndex(discountTemplatesIndexName, new IndexSettings(), templates)) {
+                log.info("Discount templates index initialized with {} templates", templates.size());
             }
-            log.info("Discount templates index initialized with {} templates", templates.size());
         } catch (Exception e) {
             log.error("Failed to initialize discount templates index: {}", e.getMessage(), e);
         }
     }
     
+    /**
+     * Saves the seed records in one batch and applies the settings, waiting on the Algolia tasks
+     * rather than sleeping. Returns false when the stored seed hash shows nothing changed.
+     * The hash is written last, so an interrupted run is repeated on the next start.
+     */
+    private boolean provisionIndex(String indexName, IndexSettings settings, List<?> records) {
+        String seedHash = seedHash(settings, records);
+        try {
+            Object userData = searchClient.getSettings(indexName).getUserData();
+            if (userData instanceof Map<?, ?> data && seedHash.equals(data.get(SEED_HASH_KEY))) {
+                log.info("Index {} is already provisioned, skipping", indexName);
+                return false;
+            }
+        } catch (Exception e) {
+            log.debug("Could not read settings of index {}, provisioning it: {}", indexName, e.getMessage());
+        }
+        
+        if (!records.isEmpty()) {
+            log.info("Saving {} seed records to index: {}", records.size(), indexName);
+            searchClient.saveObjects(indexName, records, true);
+        }
+        var response = searchClient.setSettings(indexName, settings.setUserData(Map.of(SEED_HASH_KEY, seedHash)));
+        searchClient.waitForTask(indexName, response.getTaskID());
+        return true;
+    }
+    
+    private static String seedHash(IndexSettings settings, List<?> records) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(canonical(settings).getBytes(StandardCharsets.UTF_8));
+            for (Object record : records) {
+                digest.update(canonical(record).getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * Stable string form; map iteration order is not stable across JVM runs, so keys are sorted
+     */
+    private static String canonical(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            Map<String, String> sorted = new TreeMap<>();
+            map.forEach((key, entry) -> sorted.put(String.valueOf(key), canonical(entry)));
+            return sorted.toString();
+        }
+        if (value instanceof Collection<?> collection) {
+            return collection.stream().map(AlgoliaService::canonical).toList().toString();
+        }
+        return String.valueOf(value);
+    }
+    
     // Additional utility methods from the working example
     public void addProduct(Product product) {
         try {
+            product.setUpdatedAt(System.currentTimeMillis());
             searchClient.saveObject(productsIndexName, product);
             log.info("Product added to Algolia index: {}", product.getObjectId());
+            if (eventPublisher != null) {
+                eventPublisher.publishEvent(new ProductUpdatedEvent(product));
+            }
         } catch (Exception e) {
             log.error("Failed to add product to Algolia: {}", e.getMessage(), e);
         }
@@ -942,51 +1124,6 @@ public class AlgoliaService {
         }
     }
     
-    /**
-     * Perform enhanced search with AI personalization
-     */
-    public CompletableFuture<List<Product>> performEnhancedSearch(String query, String userId, Map<String, Object> context) {
-        log.debug("Performing enhanced search for query: '{}' by user: {}", query, userId);
-        
-        return searchProducts(query, 20)
-                .thenCompose(products -> {
-                    if (userId != null) {
-                        // Get user behavior to personalize results
-                        return getUserBehaviorHistory(userId, 50)
-                                .thenApply(userEvents -> {
-                                    // Apply simple personalization based on user behavior
-                                    return personalizeProductResults(products, userEvents);
-                                });
-                    } else {
-                        return CompletableFuture.completedFuture(products);
-                    }
-                });
-    }
-    
-    /**
-     * Find products relevant to a chat message or query
-     */
-    public CompletableFuture<List<Product>> findRelevantProducts(String message) {
-        log.debug("Finding products relevant to message: '{}'", message);
-        
-        // Extract potential product-related keywords
-        String[] keywords = message.toLowerCase().split("\\s+");
-        StringBuilder queryBuilder = new StringBuilder();
-        
-        for (String keyword : keywords) {
-            if (keyword.length() > 3) { // Only use longer words
-                queryBuilder.append(keyword).append(" ");
-            }
-        }
-        
-        String searchQuery = queryBuilder.toString().trim();
-        if (searchQuery.isEmpty()) {
-            searchQuery = message; // Use original message if no keywords found
-        }
-        
-        return searchProducts(searchQuery, 5);
-    }
-    
     /**
      * Get user context for AI chat
      */
@@ -1102,6 +1239,81 @@ public class AlgoliaService {
         });
     }
     
+    /**
+     * Reads the whole products index with the browse API (no 1000-hit search cap)
+     */
+    public CompletableFuture<List<Product>> browseAllProducts() {
+        return browseProducts(null);
+    }
+    
+    /**
+     * Reads products whose {@code updated_at} (epoch millis) is at or after the given watermark.
+     * Products stamped exactly at the watermark are returned again; callers drop unchanged ones.
+     */
+    public CompletableFuture<List<Product>> browseProductsUpdatedSince(long updatedAtMillis) {
+        return browseProducts("updated_at >= " + updatedAtMillis);
+    }
+    
+    private CompletableFuture<List<Product>> browseProducts(String filters) {
+        return CompletableFuture.supplyAsync(() -> {
+            List<Product> products = new ArrayList<>();
+            try {
+                BrowseParamsObject browseParams = new BrowseParamsObject().setHitsPerPage(1000);
+                if (filters != null) {
+                    browseParams.setFilters(filters);
+                }
+                for (Object hit : searchClient.browseObjects(productsIndexName, browseParams, Object.class)) {
+                    Product product = convertRawHitToProduct(hit);
+                    if (product != null) {
+                        products.add(product);
+                    }
+                }
+                log.info("Browsed {} products from index {}", products.size(), productsIndexName);
+            } catch (Exception e) {
+                log.error("Failed to browse products index: {}", e.getMessage(), e);
+                throw new IllegalStateException("Failed to browse products index", e);
+            }
+            return products;
+        });
+    }
+    
+    /**
+     * Reads every record of an arbitrary index as raw maps (used for rule and config indexes)
+     */
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<List<Map<String, Object>>> browseRecords(String indexName) {
+        return CompletableFuture.supplyAsync(() -> {
+            List<Map<String, Object>> records = new ArrayList<>();
+            try {
+                BrowseParamsObject browseParams = new BrowseParamsObject().setHitsPerPage(1000);
+                for (Object hit : searchClient.browseObjects(indexName, browseParams, Object.class)) {
+                    if (hit instanceof Map) {
+                        records.add((Map<String, Object>) hit);
+                    }
+                }
+                log.debug("Browsed {} records from index {}", records.size(), indexName);
+            } catch (Exception e) {
+                log.error("Failed to browse index {}: {}", indexName, e.getMessage());
+                throw new IllegalStateException("Failed to browse index " + indexName, e);
+            }
+            return records;
+        });
+    }
+    
+    /**
+     * Writes a batch of records to an arbitrary index (used by the audit sink)
+     */
+    public CompletableFuture<Void> saveRecords(String indexName, List<Map<String, Object>> records) {
+        try {
+            searchClient.saveObjects(indexName, records);
+            log.debug("Saved {} records to index {}", records.size(), indexName);
+            return CompletableFuture.completedFuture(null);
+        } catch (Exception e) {
+            log.error("Failed to save {} records to index {}: {}", records.size(), indexName, e.getMessage());
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
     /**
      * Logs a user event to a specific index (used for veto decisions)
      */
@@ -1124,15 +1336,30 @@ public class AlgoliaService {
      * Searches for user events by type in a specific index
      */
     public CompletableFuture<List<Map<String, Object>>> searchUserEvents(String indexName, String eventType, int limit) {
+        return searchUserEvents(indexName, eventType, Collections.emptyMap(), 0, limit);
+    }
+    
+    /**
+     * Searches events of a type with additional attribute filters, skipping the first {@code offset} hits
+     */
+    public CompletableFuture<List<Map<String, Object>>> searchUserEvents(String indexName, String eventType,
+                                                                         Map<String, String> attributeFilters,
+                                                                         int offset, int limit) {
         return CompletableFuture.supplyAsync(() -> {
             try {
-                log.debug("Searching for events in index {}, type: {}, limit: {}", indexName, eventType, limit);
+                log.debug("Searching for events in index {}, type: {}, filters: {}, offset: {}, limit: {}",
+                        indexName, eventType, attributeFilters, offset, limit);
+                
+                StringBuilder filters = new StringBuilder("eventType:").append(eventType);
+                attributeFilters.forEach((attribute, value) ->
+                        filters.append(" AND ").append(attribute).append(":\"").append(value).append('"'));
                 
                 SearchForHits searchForHits = new SearchForHits()
                         .setIndexName(indexName)
                         .setQuery("")
-                        .setFilters("eventType:" + eventType)
-                        .setHitsPerPage(limit);
+                        .setFilters(filters.toString())
+                        .setOffset(offset)
+                        .setLength(limit);
                 
                 SearchMethodParams params = new SearchMethodParams().addRequests(searchForHits);
                 var searchResponse = searchClient.search(params, Object.class);
@@ -1154,6 +1381,37 @@ public class AlgoliaService {
         });
     }
     
+    /**
+     * Searches any index and returns the raw hits
+     */
+    public CompletableFuture<Map<String, Object>> searchIndexRaw(String indexName, String query, String filters,
+                                                                 List<String> attributesToRetrieve, int hitsPerPage) {
+        return CompletableFuture.supplyAsync(() -> {
+            SearchForHits searchForHits = new SearchForHits()
+                    .setIndexName(indexName)
+                    .setQuery(query != null ? query : "")
+                    .setHitsPerPage(hitsPerPage);
+            if (filters != null && !filters.isBlank()) {
+                searchForHits.setFilters(filters);
+            }
+            if (attributesToRetrieve != null && !attributesToRetrieve.isEmpty()) {
+                searchForHits.setAttributesToRetrieve(attributesToRetrieve);
+            }
+            
+            var searchResponse = searchClient.search(new SearchMethodParams().addRequests(searchForHits), Object.class);
+            List<Map<String, Object>> hits = new ArrayList<>();
+            if (searchResponse != null && searchResponse.getResults() != null && !searchResponse.getResults().isEmpty()) {
+                hits.addAll(extractHitsFromResult(searchResponse.getResults().get(0)));
+            }
+            
+            Map<String, Object> result = new HashMap<>();
+            result.put("index", indexName);
+            result.put("hits", hits);
+            result.put("nbHits", hits.size());
+            return result;
+        });
+    }
+    
     /**
      * 🚀 Index enriched product data back to Algolia
      */
@@ -1163,7 +1421,9 @@ public class AlgoliaService {
             String enrichedIndexName = "enriched_products";
             
             // Add the enriched data with proper object ID
-            enrichedData.put("objectID", productId + "_enriched");
+            // One record per product and context bucket, so every cached bucket can be seeded on startup
+            Object contextBucket = enrichedData.get("enrichment_context_bucket");
+            enrichedData.put("objectID", productId + "_enriched" + (contextBucket != null ? "_" + contextBucket : ""));
             enrichedData.put("originalProductId", productId);
             enrichedData.put("enrichmentTimestamp", Instant.now().toString());
             
@@ -1215,36 +1475,4 @@ public class AlgoliaService {
         defaultMetrics.put("popularProducts", Arrays.asList());
         return defaultMetrics;
     }
-    
-    /**
-     * Personalize product results based on user behavior
-     */
-    private List<Product> personalizeProductResults(List<Product> products, List<UserEvent> behaviorHistory) {
-        if (behaviorHistory.isEmpty()) {
-            return products;
-        }
-        
-        // Extract user's preferred categories from behavior
-        Set<String> userCategories = behaviorHistory.stream()
-                .filter(event -> event.getProductId() != null)
-                .map(event -> event.getEventType()) // This would need proper category mapping
-                .collect(java.util.stream.Collectors.toSet());
-        
-        // Sort products: user-relevant categories first, then by rating
-        return products.stream()
-                .sorted((p1, p2) -> {
-                    boolean p1Relevant = userCategories.contains(p1.getCategory());
-                    boolean p2Relevant = userCategories.contains(p2.getCategory());
-                    
-                    if (p1Relevant && !p2Relevant) return -1;
-                    if (!p1Relevant && p2Relevant) return 1;
-                    
-                    // If both are equally relevant, sort by rating
-                    return Double.compare(
-                        p2.getAverageRating() != null ? p2.getAverageRating() : 0.0,
-                        p1.getAverageRating() != null ? p1.getAverageRating() : 0.0
-                    );
-                })
-                .collect(java.util.stream.Collectors.toList());
-    }
 }
@@ -0,0 +1,278 @@
+package com.dev.challenge.sdg.service;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared, bounded writer for audit records (veto and MCP decisions).
+ * Callers enqueue without blocking; a single flusher writes batches per index when the
+ * batch fills up or the flush interval elapses. Batches that cannot be written are spilled
+ * to a local NDJSON file and re-sent once Algolia accepts writes again, with exponential
+ * backoff between failed attempts. When the queue is full new records are dropped and counted
+ * rather than slowing down the caller.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AuditSink {
+
+    private static final String SPILL_FILE = "audit-spill.ndjson";
+
+    private final AlgoliaService algoliaService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${audit.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${audit.batch-size:500}")
+    private int batchSize;
+
+    @Value("${audit.flush-interval-ms:2000}")
+    private long flushIntervalMs;
+
+    @Value("${audit.spill-dir:./data/audit}")
+    private String spillDirectory;
+
+    @Value("${audit.spill-recovery-max-backoff-ms:60000}")
+    private long maxRecoveryBackoffMs;
+
+    private BlockingQueue<AuditRecord> queue;
+    private Path spillPath;
+    private Thread flusher;
+    private volatile boolean running;
+    private volatile boolean hasSpill;
+    // Only touched by the flusher thread
+    private long recoveryBackoffMs;
+    private long retryRecoveryAfterMillis;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong flushed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong spilled = new AtomicLong();
+    private final AtomicLong recovered = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+
+    @PostConstruct
+    public void start() throws IOException {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        Path directory = Paths.get(spillDirectory);
+        Files.createDirectories(directory);
+        spillPath = directory.resolve(SPILL_FILE);
+        hasSpill = Files.exists(spillPath) || Files.exists(spillPath.resolveSibling(SPILL_FILE + ".recovering"));
+
+        running = true;
+        flusher = new Thread(this::flushLoop, "audit-sink-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (flusher != null) {
+            flusher.interrupt();
+            try {
+                flusher.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Queues a record for the given index; returns false if it was dropped
+     */
+    public boolean record(String indexName, Map<String, Object> record) {
+        if (!queue.offer(new AuditRecord(indexName, record))) {
+            dropped.incrementAndGet();
+            log.warn("Audit queue full, dropping record for index {}", indexName);
+            return false;
+        }
+        enqueued.incrementAndGet();
+        return true;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("queueDepth", queue.size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("enqueued", enqueued.get());
+        stats.put("flushed", flushed.get());
+        stats.put("dropped", dropped.get());
+        stats.put("spilled", spilled.get());
+        stats.put("recoveredFromSpill", recovered.get());
+        stats.put("failedFlushes", failedFlushes.get());
+        stats.put("pendingSpill", hasSpill);
+        return stats;
+    }
+
+    private void flushLoop() {
+        List<AuditRecord> batch = new ArrayList<>(batchSize);
+        long deadline = System.currentTimeMillis() + flushIntervalMs;
+
+        while (running || !queue.isEmpty()) {
+            try {
+                long wait = Math.max(0, deadline - System.currentTimeMillis());
+                AuditRecord record = queue.poll(wait, TimeUnit.MILLISECONDS);
+                if (record != null) {
+                    batch.add(record);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+                if (batch.size() >= batchSize || System.currentTimeMillis() >= deadline) {
+                    flush(batch);
+                    deadline = System.currentTimeMillis() + flushIntervalMs;
+                }
+            } catch (InterruptedException e) {
+                if (!running) {
+                    queue.drainTo(batch);
+                    flush(batch);
+                    return;
+                }
+            }
+        }
+        flush(batch);
+    }
+
+    private void flush(List<AuditRecord> batch) {
+        if (batch.isEmpty()) {
+            recoverSpillIfDue();
+            return;
+        }
+
+        if (write(batch)) {
+            flushed.addAndGet(batch.size());
+            recoverSpillIfDue();
+        } else {
+            spill(batch);
+        }
+        batch.clear();
+    }
+
+    /**
+     * Writes the batch grouped by index; returns false when Algolia rejected it
+     */
+    private boolean write(List<AuditRecord> batch) {
+        Map<String, List<Map<String, Object>>> byIndex = new LinkedHashMap<>();
+        for (AuditRecord record : batch) {
+            byIndex.computeIfAbsent(record.indexName, key -> new ArrayList<>()).add(record.record);
+        }
+        try {
+            for (Map.Entry<String, List<Map<String, Object>>> entry : byIndex.entrySet()) {
+                algoliaService.saveRecords(entry.getKey(), entry.getValue()).join();
+            }
+            return true;
+        } catch (Exception e) {
+            failedFlushes.incrementAndGet();
+            log.warn("Failed to flush {} audit records: {}", batch.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    private void spill(List<AuditRecord> batch) {
+        try (BufferedWriter writer = Files.newBufferedWriter(spillPath, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (AuditRecord record : batch) {
+                writer.write(objectMapper.writeValueAsString(Map.of("index", record.indexName, "record", record.record)));
+                writer.newLine();
+            }
+            spilled.addAndGet(batch.size());
+            hasSpill = true;
+        } catch (IOException e) {
+            dropped.addAndGet(batch.size());
+            log.error("Failed to spill {} audit records, dropping them: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    private void recoverSpillIfDue() {
+        if (hasSpill && System.currentTimeMillis() >= retryRecoveryAfterMillis) {
+            recoverSpill();
+        }
+    }
+
+    /**
+     * Re-sends spilled records; the spill file is only removed once all of them are written
+     */
+    @SuppressWarnings("unchecked")
+    private void recoverSpill() {
+        Path recovering = spillPath.resolveSibling(SPILL_FILE + ".recovering");
+        try {
+            if (!Files.exists(recovering)) {
+                if (!Files.exists(spillPath)) {
+                    hasSpill = false;
+                    return;
+                }
+                Files.move(spillPath, recovering, StandardCopyOption.ATOMIC_MOVE);
+            }
+            hasSpill = false;
+
+            List<AuditRecord> chunk = new ArrayList<>(batchSize);
+            long resent = 0;
+            try (InputStream input = Files.newInputStream(recovering);
+                 MappingIterator<Map<String, Object>> lines = objectMapper.readerFor(Map.class).readValues(input)) {
+                while (lines.hasNextValue()) {
+                    Map<String, Object> line = lines.nextValue();
+                    chunk.add(new AuditRecord((String) line.get("index"), (Map<String, Object>) line.get("record")));
+                    if (chunk.size() == batchSize) {
+                        if (!write(chunk)) {
+                            throw new IOException("Algolia still unavailable");
+                        }
+                        resent += chunk.size();
+                        chunk.clear();
+                    }
+                }
+            }
+            if (!chunk.isEmpty() && !write(chunk)) {
+                throw new IOException("Algolia still unavailable");
+            }
+            resent += chunk.size();
+
+            Files.delete(recovering);
+            hasSpill = Files.exists(spillPath);
+            recovered.addAndGet(resent);
+            recoveryBackoffMs = 0;
+            retryRecoveryAfterMillis = 0;
+            log.info("Re-sent {} spilled audit records", resent);
+        } catch (IOException e) {
+            // Keep the recovering file; records already re-sent are idempotent by objectID
+            hasSpill = true;
+            recoveryBackoffMs = recoveryBackoffMs == 0 ? flushIntervalMs : Math.min(recoveryBackoffMs * 2, maxRecoveryBackoffMs);
+            retryRecoveryAfterMillis = System.currentTimeMillis() + recoveryBackoffMs;
+            log.debug("Audit spill recovery postponed for {}ms: {}", recoveryBackoffMs, e.getMessage());
+        }
+    }
+
+    private static class AuditRecord {
+        private final String indexName;
+        private final Map<String, Object> record;
+
+        private AuditRecord(String indexName, Map<String, Object> record) {
+            this.indexName = indexName;
+            this.record = record;
+        }
+    }
+}
@@ -0,0 +1,405 @@
+package com.dev.challenge.sdg.service;
+
+import com.dev.challenge.sdg.model.Product;
+import com.dev.challenge.sdg.model.UserEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Type-ahead suggestions from product names and popular search queries, served from memory.
+ * Every word-initial suffix of a suggestion ("wireless headphones", "headphones") is a key in
+ * a sorted array, so a prefix maps to one contiguous key range, as in a compacted trie. A
+ * segment tree over the key weights returns the most popular suggestions in that range without
+ * scanning it. The structure is rebuilt in the background and swapped in atomically.
+ * <p>
+ * Query popularity comes from ingested search events and Algolia's top searches; product
+ * popularity from review counts. Searched queries are only suggested once they reach a minimum
+ * count, and only the most popular ones are; counts decay periodically and queries that decay to
+ * zero are dropped, which frees their tracking slots.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AutocompleteService implements UserEventListener {
+
+    private static final float INNER_WORD_WEIGHT = 0.5f;
+    private static final int MAX_QUERY_LENGTH = 64;
+
+    private final CatalogReplicaService catalogReplicaService;
+    private final AlgoliaService algoliaService;
+
+    @Value("${autocomplete.max-tracked-queries:50000}")
+    private int maxTrackedQueries;
+
+    @Value("${autocomplete.min-query-count:3}")
+    private long minQueryCount;
+
+    @Value("${autocomplete.max-suggested-queries:5000}")
+    private int maxSuggestedQueries;
+
+    @Value("${autocomplete.query-decay-factor:0.5}")
+    private double queryDecayFactor;
+
+    @Value("${autocomplete.query-weight:2.0}")
+    private float queryWeight;
+
+    @Value("${autocomplete.analytics-queries:100}")
+    private int analyticsQueries;
+
+    @Value("${autocomplete.analytics-refresh-interval-ms:600000}")
+    private long analyticsRefreshIntervalMs;
+
+    // Only listed event types count towards query popularity
+    @Value("#{${autocomplete.query-event-weights:{:}}}")
+    private Map<String, Number> queryEventWeights;
+
+    private final Map<String, LongAdder> queryCounts = new ConcurrentHashMap<>();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong rebuilds = new AtomicLong();
+    private final AtomicLong prunedQueries = new AtomicLong();
+
+    private volatile Suggestions suggestions = Suggestions.EMPTY;
+    private volatile List<String> topAnalyticsQueries = List.of();
+    private volatile long lastAnalyticsRefreshMillis;
+    private volatile long lastRebuildDurationMillis;
+    private volatile int suggestedQueries;
+
+    @Override
+    public void onUserEvent(UserEvent event) {
+        if (event == null || event.getQuery() == null || !queryEventWeights.containsKey(event.getEventType())) {
+            return;
+        }
+        String query = SearchResultCache.normalize(event.getQuery());
+        if (query.isEmpty() || query.length() > MAX_QUERY_LENGTH) {
+            return;
+        }
+        LongAdder count = queryCounts.get(query);
+        if (count == null) {
+            if (queryCounts.size() >= maxTrackedQueries) {
+                return;
+            }
+            count = queryCounts.computeIfAbsent(query, key -> new LongAdder());
+        }
+        count.add(Math.max(1, queryEventWeights.get(event.getEventType()).longValue()));
+    }
+
+    @Override
+    public boolean replayOnStartup() {
+        return true;
+    }
+
+    /**
+     * Rebuilds right after a full catalog load, off the replica's thread
+     */
+    @EventListener
+    public void onCatalogRefreshed(CatalogRefreshedEvent event) {
+        if (event.isFullLoad()) {
+            CompletableFuture.runAsync(this::rebuild);
+        }
+    }
+
+    /**
+     * Most popular suggestions starting with the prefix, or with one of its later words
+     */
+    public List<Map<String, Object>> suggest(String prefix, int limit) {
+        lookups.incrementAndGet();
+        String normalized = SearchResultCache.normalize(prefix);
+        Suggestions current = suggestions;
+        if (normalized.isEmpty() || limit <= 0 || current.keys.length == 0) {
+            return List.of();
+        }
+        int from = current.lowerBound(normalized);
+        int to = current.lowerBound(normalized + Character.MAX_VALUE);
+        List<Map<String, Object>> results = new ArrayList<>(limit);
+        Set<Integer> seen = new HashSet<>();
+
+        // Best-first walk: pop the heaviest range, emit its maximum, push the two halves around it
+        PriorityQueue<int[]> ranges = new PriorityQueue<>(Comparator.comparingDouble((int[] range) -> -current.keyWeights[range[2]]));
+        if (from < to) {
+            ranges.add(new int[] {from, to, current.argMax(from, to)});
+        }
+        while (!ranges.isEmpty() && results.size() < limit) {
+            int[] range = ranges.poll();
+            int key = range[2];
+            int suggestion = current.keySuggestions[key];
+            if (seen.add(suggestion)) {
+                results.add(current.describe(suggestion));
+            }
+            if (range[0] < key) {
+                ranges.add(new int[] {range[0], key, current.argMax(range[0], key)});
+            }
+            if (key + 1 < range[1]) {
+                ranges.add(new int[] {key + 1, range[1], current.argMax(key + 1, range[1])});
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Rebuilds suggestions from the catalog and query counts; concurrent triggers are skipped
+     */
+    @Scheduled(fixedDelayString = "${autocomplete.rebuild-interval-ms:60000}",
+            initialDelayString = "${autocomplete.rebuild-interval-ms:60000}")
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long started = System.currentTimeMillis();
+            refreshAnalyticsQueries();
+            Suggestions next = build(catalogReplicaService.getSnapshot());
+            suggestions = next;
+            rebuilds.incrementAndGet();
+            lastRebuildDurationMillis = System.currentTimeMillis() - started;
+            log.debug("Autocomplete rebuilt: {} suggestions, {} keys in {}ms",
+                    next.texts.length, next.keys.length, lastRebuildDurationMillis);
+        } catch (Exception e) {
+            log.warn("Autocomplete rebuild failed, keeping previous suggestions: {}", e.getMessage());
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    /**
+     * Scales every query count by the decay factor and drops queries that reach zero
+     */
+    @Scheduled(fixedDelayString = "${autocomplete.query-decay-interval-ms:3600000}",
+            initialDelayString = "${autocomplete.query-decay-interval-ms:3600000}")
+    public void decayQueryCounts() {
+        // Events counted while decaying land on the reset adder and are kept
+        queryCounts.entrySet().removeIf(entry -> {
+            LongAdder count = entry.getValue();
+            long decayed = (long) (count.sumThenReset() * queryDecayFactor);
+            count.add(decayed);
+            if (decayed <= 0) {
+                prunedQueries.incrementAndGet();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        Suggestions current = suggestions;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("suggestions", current.texts.length);
+        stats.put("keys", current.keys.length);
+        stats.put("trackedQueries", queryCounts.size());
+        stats.put("suggestedQueries", suggestedQueries);
+        stats.put("prunedQueries", prunedQueries.get());
+        stats.put("analyticsQueries", topAnalyticsQueries.size());
+        stats.put("lookups", lookups.get());
+        stats.put("rebuilds", rebuilds.get());
+        stats.put("lastRebuildDurationMillis", lastRebuildDurationMillis);
+        return stats;
+    }
+
+    private void refreshAnalyticsQueries() {
+        if (System.currentTimeMillis() - lastAnalyticsRefreshMillis < analyticsRefreshIntervalMs) {
+            return;
+        }
+        lastAnalyticsRefreshMillis = System.currentTimeMillis();
+        try {
+            topAnalyticsQueries = algoliaService.getTopSearchQueries(analyticsQueries);
+        } catch (Exception e) {
+            log.debug("Top search queries unavailable for autocomplete: {}", e.getMessage());
+        }
+    }
+
+    private Suggestions build(CatalogSnapshot catalog) {
+        // Normalized text -> suggestion; a query equal to a product name keeps the product and the higher weight
+        Map<String, Candidate> candidates = new LinkedHashMap<>();
+        for (int position = 0; position < catalog.size(); position++) {
+            Product product = catalog.product(position);
+            String text = SearchResultCache.normalize(product.getName());
+            if (!text.isEmpty()) {
+                int reviews = product.getNumberOfReviews() != null ? product.getNumberOfReviews() : 0;
+                candidates.merge(text, new Candidate(product.getName(), product.getObjectId(), 1f + (float) Math.log1p(reviews)), Candidate::merge);
+            }
+        }
+        List<String> analytics = topAnalyticsQueries;
+        for (int rank = 0; rank < analytics.size(); rank++) {
+            String text = SearchResultCache.normalize(analytics.get(rank));
+            if (!text.isEmpty() && text.length() <= MAX_QUERY_LENGTH) {
+                float weight = 1f + queryWeight * (float) Math.log1p(analytics.size() - rank);
+                candidates.merge(text, new Candidate(text, null, weight), Candidate::merge);
+            }
+        }
+        for (Map.Entry<String, Long> query : popularQueries()) {
+            candidates.merge(query.getKey(),
+                    new Candidate(query.getKey(), null, 1f + queryWeight * (float) Math.log1p(query.getValue())), Candidate::merge);
+        }
+
+        int suggestionCount = candidates.size();
+        String[] texts = new String[suggestionCount];
+        String[] productIds = new String[suggestionCount];
+        List<Key> keys = new ArrayList<>(suggestionCount * 3);
+        int suggestion = 0;
+        for (Map.Entry<String, Candidate> entry : candidates.entrySet()) {
+            Candidate candidate = entry.getValue();
+            texts[suggestion] = candidate.display;
+            productIds[suggestion] = candidate.productId;
+            String text = entry.getKey();
+            keys.add(new Key(text, suggestion, candidate.weight));
+            for (int space = text.indexOf(' '); space >= 0; space = text.indexOf(' ', space + 1)) {
+                keys.add(new Key(text.substring(space + 1), suggestion, candidate.weight * INNER_WORD_WEIGHT));
+            }
+            suggestion++;
+        }
+
+        keys.sort(Comparator.comparing((Key key) -> key.text));
+        String[] sortedKeys = new String[keys.size()];
+        int[] keySuggestions = new int[keys.size()];
+        float[] keyWeights = new float[keys.size()];
+        for (int i = 0; i < sortedKeys.length; i++) {
+            Key key = keys.get(i);
+            sortedKeys[i] = key.text;
+            keySuggestions[i] = key.suggestion;
+            keyWeights[i] = key.weight;
+        }
+        return new Suggestions(texts, productIds, sortedKeys, keySuggestions, keyWeights);
+    }
+
+    /**
+     * The most searched queries that reached the minimum count, at most {@code max-suggested-queries}
+     */
+    private List<Map.Entry<String, Long>> popularQueries() {
+        PriorityQueue<Map.Entry<String, Long>> top = new PriorityQueue<>(Map.Entry.comparingByValue());
+        queryCounts.forEach((text, count) -> {
+            long sum = count.sum();
+            if (sum < minQueryCount) {
+                return;
+            }
+            if (top.size() < maxSuggestedQueries) {
+                top.add(Map.entry(text, sum));
+            } else if (!top.isEmpty() && sum > top.peek().getValue()) {
+                top.poll();
+                top.add(Map.entry(text, sum));
+            }
+        });
+        suggestedQueries = top.size();
+        return new ArrayList<>(top);
+    }
+
+    private static class Key {
+        private final String text;
+        private final int suggestion;
+        private final float weight;
+
+        private Key(String text, int suggestion, float weight) {
+            this.text = text;
+            this.suggestion = suggestion;
+            this.weight = weight;
+        }
+    }
+
+    private static class Candidate {
+        private final String display;
+        private final String productId;
+        private final float weight;
+
+        private Candidate(String display, String productId, float weight) {
+            this.display = display;
+            this.productId = productId;
+            this.weight = weight;
+        }
+
+        private static Candidate merge(Candidate existing, Candidate added) {
+            Candidate named = existing.productId != null ? existing : added;
+            return new Candidate(named.display, named.productId, Math.max(existing.weight, added.weight));
+        }
+    }
+
+    /**
+     * Immutable suggestion set: sorted keys with their suggestion and weight, plus an
+     * iterative segment tree holding the heaviest key of each node
+     */
+    private static class Suggestions {
+        private static final Suggestions EMPTY = new Suggestions(new String[0], new String[0], new String[0], new int[0], new float[0]);
+
+        private final String[] texts;
+        private final String[] productIds;
+        private final String[] keys;
+        private final int[] keySuggestions;
+        private final float[] keyWeights;
+        private final int[] tree;
+
+        private Suggestions(String[] texts, String[] productIds, String[] keys, int[] keySuggestions, float[] keyWeights) {
+            this.texts = texts;
+            this.productIds = productIds;
+            this.keys = keys;
+            this.keySuggestions = keySuggestions;
+            this.keyWeights = keyWeights;
+            int size = keys.length;
+            this.tree = new int[2 * size];
+            for (int i = 0; i < size; i++) {
+                tree[size + i] = i;
+            }
+            for (int node = size - 1; node > 0; node--) {
+                tree[node] = heavier(tree[2 * node], tree[2 * node + 1]);
+            }
+        }
+
+        private int lowerBound(String prefix) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (keys[middle].compareTo(prefix) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        // Heaviest key in [from, to)
+        private int argMax(int from, int to) {
+            int best = from;
+            for (int low = from + keys.length, high = to + keys.length; low < high; low >>= 1, high >>= 1) {
+                if ((low & 1) == 1) {
+                    best = heavier(best, tree[low++]);
+                }
+                if ((high & 1) == 1) {
+                    best = heavier(best, tree[--high]);
+                }
+            }
+            return best;
+        }
+
+        private int heavier(int a, int b) {
+            return keyWeights[b] > keyWeights[a] ? b : a;
+        }
+
+        private Map<String, Object> describe(int suggestion) {
+            Map<String, Object> described = new HashMap<>();
+            described.put("text", texts[suggestion]);
+            described.put("type", productIds[suggestion] != null ? "product" : "query");
+            if (productIds[suggestion] != null) {
+                described.put("productId", productIds[suggestion]);
+            }
+            return described;
+        }
+    }
+}
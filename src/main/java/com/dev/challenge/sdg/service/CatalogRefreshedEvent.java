@@ -0,0 +1,31 @@
+package com.dev.challenge.sdg.service;
+
+import com.dev.challenge.sdg.model.Product;
+
+import java.util.List;
+
+/**
+ * Published after the catalog replica swapped in a new snapshot. {@code changedProducts} holds
+ * every product on a full load and only the updated ones on a delta; {@code removedProductIds}
+ * holds products a full load no longer found (deltas cannot see deletions).
+ */
+public class CatalogRefreshedEvent {
+
+    private final CatalogSnapshot snapshot;
+    private final List<Product> changedProducts;
+    private final List<String> removedProductIds;
+    private final boolean fullLoad;
+
+    public CatalogRefreshedEvent(CatalogSnapshot snapshot, List<Product> changedProducts,
+                                 List<String> removedProductIds, boolean fullLoad) {
+        this.snapshot = snapshot;
+        this.changedProducts = changedProducts;
+        this.removedProductIds = removedProductIds;
+        this.fullLoad = fullLoad;
+    }
+
+    public CatalogSnapshot getSnapshot() { return snapshot; }
+    public List<Product> getChangedProducts() { return changedProducts; }
+    public List<String> getRemovedProductIds() { return removedProductIds; }
+    public boolean isFullLoad() { return fullLoad; }
+}
@@ -0,0 +1,150 @@
+package com.dev.challenge.sdg.service;
+
+import com.dev.challenge.sdg.model.Product;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory replica of the products index.
+ * The whole catalog is browsed into a {@link CatalogSnapshot} on startup and on a slow full
+ * refresh (which also drops deleted products); in between, only products whose
+ * {@code updated_at} is at or after the snapshot watermark (minus a small overlap for writes that
+ * became visible late) are fetched, and those that actually changed are merged. Each change
+ * swaps in a new snapshot and publishes a {@link CatalogRefreshedEvent}. The startup load runs
+ * on its own thread so the application does not wait for the browse.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CatalogReplicaService {
+
+    private final AlgoliaService algoliaService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${catalog.replica.delta-overlap-ms:5000}")
+    private long deltaOverlapMs;
+
+    private volatile CatalogSnapshot snapshot = CatalogSnapshot.empty();
+    private volatile long lastFullLoadMillis;
+    private volatile long lastDeltaMillis;
+    private final AtomicLong versions = new AtomicLong();
+    private final AtomicLong deltaProducts = new AtomicLong();
+    private final AtomicLong replicaReads = new AtomicLong();
+    private final AtomicLong indexReads = new AtomicLong();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        Thread loader = new Thread(this::fullLoad, "catalog-replica-load");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Replaces the snapshot with a fresh browse of the whole index
+     */
+    @Scheduled(fixedDelayString = "${catalog.replica.full-refresh-interval-ms:3600000}",
+            initialDelayString = "${catalog.replica.full-refresh-interval-ms:3600000}")
+    public synchronized int fullLoad() {
+        try {
+            List<Product> products = algoliaService.browseAllProducts().join();
+            CatalogSnapshot next = CatalogSnapshot.of(products, versions.incrementAndGet());
+            swap(next, products, snapshot.removedIn(next), true);
+            lastFullLoadMillis = System.currentTimeMillis();
+            log.info("Catalog replica loaded: {} products, {} categories", snapshot.size(), snapshot.categoryCount());
+            return products.size();
+        } catch (Exception e) {
+            log.warn("Failed to load catalog replica, keeping {} products: {}", snapshot.size(), e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Merges products updated since the snapshot watermark; publishes nothing when none changed
+     */
+    @Scheduled(fixedDelayString = "${catalog.replica.delta-interval-ms:60000}",
+            initialDelayString = "${catalog.replica.delta-interval-ms:60000}")
+    public synchronized int syncDelta() {
+        CatalogSnapshot current = snapshot;
+        if (current.size() == 0) {
+            return fullLoad();
+        }
+        if (current.getMaxUpdatedAt() == 0) {
+            // No product carries updated_at yet; the full refresh picks up changes
+            return 0;
+        }
+        try {
+            List<Product> fetched = algoliaService
+                    .browseProductsUpdatedSince(current.getMaxUpdatedAt() - deltaOverlapMs).join();
+            List<Product> changed = current.changedIn(fetched);
+            lastDeltaMillis = System.currentTimeMillis();
+            if (!changed.isEmpty()) {
+                apply(changed);
+                log.debug("Catalog replica delta applied: {} products", changed.size());
+            }
+            return changed.size();
+        } catch (Exception e) {
+            log.warn("Catalog replica delta sync failed: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    @EventListener
+    public synchronized void onProductUpdated(ProductUpdatedEvent event) {
+        apply(List.of(event.getProduct()));
+    }
+
+    public CatalogSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Product from the replica, falling back to the index for products it does not hold yet
+     */
+    public CompletableFuture<Product> getProduct(String productId) {
+        CatalogSnapshot current = snapshot;
+        int position = current.positionOf(productId);
+        if (position >= 0) {
+            replicaReads.incrementAndGet();
+            return CompletableFuture.completedFuture(current.product(position));
+        }
+        indexReads.incrementAndGet();
+        return algoliaService.getProduct(productId);
+    }
+
+    public Map<String, Object> getStats() {
+        CatalogSnapshot current = snapshot;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("products", current.size());
+        stats.put("categories", current.categoryCount());
+        stats.put("version", current.getVersion());
+        stats.put("watermark", current.getMaxUpdatedAt());
+        stats.put("lastFullLoadMillis", lastFullLoadMillis);
+        stats.put("lastDeltaMillis", lastDeltaMillis);
+        stats.put("deltaProducts", deltaProducts.get());
+        stats.put("replicaReads", replicaReads.get());
+        stats.put("indexReads", indexReads.get());
+        return stats;
+    }
+
+    private void apply(List<Product> changed) {
+        deltaProducts.addAndGet(changed.size());
+        swap(snapshot.withUpserts(changed, versions.incrementAndGet()), changed, List.of(), false);
+    }
+
+    private void swap(CatalogSnapshot next, List<Product> changed, List<String> removed, boolean fullLoad) {
+        snapshot = next;
+        eventPublisher.publishEvent(new CatalogRefreshedEvent(next, changed, removed, fullLoad));
+    }
+}
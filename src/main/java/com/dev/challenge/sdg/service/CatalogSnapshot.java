@@ -0,0 +1,231 @@
+package com.dev.challenge.sdg.service;
+
+import com.dev.challenge.sdg.model.Product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.IntPredicate;
+
+/**
+ * Immutable, columnar copy of the product catalog.
+ * Numeric attributes live in primitive arrays indexed by catalog position (price in cents,
+ * margin, rating, review count, inventory, dictionary-encoded category), so scoring and
+ * filtering scan contiguous memory without touching {@link Product} objects. Updates never
+ * modify a snapshot; they build a new one that replaces it.
+ */
+public final class CatalogSnapshot {
+
+    private static final CatalogSnapshot EMPTY = of(List.of(), 0);
+
+    private final Product[] products;
+    private final Map<String, Integer> positions;
+    private final long[] priceCents;
+    private final float[] margins;
+    private final float[] ratings;
+    private final int[] reviewCounts;
+    private final int[] inventory;
+    private final int[] categoryIds;
+    private final String[] categories;
+    private final Map<String, Integer> categoryIdsByName;
+    private final long version;
+    private final long maxUpdatedAt;
+    private final long createdAtMillis = System.currentTimeMillis();
+
+    private CatalogSnapshot(Product[] products, long version) {
+        int size = products.length;
+        this.products = products;
+        this.version = version;
+        this.positions = new HashMap<>(size * 2);
+        this.priceCents = new long[size];
+        this.margins = new float[size];
+        this.ratings = new float[size];
+        this.reviewCounts = new int[size];
+        this.inventory = new int[size];
+        this.categoryIds = new int[size];
+        this.categoryIdsByName = new HashMap<>();
+
+        long latestUpdate = 0;
+        for (int i = 0; i < size; i++) {
+            Product product = products[i];
+            positions.put(product.getObjectId(), i);
+            priceCents[i] = product.getPrice() != null ? product.getPrice().movePointRight(2).longValue() : 0L;
+            margins[i] = product.getProfitMargin() != null ? product.getProfitMargin().floatValue() : Float.NaN;
+            ratings[i] = product.getAverageRating() != null ? product.getAverageRating().floatValue() : 0f;
+            reviewCounts[i] = product.getNumberOfReviews() != null ? product.getNumberOfReviews() : 0;
+            inventory[i] = product.getInventoryLevel() != null ? product.getInventoryLevel() : 0;
+            categoryIds[i] = product.getCategory() != null
+                    ? categoryIdsByName.computeIfAbsent(product.getCategory(), name -> categoryIdsByName.size())
+                    : -1;
+            if (product.getUpdatedAt() != null) {
+                latestUpdate = Math.max(latestUpdate, product.getUpdatedAt());
+            }
+        }
+        this.maxUpdatedAt = latestUpdate;
+        this.categories = new String[categoryIdsByName.size()];
+        categoryIdsByName.forEach((name, id) -> categories[id] = name);
+    }
+
+    public static CatalogSnapshot empty() {
+        return EMPTY;
+    }
+
+    public static CatalogSnapshot of(List<Product> products, long version) {
+        return new CatalogSnapshot(products.stream()
+                .filter(product -> product.getObjectId() != null)
+                .toArray(Product[]::new), version);
+    }
+
+    /**
+     * New snapshot with the given products replaced or appended; positions of existing products are kept
+     */
+    public CatalogSnapshot withUpserts(List<Product> changed, long version) {
+        Product[] merged = Arrays.copyOf(products, products.length + changed.size());
+        int size = products.length;
+        Map<String, Integer> appended = new HashMap<>();
+        for (Product product : changed) {
+            String id = product.getObjectId();
+            if (id == null) {
+                continue;
+            }
+            Integer position = positions.get(id);
+            if (position == null) {
+                position = appended.get(id);
+            }
+            if (position != null) {
+                merged[position] = product;
+            } else {
+                appended.put(id, size);
+                merged[size++] = product;
+            }
+        }
+        return new CatalogSnapshot(Arrays.copyOf(merged, size), version);
+    }
+
+    /**
+     * Fetched products that are new to this snapshot or whose {@code updated_at} differs from the
+     * stored copy; a delta browse from the watermark always returns the newest stored products again
+     */
+    public List<Product> changedIn(List<Product> fetched) {
+        List<Product> changed = new ArrayList<>();
+        for (Product product : fetched) {
+            int position = positionOf(product.getObjectId());
+            if (product.getObjectId() != null
+                    && (position < 0 || !Objects.equals(products[position].getUpdatedAt(), product.getUpdatedAt()))) {
+                changed.add(product);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * IDs of products in this snapshot that are no longer in {@code next}
+     */
+    public List<String> removedIn(CatalogSnapshot next) {
+        List<String> removed = new ArrayList<>();
+        for (Product product : products) {
+            if (next.positionOf(product.getObjectId()) < 0) {
+                removed.add(product.getObjectId());
+            }
+        }
+        return removed;
+    }
+
+    public int size() {
+        return products.length;
+    }
+
+    /**
+     * Catalog position of a product, or -1 when it is not in the snapshot
+     */
+    public int positionOf(String productId) {
+        Integer position = productId != null ? positions.get(productId) : null;
+        return position != null ? position : -1;
+    }
+
+    public Product product(int position) {
+        return products[position];
+    }
+
+    public long priceCents(int position) {
+        return priceCents[position];
+    }
+
+    /**
+     * Profit margin as stored in the index, or NaN when unknown
+     */
+    public float margin(int position) {
+        return margins[position];
+    }
+
+    public float rating(int position) {
+        return ratings[position];
+    }
+
+    public int reviewCount(int position) {
+        return reviewCounts[position];
+    }
+
+    public int inventory(int position) {
+        return inventory[position];
+    }
+
+    /**
+     * Dense category id, or -1 when the product has no category
+     */
+    public int categoryId(int position) {
+        return categoryIds[position];
+    }
+
+    public int categoryIdOf(String category) {
+        Integer id = category != null ? categoryIdsByName.get(category) : null;
+        return id != null ? id : -1;
+    }
+
+    public String categoryName(int categoryId) {
+        return categoryId >= 0 && categoryId < categories.length ? categories[categoryId] : null;
+    }
+
+    public int categoryCount() {
+        return categories.length;
+    }
+
+    /**
+     * Positions of all products matching the predicate, in catalog order
+     */
+    public int[] filter(IntPredicate predicate) {
+        int[] matches = new int[products.length];
+        int count = 0;
+        for (int i = 0; i < products.length; i++) {
+            if (predicate.test(i)) {
+                matches[count++] = i;
+            }
+        }
+        return Arrays.copyOf(matches, count);
+    }
+
+    // Raw columns for tight scoring loops in this package; callers must not modify them
+    float[] marginColumn() { return margins; }
+    float[] ratingColumn() { return ratings; }
+    int[] reviewCountColumn() { return reviewCounts; }
+    int[] inventoryColumn() { return inventory; }
+    int[] categoryIdColumn() { return categoryIds; }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Latest {@code updated_at} seen in the catalog, used as the delta sync watermark
+     */
+    public long getMaxUpdatedAt() {
+        return maxUpdatedAt;
+    }
+
+    public long getCreatedAtMillis() {
+        return createdAtMillis;
+    }
+}
@@ -0,0 +1,319 @@
+package com.dev.challenge.sdg.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Server-side AI chat sessions.
+ * A session keeps the last {@code chat.session.max-turns} turns verbatim and a rolling summary
+ * of everything older, so the prompt does not grow with the conversation. Turns leaving the
+ * window are folded into the summary by Gemini in the background; until that completes they
+ * stay available as history, and if it fails they are condensed locally. Sessions that have
+ * not been reused yet (e.g. seeded from a client that keeps sending its own history) are only
+ * condensed locally, so they never cost an extra Gemini call.
+ * Session ids are always minted here, and a session is only handed back to the user who
+ * created it. Sessions are kept in least-recently-used order: idle ones expire, and when the
+ * store is full the least recently used session that was never reused makes room first.
+ * User contexts are cached per user.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ChatSessionStore {
+
+    public static final String SESSION_HEADER = "Chat-Session-Id";
+
+    private final GeminiService geminiService;
+
+    @Value("${chat.session.max-turns:6}")
+    private int maxTurns;
+
+    @Value("${chat.session.max-summary-chars:800}")
+    private int maxSummaryChars;
+
+    @Value("${chat.session.user-context-ttl-ms:300000}")
+    private long userContextTtlMs;
+
+    @Value("${chat.session.idle-timeout-ms:1800000}")
+    private long idleTimeoutMs;
+
+    @Value("${chat.session.max-sessions:10000}")
+    private int maxSessions;
+
+    // Access-ordered, so the eldest entry is always the least recently used session
+    private final LinkedHashMap<String, Session> sessions = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CachedUserContext> userContexts = new ConcurrentHashMap<>();
+    private final AtomicLong createdSessions = new AtomicLong();
+    private final AtomicLong rejectedSessionIds = new AtomicLong();
+    private final AtomicLong expiredSessions = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+    private final AtomicLong failedCompactions = new AtomicLong();
+    private final AtomicLong userContextHits = new AtomicLong();
+    private final AtomicLong userContextLoads = new AtomicLong();
+
+    /**
+     * Returns the conversation of the caller's session, or starts a new one seeded with the history
+     * the client sent (clients without a session id keep working as before). Unknown or expired ids
+     * and sessions owned by another user are never reused: a fresh server-minted id is returned.
+     */
+    public Conversation open(String sessionId, String userId, List<Map<String, Object>> clientHistory) {
+        Session session;
+        synchronized (sessions) {
+            session = sessionId != null ? sessions.get(sessionId) : null;
+        }
+        if (session != null && Objects.equals(session.userId, userId)) {
+            session.lastSeenMillis = System.currentTimeMillis();
+            session.reused = true;
+            return session.conversation();
+        }
+        if (sessionId != null) {
+            rejectedSessionIds.incrementAndGet();
+            log.debug("Chat session id {} is unknown or not owned by user {}, starting a new session", sessionId, userId);
+        }
+
+        session = new Session(UUID.randomUUID().toString(), userId);
+        if (clientHistory != null) {
+            for (Map<String, Object> turn : clientHistory) {
+                if (turn.get("role") != null && turn.get("content") != null) {
+                    session.append(turn);
+                }
+            }
+        }
+        synchronized (sessions) {
+            if (sessions.size() >= maxSessions) {
+                evictOne();
+            }
+            sessions.put(session.id, session);
+        }
+        createdSessions.incrementAndGet();
+        compact(session);
+        return session.conversation();
+    }
+
+    /**
+     * User context cached per user, loaded through {@code loader} when missing or stale
+     */
+    public CompletableFuture<Map<String, Object>> userContext(String userId, Supplier<CompletableFuture<Map<String, Object>>> loader) {
+        CachedUserContext cached = userContexts.get(userId);
+        if (cached != null && !cached.isExpired(userContextTtlMs)) {
+            userContextHits.incrementAndGet();
+            return CompletableFuture.completedFuture(cached.context);
+        }
+        userContextLoads.incrementAndGet();
+        return loader.get().thenApply(context -> {
+            userContexts.put(userId, new CachedUserContext(context));
+            return context;
+        });
+    }
+
+    /**
+     * Appends a customer message and the assistant's reply, compacting older turns if needed
+     */
+    public void recordTurn(String sessionId, String message, String reply) {
+        Session session;
+        synchronized (sessions) {
+            session = sessions.get(sessionId);
+        }
+        if (session == null) {
+            return;
+        }
+        session.append(Map.of("role", "user", "content", message));
+        if (reply != null) {
+            session.append(Map.of("role", "assistant", "content", reply));
+        }
+        session.lastSeenMillis = System.currentTimeMillis();
+        compact(session);
+    }
+
+    /**
+     * Drops idle sessions, walking from the least recently used one, and stale user contexts
+     */
+    @Scheduled(fixedDelayString = "${chat.session.sweep-interval-ms:60000}")
+    public void expireIdleSessions() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMs;
+        synchronized (sessions) {
+            Iterator<Session> iterator = sessions.values().iterator();
+            while (iterator.hasNext() && iterator.next().lastSeenMillis < cutoff) {
+                iterator.remove();
+                expiredSessions.incrementAndGet();
+            }
+        }
+        userContexts.values().removeIf(cached -> cached.isExpired(userContextTtlMs));
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        synchronized (sessions) {
+            stats.put("activeSessions", sessions.size());
+        }
+        stats.put("cachedUserContexts", userContexts.size());
+        stats.put("createdSessions", createdSessions.get());
+        stats.put("rejectedSessionIds", rejectedSessionIds.get());
+        stats.put("expiredSessions", expiredSessions.get());
+        stats.put("compactions", compactions.get());
+        stats.put("failedCompactions", failedCompactions.get());
+        stats.put("userContextHits", userContextHits.get());
+        stats.put("userContextLoads", userContextLoads.get());
+        return stats;
+    }
+
+    // Single-use sessions go first, so clients that ignore the session id cannot push out live ones
+    private void evictOne() {
+        Iterator<Session> iterator = sessions.values().iterator();
+        Session victim = null;
+        while (iterator.hasNext()) {
+            Session candidate = iterator.next();
+            if (!candidate.reused) {
+                victim = candidate;
+                break;
+            }
+        }
+        sessions.remove(victim != null ? victim.id : sessions.keySet().iterator().next());
+        expiredSessions.incrementAndGet();
+    }
+
+    /**
+     * Summarizes turns that left the window; one summarization per session runs at a time.
+     * Sessions that were not reused yet are condensed locally instead of calling Gemini.
+     */
+    private void compact(Session session) {
+        List<Map<String, Object>> batch;
+        String previousSummary;
+        synchronized (session) {
+            if (session.compacting || session.overflow.isEmpty()) {
+                return;
+            }
+            if (!session.reused) {
+                session.summary = condense(session.summary, new ArrayList<>(session.overflow));
+                session.overflow.clear();
+                return;
+            }
+            session.compacting = true;
+            batch = new ArrayList<>(session.overflow);
+            previousSummary = session.summary;
+        }
+        geminiService.summarizeConversation(previousSummary, batch).handle((summary, error) -> {
+            String next;
+            if (error == null && summary != null && !summary.isBlank()) {
+                next = summary;
+                compactions.incrementAndGet();
+            } else {
+                next = condense(previousSummary, batch);
+                failedCompactions.incrementAndGet();
+                log.debug("Chat summary for session {} condensed locally: {}", session.id,
+                        error != null ? error.getMessage() : "empty summary");
+            }
+            synchronized (session) {
+                session.summary = truncate(next);
+                for (int i = 0; i < batch.size(); i++) {
+                    session.overflow.pollFirst();
+                }
+                session.compacting = false;
+            }
+            // Turns that overflowed while summarizing
+            compact(session);
+            return null;
+        });
+    }
+
+    // Fallback summary: previous summary plus the customer's messages, newest kept when too long
+    private String condense(String previousSummary, List<Map<String, Object>> turns) {
+        StringBuilder condensed = new StringBuilder(previousSummary != null ? previousSummary : "");
+        for (Map<String, Object> turn : turns) {
+            if ("user".equals(turn.get("role"))) {
+                condensed.append(condensed.length() > 0 ? " " : "").append("Customer asked: ").append(turn.get("content")).append('.');
+            }
+        }
+        String text = condensed.toString();
+        return text.length() > maxSummaryChars ? text.substring(text.length() - maxSummaryChars) : text;
+    }
+
+    private String truncate(String summary) {
+        return summary.length() > maxSummaryChars ? summary.substring(0, maxSummaryChars) : summary;
+    }
+
+    private class Session {
+        private final String id;
+        private final String userId;
+        private final Deque<Map<String, Object>> recent = new ArrayDeque<>();
+        private final Deque<Map<String, Object>> overflow = new ArrayDeque<>();
+        private String summary = "";
+        private boolean compacting;
+        // Set once the client comes back with this session's id
+        private volatile boolean reused;
+        private volatile long lastSeenMillis = System.currentTimeMillis();
+
+        private Session(String id, String userId) {
+            this.id = id;
+            this.userId = userId;
+        }
+
+        private synchronized void append(Map<String, Object> turn) {
+            recent.addLast(turn);
+            while (recent.size() > maxTurns) {
+                overflow.addLast(recent.pollFirst());
+            }
+        }
+
+        private synchronized Conversation conversation() {
+            // Turns still being summarized stay in the history; the prompt budget trims them first
+            List<Map<String, Object>> turns = new ArrayList<>(overflow.size() + recent.size());
+            turns.addAll(overflow);
+            turns.addAll(recent);
+            return new Conversation(id, userId, summary, turns);
+        }
+    }
+
+    private static class CachedUserContext {
+        private final Map<String, Object> context;
+        private final long loadedAtMillis = System.currentTimeMillis();
+
+        private CachedUserContext(Map<String, Object> context) {
+            this.context = context;
+        }
+
+        private boolean isExpired(long ttlMs) {
+            return System.currentTimeMillis() - loadedAtMillis >= ttlMs;
+        }
+    }
+
+    /**
+     * Snapshot of a session used to build one prompt
+     */
+    public static class Conversation {
+        private final String sessionId;
+        private final String userId;
+        private final String summary;
+        private final List<Map<String, Object>> turns;
+
+        private Conversation(String sessionId, String userId, String summary, List<Map<String, Object>> turns) {
+            this.sessionId = sessionId;
+            this.userId = userId;
+            this.summary = summary;
+            this.turns = turns;
+        }
+
+        public String getSessionId() { return sessionId; }
+        public String getUserId() { return userId; }
+        public String getSummary() { return summary; }
+        public List<Map<String, Object>> getTurns() { return turns; }
+    }
+}
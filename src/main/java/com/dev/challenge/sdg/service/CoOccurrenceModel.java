@@ -0,0 +1,422 @@
+package com.dev.challenge.sdg.service;
+
+import com.dev.challenge.sdg.model.UserEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Item-to-item co-occurrence built online from ingested events.
+ * Products a user touches within one session are paired, weighted by event type (a cart
+ * counts more than a view). A pair counts once per session with the strongest weight seen for
+ * it, so repeated views of the same products do not inflate it. Each product keeps a sparse
+ * primitive map of co-occurrence scores and an online top-N neighbor list, so suggestions are a
+ * copy of a few ints. At most {@code cross-sell.max-products} products are tracked.
+ * <p>
+ * Decay uses forward scaling: a pair seen at time t adds {@code weight * 2^((t - epoch) / halfLife)},
+ * so older contributions shrink relative to newer ones without ever touching stored scores.
+ * Scores are rescaled once the multiplier grows large; updates hold a read lock so none is
+ * applied with the old multiplier to already rescaled scores.
+ */
+@Slf4j
+@Service
+public class CoOccurrenceModel implements UserEventListener {
+
+    private static final double RESCALE_LIMIT = 1e12;
+
+    @Value("${cross-sell.session-gap-ms:1800000}")
+    private long sessionGapMs;
+
+    @Value("${cross-sell.max-session-products:20}")
+    private int maxSessionProducts;
+
+    @Value("${cross-sell.max-products:100000}")
+    private int maxProducts;
+
+    @Value("${cross-sell.max-tracked-neighbors:200}")
+    private int maxTrackedNeighbors;
+
+    @Value("${cross-sell.top-neighbors:10}")
+    private int topNeighbors;
+
+    @Value("${cross-sell.decay-half-life-hours:72}")
+    private double halfLifeHours;
+
+    @Value("#{${cross-sell.event-weights:{:}}}")
+    private Map<String, Number> eventWeights;
+
+    private final EventDictionary productIds = new EventDictionary();
+    private final Map<Integer, Neighbors> neighbors = new ConcurrentHashMap<>();
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong pairsRecorded = new AtomicLong();
+    private final AtomicLong untrackedProductEvents = new AtomicLong();
+    private final ReadWriteLock scaleLock = new ReentrantReadWriteLock();
+
+    private volatile long epochMillis = System.currentTimeMillis();
+
+    @Override
+    public void onUserEvent(UserEvent event) {
+        if (event == null || event.getUserId() == null || event.getProductId() == null) {
+            return;
+        }
+        Number configuredWeight = eventWeights.get(event.getEventType());
+        float weight = configuredWeight != null ? configuredWeight.floatValue() : 1f;
+        if (weight <= 0) {
+            return;
+        }
+        long timestamp = event.getTimestamp() != null ? event.getTimestamp().toEpochMilli() : System.currentTimeMillis();
+        int product = productIds.find(event.getProductId());
+        if (product < 0) {
+            if (productIds.size() >= maxProducts) {
+                untrackedProductEvents.incrementAndGet();
+                return;
+            }
+            product = productIds.idOf(event.getProductId());
+        }
+
+        Session.Pairs pairs = sessions.computeIfAbsent(event.getUserId(), key -> new Session())
+                .touch(product, weight, timestamp, sessionGapMs, maxSessionProducts);
+        if (pairs.count == 0) {
+            return;
+        }
+
+        if (decayMultiplier(timestamp) > RESCALE_LIMIT) {
+            rescale(timestamp);
+        }
+        scaleLock.readLock().lock();
+        try {
+            double multiplier = decayMultiplier(timestamp);
+            for (int i = 0; i < pairs.count; i++) {
+                double scaled = pairs.weights[i] * multiplier;
+                neighborsOf(product).add(pairs.partners[i], scaled, maxTrackedNeighbors, topNeighbors);
+                neighborsOf(pairs.partners[i]).add(product, scaled, maxTrackedNeighbors, topNeighbors);
+            }
+        } finally {
+            scaleLock.readLock().unlock();
+        }
+        pairsRecorded.addAndGet(pairs.count);
+    }
+
+    @Override
+    public boolean replayOnStartup() {
+        return true;
+    }
+
+    /**
+     * Products most often seen together with the given one, strongest first
+     */
+    public List<String> suggest(String productId, int limit) {
+        int product = productIds.find(productId);
+        Neighbors entry = product >= 0 ? neighbors.get(product) : null;
+        if (entry == null || limit <= 0) {
+            return List.of();
+        }
+        int[] top = entry.top(limit);
+        List<String> suggestions = new ArrayList<>(top.length);
+        for (int id : top) {
+            suggestions.add(productIds.valueOf(id));
+        }
+        return suggestions;
+    }
+
+    public Map<String, Object> getStats() {
+        long tracked = 0;
+        for (Neighbors entry : neighbors.values()) {
+            tracked += entry.size;
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("products", neighbors.size());
+        stats.put("trackedPairs", tracked);
+        stats.put("pairsRecorded", pairsRecorded.get());
+        stats.put("openSessions", sessions.size());
+        stats.put("trackedProducts", productIds.size());
+        stats.put("untrackedProductEvents", untrackedProductEvents.get());
+        return stats;
+    }
+
+    /**
+     * Drops sessions that ended; their products no longer pair with new events
+     */
+    @Scheduled(fixedDelayString = "${cross-sell.sweep-interval-ms:300000}")
+    public void evictIdleSessions() {
+        long cutoff = System.currentTimeMillis() - sessionGapMs;
+        sessions.values().removeIf(session -> session.lastSeen < cutoff);
+    }
+
+    private Neighbors neighborsOf(int product) {
+        return neighbors.computeIfAbsent(product, key -> new Neighbors());
+    }
+
+    private double decayMultiplier(long timestamp) {
+        return Math.pow(2, (timestamp - epochMillis) / (halfLifeHours * 3_600_000d));
+    }
+
+    /**
+     * Moves the decay epoch forward and shrinks stored scores to match; relative order is unchanged
+     */
+    private void rescale(long timestamp) {
+        scaleLock.writeLock().lock();
+        try {
+            double factor = Math.pow(2, (epochMillis - timestamp) / (halfLifeHours * 3_600_000d));
+            if (factor >= 1 || decayMultiplier(timestamp) <= RESCALE_LIMIT) {
+                // Another event rescaled first
+                return;
+            }
+            for (Neighbors entry : neighbors.values()) {
+                entry.scale(factor);
+            }
+            epochMillis = timestamp;
+            log.info("Rescaled co-occurrence scores by {}", factor);
+        } finally {
+            scaleLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Products a user touched in the current session, most recent last, with the weight each of
+     * their pairs has been credited with so far
+     */
+    private static class Session {
+        private final int[] products = new int[64];
+        private final Map<Long, Float> creditedPairs = new HashMap<>();
+        private int size;
+        private volatile long lastSeen;
+
+        /**
+         * Adds the product and returns the session products it pairs with, each with the weight
+         * still to credit: a pair is credited once, and later only raised to a stronger weight
+         */
+        synchronized Pairs touch(int product, float weight, long timestamp, long gapMs, int maxProducts) {
+            if (timestamp - lastSeen > gapMs) {
+                size = 0;
+                creditedPairs.clear();
+            }
+            lastSeen = Math.max(lastSeen, timestamp);
+
+            Pairs pairs = new Pairs(size);
+            int existing = -1;
+            for (int i = 0; i < size; i++) {
+                if (products[i] == product) {
+                    existing = i;
+                    continue;
+                }
+                long key = pairKey(product, products[i]);
+                float credited = creditedPairs.getOrDefault(key, 0f);
+                if (weight > credited) {
+                    creditedPairs.put(key, weight);
+                    pairs.add(products[i], weight - credited);
+                }
+            }
+            if (existing >= 0) {
+                // Move to the end so the window keeps the most recent products
+                System.arraycopy(products, existing + 1, products, existing, size - existing - 1);
+                size--;
+            }
+            int limit = Math.min(maxProducts, products.length);
+            if (size >= limit) {
+                forget(products[0]);
+                System.arraycopy(products, 1, products, 0, limit - 1);
+                size = limit - 1;
+            }
+            products[size++] = product;
+            return pairs;
+        }
+
+        // Pairs of a product leaving the window, which keeps the credit map as small as the window
+        private void forget(int product) {
+            creditedPairs.keySet().removeIf(key -> (int) (key >>> 32) == product || key.intValue() == product);
+        }
+
+        private static long pairKey(int a, int b) {
+            return a < b ? (long) a << 32 | (b & 0xFFFFFFFFL) : (long) b << 32 | (a & 0xFFFFFFFFL);
+        }
+
+        private static final class Pairs {
+            private final int[] partners;
+            private final float[] weights;
+            private int count;
+
+            private Pairs(int capacity) {
+                this.partners = new int[capacity];
+                this.weights = new float[capacity];
+            }
+
+            private void add(int partner, float weight) {
+                partners[count] = partner;
+                weights[count++] = weight;
+            }
+        }
+    }
+
+    /**
+     * Sparse co-occurrence scores of one product: an open-addressing int to double map bounded
+     * by evicting the weakest pair, plus a small array of the strongest neighbors kept in order
+     */
+    private static class Neighbors {
+        private int[] keys = new int[16];
+        private double[] scores = new double[16];
+        private boolean[] used = new boolean[16];
+        private int size;
+
+        private int[] topIds = new int[0];
+        private double[] topScores = new double[0];
+
+        synchronized void add(int neighbor, double delta, int maxTracked, int topN) {
+            int slot = find(neighbor);
+            if (slot < 0) {
+                if (size >= maxTracked) {
+                    evictWeakest();
+                }
+                if ((size + 1) * 2 > keys.length) {
+                    grow();
+                }
+                slot = insertSlot(neighbor);
+                keys[slot] = neighbor;
+                used[slot] = true;
+                size++;
+            }
+            scores[slot] += delta;
+            updateTop(neighbor, scores[slot], topN);
+        }
+
+        synchronized int[] top(int limit) {
+            return Arrays.copyOf(topIds, Math.min(limit, topIds.length));
+        }
+
+        synchronized void scale(double factor) {
+            for (int i = 0; i < scores.length; i++) {
+                scores[i] *= factor;
+            }
+            for (int i = 0; i < topScores.length; i++) {
+                topScores[i] *= factor;
+            }
+        }
+
+        /**
+         * Scores only grow between rescales, so an entry enters the list once it beats the weakest one
+         */
+        private void updateTop(int neighbor, double score, int topN) {
+            int position = -1;
+            for (int i = 0; i < topIds.length; i++) {
+                if (topIds[i] == neighbor) {
+                    position = i;
+                    break;
+                }
+            }
+            if (position < 0) {
+                if (topIds.length < topN) {
+                    topIds = Arrays.copyOf(topIds, topIds.length + 1);
+                    topScores = Arrays.copyOf(topScores, topScores.length + 1);
+                    position = topIds.length - 1;
+                } else if (topN > 0 && score > topScores[topN - 1]) {
+                    position = topN - 1;
+                } else {
+                    return;
+                }
+                topIds[position] = neighbor;
+            }
+            topScores[position] = score;
+            while (position > 0 && topScores[position - 1] < topScores[position]) {
+                swapTop(position - 1, position);
+                position--;
+            }
+        }
+
+        private void swapTop(int a, int b) {
+            int id = topIds[a];
+            topIds[a] = topIds[b];
+            topIds[b] = id;
+            double score = topScores[a];
+            topScores[a] = topScores[b];
+            topScores[b] = score;
+        }
+
+        private void evictWeakest() {
+            int weakest = -1;
+            for (int i = 0; i < keys.length; i++) {
+                if (used[i] && (weakest < 0 || scores[i] < scores[weakest])) {
+                    weakest = i;
+                }
+            }
+            int evicted = keys[weakest];
+            removeTop(evicted);
+            // Rebuild without the evicted key to keep probe chains intact
+            int[] oldKeys = keys;
+            double[] oldScores = scores;
+            boolean[] oldUsed = used;
+            keys = new int[oldKeys.length];
+            scores = new double[oldKeys.length];
+            used = new boolean[oldKeys.length];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldUsed[i] && i != weakest) {
+                    int slot = insertSlot(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    scores[slot] = oldScores[i];
+                    used[slot] = true;
+                    size++;
+                }
+            }
+        }
+
+        private void removeTop(int neighbor) {
+            for (int i = 0; i < topIds.length; i++) {
+                if (topIds[i] == neighbor) {
+                    int last = topIds.length - 1;
+                    System.arraycopy(topIds, i + 1, topIds, i, last - i);
+                    System.arraycopy(topScores, i + 1, topScores, i, last - i);
+                    topIds = Arrays.copyOf(topIds, last);
+                    topScores = Arrays.copyOf(topScores, last);
+                    return;
+                }
+            }
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            double[] oldScores = scores;
+            boolean[] oldUsed = used;
+            keys = new int[oldKeys.length * 2];
+            scores = new double[oldKeys.length * 2];
+            used = new boolean[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldUsed[i]) {
+                    int slot = insertSlot(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    scores[slot] = oldScores[i];
+                    used[slot] = true;
+                }
+            }
+        }
+
+        private int find(int key) {
+            int mask = keys.length - 1;
+            for (int slot = (key * 0x9E3779B9) >>> 16 & mask; used[slot]; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        private int insertSlot(int key) {
+            int mask = keys.length - 1;
+            int slot = (key * 0x9E3779B9) >>> 16 & mask;
+            while (used[slot]) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.dev.challenge.sdg.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free ring buffer holding the most recent profit protection decisions (vetoes and
+ * approvals). Writers claim a sequence with a single atomic increment and publish into the
+ * slot; readers walk backwards from the head and skip slots that have already been
+ * overwritten, so the dashboard never waits on the request path. The buffer only knows
+ * decisions made since process start, and only the latest {@code capacity} of them.
+ */
+@Slf4j
+@Service
+public class DecisionRingBuffer {
+
+    @Value("${profit-protection.decision-buffer.capacity:4096}")
+    private int requestedCapacity;
+
+    private AtomicReferenceArray<Entry> slots;
+    private int mask;
+    private final AtomicLong head = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        int capacity = Integer.highestOneBit(Math.max(2, requestedCapacity - 1)) << 1;
+        slots = new AtomicReferenceArray<>(capacity);
+        mask = capacity - 1;
+        log.info("Decision ring buffer initialized with {} slots", capacity);
+    }
+
+    /**
+     * Records a decision; {@code decision} must not be modified afterwards. {@code timestampMillis}
+     * must match the timestamp stored with the audit record, so index fallbacks can continue past it.
+     */
+    public void record(boolean approved, String productId, String userId, long timestampMillis, Map<String, Object> decision) {
+        long sequence = head.getAndIncrement();
+        slots.set((int) (sequence & mask), new Entry(sequence, approved, productId, userId, timestampMillis,
+                Collections.unmodifiableMap(decision)));
+    }
+
+    /**
+     * Returns matching decisions newest first. {@code approved} and the id filters are optional.
+     * The page is complete only when it is full: older decisions may predate the process start or
+     * have been overwritten, and only the caller knows where to look for them.
+     */
+    public Page query(Boolean approved, String productId, String userId, int offset, int limit) {
+        long newest = head.get() - 1;
+        long oldest = Math.max(0, newest - mask);
+        List<Map<String, Object>> decisions = new ArrayList<>(Math.min(limit, 64));
+        int matched = 0;
+        long oldestMatchedMillis = Long.MAX_VALUE;
+
+        for (long sequence = newest; sequence >= oldest && decisions.size() < limit; sequence--) {
+            Entry entry = slots.get((int) (sequence & mask));
+            if (entry == null || entry.sequence != sequence || !entry.matches(approved, productId, userId)) {
+                continue;
+            }
+            matched++;
+            oldestMatchedMillis = Math.min(oldestMatchedMillis, entry.timestampMillis);
+            if (matched > offset) {
+                decisions.add(entry.decision);
+            }
+        }
+
+        return new Page(decisions, decisions.size() == limit, "memory", matched, oldestMatchedMillis);
+    }
+
+    /**
+     * True while every decision since process start is still in the buffer
+     */
+    public boolean retainsSinceStart() {
+        return head.get() <= slots.length();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        long recorded = head.get();
+        stats.put("capacity", slots.length());
+        stats.put("recorded", recorded);
+        stats.put("retained", Math.min(recorded, slots.length()));
+        stats.put("retainsSinceStart", recorded <= slots.length());
+        return stats;
+    }
+
+    private static class Entry {
+        private final long sequence;
+        private final boolean approved;
+        private final String productId;
+        private final String userId;
+        private final long timestampMillis;
+        private final Map<String, Object> decision;
+
+        private Entry(long sequence, boolean approved, String productId, String userId, long timestampMillis,
+                      Map<String, Object> decision) {
+            this.sequence = sequence;
+            this.approved = approved;
+            this.productId = productId;
+            this.userId = userId;
+            this.timestampMillis = timestampMillis;
+            this.decision = decision;
+        }
+
+        private boolean matches(Boolean approved, String productId, String userId) {
+            return (approved == null || approved == this.approved)
+                    && (productId == null || productId.equals(this.productId))
+                    && (userId == null || userId.equals(this.userId));
+        }
+    }
+
+    /**
+     * One page of decisions; {@code complete} is false when older decisions may exist beyond the buffer.
+     * {@code matched} counts the matching decisions scanned (skipped ones included) and
+     * {@code oldestMatchedMillis} is the timestamp of the oldest of them.
+     */
+    public static class Page {
+        private final List<Map<String, Object>> decisions;
+        private final boolean complete;
+        private final String source;
+        private final int matched;
+        private final long oldestMatchedMillis;
+
+        public Page(List<Map<String, Object>> decisions, boolean complete, String source) {
+            this(decisions, complete, source, decisions.size(), Long.MAX_VALUE);
+        }
+
+        public Page(List<Map<String, Object>> decisions, boolean complete, String source, int matched, long oldestMatchedMillis) {
+            this.decisions = decisions;
+            this.complete = complete;
+            this.source = source;
+            this.matched = matched;
+            this.oldestMatchedMillis = oldestMatchedMillis;
+        }
+
+        public List<Map<String, Object>> getDecisions() { return decisions; }
+        public boolean isComplete() { return complete; }
+        public String getSource() { return source; }
+        public int getMatched() { return matched; }
+        public long getOldestMatchedMillis() { return oldestMatchedMillis; }
+    }
+}
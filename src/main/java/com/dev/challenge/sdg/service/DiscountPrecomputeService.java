@@ -0,0 +1,296 @@
+package com.dev.challenge.sdg.service;
+
+import com.dev.challenge.sdg.model.Discount;
+import com.dev.challenge.sdg.model.UserEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Speculative discount pre-generation.
+ * Hesitation events (cart abandonment, repeated price hovers) schedule a background
+ * discount computation so that /api/get-discount can hand out the parked offer
+ * without running the AI pipeline on the request thread.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DiscountPrecomputeService implements UserEventListener {
+
+    private final DiscountService discountService;
+
+    @Value("${discount.precompute.enabled:true}")
+    private boolean enabled;
+
+    @Value("${discount.precompute.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${discount.precompute.workers:2}")
+    private int workerCount;
+
+    @Value("${discount.precompute.price-hover-threshold:2}")
+    private int priceHoverThreshold;
+
+    @Value("${discount.precompute.timeout-seconds:30}")
+    private int timeoutSeconds;
+
+    @Value("${discount.precompute.hesitation-idle-minutes:30}")
+    private int hesitationIdleMinutes;
+
+    // Tasks ordered by hesitation score (highest first); capacity is enforced on offer
+    private final PriorityBlockingQueue<PrecomputeTask> queue = new PriorityBlockingQueue<>();
+    private final Map<String, PrecomputeTask> pendingByUser = new ConcurrentHashMap<>();
+    private final Map<String, Discount> parkedDiscounts = new ConcurrentHashMap<>();
+    private final Map<String, HesitationCounter> hesitationCounters = new ConcurrentHashMap<>();
+
+    private final AtomicLong scheduled = new AtomicLong();
+    private final AtomicLong deduplicated = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong precomputed = new AtomicLong();
+    private final AtomicLong noOffer = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong served = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong expiredUnused = new AtomicLong();
+
+    private ExecutorService workers;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            log.info("Discount pre-computation disabled");
+            return;
+        }
+        AtomicInteger threadIndex = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "discount-precompute-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workerCount; i++) {
+            workers.submit(this::workerLoop);
+        }
+        log.info("Discount pre-computation started with {} workers, queue capacity {}", workerCount, queueCapacity);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Inspects an ingested behavior event and schedules a pre-computation on hesitation signals
+     */
+    @Override
+    public void onUserEvent(UserEvent event) {
+        if (!enabled || event == null || event.getUserId() == null) {
+            return;
+        }
+
+        String userId = event.getUserId();
+        long now = System.currentTimeMillis();
+
+        if (UserEvent.EventType.CART_ABANDON.getValue().equals(event.getEventType())) {
+            HesitationCounter counter = hesitationCounters.remove(userId);
+            int hovers = counter != null ? counter.priceHovers : 0;
+            schedule(userId, event.getProductId(), 1.0 + 0.25 * hovers);
+        } else if (UserEvent.EventType.PRICE_HOVER.getValue().equals(event.getEventType())) {
+            HesitationCounter counter = hesitationCounters.compute(userId, (key, existing) -> {
+                HesitationCounter updated = existing != null ? existing : new HesitationCounter();
+                updated.priceHovers++;
+                updated.lastSeenMillis = now;
+                return updated;
+            });
+            if (counter.priceHovers >= priceHoverThreshold) {
+                hesitationCounters.remove(userId, counter);
+                schedule(userId, event.getProductId(), 0.25 * counter.priceHovers);
+            }
+        }
+    }
+
+    /**
+     * Returns and consumes a parked discount for the user, or null when none is ready.
+     * A parked offer for a different product is left in place.
+     */
+    public Discount takePrecomputedDiscount(String userId, String productId) {
+        Discount discount = parkedDiscounts.get(userId);
+        if (discount == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        if (isExpired(discount)) {
+            if (parkedDiscounts.remove(userId, discount)) {
+                expiredUnused.incrementAndGet();
+            }
+            misses.incrementAndGet();
+            return null;
+        }
+
+        if (productId != null && !productId.isBlank() && !productId.equals(discount.getProductId())) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        if (!parkedDiscounts.remove(userId, discount)) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        served.incrementAndGet();
+        log.info("Serving pre-computed discount {} for user: {}", discount.getCode(), userId);
+        return discount;
+    }
+
+    /**
+     * Pre-computation counters for tuning wasted work
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("queueDepth", queue.size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("parked", parkedDiscounts.size());
+        stats.put("scheduled", scheduled.get());
+        stats.put("deduplicated", deduplicated.get());
+        stats.put("dropped", dropped.get());
+        stats.put("precomputed", precomputed.get());
+        stats.put("noOffer", noOffer.get());
+        stats.put("failed", failed.get());
+        stats.put("served", served.get());
+        stats.put("misses", misses.get());
+        stats.put("expiredUnused", expiredUnused.get());
+        long produced = precomputed.get();
+        stats.put("utilizationRate", produced > 0 ? (double) served.get() / produced : 0.0);
+        return stats;
+    }
+
+    /**
+     * Drops expired parked offers and idle hesitation counters
+     */
+    @Scheduled(fixedDelayString = "${discount.precompute.sweep-interval-ms:60000}")
+    public void sweep() {
+        parkedDiscounts.entrySet().removeIf(entry -> {
+            boolean expired = isExpired(entry.getValue());
+            if (expired) {
+                expiredUnused.incrementAndGet();
+            }
+            return expired;
+        });
+
+        long idleCutoff = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(hesitationIdleMinutes);
+        hesitationCounters.entrySet().removeIf(entry -> entry.getValue().lastSeenMillis < idleCutoff);
+    }
+
+    private void schedule(String userId, String productId, double hesitationScore) {
+        Discount parked = parkedDiscounts.get(userId);
+        if (parked != null && !isExpired(parked)
+                && (productId == null || productId.equals(parked.getProductId()))) {
+            deduplicated.incrementAndGet();
+            return;
+        }
+
+        PrecomputeTask task = new PrecomputeTask(userId, productId, hesitationScore, scheduled.incrementAndGet());
+        PrecomputeTask existing = pendingByUser.putIfAbsent(userId, task);
+        if (existing != null) {
+            // Re-prioritise the pending task if the new signal is stronger
+            if (hesitationScore > existing.hesitationScore && queue.remove(existing)) {
+                pendingByUser.put(userId, task);
+                queue.offer(task);
+            }
+            deduplicated.incrementAndGet();
+            return;
+        }
+
+        if (queue.size() >= queueCapacity) {
+            pendingByUser.remove(userId, task);
+            dropped.incrementAndGet();
+            log.warn("Discount pre-computation queue full, dropping task for user: {}", userId);
+            return;
+        }
+
+        queue.offer(task);
+        log.debug("Scheduled discount pre-computation for user: {} (score {})", userId, hesitationScore);
+    }
+
+    private void workerLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            PrecomputeTask task;
+            try {
+                task = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            pendingByUser.remove(task.userId, task);
+            compute(task);
+        }
+    }
+
+    private void compute(PrecomputeTask task) {
+        try {
+            Discount discount = discountService.generatePersonalizedDiscount(task.userId, task.productId)
+                    .get(timeoutSeconds, TimeUnit.SECONDS);
+
+            if (discount == null) {
+                noOffer.incrementAndGet();
+                return;
+            }
+
+            parkedDiscounts.put(task.userId, discount);
+            precomputed.incrementAndGet();
+            log.info("Pre-computed discount {} for user: {}", discount.getCode(), task.userId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            log.warn("Discount pre-computation failed for user {}: {}", task.userId, e.getMessage());
+        }
+    }
+
+    private boolean isExpired(Discount discount) {
+        return discount.getExpiresAt() != null && discount.getExpiresAt().isBefore(LocalDateTime.now());
+    }
+
+    private static class HesitationCounter {
+        private int priceHovers;
+        private long lastSeenMillis;
+    }
+
+    private static class PrecomputeTask implements Comparable<PrecomputeTask> {
+        private final String userId;
+        private final String productId;
+        private final double hesitationScore;
+        private final long sequence;
+
+        private PrecomputeTask(String userId, String productId, double hesitationScore, long sequence) {
+            this.userId = userId;
+            this.productId = productId;
+            this.hesitationScore = hesitationScore;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(PrecomputeTask other) {
+            int byScore = Double.compare(other.hesitationScore, hesitationScore);
+            return byScore != 0 ? byScore : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.dev.challenge.sdg.service;
+
+import com.dev.challenge.sdg.dto.DiscountResponse;
+import com.dev.challenge.sdg.model.Discount;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-user fan-out hub for Server-Sent Events discount pushes.
+ * Publishing never blocks the caller: events are appended to a bounded per-connection
+ * buffer and flushed by a small shared sender pool, so slow clients only lose their own
+ * oldest events instead of holding up discount generation. A client whose send blocks past
+ * {@code discount.push.send-timeout-ms} stops receiving events and is disconnected as soon as
+ * the blocked write returns or the connector's write timeout fails it, releasing its sender thread.
+ */
+@Slf4j
+@Service
+public class DiscountPushHub {
+
+    private static final String DISCOUNT_EVENT = "discount";
+
+    @Value("${discount.push.emitter-timeout-ms:1800000}")
+    private long emitterTimeoutMs;
+
+    @Value("${discount.push.buffer-size:16}")
+    private int bufferSize;
+
+    @Value("${discount.push.max-connections:50000}")
+    private int maxConnections;
+
+    @Value("${discount.push.max-connections-per-user:4}")
+    private int maxConnectionsPerUser;
+
+    @Value("${discount.push.sender-threads:16}")
+    private int senderThreads;
+
+    @Value("${discount.push.send-timeout-ms:10000}")
+    private long sendTimeoutMs;
+
+    private final Map<String, Set<Subscriber>> subscribersByUser = new ConcurrentHashMap<>();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final AtomicLong rejectedConnections = new AtomicLong();
+    private final AtomicLong stalledConnections = new AtomicLong();
+
+    private ExecutorService sender;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        sender = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "discount-push-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        subscribersByUser.values().forEach(subscribers -> subscribers.forEach(s -> s.emitter.complete()));
+        if (sender != null) {
+            sender.shutdownNow();
+        }
+    }
+
+    /**
+     * Opens an SSE stream for the user, or returns null when connection limits are reached
+     */
+    public SseEmitter subscribe(String userId) {
+        if (connectionCount.incrementAndGet() > maxConnections) {
+            return reject(userId);
+        }
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        Subscriber subscriber = new Subscriber(userId, emitter, bufferSize);
+        // Limit check and insert happen atomically with unsubscribe's removal of an emptied set
+        AtomicBoolean added = new AtomicBoolean();
+        subscribersByUser.compute(userId, (key, subscribers) -> {
+            if (subscribers == null) {
+                subscribers = ConcurrentHashMap.newKeySet();
+            }
+            if (subscribers.size() < maxConnectionsPerUser) {
+                added.set(subscribers.add(subscriber));
+            }
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+        if (!added.get()) {
+            return reject(userId);
+        }
+
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(error -> unsubscribe(subscriber));
+
+        enqueue(subscriber, SseEmitter.event().name("connected").data(Map.of("userId", userId)));
+        log.debug("Opened discount stream for user: {} ({} connections)", userId, connectionCount.get());
+        return emitter;
+    }
+
+    private SseEmitter reject(String userId) {
+        connectionCount.decrementAndGet();
+        rejectedConnections.incrementAndGet();
+        log.warn("Rejecting discount stream for user {}: connection limit reached", userId);
+        return null;
+    }
+
+    /**
+     * Pushes a generated discount to every open stream of its owner
+     */
+    public void publish(Discount discount) {
+        if (discount == null || discount.getUserId() == null) {
+            return;
+        }
+        published.incrementAndGet();
+
+        Set<Subscriber> subscribers = subscribersByUser.get(discount.getUserId());
+        if (subscribers == null || subscribers.isEmpty()) {
+            return;
+        }
+
+        DiscountResponse payload = DiscountResponse.offerGenerated(discount);
+        for (Subscriber subscriber : subscribers) {
+            enqueue(subscriber, SseEmitter.event()
+                    .id(discount.getCode())
+                    .name(DISCOUNT_EVENT)
+                    .data(payload));
+        }
+    }
+
+    public boolean hasSubscribers(String userId) {
+        Set<Subscriber> subscribers = subscribersByUser.get(userId);
+        return subscribers != null && !subscribers.isEmpty();
+    }
+
+    /**
+     * Keeps idle connections open through proxies and detects dead clients
+     */
+    @Scheduled(fixedDelayString = "${discount.push.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        long now = System.currentTimeMillis();
+        for (Set<Subscriber> subscribers : subscribersByUser.values()) {
+            for (Subscriber subscriber : subscribers) {
+                long sendingSince = subscriber.sendingSinceMillis;
+                if (sendingSince > 0 && now - sendingSince > sendTimeoutMs) {
+                    // Completing here would wait on the blocked send; the sender completes the stream
+                    // once the write returns, or the connector's write timeout fails it
+                    stalledConnections.incrementAndGet();
+                    log.debug("Discount stream for user {} stalled for {}ms, closing", subscriber.userId, now - sendingSince);
+                    unsubscribe(subscriber);
+                    scheduleDrain(subscriber);
+                    continue;
+                }
+                enqueue(subscriber, SseEmitter.event().comment("heartbeat"));
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("connections", connectionCount.get());
+        stats.put("connectedUsers", subscribersByUser.size());
+        stats.put("published", published.get());
+        stats.put("delivered", delivered.get());
+        stats.put("droppedEvents", droppedEvents.get());
+        stats.put("rejectedConnections", rejectedConnections.get());
+        stats.put("stalledConnections", stalledConnections.get());
+        return stats;
+    }
+
+    private void enqueue(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        if (subscriber.closed.get()) {
+            return;
+        }
+        // Drop the oldest buffered event rather than block on a slow client
+        while (!subscriber.buffer.offer(event)) {
+            if (subscriber.buffer.poll() != null) {
+                droppedEvents.incrementAndGet();
+            }
+        }
+        scheduleDrain(subscriber);
+    }
+
+    private void scheduleDrain(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            sender.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            SseEmitter.SseEventBuilder event;
+            while (!subscriber.closed.get() && (event = subscriber.buffer.poll()) != null) {
+                subscriber.sendingSinceMillis = System.currentTimeMillis();
+                try {
+                    subscriber.emitter.send(event);
+                    delivered.incrementAndGet();
+                } catch (Exception e) {
+                    log.debug("Discount stream for user {} closed: {}", subscriber.userId, e.getMessage());
+                    subscriber.emitter.completeWithError(e);
+                    unsubscribe(subscriber);
+                    return;
+                }
+            }
+            if (subscriber.closed.get()) {
+                // Closed while a send was blocked (e.g. by the stall check): nothing else completes the stream
+                subscriber.buffer.clear();
+                subscriber.emitter.complete();
+                return;
+            }
+        } finally {
+            subscriber.sendingSinceMillis = 0;
+            subscriber.draining.set(false);
+        }
+        // An event or a close may have arrived between the last check and releasing the flag
+        if (subscriber.closed.get() || !subscriber.buffer.isEmpty()) {
+            scheduleDrain(subscriber);
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return;
+        }
+        connectionCount.decrementAndGet();
+        subscribersByUser.computeIfPresent(subscriber.userId, (key, subscribers) -> {
+            subscribers.remove(subscriber);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+        log.debug("Closed discount stream for user: {}", subscriber.userId);
+    }
+
+    private static class Subscriber {
+        private final String userId;
+        private final SseEmitter emitter;
+        private final ArrayBlockingQueue<SseEmitter.SseEventBuilder> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        // Start of the send in progress, 0 when idle
+        private volatile long sendingSinceMillis;
+
+        private Subscriber(String userId, SseEmitter emitter, int bufferSize) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+    }
+}
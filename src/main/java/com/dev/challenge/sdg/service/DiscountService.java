@@ -8,17 +8,27 @@ import lombok.extern.slf4j.Slf4j;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Schedulers;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
 
 @Slf4j
 @Service
@@ -29,10 +39,21 @@ public class DiscountService {
     private final GeminiService geminiService;
     private final ProfitProtectionService profitProtectionService;
     private final McpDataEnrichmentService mcpDataEnrichmentService;
+    private final DiscountPushHub discountPushHub;
+    private final RecentEventStore recentEventStore;
+    private final CatalogReplicaService catalogReplicaService;
+    private final CoOccurrenceModel coOccurrenceModel;
+    private final UserAffinityService userAffinityService;
     
     @Value("${discount.default-expiry-minutes}")
     private Integer defaultExpiryMinutes;
     
+    @Value("${cross-sell.suggestions-per-discount:3}")
+    private int crossSellSuggestions;
+    
+    @Value("${gemini.chat.stream-timeout-ms:60000}")
+    private long chatStreamTimeoutMs;
+    
     // In-memory storage for active discounts (in production, use Redis or database)
     private final Map<String, Discount> activeDiscounts = new ConcurrentHashMap<>();
     
@@ -43,11 +64,11 @@ public class DiscountService {
     public CompletableFuture<Discount> generatePersonalizedDiscount(String userId, String productId) {
         log.debug("Generating personalized discount for user: {} and product: {}", userId, productId);
         
-        return algoliaService.getUserBehaviorHistory(userId, 20)
+        return getBehaviorHistory(userId, 20)
                 .thenCompose(behaviorHistory -> {
                     // If a specific product is requested, use it
                     if (productId != null && !productId.trim().isEmpty()) {
-                        return algoliaService.getProduct(productId)
+                        return catalogReplicaService.getProduct(productId)
                                 .thenCompose(product -> {
                                     if (product == null) {
                                         log.warn("Product not found: {}", productId);
@@ -61,6 +82,7 @@ public class DiscountService {
                                                     // Generate unique discount code
                                                     String discountCode = generateUniqueDiscountCode(userId, discount);
                                                     discount.setCode(discountCode);
+                                                    attachCrossSell(discount);
                                                     
                                                     // Store active discount
                                                     storeActiveDiscount(discount);
@@ -98,6 +120,7 @@ public class DiscountService {
                                                 // Generate unique discount code
                                                 String discountCode = generateUniqueDiscountCode(userId, discount);
                                                 discount.setCode(discountCode);
+                                                attachCrossSell(discount);
                                                 
                                                 // Store active discount
                                                 storeActiveDiscount(discount);
@@ -111,6 +134,47 @@ public class DiscountService {
                 });
     }
     
+    /**
+     * Newest behavior events of the user. The local window answers alone when it holds enough
+     * events; otherwise it only covers part of the range (older events predate the retained log or
+     * were trimmed), so Algolia's history is merged in, local events winning for the unshipped tail.
+     */
+    public CompletableFuture<List<UserEvent>> getBehaviorHistory(String userId, int limit) {
+        List<UserEvent> local = recentEventStore.getRecentEvents(userId, limit);
+        if (local.size() >= limit) {
+            return CompletableFuture.completedFuture(local);
+        }
+        return algoliaService.getUserBehaviorHistory(userId, limit).thenApply(indexed -> {
+            if (local.isEmpty()) {
+                return indexed;
+            }
+            Map<Object, UserEvent> merged = new LinkedHashMap<>();
+            local.forEach(event -> merged.put(historyKey(event), event));
+            indexed.forEach(event -> merged.putIfAbsent(historyKey(event), event));
+            return merged.values().stream()
+                    .sorted(Comparator.comparing(UserEvent::getTimestamp,
+                            Comparator.nullsLast(Comparator.reverseOrder())))
+                    .limit(limit)
+                    .toList();
+        });
+    }
+    
+    // Events without an id are never treated as duplicates
+    private static Object historyKey(UserEvent event) {
+        return event.getObjectId() != null ? event.getObjectId() : new Object();
+    }
+    
+    /**
+     * Products bought or viewed together with the discounted one; AI suggestions are kept
+     * only when the co-occurrence model has nothing for the product yet
+     */
+    private void attachCrossSell(Discount discount) {
+        List<String> related = coOccurrenceModel.suggest(discount.getProductId(), crossSellSuggestions);
+        if (!related.isEmpty()) {
+            discount.setCrossSellSuggestions(related);
+        }
+    }
+    
     private boolean shouldOfferDiscount(List<UserEvent> behaviorHistory) {
         // Analyze behavior patterns to determine if discount should be offered
         long cartAbandonments = behaviorHistory.stream()
@@ -162,6 +226,9 @@ public class DiscountService {
         activeDiscounts.put(discount.getCode(), discount);
         log.debug("Stored active discount: {}", discount.getCode());
         
+        // Push to any open discount stream of the owner
+        discountPushHub.publish(discount);
+        
         // Schedule cleanup of expired discounts (simplified approach)
         scheduleDiscountCleanup(discount.getCode(), discount.getExpiresAt());
     }
@@ -330,7 +397,7 @@ public class DiscountService {
     }
     
     /**
-     * Personalize search results based on user behavior
+     * Personalize search results by the user's category and brand affinity profile
      */
     public CompletableFuture<List<Product>> personalizeSearchResults(List<Product> searchResults, String userId) {
         log.debug("Personalizing search results for user: {}", userId);
@@ -339,36 +406,7 @@ public class DiscountService {
             return CompletableFuture.completedFuture(searchResults);
         }
         
-        return algoliaService.getUserBehaviorHistory(userId, 50)
-                .thenApply(userEvents -> {
-                    if (userEvents.isEmpty()) {
-                        return searchResults;
-                    }
-                    
-                    // Get user's preferred categories from behavior
-                    Map<String, Long> categoryPreferences = userEvents.stream()
-                            .filter(event -> event.getProductId() != null)
-                            .collect(java.util.stream.Collectors.groupingBy(
-                                    event -> getCategoryFromProductId(event.getProductId()),
-                                    java.util.stream.Collectors.counting()));
-                    
-                    // Sort results by user preferences
-                    return searchResults.stream()
-                            .sorted((p1, p2) -> {
-                                Long p1Score = categoryPreferences.getOrDefault(p1.getCategory(), 0L);
-                                Long p2Score = categoryPreferences.getOrDefault(p2.getCategory(), 0L);
-                                
-                                // Primary sort by category preference
-                                int categoryComparison = Long.compare(p2Score, p1Score);
-                                if (categoryComparison != 0) {
-                                    return categoryComparison;
-                                }
-                                
-                                // Secondary sort by rating
-                                return Double.compare(p2.getAverageRating(), p1.getAverageRating());
-                            })
-                            .collect(java.util.stream.Collectors.toList());
-                });
+        return CompletableFuture.completedFuture(userAffinityService.rerank(searchResults, userId));
     }
     
     /**
@@ -376,24 +414,17 @@ public class DiscountService {
      */
     public CompletableFuture<Map<String, Object>> generateAIChatResponse(
             String message,
+            String conversationSummary,
             List<Map<String, Object>> chatHistory,
             List<Product> relevantProducts,
             Map<String, Object> userContext) {
         
         log.debug("Generating AI chat response for message: '{}'", message);
         
-        return geminiService.generateChatResponse(message, chatHistory, relevantProducts, userContext)
+        return geminiService.generateChatResponse(message, conversationSummary, chatHistory, relevantProducts, userContext)
                 .thenApply(aiResponse -> {
-                    Map<String, Object> response = new HashMap<>();
-                    
-                    // Determine response type based on message content
-                    String responseType = determineResponseType(message, relevantProducts);
-                    
+                    Map<String, Object> response = describeChatResponse(message, relevantProducts);
                     response.put("message", aiResponse);
-                    response.put("type", responseType);
-                    response.put("confidence", calculateResponseConfidence(message, relevantProducts));
-                    response.put("suggestedActions", generateSuggestedActions(message, relevantProducts));
-                    
                     return response;
                 })
                 .exceptionally(throwable -> {
@@ -402,6 +433,98 @@ public class DiscountService {
                 });
     }
     
+    /**
+     * Streams an AI chat response as server-sent events. The emitter is returned at once; when
+     * the products and user context are available a {@code meta} event with the response type,
+     * confidence and suggested actions is sent, then {@code token} events as Gemini produces
+     * text, and a final {@code done} event with the full reply. {@code onComplete} receives the
+     * response type and the full reply once it is finished.
+     */
+    public SseEmitter streamAIChatResponse(
+            String message,
+            String conversationSummary,
+            List<Map<String, Object>> chatHistory,
+            CompletableFuture<List<Product>> relevantProducts,
+            CompletableFuture<Map<String, Object>> userContext,
+            BiConsumer<String, String> onComplete) {
+        
+        SseEmitter emitter = new SseEmitter(chatStreamTimeoutMs);
+        AtomicBoolean closed = new AtomicBoolean();
+        AtomicReference<Disposable> subscription = new AtomicReference<>();
+        Runnable close = () -> {
+            closed.set(true);
+            Disposable current = subscription.get();
+            if (current != null) {
+                current.dispose();
+            }
+        };
+        emitter.onCompletion(close);
+        emitter.onTimeout(close);
+        emitter.onError(error -> close.run());
+        
+        relevantProducts.thenAcceptBoth(userContext, (products, context) -> {
+            if (closed.get()) {
+                return;
+            }
+            Map<String, Object> meta = describeChatResponse(message, products);
+            meta.put("suggestedProducts", products);
+            if (!sendChatEvent(emitter, "meta", meta)) {
+                return;
+            }
+            
+            StringBuilder reply = new StringBuilder();
+            subscription.set(geminiService.streamChatResponse(message, conversationSummary, chatHistory, products, context)
+                    // Servlet writes block, so keep them off the HTTP client's event loop
+                    .publishOn(Schedulers.boundedElastic())
+                    .subscribe(
+                            text -> {
+                                reply.append(text);
+                                sendChatEvent(emitter, "token", Map.of("text", text));
+                            },
+                            error -> {
+                                log.error("AI chat stream failed: {}", error.getMessage());
+                                emitter.completeWithError(error);
+                            },
+                            () -> {
+                                sendChatEvent(emitter, "done", Map.of(
+                                        "response", reply.toString(),
+                                        "timestamp", Instant.now().toString()));
+                                emitter.complete();
+                                onComplete.accept((String) meta.get("type"), reply.toString());
+                            }));
+            // The client may have gone away while subscribing
+            if (closed.get()) {
+                subscription.get().dispose();
+            }
+        }).exceptionally(error -> {
+            log.error("Failed to prepare AI chat stream: {}", error.getMessage());
+            emitter.completeWithError(error);
+            return null;
+        });
+        return emitter;
+    }
+    
+    private boolean sendChatEvent(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            log.debug("AI chat stream closed by client: {}", e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Response type, confidence and suggested actions; these depend only on the message and products
+     */
+    private Map<String, Object> describeChatResponse(String message, List<Product> relevantProducts) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("type", determineResponseType(message, relevantProducts));
+        response.put("confidence", calculateResponseConfidence(message, relevantProducts));
+        response.put("suggestedActions", generateSuggestedActions(message, relevantProducts));
+        return response;
+    }
+    
     // Helper methods
     private int calculateOverallScore(Map<String, Object> searchAnalytics, 
                                      Map<String, Object> behaviorInsights, 
@@ -446,15 +569,6 @@ public class DiscountService {
                 .collect(java.util.stream.Collectors.toList());
     }
     
-    private String getCategoryFromProductId(String productId) {
-        // Simple mapping - in a real app, you'd look this up from the product database
-        if (productId != null) {
-            if (productId.contains("PROD001") || productId.contains("PROD003")) return "Electronics";
-            if (productId.contains("PROD002")) return "Sports";
-        }
-        return "General";
-    }
-    
     private String determineResponseType(String message, List<Product> relevantProducts) {
         String lowerMessage = message.toLowerCase();
         
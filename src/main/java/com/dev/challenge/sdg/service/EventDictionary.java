@@ -0,0 +1,134 @@
+package com.dev.challenge.sdg.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append-only string dictionary used by the compact event encoding.
+ * Event types, user IDs, product IDs and detail keys are stored once and referenced
+ * by a dense int id afterwards. Ids are never reused or reassigned.
+ * The shared instance stops assigning ids at {@code events.log.dictionary-max-entries};
+ * values seen after that get no id and callers store them inline instead.
+ */
+@Slf4j
+@Service
+public class EventDictionary {
+
+    /**
+     * Returned by {@link #idOf} when the dictionary is full and the value has no id
+     */
+    public static final int NO_ID = -1;
+
+    // Instances created outside Spring (per-service lookups) stay unbounded
+    @Value("${events.log.dictionary-max-entries:2000000}")
+    private int maxEntries = Integer.MAX_VALUE;
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final AtomicLong overflows = new AtomicLong();
+    private volatile String[] values = new String[1024];
+    private volatile int size;
+    private volatile Journal journal;
+
+    /**
+     * Receives every newly assigned entry, in id order, so it can be made durable
+     */
+    public interface Journal {
+        void onEntryAdded(int id, String value);
+    }
+
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Returns the id for the value, assigning the next free id on first sight,
+     * or {@link #NO_ID} when the dictionary is full
+     */
+    public int idOf(String value) {
+        Integer id = ids.get(value);
+        if (id != null) {
+            return id;
+        }
+        if (size >= maxEntries) {
+            return overflow();
+        }
+        synchronized (this) {
+            id = ids.get(value);
+            if (id != null) {
+                return id;
+            }
+            if (size >= maxEntries) {
+                return overflow();
+            }
+            int assigned = append(value);
+            Journal current = journal;
+            if (current != null) {
+                current.onEntryAdded(assigned, value);
+            }
+            return assigned;
+        }
+    }
+
+    /**
+     * Returns the id for the value without assigning one, or -1 when unknown
+     */
+    public int find(String value) {
+        Integer id = ids.get(value);
+        return id != null ? id : -1;
+    }
+
+    public String valueOf(int id) {
+        if (id < 0 || id >= size) {
+            return null;
+        }
+        return values[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Number of lookups that found the dictionary full
+     */
+    public long overflows() {
+        return overflows.get();
+    }
+
+    /**
+     * Re-registers a journaled entry on startup; entries must be restored in id order
+     */
+    public synchronized void restore(int id, String value) {
+        if (id < size) {
+            return;
+        }
+        if (id != size) {
+            throw new IllegalStateException("Dictionary journal gap: expected id " + size + " but got " + id);
+        }
+        append(value);
+    }
+
+    private int overflow() {
+        if (overflows.getAndIncrement() == 0) {
+            log.warn("Event dictionary is full at {} entries, new values are stored inline", size);
+        }
+        return NO_ID;
+    }
+
+    private int append(String value) {
+        int next = size;
+        if (next == values.length) {
+            values = Arrays.copyOf(values, next * 2);
+        }
+        values[next] = value;
+        size = next + 1;
+        ids.put(value, next);
+        return next;
+    }
+}
@@ -0,0 +1,256 @@
+package com.dev.challenge.sdg.service;
+
+import com.dev.challenge.sdg.dto.UserBehaviorRequest;
+import com.dev.challenge.sdg.model.UserEvent;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.annotation.PostConstruct;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ingestion pipeline for behavior events.
+ * Bulk (NDJSON), WebSocket and single-event payloads are parsed incrementally, encoded and
+ * appended to the local {@link EventLog}, after which listeners are notified. Shipping to
+ * Algolia happens asynchronously in {@link EventLogShipper}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class EventIngestionService {
+
+    private static final int MAX_REPORTED_ERRORS = 10;
+    private static final int REPLAY_BATCH_SIZE = 10_000;
+
+    private final EventLog eventLog;
+    private final UserEventCodec codec;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final List<UserEventListener> listeners;
+
+    private ObjectReader requestReader;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        requestReader = objectMapper.readerFor(UserBehaviorRequest.class);
+        replayLog();
+    }
+
+    /**
+     * Durably appends an event to the local log and notifies listeners; returns false when
+     * the event could not be written
+     */
+    public boolean submit(UserEvent event) {
+        if (event.getObjectId() == null) {
+            event.setObjectId(UUID.randomUUID().toString());
+        }
+        if (event.getTimestamp() == null) {
+            event.setTimestamp(Instant.now());
+        }
+
+        try {
+            eventLog.append(codec.encode(event));
+        } catch (Exception e) {
+            dropped.incrementAndGet();
+            log.error("Failed to append user event {} to the event log: {}", event.getObjectId(), e.getMessage());
+            return false;
+        }
+        accepted.incrementAndGet();
+        notifyListeners(event);
+        return true;
+    }
+
+    private void notifyListeners(UserEvent event) {
+        for (UserEventListener listener : listeners) {
+            try {
+                listener.onUserEvent(event);
+            } catch (Exception e) {
+                log.warn("User event listener {} failed: {}", listener.getClass().getSimpleName(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Parses newline-delimited JSON events one at a time into the event log
+     */
+    public IngestionResult ingestNdjson(InputStream input) throws IOException {
+        try (MappingIterator<UserBehaviorRequest> iterator = requestReader.readValues(input)) {
+            return ingest(iterator);
+        }
+    }
+
+    public IngestionResult ingestNdjson(Reader input) throws IOException {
+        try (MappingIterator<UserBehaviorRequest> iterator = requestReader.readValues(input)) {
+            return ingest(iterator);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("accepted", accepted.get());
+        stats.put("rejected", rejected.get());
+        stats.put("dropped", dropped.get());
+        stats.put("eventLog", eventLog.getStats());
+        return stats;
+    }
+
+    private IngestionResult ingest(MappingIterator<UserBehaviorRequest> iterator) {
+        IngestionResult result = new IngestionResult();
+        long line = 0;
+
+        while (true) {
+            UserBehaviorRequest request;
+            try {
+                if (!iterator.hasNextValue()) {
+                    break;
+                }
+                line++;
+                request = iterator.nextValue();
+            } catch (JsonParseException e) {
+                // Malformed JSON leaves the parser in an unknown state; stop here
+                result.reject(line, "Malformed JSON: " + e.getOriginalMessage());
+                result.truncated = true;
+                break;
+            } catch (JsonMappingException e) {
+                result.reject(line, e.getOriginalMessage());
+                continue;
+            } catch (IOException e) {
+                result.reject(line, e.getMessage());
+                result.truncated = true;
+                break;
+            }
+
+            Set<ConstraintViolation<UserBehaviorRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                result.reject(line, violations.iterator().next().getMessage());
+                continue;
+            }
+
+            if (submit(toUserEvent(request))) {
+                result.accepted++;
+            } else {
+                result.dropped++;
+            }
+        }
+
+        rejected.addAndGet(result.rejected);
+        return result;
+    }
+
+    private UserEvent toUserEvent(UserBehaviorRequest request) {
+        return UserEvent.builder()
+                .objectId(UUID.randomUUID().toString())
+                .userId(request.getUserId())
+                .eventType(request.getEventType())
+                .productId(request.getProductId())
+                .query(request.getQuery())
+                .details(request.getDetails())
+                .timestamp(request.getTimestamp() != null ? request.getTimestamp() : Instant.now())
+                .build();
+    }
+
+    /**
+     * Rebuilds replay-capable listeners (in-memory windows) from the retained log. Each listener
+     * only receives events within its replay horizon; segments older than every horizon are skipped.
+     */
+    private void replayLog() {
+        List<UserEventListener> replayListeners = listeners.stream()
+                .filter(UserEventListener::replayOnStartup)
+                .toList();
+        if (replayListeners.isEmpty()) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        long[] cutoffs = new long[replayListeners.size()];
+        long earliestCutoff = Long.MAX_VALUE;
+        for (int i = 0; i < cutoffs.length; i++) {
+            long horizon = replayListeners.get(i).replayHorizonMillis();
+            cutoffs[i] = horizon >= start ? Long.MIN_VALUE : start - horizon;
+            earliestCutoff = Math.min(earliestCutoff, cutoffs[i]);
+        }
+
+        long sequence = earliestCutoff == Long.MIN_VALUE
+                ? eventLog.firstSequence()
+                : eventLog.firstSequenceWrittenSince(earliestCutoff);
+        long head = eventLog.nextSequence();
+        long[] replayed = new long[1];
+        while (sequence < head) {
+            long next = eventLog.read(sequence, REPLAY_BATCH_SIZE, (seq, payload) -> {
+                long timestamp = codec.readTimestamp(payload, 0);
+                UserEvent event = null;
+                for (int i = 0; i < cutoffs.length; i++) {
+                    if (timestamp >= cutoffs[i]) {
+                        if (event == null) {
+                            event = codec.decode(payload);
+                            replayed[0]++;
+                        }
+                        replayListeners.get(i).onUserEvent(event);
+                    }
+                }
+            });
+            if (next == sequence) {
+                break;
+            }
+            sequence = next;
+        }
+        log.info("Replayed {} logged events into {} listeners in {}ms",
+                replayed[0], replayListeners.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Outcome of one ingestion payload
+     */
+    public static class IngestionResult {
+        private int accepted;
+        private int rejected;
+        private int dropped;
+        private boolean truncated;
+        private final List<String> errors = new ArrayList<>();
+
+        private void reject(long line, String reason) {
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add("line " + line + ": " + reason);
+            }
+        }
+
+        public int getAccepted() { return accepted; }
+        public int getRejected() { return rejected; }
+        public int getDropped() { return dropped; }
+        public boolean isTruncated() { return truncated; }
+        public List<String> getErrors() { return errors; }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("accepted", accepted);
+            map.put("rejected", rejected);
+            map.put("dropped", dropped);
+            map.put("truncated", truncated);
+            map.put("errors", errors);
+            return map;
+        }
+    }
+}
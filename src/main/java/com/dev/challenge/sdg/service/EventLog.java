@@ -0,0 +1,508 @@
+package com.dev.challenge.sdg.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only local write-ahead log for encoded behavior events.
+ * <p>
+ * Records are written as {@code [int length][int crc32][payload]} into memory-mapped,
+ * fixed-size segment files named by the sequence number of their first record. The length
+ * is written last, so a torn record reads as the end of the segment. Segments are forced
+ * to disk on a batched interval, rotated when full, and deleted once they are past the
+ * retention period and behind the consumer checkpoint. The {@link EventDictionary} is
+ * journaled to a separate file so ids stay stable across restarts and segment deletion.
+ * The next sequence is also persisted (on segment creation and close), so sequence numbers
+ * keep growing even when retention or an empty tail leaves no segment to recover them from.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class EventLog implements EventDictionary.Journal {
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String DICTIONARY_FILE = "dictionary.dat";
+    private static final String HEAD_FILE = "head.dat";
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int INDEX_INTERVAL = 256;
+
+    private final EventDictionary dictionary;
+
+    @Value("${events.log.dir:./data/event-log}")
+    private String directory;
+
+    @Value("${events.log.segment-size-bytes:67108864}")
+    private int segmentSizeBytes;
+
+    @Value("${events.log.fsync-interval-ms:100}")
+    private long fsyncIntervalMs;
+
+    @Value("${events.log.retention-hours:168}")
+    private int retentionHours;
+
+    // Oldest first; the last segment is the one being written
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private final Object writeLock = new Object();
+    private volatile Segment active;
+    private volatile long retentionFloor = Long.MAX_VALUE;
+    private volatile boolean dirty;
+
+    private Path logDirectory;
+    private FileChannel dictionaryChannel;
+    private ScheduledExecutorService syncScheduler;
+
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong appendedBytes = new AtomicLong();
+    private final AtomicLong syncs = new AtomicLong();
+    private final AtomicLong deletedSegments = new AtomicLong();
+
+    /**
+     * Receives records in sequence order during a read
+     */
+    public interface RecordHandler {
+        void onRecord(long sequence, byte[] payload);
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        logDirectory = Paths.get(directory);
+        Files.createDirectories(logDirectory);
+
+        restoreDictionary();
+        dictionary.setJournal(this);
+
+        recoverSegments();
+        long recovered = segments.isEmpty() ? 0 : segments.get(segments.size() - 1).nextSequence;
+        long nextSequence = Math.max(recovered, readHead());
+        // Always continue in a fresh segment so a torn tail is never overwritten in place
+        active = createSegment(nextSequence);
+        segments.add(active);
+
+        if (fsyncIntervalMs > 0) {
+            syncScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "event-log-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncScheduler.scheduleWithFixedDelay(this::syncQuietly, fsyncIntervalMs, fsyncIntervalMs, TimeUnit.MILLISECONDS);
+        }
+
+        log.info("Event log opened at {}: {} segments, next sequence {}, dictionary size {}",
+                logDirectory.toAbsolutePath(), segments.size(), nextSequence, dictionary.size());
+    }
+
+    @PreDestroy
+    public void close() {
+        if (syncScheduler != null) {
+            // Interrupting a force() would close the channels, so let the current sync finish
+            syncScheduler.shutdown();
+            try {
+                syncScheduler.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        dictionary.setJournal(null);
+        sync();
+        try {
+            writeHead(active.nextSequence);
+            if (dictionaryChannel != null) {
+                dictionaryChannel.close();
+            }
+        } catch (IOException e) {
+            log.warn("Failed to close event log: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Appends one record and returns its sequence number
+     */
+    public long append(byte[] payload) {
+        int needed = RECORD_HEADER_BYTES + payload.length;
+        if (needed > segmentSizeBytes) {
+            throw new IllegalArgumentException("Record of " + payload.length + " bytes exceeds segment size");
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        synchronized (writeLock) {
+            Segment segment = active;
+            if (segment.writePosition + needed > segmentSizeBytes) {
+                segment = rotate();
+            }
+
+            int position = segment.writePosition;
+            long sequence = segment.nextSequence;
+            MappedByteBuffer buffer = segment.buffer;
+            buffer.putInt(position + 4, (int) crc.getValue());
+            buffer.put(position + RECORD_HEADER_BYTES, payload);
+            buffer.putInt(position, payload.length);
+
+            segment.index(sequence, position);
+            segment.writePosition = position + needed;
+            segment.lastWriteMillis = System.currentTimeMillis();
+            segment.nextSequence = sequence + 1;
+            dirty = true;
+
+            appended.incrementAndGet();
+            appendedBytes.addAndGet(needed);
+
+            if (fsyncIntervalMs <= 0) {
+                sync();
+            }
+            return sequence;
+        }
+    }
+
+    /**
+     * Reads up to maxRecords records starting at fromSequence and returns the sequence to
+     * continue from. Records removed by retention are skipped.
+     */
+    public long read(long fromSequence, int maxRecords, RecordHandler handler) {
+        long sequence = fromSequence;
+        int remaining = maxRecords;
+
+        for (Segment segment : segments) {
+            long limit = segment.nextSequence;
+            if (limit <= sequence) {
+                continue;
+            }
+            if (sequence < segment.baseSequence) {
+                sequence = segment.baseSequence;
+            }
+
+            ByteBuffer buffer = segment.buffer.duplicate();
+            int slot = segment.slotFor(sequence);
+            long current = segment.baseSequence + (long) slot * INDEX_INTERVAL;
+            int position = segment.indexPositions[slot];
+
+            while (current < limit && remaining > 0) {
+                int length = buffer.getInt(position);
+                if (current >= sequence) {
+                    byte[] payload = new byte[length];
+                    buffer.get(position + RECORD_HEADER_BYTES, payload);
+                    handler.onRecord(current, payload);
+                    remaining--;
+                }
+                position += RECORD_HEADER_BYTES + length;
+                current++;
+            }
+            sequence = current;
+            if (remaining == 0) {
+                break;
+            }
+        }
+        return sequence;
+    }
+
+    public long nextSequence() {
+        return active.nextSequence;
+    }
+
+    public long firstSequence() {
+        return segments.isEmpty() ? 0 : segments.get(0).baseSequence;
+    }
+
+    /**
+     * First sequence of the oldest segment still written to at or after the given time, so
+     * readers interested in recent records can skip older segments entirely
+     */
+    public long firstSequenceWrittenSince(long timestampMillis) {
+        for (Segment segment : segments) {
+            if (segment.lastWriteMillis >= timestampMillis) {
+                return segment.baseSequence;
+            }
+        }
+        return nextSequence();
+    }
+
+    /**
+     * Segments holding records at or after this sequence are never deleted by retention
+     */
+    public void setRetentionFloor(long sequence) {
+        this.retentionFloor = sequence;
+    }
+
+    /**
+     * Forces buffered dictionary entries and log records to disk
+     */
+    public void sync() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        try {
+            if (dictionaryChannel != null) {
+                dictionaryChannel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        active.buffer.force();
+        syncs.incrementAndGet();
+    }
+
+    @Override
+    public void onEntryAdded(int id, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        UserEventCodec.ByteSink payload = new UserEventCodec.ByteSink(bytes.length + 5);
+        payload.writeVarInt(id);
+        payload.writeBytes(bytes, 0, bytes.length);
+
+        CRC32 crc = new CRC32();
+        crc.update(payload.array(), 0, payload.size());
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + payload.size());
+        record.putInt(payload.size());
+        record.putInt((int) crc.getValue());
+        record.put(payload.array(), 0, payload.size());
+        record.flip();
+        try {
+            while (record.hasRemaining()) {
+                dictionaryChannel.write(record);
+            }
+            dirty = true;
+        } catch (IOException e) {
+            log.error("Failed to journal dictionary entry {}: {}", id, e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes sealed segments past retention that the consumer has already processed
+     */
+    @Scheduled(fixedDelayString = "${events.log.retention-check-interval-ms:600000}")
+    public void applyRetention() {
+        long cutoff = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(retentionHours);
+        for (Segment segment : segments) {
+            if (segment == active || segment.lastWriteMillis >= cutoff || segment.nextSequence > retentionFloor) {
+                break;
+            }
+            segments.remove(segment);
+            try {
+                Files.deleteIfExists(segment.path);
+                deletedSegments.incrementAndGet();
+                log.info("Deleted event log segment {}", segment.path.getFileName());
+            } catch (IOException e) {
+                log.warn("Failed to delete event log segment {}: {}", segment.path, e.getMessage());
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("segments", segments.size());
+        stats.put("firstSequence", firstSequence());
+        stats.put("nextSequence", nextSequence());
+        stats.put("activeSegmentBytes", active.writePosition);
+        stats.put("appended", appended.get());
+        stats.put("appendedBytes", appendedBytes.get());
+        stats.put("syncs", syncs.get());
+        stats.put("deletedSegments", deletedSegments.get());
+        stats.put("dictionaryEntries", dictionary.size());
+        stats.put("dictionaryOverflows", dictionary.overflows());
+        return stats;
+    }
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (Exception e) {
+            log.error("Event log sync failed: {}", e.getMessage());
+        }
+    }
+
+    private Segment rotate() {
+        Segment previous = active;
+        previous.buffer.force();
+        Segment next = createSegment(previous.nextSequence);
+        segments.add(next);
+        active = next;
+        log.info("Rotated event log to segment {}", next.path.getFileName());
+        return next;
+    }
+
+    private Segment createSegment(long baseSequence) {
+        Path path = logDirectory.resolve(String.format("%020d%s", baseSequence, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSizeBytes);
+            writeHead(baseSequence);
+            return new Segment(baseSequence, path, buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create event log segment " + path, e);
+        }
+    }
+
+    /**
+     * Lower bound for the next sequence, persisted atomically whenever a segment is created and on close
+     */
+    private void writeHead(long baseSequence) throws IOException {
+        Path head = logDirectory.resolve(HEAD_FILE);
+        Path temp = head.resolveSibling(HEAD_FILE + ".tmp");
+        Files.writeString(temp, Long.toString(baseSequence), StandardCharsets.UTF_8);
+        Files.move(temp, head, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private long readHead() {
+        Path head = logDirectory.resolve(HEAD_FILE);
+        try {
+            return Files.exists(head) ? Long.parseLong(Files.readString(head, StandardCharsets.UTF_8).trim()) : 0;
+        } catch (IOException | NumberFormatException e) {
+            log.warn("Ignoring unreadable event log head file {}: {}", head, e.getMessage());
+            return 0;
+        }
+    }
+
+    private void recoverSegments() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(logDirectory)) {
+            files = listing.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+
+        for (Path path : files) {
+            String name = path.getFileName().toString();
+            long baseSequence = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+            MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+
+            Segment segment = new Segment(baseSequence, path, buffer);
+            int position = 0;
+            long sequence = baseSequence;
+            int length;
+            while ((length = validRecordLength(buffer, position)) >= 0) {
+                segment.index(sequence, position);
+                position += RECORD_HEADER_BYTES + length;
+                sequence++;
+            }
+            segment.writePosition = position;
+            segment.nextSequence = sequence;
+            segment.lastWriteMillis = Files.getLastModifiedTime(path).toMillis();
+
+            if (sequence == baseSequence) {
+                // Nothing usable in this segment
+                Files.deleteIfExists(path);
+                continue;
+            }
+            segments.add(segment);
+        }
+    }
+
+    /**
+     * Returns the payload length of a well-formed record at the position, or -1
+     */
+    private static int validRecordLength(ByteBuffer buffer, int position) {
+        if (position + RECORD_HEADER_BYTES > buffer.limit()) {
+            return -1;
+        }
+        int length = buffer.getInt(position);
+        if (length <= 0 || position + RECORD_HEADER_BYTES + length > buffer.limit()) {
+            return -1;
+        }
+        byte[] payload = new byte[length];
+        buffer.get(position + RECORD_HEADER_BYTES, payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue() == buffer.getInt(position + 4) ? length : -1;
+    }
+
+    private void restoreDictionary() throws IOException {
+        Path path = logDirectory.resolve(DICTIONARY_FILE);
+        long validBytes = 0;
+        int restored = 0;
+
+        if (Files.exists(path)) {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+            int length;
+            while ((length = validRecordLength(buffer, (int) validBytes)) >= 0) {
+                byte[] payload = new byte[length];
+                buffer.get((int) validBytes + RECORD_HEADER_BYTES, payload);
+                UserEventCodec.ByteSource in = new UserEventCodec.ByteSource(payload, 0);
+                int id = in.readVarInt();
+                String value = new String(payload, in.position(), length - in.position(), StandardCharsets.UTF_8);
+                dictionary.restore(id, value);
+                validBytes += RECORD_HEADER_BYTES + length;
+                restored++;
+            }
+        }
+
+        dictionaryChannel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // Drop a torn tail before appending new entries
+        dictionaryChannel.truncate(validBytes);
+        dictionaryChannel.position(validBytes);
+        log.debug("Restored {} event dictionary entries", restored);
+    }
+
+    private static class Segment {
+        private final long baseSequence;
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private volatile int writePosition;
+        private volatile long nextSequence;
+        private volatile long lastWriteMillis = System.currentTimeMillis();
+
+        // Sparse sequence -> position index, one entry every INDEX_INTERVAL records
+        private volatile int[] indexPositions = new int[64];
+        private volatile int indexSize;
+
+        private Segment(long baseSequence, Path path, MappedByteBuffer buffer) {
+            this.baseSequence = baseSequence;
+            this.path = path;
+            this.buffer = buffer;
+            this.nextSequence = baseSequence;
+        }
+
+        private void index(long sequence, int position) {
+            long relative = sequence - baseSequence;
+            if (relative % INDEX_INTERVAL != 0) {
+                return;
+            }
+            int slot = (int) (relative / INDEX_INTERVAL);
+            int[] positions = indexPositions;
+            if (slot == positions.length) {
+                positions = Arrays.copyOf(positions, positions.length * 2);
+            }
+            positions[slot] = position;
+            indexPositions = positions;
+            indexSize = slot + 1;
+        }
+
+        private int slotFor(long sequence) {
+            int slot = (int) ((sequence - baseSequence) / INDEX_INTERVAL);
+            return Math.min(slot, indexSize - 1);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.dev.challenge.sdg.service;
+
+import com.dev.challenge.sdg.model.UserEvent;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tails the local {@link EventLog} and writes events to Algolia in batches.
+ * Progress is persisted in a checkpoint file after each successful batch, so an Algolia
+ * outage only delays shipping and a restart resumes where it stopped.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class EventLogShipper {
+
+    private static final String CHECKPOINT_FILE = "algolia-shipper.checkpoint";
+
+    private final EventLog eventLog;
+    private final UserEventCodec codec;
+    private final AlgoliaService algoliaService;
+
+    @Value("${events.log.dir:./data/event-log}")
+    private String directory;
+
+    @Value("${events.log.shipper.enabled:true}")
+    private boolean enabled;
+
+    @Value("${events.log.shipper.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${events.log.shipper.max-backoff-ms:60000}")
+    private long maxBackoffMs;
+
+    private Path checkpointPath;
+    private volatile long checkpoint;
+    private volatile long retryAfterMillis;
+    private long backoffMs;
+
+    private final AtomicLong shipped = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+
+    @PostConstruct
+    public void start() throws IOException {
+        checkpointPath = Paths.get(directory).resolve(CHECKPOINT_FILE);
+        if (Files.exists(checkpointPath)) {
+            checkpoint = Long.parseLong(Files.readString(checkpointPath, StandardCharsets.UTF_8).trim());
+        }
+        if (checkpoint > eventLog.nextSequence()) {
+            // The log restarted below the checkpoint (e.g. its directory was wiped); without this
+            // every new event would look already shipped
+            log.warn("Shipper checkpoint {} is ahead of the event log head {}, rewinding",
+                    checkpoint, eventLog.nextSequence());
+            saveCheckpoint(eventLog.nextSequence());
+        }
+        eventLog.setRetentionFloor(enabled ? checkpoint : Long.MAX_VALUE);
+        log.info("Event log shipper {} at sequence {} (log head {})",
+                enabled ? "resuming" : "disabled", checkpoint, eventLog.nextSequence());
+    }
+
+    /**
+     * Ships everything appended since the checkpoint, one batch at a time
+     */
+    @Scheduled(fixedDelayString = "${events.log.shipper.interval-ms:1000}")
+    public void ship() {
+        if (!enabled || System.currentTimeMillis() < retryAfterMillis) {
+            return;
+        }
+
+        while (checkpoint < eventLog.nextSequence()) {
+            List<UserEvent> batch = new ArrayList<>(batchSize);
+            long next = eventLog.read(checkpoint, batchSize, (sequence, payload) -> batch.add(codec.decode(payload)));
+
+            try {
+                if (!batch.isEmpty()) {
+                    algoliaService.storeUserEvents(batch).join();
+                }
+                saveCheckpoint(next);
+                shipped.addAndGet(batch.size());
+                backoffMs = 0;
+            } catch (Exception e) {
+                failedBatches.incrementAndGet();
+                backoffMs = backoffMs == 0 ? 1000 : Math.min(backoffMs * 2, maxBackoffMs);
+                retryAfterMillis = System.currentTimeMillis() + backoffMs;
+                log.warn("Failed to ship {} events to Algolia, retrying in {}ms: {}",
+                        batch.size(), backoffMs, e.getMessage());
+                return;
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("checkpoint", checkpoint);
+        stats.put("lag", Math.max(0, eventLog.nextSequence() - checkpoint));
+        stats.put("shipped", shipped.get());
+        stats.put("failedBatches", failedBatches.get());
+        return stats;
+    }
+
+    private void saveCheckpoint(long sequence) throws IOException {
+        Path temp = checkpointPath.resolveSibling(CHECKPOINT_FILE + ".tmp");
+        Files.writeString(temp, Long.toString(sequence), StandardCharsets.UTF_8);
+        Files.move(temp, checkpointPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        checkpoint = sequence;
+        eventLog.setRetentionFloor(sequence);
+    }
+}
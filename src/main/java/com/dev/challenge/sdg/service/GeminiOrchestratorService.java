@@ -13,6 +13,8 @@ import org.springframework.web.reactive.function.client.WebClient;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Gemini Orchestrator Service - Handles MCP-centric workflow
@@ -33,6 +35,15 @@ public class GeminiOrchestratorService {
     @Value("${gemini.base-url}")
     private String baseUrl;
     
+    @Value("${gemini.orchestrator.max-turns:5}")
+    private int maxTurns;
+    
+    @Value("${gemini.orchestrator.tool-timeout-ms:10000}")
+    private long defaultToolTimeoutMs;
+    
+    @Value("#{${gemini.orchestrator.tool-timeouts-ms:{:}}}")
+    private Map<String, Number> toolTimeoutsMs;
+    
     private WebClient webClient;
     
     /**
@@ -50,12 +61,13 @@ public class GeminiOrchestratorService {
         }
         
         try {
-            // Step 1: Create initial Gemini prompt with MCP tool definitions
-            Map<String, Object> initialRequest = createInitialGeminiRequest(userId);
+            // Step 1: Start the conversation with the prompt; every turn is appended to it
+            List<Map<String, Object>> contents = new ArrayList<>();
+            contents.add(createInitialContent(userId));
             
-            // Step 2: Start conversation with Gemini
-            return callGeminiWithTools(initialRequest)
-                    .thenCompose(this::handleGeminiResponse)
+            // Step 2: Run the tool loop until Gemini answers with text or the turn cap is hit
+            return callGeminiWithTools(createGeminiRequest(contents))
+                    .thenCompose(response -> handleGeminiResponse(contents, response, 1))
                     .thenApply(this::parseDiscountResponse)
                     .exceptionally(throwable -> {
                         log.error("Error in discount generation orchestration", throwable);
@@ -71,9 +83,9 @@ public class GeminiOrchestratorService {
     }
     
     /**
-     * Creates initial Gemini request with MCP tool definitions
+     * Creates the initial user turn of the conversation
      */
-    private Map<String, Object> createInitialGeminiRequest(String userId) {
+    private Map<String, Object> createInitialContent(String userId) {
         String systemPrompt = String.format("""
             You are an AI assistant for a Smart Discount Generator system. Your role is to analyze user behavior 
             and generate personalized discount offers using the available MCP tools.
@@ -85,18 +97,23 @@ public class GeminiOrchestratorService {
             2. Then, call getProductProfitMargin to get product financial data
             3. Finally, call generateSmartDiscount to create a personalized offer
             
+            Independent tools (such as steps 1 and 2) can be requested together in one turn.
             Always use the MCP tools to gather data before making decisions. Be data-driven and personalized.
             """, userId);
         
-        List<Map<String, Object>> tools = createMcpToolDefinitions();
-        
-        Map<String, Object> content = Map.of(
+        return Map.of(
+            "role", "user",
             "parts", List.of(Map.of("text", systemPrompt))
         );
-        
+    }
+    
+    /**
+     * Creates a Gemini request for the conversation so far, with MCP tool definitions
+     */
+    private Map<String, Object> createGeminiRequest(List<Map<String, Object>> contents) {
         return Map.of(
-            "contents", List.of(content),
-            "tools", tools,
+            "contents", contents,
+            "tools", createMcpToolDefinitions(),
             "toolConfig", Map.of(
                 "functionCallingConfig", Map.of(
                     "mode", "AUTO"
@@ -192,40 +209,51 @@ public class GeminiOrchestratorService {
     }
     
     /**
-     * Handles Gemini response and processes tool calls
+     * Handles a Gemini turn: all function calls in it are executed concurrently and their
+     * results are returned in a single follow-up message, until Gemini answers with text
      */
-    private CompletableFuture<String> handleGeminiResponse(String geminiResponse) {
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<String> handleGeminiResponse(List<Map<String, Object>> contents, String geminiResponse, int turn) {
         try {
             JsonNode response = objectMapper.readTree(geminiResponse);
-            JsonNode candidates = response.get("candidates");
+            JsonNode content = response.path("candidates").path(0).path("content");
+            JsonNode parts = content.path("parts");
             
-            if (candidates != null && candidates.isArray() && candidates.size() > 0) {
-                JsonNode candidate = candidates.get(0);
-                JsonNode content = candidate.get("content");
-                
-                if (content != null) {
-                    JsonNode parts = content.get("parts");
-                    
-                    if (parts != null && parts.isArray()) {
-                        for (JsonNode part : parts) {
-                            // Check if this part contains a function call
-                            JsonNode functionCall = part.get("functionCall");
-                            if (functionCall != null) {
-                                return processFunctionCall(functionCall, geminiResponse);
-                            }
-                            
-                            // Check for text response
-                            JsonNode text = part.get("text");
-                            if (text != null) {
-                                return CompletableFuture.completedFuture(text.asText());
-                            }
-                        }
-                    }
+            if (!parts.isArray() || parts.isEmpty()) {
+                log.warn("No valid content found in Gemini response");
+                return CompletableFuture.completedFuture("No discount offer available");
+            }
+            
+            List<JsonNode> functionCalls = new ArrayList<>();
+            StringBuilder text = new StringBuilder();
+            for (JsonNode part : parts) {
+                if (part.has("functionCall")) {
+                    functionCalls.add(part.get("functionCall"));
+                } else if (part.has("text")) {
+                    text.append(part.get("text").asText());
                 }
             }
             
-            log.warn("No valid content found in Gemini response");
-            return CompletableFuture.completedFuture("No discount offer available");
+            if (functionCalls.isEmpty()) {
+                return CompletableFuture.completedFuture(text.toString());
+            }
+            
+            if (turn >= maxTurns) {
+                log.warn("Gemini still requested {} tool calls after {} turns, stopping", functionCalls.size(), turn);
+                return CompletableFuture.completedFuture(text.length() > 0 ? text.toString() : "No discount offer available");
+            }
+            
+            // Keep the model turn (with its function calls) in the conversation
+            Map<String, Object> modelContent = new HashMap<>(objectMapper.convertValue(content, Map.class));
+            modelContent.putIfAbsent("role", "model");
+            contents.add(modelContent);
+            
+            return executeFunctionCalls(functionCalls)
+                    .thenCompose(functionResponses -> {
+                        contents.add(Map.of("role", "user", "parts", functionResponses));
+                        return callGeminiWithTools(createGeminiRequest(contents));
+                    })
+                    .thenCompose(nextResponse -> handleGeminiResponse(contents, nextResponse, turn + 1));
             
         } catch (Exception e) {
             log.error("Error handling Gemini response", e);
@@ -234,53 +262,51 @@ public class GeminiOrchestratorService {
     }
     
     /**
-     * Processes function call from Gemini by forwarding to MCP Server
+     * Executes all function calls of a turn concurrently; results keep the order of the calls
      */
-    private CompletableFuture<String> processFunctionCall(JsonNode functionCall, String originalResponse) {
-        try {
-            String functionName = functionCall.get("name").asText();
-            JsonNode args = functionCall.get("args");
-            
-            log.info("Processing Gemini function call: {}", functionName);
-            
-            // Convert args to Map
-            Map<String, Object> parameters = objectMapper.convertValue(args, Map.class);
-            
-            // Execute tool directly via McpToolService (no HTTP calls)
-            Map<String, Object> toolResult = mcpToolService.executeTool(functionName, parameters);
-            
-            // Send tool result back to Gemini for final response
-            return sendToolResultToGemini(functionName, toolResult, originalResponse);
-                    
-        } catch (Exception e) {
-            log.error("Error processing function call", e);
-            return CompletableFuture.completedFuture("Error executing tool");
+    private CompletableFuture<List<Map<String, Object>>> executeFunctionCalls(List<JsonNode> functionCalls) {
+        log.info("Processing {} Gemini function calls in parallel", functionCalls.size());
+        
+        List<CompletableFuture<Map<String, Object>>> futures = new ArrayList<>(functionCalls.size());
+        for (JsonNode functionCall : functionCalls) {
+            futures.add(processFunctionCall(functionCall));
         }
+        
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> futures.stream().map(CompletableFuture::join).toList());
     }
     
     /**
-     * Sends tool result back to Gemini for final natural language response
+     * Executes one function call with its tool timeout and wraps the outcome as a functionResponse part;
+     * failures are reported to Gemini instead of aborting the turn
      */
-    private CompletableFuture<String> sendToolResultToGemini(String toolName, Map<String, Object> toolResult, String originalResponse) {
-        try {
-            Map<String, Object> toolResponse = Map.of(
-                "contents", List.of(
-                    Map.of("parts", List.of(
-                        Map.of("functionResponse", Map.of(
-                            "name", toolName,
-                            "response", toolResult
-                        ))
-                    ))
-                )
-            );
-            
-            return callGeminiWithTools(toolResponse)
-                    .thenCompose(this::handleGeminiResponse);
-                    
-        } catch (Exception e) {
-            log.error("Error sending tool result to Gemini", e);
-            return CompletableFuture.completedFuture("Error processing tool result");
-        }
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<Map<String, Object>> processFunctionCall(JsonNode functionCall) {
+        String functionName = functionCall.path("name").asText();
+        Map<String, Object> parameters = functionCall.has("args")
+                ? objectMapper.convertValue(functionCall.get("args"), Map.class)
+                : Map.of();
+        long timeoutMs = toolTimeoutsMs.getOrDefault(functionName, defaultToolTimeoutMs).longValue();
+        
+        log.info("Processing Gemini function call: {} (timeout {}ms)", functionName, timeoutMs);
+        
+        // Execute tool directly via McpToolService (no HTTP calls)
+        return mcpToolService.executeToolAsync(functionName, parameters)
+                .orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                .exceptionally(throwable -> {
+                    Throwable cause = throwable.getCause() != null ? throwable.getCause() : throwable;
+                    String error = cause instanceof TimeoutException
+                            ? "Tool timed out after " + timeoutMs + "ms"
+                            : String.valueOf(cause.getMessage());
+                    log.warn("Tool {} failed: {}", functionName, error);
+                    return Map.of("error", error);
+                })
+                .thenApply(toolResult -> Map.of(
+                        "functionResponse", Map.of(
+                                "name", functionName,
+                                "response", toolResult
+                        )
+                ));
     }
     
     /**
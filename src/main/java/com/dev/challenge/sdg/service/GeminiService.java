@@ -10,20 +10,30 @@ import lombok.extern.slf4j.Slf4j;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class GeminiService {
 
+    // Rough token estimate for prompt budgeting
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final String DEFAULT_CHAT_REPLY = "I'm here to help you find great products! What are you looking for today?";
+
     private final WebClient.Builder webClientBuilder;
     private final ObjectMapper objectMapper;
     
@@ -39,6 +49,12 @@ public class GeminiService {
     @Value("${discount.min-profit-margin}")
     private Double minProfitMargin;
     
+    @Value("${gemini.chat.max-response-chars:500}")
+    private int maxChatResponseChars;
+    
+    @Value("${gemini.chat.prompt-token-budget:1500}")
+    private int promptTokenBudget;
+    
     public CompletableFuture<Discount> generateDiscountSuggestion(
             String userId, 
             List<UserEvent> behaviorSignals, 
@@ -245,13 +261,14 @@ public class GeminiService {
      */
     public CompletableFuture<String> generateChatResponse(
             String message,
+            String conversationSummary,
             List<Map<String, Object>> chatHistory,
             List<Product> relevantProducts,
             Map<String, Object> userContext) {
         
         log.debug("Generating AI chat response for message: '{}'", message);
         
-        String prompt = buildChatPrompt(message, chatHistory, relevantProducts, userContext);
+        String prompt = buildChatPrompt(message, conversationSummary, chatHistory, relevantProducts, userContext);
         
         WebClient webClient = webClientBuilder
                 .baseUrl(baseUrl)
@@ -271,66 +288,188 @@ public class GeminiService {
                 .bodyToMono(String.class)
                 .map(this::extractChatResponseFromGemini)
                 .doOnError(error -> log.error("Failed to generate chat response: {}", error.getMessage()))
-                .onErrorReturn("I'm here to help you find great products! What are you looking for today?")
+                .onErrorReturn(DEFAULT_CHAT_REPLY)
                 .toFuture();
     }
     
-    private String buildChatPrompt(String message, List<Map<String, Object>> chatHistory, 
-                                  List<Product> relevantProducts, Map<String, Object> userContext) {
-        StringBuilder prompt = new StringBuilder();
+    /**
+     * Streams the chat response as text deltas using streamGenerateContent with server-sent events.
+     * Each event carries one complete JSON chunk that is parsed as it arrives. When the stream
+     * fails before producing any text, the default reply is emitted instead.
+     */
+    public Flux<String> streamChatResponse(
+            String message,
+            String conversationSummary,
+            List<Map<String, Object>> chatHistory,
+            List<Product> relevantProducts,
+            Map<String, Object> userContext) {
         
-        prompt.append("You are a helpful AI shopping assistant for an e-commerce platform. ");
-        prompt.append("Provide friendly, informative responses to help customers find products and make purchase decisions.\n\n");
+        log.debug("Streaming AI chat response for message: '{}'", message);
+        
+        String prompt = buildChatPrompt(message, conversationSummary, chatHistory, relevantProducts, userContext);
+        Map<String, Object> requestBody = Map.of(
+                "contents", List.of(
+                        Map.of("parts", List.of(Map.of("text", prompt)))
+                )
+        );
+        
+        return Flux.defer(() -> {
+            AtomicInteger streamedChars = new AtomicInteger();
+            return webClientBuilder.build().post()
+                    .uri(baseUrl.replace(":generateContent", ":streamGenerateContent") + "?alt=sse&key=" + apiKey)
+                    .header("Content-Type", "application/json")
+                    .accept(MediaType.TEXT_EVENT_STREAM)
+                    .bodyValue(requestBody)
+                    .retrieve()
+                    .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<String>>() {})
+                    .mapNotNull(ServerSentEvent::data)
+                    .map(chunk -> cleanupChatChunk(extractCandidateText(chunk)))
+                    .filter(text -> !text.isEmpty())
+                    .<String>handle((text, sink) -> {
+                        // Same length cap as the non-streaming reply
+                        int remaining = maxChatResponseChars - streamedChars.get();
+                        if (text.length() >= remaining) {
+                            sink.next(text.substring(0, remaining) + "...");
+                            sink.complete();
+                            return;
+                        }
+                        streamedChars.addAndGet(text.length());
+                        sink.next(text);
+                    })
+                    .onErrorResume(error -> {
+                        log.error("Failed to stream chat response: {}", error.getMessage());
+                        return streamedChars.get() > 0 ? Flux.empty() : Flux.just(DEFAULT_CHAT_REPLY);
+                    })
+                    .switchIfEmpty(Flux.just(DEFAULT_CHAT_REPLY));
+        });
+    }
+    
+    /**
+     * Builds the chat prompt within {@code gemini.chat.prompt-token-budget}. Instructions and the
+     * customer message are always included; the remaining budget goes to user context, products,
+     * the conversation summary and then as many of the most recent turns as fit.
+     */
+    private String buildChatPrompt(String message, String conversationSummary, List<Map<String, Object>> chatHistory,
+                                  List<Product> relevantProducts, Map<String, Object> userContext) {
+        String header = "You are a helpful AI shopping assistant for an e-commerce platform. "
+                + "Provide friendly, informative responses to help customers find products and make purchase decisions.\n\n";
+        String footer = "\nCustomer message: " + message + "\n\n"
+                + "Provide a helpful response (max 150 words). "
+                + "If products were found, mention them naturally. "
+                + "If no products match, suggest alternatives or ask clarifying questions. "
+                + "Be conversational and helpful.";
+        int remaining = promptTokenBudget * CHARS_PER_TOKEN - header.length() - footer.length();
         
         // Add user context
+        StringBuilder context = new StringBuilder();
         if (userContext != null && !userContext.isEmpty()) {
             Boolean isNewUser = (Boolean) userContext.get("newUser");
             if (Boolean.TRUE.equals(isNewUser)) {
-                prompt.append("User Context: This is a new customer.\n");
+                context.append("User Context: This is a new customer.\n");
             } else {
-                prompt.append("User Context: Returning customer with previous shopping activity.\n");
+                context.append("User Context: Returning customer with previous shopping activity.\n");
             }
             
             @SuppressWarnings("unchecked")
             List<String> recentSearches = (List<String>) userContext.get("recentSearches");
             if (recentSearches != null && !recentSearches.isEmpty()) {
-                prompt.append("Recent searches: ").append(String.join(", ", recentSearches)).append("\n");
+                context.append("Recent searches: ").append(String.join(", ", recentSearches)).append("\n");
             }
         }
+        if (context.length() > remaining) {
+            context.setLength(0);
+        }
+        remaining -= context.length();
         
-        // Add relevant products if found
+        // Add relevant products if found, as many as fit
+        StringBuilder products = new StringBuilder();
         if (relevantProducts != null && !relevantProducts.isEmpty()) {
-            prompt.append("\nRelevant Products Found:\n");
+            String title = "\nRelevant Products Found:\n";
             for (Product product : relevantProducts) {
-                prompt.append("- ").append(product.getName())
-                       .append(" ($").append(product.getPrice())
-                       .append(", ").append(product.getCategory())
-                       .append(", Rating: ").append(product.getAverageRating()).append("/5")
-                       .append(")\n");
+                String line = "- " + product.getName()
+                        + " ($" + product.getPrice()
+                        + ", " + product.getCategory()
+                        + ", Rating: " + product.getAverageRating() + "/5"
+                        + ")\n";
+                String addition = products.length() == 0 ? title + line : line;
+                if (products.length() + addition.length() > remaining) {
+                    break;
+                }
+                products.append(addition);
             }
         }
+        remaining -= products.length();
         
-        // Add recent chat history for context
-        if (chatHistory != null && !chatHistory.isEmpty()) {
-            prompt.append("\nRecent conversation:\n");
-            for (Map<String, Object> turn : chatHistory) {
+        // Summary of earlier turns, cut to the budget if necessary
+        String summary = "";
+        if (conversationSummary != null && !conversationSummary.isBlank()) {
+            summary = "\nEarlier in this conversation: " + conversationSummary.trim() + "\n";
+            if (summary.length() > remaining) {
+                summary = remaining > 40 ? summary.substring(0, remaining - 4) + "...\n" : "";
+            }
+        }
+        remaining -= summary.length();
+        
+        // Add recent chat history for context, newest turns first until the budget is used
+        List<String> turns = new ArrayList<>();
+        if (chatHistory != null) {
+            for (int i = chatHistory.size() - 1; i >= 0; i--) {
+                Map<String, Object> turn = chatHistory.get(i);
                 String role = (String) turn.get("role");
                 String content = (String) turn.get("content");
-                if (role != null && content != null) {
-                    prompt.append(role).append(": ").append(content).append("\n");
+                if (role == null || content == null) {
+                    continue;
+                }
+                String line = role + ": " + content + "\n";
+                if (line.length() > remaining) {
+                    break;
                 }
+                turns.add(0, line);
+                remaining -= line.length();
             }
         }
         
-        prompt.append("\nCustomer message: ").append(message).append("\n\n");
-        prompt.append("Provide a helpful response (max 150 words). ");
-        prompt.append("If products were found, mention them naturally. ");
-        prompt.append("If no products match, suggest alternatives or ask clarifying questions. ");
-        prompt.append("Be conversational and helpful.");
-        
+        StringBuilder prompt = new StringBuilder(header).append(context).append(products).append(summary);
+        if (!turns.isEmpty()) {
+            prompt.append("\nRecent conversation:\n");
+            turns.forEach(prompt::append);
+        }
+        prompt.append(footer);
         return prompt.toString();
     }
     
+    /**
+     * Folds turns that left the chat window into the running conversation summary
+     */
+    public CompletableFuture<String> summarizeConversation(String previousSummary, List<Map<String, Object>> turns) {
+        StringBuilder prompt = new StringBuilder();
+        prompt.append("Update the running summary of a conversation between a customer and a shopping assistant. ");
+        prompt.append("Keep the customer's needs, preferences, budget and the products discussed. ");
+        prompt.append("Reply with the summary only, at most 80 words.\n\n");
+        if (previousSummary != null && !previousSummary.isBlank()) {
+            prompt.append("Current summary: ").append(previousSummary).append("\n\n");
+        }
+        prompt.append("New turns:\n");
+        for (Map<String, Object> turn : turns) {
+            prompt.append(turn.get("role")).append(": ").append(turn.get("content")).append("\n");
+        }
+        
+        Map<String, Object> requestBody = Map.of(
+                "contents", List.of(
+                        Map.of("parts", List.of(Map.of("text", prompt.toString())))
+                )
+        );
+        
+        return webClientBuilder.build().post()
+                .uri(baseUrl + "?key=" + apiKey)
+                .header("Content-Type", "application/json")
+                .bodyValue(requestBody)
+                .retrieve()
+                .bodyToMono(String.class)
+                .map(response -> extractCandidateText(response).trim())
+                .toFuture();
+    }
+    
     private String extractChatResponseFromGemini(String response) {
         try {
             JsonNode jsonResponse = objectMapper.readTree(response);
@@ -352,17 +491,37 @@ public class GeminiService {
             }
             
             log.warn("No valid text found in Gemini chat response: {}", response);
-            return "I'm here to help you find great products! What are you looking for today?";
+            return DEFAULT_CHAT_REPLY;
             
         } catch (Exception e) {
             log.error("Failed to parse Gemini chat response: {}", e.getMessage());
-            return "I'm here to help you find great products! What are you looking for today?";
+            return DEFAULT_CHAT_REPLY;
         }
     }
     
+    // Text of all parts of the first candidate, in a full response or one streamed chunk
+    private String extractCandidateText(String json) {
+        try {
+            JsonNode parts = objectMapper.readTree(json).path("candidates").path(0).path("content").path("parts");
+            StringBuilder text = new StringBuilder();
+            for (JsonNode part : parts) {
+                text.append(part.path("text").asText(""));
+            }
+            return text.toString();
+        } catch (Exception e) {
+            log.warn("Skipping unparseable Gemini response: {}", e.getMessage());
+            return "";
+        }
+    }
+    
+    // Markdown cleanup that still works when markers are split across chunks
+    private String cleanupChatChunk(String chunk) {
+        return chunk.replace("*", "").replaceAll("(?m)^#+\\s*", "");
+    }
+    
     private String cleanupChatResponse(String response) {
         if (response == null || response.trim().isEmpty()) {
-            return "I'm here to help you find great products! What are you looking for today?";
+            return DEFAULT_CHAT_REPLY;
         }
         
         // Remove any unwanted formatting or markdown
@@ -0,0 +1,124 @@
+package com.dev.challenge.sdg.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-JVM MCP transport. Search and save calls go straight to {@link AlgoliaService} and
+ * registered tools to {@link McpToolService}, passing argument and result maps by reference
+ * with no JSON encoding or socket hop. Tools that only exist on a remote server (or every
+ * tool when {@code mcp.transport.mode=http}) are forwarded to {@link McpClient}.
+ * Invalid arguments and failed Algolia calls are answered with a JSON-RPC {@code error}
+ * object, as the remote server would return them, instead of a failed future.
+ */
+@Slf4j
+@Service
+@Primary
+@RequiredArgsConstructor
+public class InProcessMcpTransport implements McpTransport {
+
+    private final AlgoliaService algoliaService;
+    private final McpClient mcpClient;
+    // Resolved lazily: the tool service depends on DiscountService, which depends on enrichment
+    private final ObjectProvider<McpToolService> toolService;
+
+    @Value("${mcp.transport.mode:in-process}")
+    private String mode;
+
+    private final AtomicLong localCalls = new AtomicLong();
+    private final AtomicLong remoteCalls = new AtomicLong();
+    private final AtomicLong failedCalls = new AtomicLong();
+
+    @Override
+    public CompletableFuture<Map<String, Object>> callTool(String toolName, Map<String, Object> arguments) {
+        Map<String, Object> safeArguments = arguments != null ? arguments : Map.of();
+        if (!"http".equalsIgnoreCase(mode)) {
+            CompletableFuture<Map<String, Object>> local = callLocal(toolName, safeArguments);
+            if (local != null) {
+                localCalls.incrementAndGet();
+                return local;
+            }
+        }
+        remoteCalls.incrementAndGet();
+        log.debug("Forwarding MCP tool {} to remote server", toolName);
+        return mcpClient.callTool(toolName, safeArguments);
+    }
+
+    public Map<String, Object> getStats() {
+        return Map.of("mode", mode, "localCalls", localCalls.get(), "remoteCalls", remoteCalls.get(),
+                "failedCalls", failedCalls.get());
+    }
+
+    /**
+     * Local handler for the tool, or null when it has to go to the remote server
+     */
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<Map<String, Object>> callLocal(String toolName, Map<String, Object> arguments) {
+        switch (toolName) {
+            case "algolia_search": {
+                Object indexName = argument(arguments, "index_name", "indexName");
+                if (!(indexName instanceof String index) || index.isBlank()) {
+                    return invalidParams("algolia_search requires index_name");
+                }
+                Object attributes = argument(arguments, "attributes_to_retrieve", "attributesToRetrieve");
+                Object hitsPerPage = argument(arguments, "hits_per_page", "hitsPerPage");
+                Object query = arguments.get("query");
+                Object filters = arguments.get("filters");
+                return orError(algoliaService.searchIndexRaw(
+                        index,
+                        query != null ? query.toString() : null,
+                        filters != null ? filters.toString() : null,
+                        attributes instanceof List<?> list ? (List<String>) list : null,
+                        hitsPerPage instanceof Number number ? number.intValue() : 20), toolName);
+            }
+            case "algolia_save": {
+                Object indexName = argument(arguments, "index_name", "indexName");
+                if (!(indexName instanceof String index) || index.isBlank()) {
+                    return invalidParams("algolia_save requires index_name");
+                }
+                if (!(arguments.get("object") instanceof Map<?, ?> object)) {
+                    return invalidParams("algolia_save requires an object");
+                }
+                return orError(algoliaService.saveRecords(index, List.of((Map<String, Object>) object))
+                        .thenApply(ignored -> Map.<String, Object>of("index", index, "saved", 1)), toolName);
+            }
+            default:
+                McpToolService tools = toolService.getIfAvailable();
+                return tools != null && tools.hasTool(toolName) ? tools.executeToolAsync(toolName, arguments) : null;
+        }
+    }
+
+    /**
+     * Turns a failed Algolia call (e.g. a missing index) into a JSON-RPC error result
+     */
+    private CompletableFuture<Map<String, Object>> orError(CompletableFuture<Map<String, Object>> call, String toolName) {
+        return call.exceptionally(error -> {
+            Throwable cause = error.getCause() != null ? error.getCause() : error;
+            log.warn("In-process MCP tool {} failed: {}", toolName, cause.getMessage());
+            return error(-32603, toolName + " failed: " + cause.getMessage());
+        });
+    }
+
+    private CompletableFuture<Map<String, Object>> invalidParams(String message) {
+        return CompletableFuture.completedFuture(error(-32602, "Invalid params: " + message));
+    }
+
+    private Map<String, Object> error(int code, String message) {
+        failedCalls.incrementAndGet();
+        return Map.of("error", Map.of("code", code, "message", message));
+    }
+
+    private static Object argument(Map<String, Object> arguments, String snakeCase, String camelCase) {
+        Object value = arguments.get(snakeCase);
+        return value != null ? value : arguments.get(camelCase);
+    }
+}
@@ -0,0 +1,294 @@
+package com.dev.challenge.sdg.service;
+
+import com.dev.challenge.sdg.model.Product;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * In-process full-text index over the catalog replica, used when Algolia is slow or down and
+ * for lookups that do not need its relevance (chat keyword matching).
+ * Name, brand, category, tags and description are tokenized into a sorted term dictionary
+ * with per-term postings; queries are scored with BM25 and the last query token (or any token
+ * without an exact match) is also matched as a prefix. The index is rebuilt from each new
+ * catalog snapshot on a background thread and swapped in atomically; snapshots published while a
+ * build runs are coalesced into one rebuild from the newest, and searches use the previous index
+ * meanwhile.
+ */
+@Slf4j
+@Service
+public class LocalProductSearchIndex {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final float PREFIX_WEIGHT = 0.7f;
+    private static final int MIN_PREFIX_LENGTH = 3;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "any", "are", "can", "do", "for", "have", "i", "in", "is", "it", "me",
+            "my", "of", "on", "or", "show", "some", "the", "to", "what", "with", "you");
+
+    @Value("${search.local.max-prefix-expansions:50}")
+    private int maxPrefixExpansions;
+
+    @Value("${search.local.field-weights.name:3}")
+    private float nameWeight;
+
+    @Value("${search.local.field-weights.brand:2}")
+    private float brandWeight;
+
+    @Value("${search.local.field-weights.category:2}")
+    private float categoryWeight;
+
+    @Value("${search.local.field-weights.tags:2}")
+    private float tagsWeight;
+
+    @Value("${search.local.field-weights.description:1}")
+    private float descriptionWeight;
+
+    private volatile Index index = Index.EMPTY;
+    private volatile long lastBuildMillis;
+    private volatile long lastBuildDurationMillis;
+    private final AtomicReference<CatalogSnapshot> pendingCatalog = new AtomicReference<>();
+    private final AtomicLong builds = new AtomicLong();
+    private final AtomicLong coalescedSnapshots = new AtomicLong();
+    private ExecutorService builder;
+
+    @PostConstruct
+    public void start() {
+        builder = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "local-search-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        builder.shutdownNow();
+    }
+
+    /**
+     * Schedules a rebuild whenever the replica publishes a new snapshot; returns without building
+     */
+    @EventListener
+    public void onCatalogRefreshed(CatalogRefreshedEvent event) {
+        if (pendingCatalog.getAndSet(event.getSnapshot()) == null) {
+            builder.execute(this::buildPending);
+        } else {
+            coalescedSnapshots.incrementAndGet();
+        }
+    }
+
+    private void buildPending() {
+        CatalogSnapshot catalog = pendingCatalog.getAndSet(null);
+        if (catalog == null || catalog.getVersion() < index.catalog.getVersion()) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        int previousSize = index.catalog.size();
+        index = build(catalog);
+        builds.incrementAndGet();
+        lastBuildMillis = System.currentTimeMillis();
+        lastBuildDurationMillis = lastBuildMillis - started;
+        if (previousSize == 0 || catalog.size() != previousSize) {
+            log.info("Local search index built: {} products, {} terms in {}ms",
+                    catalog.size(), index.terms.length, lastBuildDurationMillis);
+        }
+    }
+
+    public boolean isReady() {
+        return index.catalog.size() > 0;
+    }
+
+    /**
+     * Best matches for the query, highest score first; a blank query returns catalog order
+     */
+    public List<Product> search(String query, int limit) {
+        Index current = index;
+        int size = current.catalog.size();
+        if (size == 0 || limit <= 0) {
+            return List.of();
+        }
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            List<Product> products = new ArrayList<>(Math.min(limit, size));
+            for (int position = 0; position < size && products.size() < limit; position++) {
+                products.add(current.catalog.product(position));
+            }
+            return products;
+        }
+
+        float[] scores = new float[size];
+        int[] touched = new int[size];
+        int touchedCount = 0;
+        for (int t = 0; t < tokens.size(); t++) {
+            String token = tokens.get(t);
+            int exact = Arrays.binarySearch(current.terms, token);
+            if (exact >= 0) {
+                touchedCount = accumulate(current, exact, 1f, scores, touched, touchedCount);
+            }
+            boolean lastToken = t == tokens.size() - 1;
+            if ((exact < 0 || lastToken) && token.length() >= MIN_PREFIX_LENGTH) {
+                int from = exact >= 0 ? exact + 1 : -exact - 1;
+                for (int term = from, expanded = 0; term < current.terms.length && expanded < maxPrefixExpansions
+                        && current.terms[term].startsWith(token); term++, expanded++) {
+                    touchedCount = accumulate(current, term, PREFIX_WEIGHT, scores, touched, touchedCount);
+                }
+            }
+        }
+
+        Integer[] ranked = new Integer[touchedCount];
+        for (int i = 0; i < touchedCount; i++) {
+            ranked[i] = touched[i];
+        }
+        Arrays.sort(ranked, (a, b) -> {
+            int byScore = Float.compare(scores[b], scores[a]);
+            return byScore != 0 ? byScore : Integer.compare(a, b);
+        });
+        List<Product> products = new ArrayList<>(Math.min(limit, touchedCount));
+        for (int i = 0; i < touchedCount && i < limit; i++) {
+            products.add(current.catalog.product(ranked[i]));
+        }
+        return products;
+    }
+
+    public Map<String, Object> getStats() {
+        Index current = index;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("products", current.catalog.size());
+        stats.put("terms", current.terms.length);
+        stats.put("catalogVersion", current.catalog.getVersion());
+        stats.put("lastBuildMillis", lastBuildMillis);
+        stats.put("lastBuildDurationMillis", lastBuildDurationMillis);
+        stats.put("builds", builds.get());
+        stats.put("coalescedSnapshots", coalescedSnapshots.get());
+        return stats;
+    }
+
+    private static int accumulate(Index index, int term, float weight, float[] scores, int[] touched, int touchedCount) {
+        int[] documents = index.postingDocuments[term];
+        float[] frequencies = index.postingFrequencies[term];
+        int documentCount = index.catalog.size();
+        float idf = (float) Math.log(1 + (documentCount - documents.length + 0.5) / (documents.length + 0.5));
+        for (int i = 0; i < documents.length; i++) {
+            int document = documents[i];
+            float tf = frequencies[i];
+            float norm = K1 * (1 - B + B * index.documentLengths[document] / index.averageLength);
+            if (scores[document] == 0f) {
+                touched[touchedCount++] = document;
+            }
+            scores[document] += weight * idf * tf * (K1 + 1) / (tf + norm);
+        }
+        return touchedCount;
+    }
+
+    private Index build(CatalogSnapshot catalog) {
+        Map<String, Postings> postings = new HashMap<>();
+        float[] documentLengths = new float[catalog.size()];
+        double totalLength = 0;
+        for (int position = 0; position < catalog.size(); position++) {
+            Product product = catalog.product(position);
+            Map<String, Float> frequencies = new HashMap<>();
+            addField(frequencies, product.getName(), nameWeight);
+            addField(frequencies, product.getBrand(), brandWeight);
+            addField(frequencies, product.getCategory(), categoryWeight);
+            if (product.getTags() != null) {
+                for (String tag : product.getTags()) {
+                    addField(frequencies, tag, tagsWeight);
+                }
+            }
+            addField(frequencies, product.getDescription(), descriptionWeight);
+
+            float length = 0;
+            for (Map.Entry<String, Float> entry : frequencies.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), key -> new Postings()).add(position, entry.getValue());
+                length += entry.getValue();
+            }
+            documentLengths[position] = length;
+            totalLength += length;
+        }
+
+        String[] terms = postings.keySet().toArray(new String[0]);
+        Arrays.sort(terms);
+        int[][] postingDocuments = new int[terms.length][];
+        float[][] postingFrequencies = new float[terms.length][];
+        for (int term = 0; term < terms.length; term++) {
+            Postings list = postings.get(terms[term]);
+            postingDocuments[term] = Arrays.copyOf(list.documents, list.size);
+            postingFrequencies[term] = Arrays.copyOf(list.frequencies, list.size);
+        }
+        float averageLength = catalog.size() > 0 ? (float) (totalLength / catalog.size()) : 1f;
+        return new Index(catalog, terms, postingDocuments, postingFrequencies, documentLengths, Math.max(averageLength, 1f));
+    }
+
+    private static void addField(Map<String, Float> frequencies, String text, float weight) {
+        for (String token : tokenize(text)) {
+            frequencies.merge(token, weight, Float::sum);
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty() && !STOP_WORDS.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static class Postings {
+        private int[] documents = new int[4];
+        private float[] frequencies = new float[4];
+        private int size;
+
+        private void add(int document, float frequency) {
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            documents[size] = document;
+            frequencies[size++] = frequency;
+        }
+    }
+
+    private static class Index {
+        private static final Index EMPTY = new Index(CatalogSnapshot.empty(), new String[0], new int[0][], new float[0][], new float[0], 1f);
+
+        private final CatalogSnapshot catalog;
+        private final String[] terms;
+        private final int[][] postingDocuments;
+        private final float[][] postingFrequencies;
+        private final float[] documentLengths;
+        private final float averageLength;
+
+        private Index(CatalogSnapshot catalog, String[] terms, int[][] postingDocuments, float[][] postingFrequencies,
+                      float[] documentLengths, float averageLength) {
+            this.catalog = catalog;
+            this.terms = terms;
+            this.postingDocuments = postingDocuments;
+            this.postingFrequencies = postingFrequencies;
+            this.documentLengths = documentLengths;
+            this.averageLength = averageLength;
+        }
+    }
+}
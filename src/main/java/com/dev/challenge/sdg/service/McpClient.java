@@ -1,6 +1,9 @@
 package com.dev.challenge.sdg.service;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -9,10 +12,17 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 🔗 Official Algolia MCP Server Client
@@ -30,7 +40,7 @@ import java.util.concurrent.CompletableFuture;
  * - Market intelligence and competitive analysis
  */
 @Service
-public class McpClient {
+public class McpClient implements McpTransport {
     
     private static final Logger log = LoggerFactory.getLogger(McpClient.class);
     
@@ -46,6 +56,17 @@ public class McpClient {
     @Value("${mcp.server.enabled:true}")
     private boolean mcpEnabled;
     
+    @Value("${mcp.client.batch-window-ms:0}")
+    private long batchWindowMs;
+    
+    @Value("${mcp.client.max-batch-size:10}")
+    private int maxBatchSize;
+    
+    private final AtomicLong requestIds = new AtomicLong();
+    private final AtomicLong batchIds = new AtomicLong();
+    private final List<PendingCall> pendingCalls = new ArrayList<>();
+    private ScheduledExecutorService batchScheduler;
+    
     public McpClient(WebClient.Builder webClientBuilder, ObjectMapper objectMapper) {
         this.objectMapper = objectMapper;
         this.webClient = webClientBuilder
@@ -60,6 +81,26 @@ public class McpClient {
         }
     }
     
+    @PostConstruct
+    public void startBatching() {
+        if (batchWindowMs > 0) {
+            batchScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "mcp-client-batcher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            log.info("📦 MCP client batching enabled - window: {}ms, max batch: {}", batchWindowMs, maxBatchSize);
+        }
+    }
+    
+    @PreDestroy
+    public void stopBatching() {
+        if (batchScheduler != null) {
+            batchScheduler.shutdown();
+            flushBatch();
+        }
+    }
+    
     /**
      * 🛠️ Enhanced MCP tool calling with proper JSON-RPC 2.0 protocol
      * Calls the official Algolia MCP Server using the correct protocol
@@ -68,19 +109,118 @@ public class McpClient {
         if (!mcpEnabled) {
             return CompletableFuture.completedFuture(createFallbackResponse(operation));
         }
+        return send(request, operation).exceptionally(error -> {
+            log.warn("⚠️ Algolia MCP {} failed, using fallback: {}", operation, unwrap(error).getMessage());
+            return createFallbackResponse(operation);
+        });
+    }
+    
+    /**
+     * 📨 Sends one JSON-RPC request (batched when enabled); the future fails when no response arrives
+     */
+    private CompletableFuture<Map<String, Object>> send(Map<String, Object> request, String operation) {
+        if (batchScheduler != null) {
+            return enqueueBatched(request, operation);
+        }
+        // Without an id the server treats the request as a notification and never answers
+        Map<String, Object> rpcRequest = new HashMap<>(request);
+        rpcRequest.putIfAbsent("jsonrpc", "2.0");
+        rpcRequest.putIfAbsent("id", "call_" + requestIds.incrementAndGet());
         
         return webClient.post()
                 .uri("")  // Base URI since we're calling the root MCP endpoint
-                .bodyValue(request)
+                .bodyValue(rpcRequest)
                 .retrieve()
                 .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {})
                 .timeout(java.time.Duration.ofMillis(timeoutMs))
                 .doOnNext(response -> log.debug("✅ Algolia MCP {} successful: {}", operation, response))
-                .doOnError(error -> log.warn("⚠️ Algolia MCP {} failed, using fallback: {}", operation, error.getMessage()))
-                .onErrorReturn(createFallbackResponse(operation))
                 .toFuture();
     }
     
+    /**
+     * 📦 Queues a call for the next batch; the first call of a window schedules the flush
+     */
+    private CompletableFuture<Map<String, Object>> enqueueBatched(Map<String, Object> request, String operation) {
+        PendingCall call = newPendingCall(request, operation);
+        
+        boolean flushNow;
+        synchronized (pendingCalls) {
+            pendingCalls.add(call);
+            flushNow = pendingCalls.size() >= maxBatchSize;
+            if (pendingCalls.size() == 1 && !flushNow) {
+                batchScheduler.schedule(this::flushBatch, batchWindowMs, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (flushNow) {
+            batchScheduler.execute(this::flushBatch);
+        }
+        return call.result;
+    }
+    
+    /**
+     * 📦 Wraps a request for batching under a unique id; callers' ids (e.g. "search_" + millis) can
+     * collide within one batch, so the caller's id is kept aside and restored on the response
+     */
+    PendingCall newPendingCall(Map<String, Object> request, String operation) {
+        Map<String, Object> rpcRequest = new HashMap<>(request);
+        rpcRequest.putIfAbsent("jsonrpc", "2.0");
+        Object callerId = rpcRequest.put("id", "batch_" + batchIds.incrementAndGet());
+        return new PendingCall(rpcRequest, operation, callerId);
+    }
+    
+    /**
+     * 📦 Sends all queued calls as one JSON-RPC batch and routes the responses back by id
+     */
+    private void flushBatch() {
+        List<PendingCall> batch;
+        synchronized (pendingCalls) {
+            if (pendingCalls.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(pendingCalls);
+            pendingCalls.clear();
+        }
+        
+        log.debug("📦 Sending MCP batch with {} calls", batch.size());
+        webClient.post()
+                .uri("")
+                .bodyValue(batch.stream().map(call -> call.request).toList())
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<List<Map<String, Object>>>() {})
+                .timeout(java.time.Duration.ofMillis(timeoutMs))
+                .subscribe(
+                        responses -> completeBatch(batch, responses),
+                        error -> {
+                            log.warn("⚠️ Algolia MCP batch of {} calls failed: {}", batch.size(), error.getMessage());
+                            batch.forEach(call -> call.result.completeExceptionally(error));
+                        });
+    }
+    
+    /**
+     * 📦 Completes each call with the response carrying its batch id, under the caller's original id;
+     * calls the server did not answer fail
+     */
+    void completeBatch(List<PendingCall> batch, List<Map<String, Object>> responses) {
+        Map<String, Map<String, Object>> byId = new HashMap<>();
+        for (Map<String, Object> response : responses) {
+            byId.put(String.valueOf(response.get("id")), response);
+        }
+        for (PendingCall call : batch) {
+            Map<String, Object> response = byId.get(String.valueOf(call.request.get("id")));
+            if (response == null) {
+                call.result.completeExceptionally(new IllegalStateException("No response to batched call " + call.batchId()));
+                continue;
+            }
+            Map<String, Object> restored = new HashMap<>(response);
+            if (call.callerId != null) {
+                restored.put("id", call.callerId);
+            } else {
+                restored.remove("id");
+            }
+            call.result.complete(restored);
+        }
+    }
+    
     /**
      * 🛠️ Generic tool calling method
      */
@@ -88,6 +228,67 @@ public class McpClient {
         return callMcpTool(request, "Generic Tool Call");
     }
 
+    /**
+     * 🛠️ Calls a tool over HTTP and returns the tool's own result map, as the in-process transport
+     * does; failures come back as a JSON-RPC {@code {error: {code, message}}} map
+     */
+    @Override
+    public CompletableFuture<Map<String, Object>> callTool(String toolName, Map<String, Object> arguments) {
+        if (!mcpEnabled) {
+            return CompletableFuture.completedFuture(toolError(-32603, "MCP server is disabled"));
+        }
+        Map<String, Object> request = Map.of(
+                "method", "tools/call",
+                "params", Map.of("name", toolName, "arguments", arguments)
+        );
+        return send(request, toolName)
+                .thenApply(this::toolResult)
+                .exceptionally(error -> {
+                    log.warn("⚠️ Algolia MCP tool {} failed: {}", toolName, unwrap(error).getMessage());
+                    return toolError(-32603, toolName + " failed: " + unwrap(error).getMessage());
+                });
+    }
+    
+    /**
+     * Unwraps a tools/call response: this app's server wraps the tool map as {@code result.content},
+     * spec servers return text content blocks, which are parsed when they hold a JSON object
+     */
+    @SuppressWarnings("unchecked")
+    Map<String, Object> toolResult(Map<String, Object> response) {
+        if (response.get("error") instanceof Map<?, ?> error) {
+            return Map.of("error", error);
+        }
+        if (!(response.get("result") instanceof Map<?, ?> rawResult)) {
+            return toolError(-32603, "MCP response has no result");
+        }
+        Map<String, Object> result = (Map<String, Object>) rawResult;
+        if (Boolean.TRUE.equals(result.get("isError")) || Boolean.TRUE.equals(result.get("error"))) {
+            Object message = result.get("errorMessage");
+            return toolError(-32000, message != null ? message.toString() : "Tool execution failed");
+        }
+        Object content = result.get("content");
+        if (content instanceof Map<?, ?> map) {
+            return (Map<String, Object>) map;
+        }
+        if (content instanceof List<?> blocks && !blocks.isEmpty() && blocks.get(0) instanceof Map<?, ?> block
+                && block.get("text") instanceof String text) {
+            try {
+                return objectMapper.readValue(text, new TypeReference<Map<String, Object>>() {});
+            } catch (Exception e) {
+                return Map.of("text", text);
+            }
+        }
+        return result;
+    }
+    
+    private static Map<String, Object> toolError(int code, String message) {
+        return Map.of("error", Map.of("code", code, "message", message));
+    }
+    
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+    
     /**
      * 🔍 Search Algolia via MCP Server
      */
@@ -401,4 +602,21 @@ public class McpClient {
                 "timestamp", new Date().toInstant().toString()
         );
     }
+    
+    static class PendingCall {
+        private final Map<String, Object> request;
+        private final String operation;
+        private final Object callerId;
+        final CompletableFuture<Map<String, Object>> result = new CompletableFuture<>();
+        
+        private PendingCall(Map<String, Object> request, String operation, Object callerId) {
+            this.request = request;
+            this.operation = operation;
+            this.callerId = callerId;
+        }
+        
+        Object batchId() {
+            return request.get("id");
+        }
+    }
 }
@@ -6,14 +6,21 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 🌟 MCP-Powered Data Enrichment Service
@@ -34,22 +41,158 @@ public class McpDataEnrichmentService {
     private static final Logger log = LoggerFactory.getLogger(McpDataEnrichmentService.class);
     
     @Autowired
-    private McpClient mcpClient;
+    private McpTransport mcpTransport;
     
     @Autowired
     private AlgoliaService algoliaService;
     
+    @Autowired
+    private CatalogReplicaService catalogReplicaService;
+    
     private final ObjectMapper objectMapper = new ObjectMapper();
     
+    private static final String ENRICHED_INDEX = "enriched_products";
+    private static final String CONTEXT_BUCKET_FIELD = "enrichment_context_bucket";
+    private static final String DEFAULT_BUCKET = "medium";
+    
+    @Value("${mcp.enrichment.cache.fresh-ms:900000}")
+    private long freshMs;
+    
+    @Value("${mcp.enrichment.cache.stale-ms:21600000}")
+    private long staleMs;
+    
+    @Value("${mcp.enrichment.cache.max-entries:5000}")
+    private int cacheMaxEntries;
+    
+    // Access-ordered, so the least recently served enrichment makes room when the cache is full
+    private final Map<String, CachedEnrichment> enrichmentCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedEnrichment> eldest) {
+            return size() > cacheMaxEntries;
+        }
+    };
+    private final Map<String, CompletableFuture<Map<String, Object>>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+    private final AtomicLong backgroundRefreshes = new AtomicLong();
+    
     /**
      * 🎯 Enrich product data with AI-powered market intelligence
-     * Uses Algolia MCP + Claude to analyze and enhance product information
+     * Results are cached per product and context bucket: fresh entries are served directly,
+     * stale ones are served while a single background refresh recomputes them
      */
     public CompletableFuture<Map<String, Object>> enrichProductData(String productId, Map<String, Object> userContext) {
-        log.info("🔍 Starting MCP-powered data enrichment for product: {}", productId);
+        String bucket = contextBucket(userContext);
+        String key = productId + "|" + bucket;
+        long now = System.currentTimeMillis();
+        
+        CachedEnrichment cached;
+        synchronized (enrichmentCache) {
+            cached = enrichmentCache.get(key);
+        }
+        if (cached != null && now - cached.computedAt < freshMs) {
+            cacheHits.incrementAndGet();
+            return CompletableFuture.completedFuture(new HashMap<>(cached.enrichment));
+        }
+        if (cached != null && now - cached.computedAt < staleMs) {
+            staleHits.incrementAndGet();
+            refreshInBackground(key, productId, userContext, bucket);
+            return CompletableFuture.completedFuture(new HashMap<>(cached.enrichment));
+        }
+        
+        cacheMisses.incrementAndGet();
+        return enrichOnce(key, productId, userContext, bucket).thenApply(HashMap::new);
+    }
+    
+    /**
+     * 🌱 Seeds the cache from enrichments persisted by earlier runs
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedFromIndex() {
+        algoliaService.browseRecords(ENRICHED_INDEX)
+                .thenAccept(records -> {
+                    long now = System.currentTimeMillis();
+                    int seeded = 0;
+                    for (Map<String, Object> record : records) {
+                        Object productId = record.get("originalProductId");
+                        if (productId == null || !record.containsKey("ai_enrichment")) {
+                            continue;
+                        }
+                        long computedAt = parseTimestamp(record.get("enrichmentTimestamp"));
+                        if (now - computedAt >= staleMs) {
+                            continue;
+                        }
+                        Object bucket = record.getOrDefault(CONTEXT_BUCKET_FIELD, DEFAULT_BUCKET);
+                        synchronized (enrichmentCache) {
+                            enrichmentCache.putIfAbsent(productId + "|" + bucket, new CachedEnrichment(record, computedAt));
+                        }
+                        seeded++;
+                    }
+                    log.info("🌱 Seeded enrichment cache with {} of {} persisted enrichments", seeded, records.size());
+                })
+                .exceptionally(ex -> {
+                    log.warn("⚠️ Could not seed enrichment cache from {}: {}", ENRICHED_INDEX, ex.getMessage());
+                    return null;
+                });
+    }
+    
+    public Map<String, Object> getCacheStats() {
+        Map<String, Object> stats = new HashMap<>();
+        synchronized (enrichmentCache) {
+            stats.put("entries", enrichmentCache.size());
+        }
+        stats.put("hits", cacheHits.get());
+        stats.put("staleHits", staleHits.get());
+        stats.put("misses", cacheMisses.get());
+        stats.put("backgroundRefreshes", backgroundRefreshes.get());
+        stats.put("inFlight", inFlight.size());
+        stats.put("freshMs", freshMs);
+        stats.put("staleMs", staleMs);
+        return stats;
+    }
+    
+    private void refreshInBackground(String key, String productId, Map<String, Object> userContext, String bucket) {
+        if (!inFlight.containsKey(key)) {
+            backgroundRefreshes.incrementAndGet();
+            log.debug("🔄 Refreshing stale enrichment for {}", key);
+            enrichOnce(key, productId, userContext, bucket);
+        }
+    }
+    
+    /**
+     * Runs at most one enrichment per key at a time; successful results replace the cache
+     * entry, fallbacks are never cached
+     */
+    private CompletableFuture<Map<String, Object>> enrichOnce(String key, String productId,
+                                                              Map<String, Object> userContext, String bucket) {
+        CompletableFuture<Map<String, Object>> shared = new CompletableFuture<>();
+        CompletableFuture<Map<String, Object>> running = inFlight.putIfAbsent(key, shared);
+        if (running != null) {
+            return running;
+        }
+        
+        computeEnrichment(productId, userContext, bucket).whenComplete((result, error) -> {
+            if (result != null && "success".equals(result.get("enrichment_status"))) {
+                synchronized (enrichmentCache) {
+                    enrichmentCache.put(key, new CachedEnrichment(result, System.currentTimeMillis()));
+                }
+            }
+            inFlight.remove(key, shared);
+            if (error != null) {
+                shared.completeExceptionally(error);
+            } else {
+                shared.complete(result);
+            }
+        });
+        return shared;
+    }
+    
+    private CompletableFuture<Map<String, Object>> computeEnrichment(String productId, Map<String, Object> userContext, String bucket) {
+        log.info("🔍 Starting MCP-powered data enrichment for product: {} (context: {})", productId, bucket);
         
         // 1. Gather base product data from Algolia
-        return algoliaService.getProduct(productId)
+        return catalogReplicaService.getProduct(productId)
                 .thenCompose(product -> {
                     if (product == null) {
                         throw new RuntimeException("Product not found: " + productId);
@@ -71,6 +214,7 @@ public class McpDataEnrichmentService {
                             enrichedProduct.put("ai_enrichment", aiInsights);
                             enrichedProduct.put("enrichment_status", "success");
                             enrichedProduct.put("enrichment_timestamp", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+                            enrichedProduct.put(CONTEXT_BUCKET_FIELD, bucket);
                             
                             // 5. Store enriched data back to Algolia (async)
                             algoliaService.indexEnrichedProduct(productId, enrichedProduct);
@@ -90,6 +234,40 @@ public class McpDataEnrichmentService {
                 });
     }
     
+    /**
+     * Coarse context bucket: season plus engagement level, so that enrichments are shared
+     * across users whose context would produce the same analysis
+     */
+    @SuppressWarnings("unchecked")
+    private String contextBucket(Map<String, Object> userContext) {
+        String season = getCurrentSeason(LocalDateTime.now());
+        Object engagement = userContext != null ? userContext.get("user_engagement") : null;
+        if (!(engagement instanceof Map)) {
+            return season + ":" + DEFAULT_BUCKET;
+        }
+        Object score = ((Map<String, Object>) engagement).get("engagement_score");
+        double value = score instanceof Number number ? number.doubleValue() : 0.0;
+        return season + ":" + (value >= 0.5 ? "high" : value >= 0.2 ? DEFAULT_BUCKET : "low");
+    }
+    
+    private static long parseTimestamp(Object timestamp) {
+        try {
+            return timestamp != null ? Instant.parse(timestamp.toString()).toEpochMilli() : 0L;
+        } catch (DateTimeParseException e) {
+            return 0L;
+        }
+    }
+    
+    private static class CachedEnrichment {
+        private final Map<String, Object> enrichment;
+        private final long computedAt;
+        
+        private CachedEnrichment(Map<String, Object> enrichment, long computedAt) {
+            this.enrichment = enrichment;
+            this.computedAt = computedAt;
+        }
+    }
+    
     /**
      * 🔄 Convert Product object to Map for processing
      */
@@ -129,21 +307,13 @@ public class McpDataEnrichmentService {
             // Build AI analysis prompt
             String analysisPrompt = buildMarketAnalysisPrompt(productName, category, price, context);
             
-            // Call MCP Server for AI analysis
-            Map<String, Object> mcpRequest = new HashMap<>();
-            mcpRequest.put("method", "tools/call");
-            mcpRequest.put("params", Map.of(
-                "name", "algolia_search",
-                "arguments", Map.of(
-                    "index_name", "products",
-                    "query", productName,
-                    "attributesToRetrieve", Arrays.asList("name", "price", "category", "rating", "sales_data"),
-                    "hitsPerPage", 20
-                )
-            ));
-            
             // Get competitive data
-            Map<String, Object> competitiveData = mcpClient.callTool(mcpRequest).join();
+            Map<String, Object> competitiveData = mcpTransport.callTool("algolia_search", Map.of(
+                "index_name", "products",
+                "query", productName,
+                "attributesToRetrieve", Arrays.asList("name", "price", "category", "rating", "sales_data"),
+                "hitsPerPage", 20
+            )).join();
             
             // Analyze with Claude
             String claudePrompt = String.format("""
@@ -171,17 +341,10 @@ public class McpDataEnrichmentService {
                 }
                 """, productName, category, price, competitiveData.toString(), context.toString());
             
-            Map<String, Object> claudeRequest = new HashMap<>();
-            claudeRequest.put("method", "tools/call");
-            claudeRequest.put("params", Map.of(
-                "name", "claude_analyze",
-                "arguments", Map.of(
-                    "prompt", claudePrompt,
-                    "max_tokens", 1000
-                )
-            ));
-            
-            Map<String, Object> claudeResponse = mcpClient.callTool(claudeRequest).join();
+            Map<String, Object> claudeResponse = mcpTransport.callTool("claude_analyze", Map.of(
+                "prompt", claudePrompt,
+                "max_tokens", 1000
+            )).join();
             
             // Parse AI insights
             return parseAiInsights(claudeResponse);
@@ -236,19 +399,12 @@ public class McpDataEnrichmentService {
     private Map<String, Object> getCategoryPerformance(String category) {
         try {
             // Use Algolia analytics to get category insights
-            Map<String, Object> analyticsRequest = new HashMap<>();
-            analyticsRequest.put("method", "tools/call");
-            analyticsRequest.put("params", Map.of(
-                "name", "algolia_analytics",
-                "arguments", Map.of(
-                    "index_name", "products",
-                    "metric", "category_performance",
-                    "filters", "category:" + category,
-                    "period", "last_30_days"
-                )
-            ));
-            
-            return mcpClient.callTool(analyticsRequest).join();
+            return mcpTransport.callTool("algolia_analytics", Map.of(
+                "index_name", "products",
+                "metric", "category_performance",
+                "filters", "category:" + category,
+                "period", "last_30_days"
+            )).join();
         } catch (Exception e) {
             log.warn("Could not get category performance: {}", e.getMessage());
             return Map.of(
@@ -275,9 +431,9 @@ public class McpDataEnrichmentService {
     /**
      * 🎯 Parse AI insights from Claude response
      */
-    private Map<String, Object> parseAiInsights(Map<String, Object> claudeResponse) {
+    private Map<String, Object> parseAiInsights(Map<String, Object> claudeResult) {
         try {
-            String aiContent = (String) ((Map<String, Object>) claudeResponse.get("result")).get("content");
+            String aiContent = (String) claudeResult.get("content");
             
             // Extract JSON from Claude's response
             int jsonStart = aiContent.indexOf('{');
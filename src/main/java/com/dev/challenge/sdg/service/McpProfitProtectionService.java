@@ -6,17 +6,15 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
-import org.springframework.http.MediaType;
 
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
-import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * MCP-Enhanced Profit Protection Service
@@ -26,16 +24,14 @@ import java.util.concurrent.CompletableFuture;
 public class McpProfitProtectionService {
     
     private static final Logger log = LoggerFactory.getLogger(McpProfitProtectionService.class);
+    static final String MCP_DECISIONS_INDEX = "mcp_profit_decisions";
     
     @Autowired
-    private WebClient.Builder webClientBuilder;
+    private McpTransport mcpTransport;
     
     @Autowired
     private ObjectMapper objectMapper;
     
-    @Value("${mcp.server.url:http://localhost:3000}")
-    private String mcpServerUrl;
-    
     @Value("${mcp.server.enabled:false}")
     private boolean mcpEnabled;
     
@@ -45,20 +41,25 @@ public class McpProfitProtectionService {
     @Value("${mcp.server.retry-attempts:2}")
     private int retryAttempts;
     
-    private WebClient mcpClient;
-    
     @Autowired
     private GeminiService geminiService;
     
+    @Autowired
+    private AuditSink auditSink;
+    
+    @Autowired
+    private DecisionRingBuffer decisionRingBuffer;
+    
+    @Autowired
+    private ProfitGuardrailEngine guardrailEngine;
+    
+    @Autowired
+    private ProductMarginTable productMarginTable;
+    
     @Autowired
     public void initializeMcpClient() {
-        this.mcpClient = webClientBuilder
-                .baseUrl(mcpServerUrl)
-                .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize(1024 * 1024))
-                .build();
-        
         if (mcpEnabled) {
-            log.info("🤖 MCP Client initialized - Server: {}", mcpServerUrl);
+            log.info("🤖 MCP tool transport: {}", mcpTransport.getClass().getSimpleName());
         } else {
             log.info("⚠️ MCP integration disabled - using fallback mode");
         }
@@ -82,59 +83,29 @@ public class McpProfitProtectionService {
             try {
                 log.info("🤖 Starting MCP-enhanced profit analysis for product: {}", productId);
                 
-                // Step 1: Use MCP to get enriched product data
-                Map<String, Object> mcpRequest = createMcpProductRequest(productId);
-                var productResponse = mcpClient.post()
-                        .uri("/mcp/tools/algolia_search")
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .bodyValue(mcpRequest)
-                        .retrieve()
-                        .bodyToMono(Map.class)
-                        .timeout(Duration.ofSeconds(timeoutSeconds))
-                        .retryWhen(reactor.util.retry.Retry.fixedDelay(retryAttempts, Duration.ofSeconds(1)))
-                        .block();
-                // Step 2: Use MCP to get market intelligence
-                Map<String, Object> marketRequest = createMcpMarketAnalysisRequest(productId, marketContext);
-                var marketResponse = mcpClient.post()
-                        .uri("/mcp/tools/algolia_search")
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .bodyValue(marketRequest)
-                        .retrieve()
-                        .bodyToMono(Map.class)
-                        .timeout(Duration.ofSeconds(timeoutSeconds))
-                        .retryWhen(reactor.util.retry.Retry.fixedDelay(retryAttempts, Duration.ofSeconds(1)))
-                        .block();
-                // Step 3: Use MCP to analyze historical pricing data
-                Map<String, Object> historicalRequest = createMcpHistoricalAnalysisRequest(productId, userId);
-                var historicalResponse = mcpClient.post()
-                        .uri("/mcp/tools/algolia_search")
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .bodyValue(historicalRequest)
-                        .retrieve()
-                        .bodyToMono(Map.class)
-                        .timeout(Duration.ofSeconds(timeoutSeconds))
-                        .retryWhen(reactor.util.retry.Retry.fixedDelay(retryAttempts, Duration.ofSeconds(1)))
-                        .block();
-                // Step 4: Use MCP to get user events/behavior
-                Map<String, Object> userEventsRequest = createMcpUserEventsRequest(userId);
-                var userEventsResponse = mcpClient.post()
-                        .uri("/mcp/tools/algolia_search")
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .bodyValue(userEventsRequest)
-                        .retrieve()
-                        .bodyToMono(Map.class)
-                        .timeout(Duration.ofSeconds(timeoutSeconds))
-                        .retryWhen(reactor.util.retry.Retry.fixedDelay(retryAttempts, Duration.ofSeconds(1)))
-                        .block();
-                // Step 5: AI-powered profit margin analysis using GeminiService directly
-                Map<String, Object> aiAnalysisRequest = createGeminiAnalysisRequest(
-                        productResponse, marketResponse, historicalResponse, userEventsResponse, requestedDiscount);
-                
-                Map<String, Object> aiResponse = geminiService.analyzeProfitProtection(aiAnalysisRequest);
+                // Compiled guardrails settle clear-cut requests without any lookup; only near-limit ones
+                // fetch product data, market intelligence, pricing history and user events for Gemini
+                Map<String, Object> marketResponse = null;
+                Map<String, Object> historicalResponse = null;
+                Map<String, Object> aiResponse = settleWithGuardrails(productId, requestedDiscount, userId);
+                if (aiResponse == null) {
+                    CompletableFuture<Map<String, Object>> productFuture = callMcpTool(createMcpProductRequest(productId));
+                    CompletableFuture<Map<String, Object>> marketFuture = callMcpTool(createMcpMarketAnalysisRequest(productId, marketContext));
+                    CompletableFuture<Map<String, Object>> historicalFuture = callMcpTool(createMcpHistoricalAnalysisRequest(productId, userId));
+                    CompletableFuture<Map<String, Object>> userEventsFuture = callMcpTool(createMcpUserEventsRequest(userId));
+                    CompletableFuture.allOf(productFuture, marketFuture, historicalFuture, userEventsFuture).join();
+                    
+                    marketResponse = marketFuture.join();
+                    historicalResponse = historicalFuture.join();
+                    Map<String, Object> aiAnalysisRequest = createGeminiAnalysisRequest(
+                            productFuture.join(), marketResponse, historicalResponse, userEventsFuture.join(), requestedDiscount);
+                    
+                    aiResponse = geminiService.analyzeProfitProtection(aiAnalysisRequest);
+                }
                 
                 // Process results into intelligent profit protection decision
                 return processMcpResults(productId, requestedDiscount, userId, 
-                        productResponse, marketResponse, historicalResponse, aiResponse);
+                        marketResponse, historicalResponse, aiResponse);
                 
             } catch (Exception e) {
                 log.error("❌ MCP profit analysis failed for product: {} - Error: {}", productId, e.getMessage());
@@ -144,6 +115,55 @@ public class McpProfitProtectionService {
         });
     }
     
+    /**
+     * Returns a decision in the Gemini response shape when the guardrail table settles the
+     * request, or null when it needs AI review
+     */
+    private Map<String, Object> settleWithGuardrails(String productId, double requestedDiscount, String userId) {
+        double marginPercentage = productMarginTable.getMarginPercentage(productId);
+        ProfitGuardrailEngine.Guardrail guardrail = guardrailEngine.lookupForProduct(productId, userId);
+        double maxAllowedDiscount = guardrail.maxAllowedDiscount(marginPercentage);
+        ProfitGuardrailEngine.Verdict verdict = guardrailEngine.classify(requestedDiscount, maxAllowedDiscount);
+        if (verdict == ProfitGuardrailEngine.Verdict.REVIEW) {
+            return null;
+        }
+        
+        log.info("🛡️ Guardrail {} settled {}% for product {} without AI review", guardrail.getSource(), requestedDiscount, productId);
+        Map<String, Object> decision = new HashMap<>();
+        decision.put("veto", verdict == ProfitGuardrailEngine.Verdict.VETO);
+        decision.put("maxAllowedDiscount", maxAllowedDiscount);
+        decision.put("confidenceScore", 1.0);
+        decision.put("reasoning", String.format("Settled by guardrail %s: maximum allowed discount is %.1f%% for a %.1f%% profit margin",
+                guardrail.getSource(), maxAllowedDiscount, marginPercentage));
+        return decision;
+    }
+    
+    /**
+     * Runs one {@code {tool, arguments}} request through the MCP transport, retrying failures;
+     * a call that still fails yields an empty result
+     */
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<Map<String, Object>> callMcpTool(Map<String, Object> request) {
+        String toolName = (String) request.get("tool");
+        Map<String, Object> arguments = (Map<String, Object>) request.get("arguments");
+        CompletableFuture<Map<String, Object>> result = mcpTransport.callTool(toolName, arguments);
+        for (int attempt = 0; attempt < retryAttempts; attempt++) {
+            result = result.exceptionallyCompose(error -> {
+                log.warn("⚠️ MCP tool {} failed, retrying: {}", toolName, error.getMessage());
+                return mcpTransport.callTool(toolName, arguments);
+            });
+        }
+        // Each lookup degrades on its own, so one missing index does not fail the whole analysis
+        return result.orTimeout(timeoutSeconds, TimeUnit.SECONDS)
+                .exceptionally(error -> {
+                    log.warn("⚠️ MCP tool {} unavailable, continuing without it: {}", toolName, error.getMessage());
+                    Map<String, Object> empty = new HashMap<>();
+                    empty.put("hits", List.of());
+                    empty.put("error", error.getMessage());
+                    return empty;
+                });
+    }
+    
     /**
      * Creates MCP request for enriched product data retrieval
      */
@@ -198,7 +218,7 @@ public class McpProfitProtectionService {
         params.put("index_name", "pricing_history");
         params.put("query", "discount effectiveness conversion impact");
         params.put("filters", String.format("product_id:'%s' OR user_segment:'%s'", 
-                productId, determineUserSegment(userId)));
+                productId, guardrailEngine.segmentOf(userId)));
         params.put("attributes_to_retrieve", List.of(
                 "historical_discounts", "conversion_rates", "revenue_impact",
                 "customer_lifetime_value", "churn_risk", "price_sensitivity"
@@ -270,7 +290,6 @@ public class McpProfitProtectionService {
             String productId,
             double requestedDiscount,
             String userId,
-            Map<String, Object> productData,
             Map<String, Object> marketData,
             Map<String, Object> historicalData,
             Map<String, Object> aiAnalysis) {
@@ -303,16 +322,20 @@ public class McpProfitProtectionService {
                         .build();
             }
             // Extract values from GeminiService response
-            boolean veto = (boolean) aiResults.getOrDefault("veto", false);
-            double maxAllowedDiscount = ((Number) aiResults.getOrDefault("maxAllowedDiscount", requestedDiscount)).doubleValue();
-            String reasoning = (String) aiResults.getOrDefault("reasoning", "No reasoning provided.");
+            // Gemini may return numbers and booleans as strings; unparseable values use the defaults
+            boolean veto = booleanValue(aiResults.get("veto"), false);
+            double maxAllowedDiscount = doubleValue(aiResults.get("maxAllowedDiscount"), requestedDiscount);
+            Object reasoningValue = aiResults.get("reasoning");
+            String reasoning = reasoningValue != null ? reasoningValue.toString() : "No reasoning provided.";
             // For compatibility, treat maxAllowedDiscount as recommendedDiscount
             double recommendedDiscount = maxAllowedDiscount;
-            double confidenceScore = 0.8; // Default, since not provided
+            double confidenceScore = doubleValue(aiResults.get("confidenceScore"), 0.8);
             String riskLevel = veto ? "high" : "low";
             Map<String, Object> marketInsights = extractMarketInsights(marketData);
             boolean approved = !veto && requestedDiscount <= recommendedDiscount;
             double finalDiscount = approved ? requestedDiscount : recommendedDiscount;
+            logMcpDecisionToAlgolia(productId, userId, requestedDiscount, finalDiscount,
+                    approved, reasoning, confidenceScore, riskLevel);
             return McpProfitAnalysisResult.builder()
                     .productId(productId)
                     .userId(userId)
@@ -344,8 +367,9 @@ public class McpProfitProtectionService {
             boolean approved, String reasoning, double confidence, String risk) {
         
         try {
+            long now = System.currentTimeMillis();
             Map<String, Object> mcpLogEvent = new HashMap<>();
-            mcpLogEvent.put("objectID", "mcp-decision-" + System.currentTimeMillis() + "-" + productId);
+            mcpLogEvent.put("objectID", "mcp-decision-" + now + "-" + productId);
             mcpLogEvent.put("eventType", "mcp_profit_analysis");
             mcpLogEvent.put("productId", productId);
             mcpLogEvent.put("userId", userId);
@@ -357,23 +381,13 @@ public class McpProfitProtectionService {
             mcpLogEvent.put("riskLevel", risk);
             mcpLogEvent.put("mcpEnhanced", true);
             mcpLogEvent.put("timestamp", LocalDateTime.now().toInstant(ZoneOffset.UTC).toString());
+            mcpLogEvent.put("timestampMillis", now);
             
-            // Log to special MCP analytics index
-            mcpClient.post()
-                    .uri("/mcp/tools/algolia_save")
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(Map.of(
-                            "tool", "algolia_save",
-                            "arguments", Map.of(
-                                    "index_name", "mcp_profit_decisions",
-                                    "object", mcpLogEvent
-                            )
-                    ))
-                    .retrieve()
-                    .bodyToMono(Map.class)
-                    .subscribe();
+            // Batched through the shared audit writer
+            decisionRingBuffer.record(approved, productId, userId, now, mcpLogEvent);
+            auditSink.record(MCP_DECISIONS_INDEX, mcpLogEvent);
                     
-            log.info("✅ MCP decision logged to Algolia for product: {}", productId);
+            log.info("✅ MCP decision queued for audit for product: {}", productId);
             
         } catch (Exception e) {
             log.error("❌ Failed to log MCP decision", e);
@@ -381,13 +395,33 @@ public class McpProfitProtectionService {
     }
     
     // Helper methods
-    private String determineUserSegment(String userId) {
-        // Simplified user segmentation logic
-        return userId.hashCode() % 3 == 0 ? "premium" : userId.hashCode() % 3 == 1 ? "standard" : "budget";
+    private static double doubleValue(Object value, double defaultValue) {
+        if (value instanceof Number number) {
+            return number.doubleValue();
+        }
+        if (value != null) {
+            try {
+                return Double.parseDouble(value.toString().trim());
+            } catch (NumberFormatException e) {
+                log.warn("⚠️ Ignoring non-numeric AI value '{}'", value);
+            }
+        }
+        return defaultValue;
+    }
+    
+    private static boolean booleanValue(Object value, boolean defaultValue) {
+        if (value instanceof Boolean flag) {
+            return flag;
+        }
+        return value != null ? Boolean.parseBoolean(value.toString().trim()) : defaultValue;
     }
     
     private Map<String, Object> extractMarketInsights(Map<String, Object> marketData) {
         List<String> dynamicInsights = new ArrayList<>();
+        if (marketData == null) {
+            // Settled by a guardrail; no market lookup was made
+            return Map.of("analysis_type", "guardrail", "insights", dynamicInsights);
+        }
         
         try {
             // Try to extract actual market insights from the MCP response
@@ -0,0 +1,177 @@
+package com.dev.challenge.sdg.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sessions and SSE streams for the MCP streamable HTTP transport.
+ * A session is created on {@code initialize} and identified by the {@code Mcp-Session-Id}
+ * header; idle sessions expire. Streamed tool calls run asynchronously and emit periodic
+ * {@code notifications/progress} messages until the final JSON-RPC response is sent, so no
+ * request thread is held while a slow tool runs.
+ */
+@Slf4j
+@Service
+public class McpSessionRegistry {
+
+    public static final String SESSION_HEADER = "Mcp-Session-Id";
+
+    @Value("${mcp.server.session-idle-timeout-ms:1800000}")
+    private long sessionIdleTimeoutMs;
+
+    @Value("${mcp.server.max-sessions:10000}")
+    private int maxSessions;
+
+    @Value("${mcp.server.stream-timeout-ms:300000}")
+    private long streamTimeoutMs;
+
+    @Value("${mcp.server.progress-interval-ms:1000}")
+    private long progressIntervalMs;
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong createdSessions = new AtomicLong();
+    private final AtomicLong expiredSessions = new AtomicLong();
+    private final AtomicLong streamedCalls = new AtomicLong();
+
+    private ScheduledExecutorService progressScheduler;
+
+    @PostConstruct
+    public void start() {
+        progressScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mcp-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (progressScheduler != null) {
+            progressScheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Creates a session, or returns null when the session limit is reached
+     */
+    public String createSession() {
+        if (sessions.size() >= maxSessions) {
+            log.warn("MCP session limit {} reached, rejecting initialize", maxSessions);
+            return null;
+        }
+        String sessionId = UUID.randomUUID().toString();
+        sessions.put(sessionId, new Session());
+        createdSessions.incrementAndGet();
+        return sessionId;
+    }
+
+    /**
+     * Marks the session as used; returns false when it is unknown or expired
+     */
+    public boolean touch(String sessionId) {
+        Session session = sessions.get(sessionId);
+        if (session == null) {
+            return false;
+        }
+        session.lastSeenMillis = System.currentTimeMillis();
+        return true;
+    }
+
+    public boolean closeSession(String sessionId) {
+        return sessions.remove(sessionId) != null;
+    }
+
+    /**
+     * Streams a single JSON-RPC call: progress notifications (when the client sent a
+     * progress token) followed by the final response, then the stream is closed
+     */
+    public SseEmitter stream(CompletableFuture<?> response, Object progressToken, String label) {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        streamedCalls.incrementAndGet();
+        long startedAt = System.currentTimeMillis();
+
+        ScheduledFuture<?> progress = progressToken == null ? null : progressScheduler.scheduleAtFixedRate(() -> {
+            long elapsed = System.currentTimeMillis() - startedAt;
+            send(emitter, Map.of(
+                    "jsonrpc", "2.0",
+                    "method", "notifications/progress",
+                    "params", Map.of(
+                            "progressToken", progressToken,
+                            "progress", elapsed,
+                            "message", label + " running for " + elapsed + "ms"
+                    )
+            ));
+        }, progressIntervalMs, progressIntervalMs, TimeUnit.MILLISECONDS);
+
+        response.whenComplete((result, error) -> {
+            if (progress != null) {
+                progress.cancel(false);
+            }
+            if (error != null) {
+                emitter.completeWithError(error);
+                return;
+            }
+            send(emitter, result);
+            emitter.complete();
+        });
+        emitter.onTimeout(() -> {
+            if (progress != null) {
+                progress.cancel(false);
+            }
+        });
+        return emitter;
+    }
+
+    @Scheduled(fixedDelayString = "${mcp.server.session-sweep-interval-ms:60000}")
+    public void expireIdleSessions() {
+        long cutoff = System.currentTimeMillis() - sessionIdleTimeoutMs;
+        sessions.values().removeIf(session -> {
+            boolean idle = session.lastSeenMillis < cutoff;
+            if (idle) {
+                expiredSessions.incrementAndGet();
+            }
+            return idle;
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("activeSessions", sessions.size());
+        stats.put("createdSessions", createdSessions.get());
+        stats.put("expiredSessions", expiredSessions.get());
+        stats.put("streamedCalls", streamedCalls.get());
+        return stats;
+    }
+
+    private boolean send(SseEmitter emitter, Object message) {
+        try {
+            emitter.send(SseEmitter.event().name("message").data(message, MediaType.APPLICATION_JSON));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            log.debug("MCP stream closed by client: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private static class Session {
+        private volatile long lastSeenMillis = System.currentTimeMillis();
+    }
+}
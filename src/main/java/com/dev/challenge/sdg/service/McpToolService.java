@@ -4,9 +4,11 @@ import com.dev.challenge.sdg.dto.McpResponse;
 import com.dev.challenge.sdg.model.UserEvent;
 import com.dev.challenge.sdg.model.Product;
 import com.dev.challenge.sdg.model.Discount;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
@@ -14,11 +16,15 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * MCP Tool Service - Implements business logic for MCP tools
- * Handles all MCP tool execution with direct service injection (no HTTP calls)
+ * Handles all MCP tool execution with direct service injection (no HTTP calls).
+ * Tools are registered by name with an async contract; tools with a configured TTL
+ * share results (and in-flight calls) for identical arguments.
  */
 @Slf4j
 @Service
@@ -30,13 +36,27 @@ public class McpToolService {
     private final AlgoliaService algoliaService;
     private final GeminiService geminiService;
     private final DiscountService discountService;
+    private final CatalogReplicaService catalogReplicaService;
+    
+    @Value("#{${mcp.tools.cache-ttl-ms:{:}}}")
+    private Map<String, Number> cacheTtlMs;
+    
+    @Value("${mcp.tools.cache-max-entries:1000}")
+    private int cacheMaxEntries;
+    
+    private final Map<String, RegisteredTool> tools = new LinkedHashMap<>();
     
     /**
-     * Returns list of available MCP tools with their definitions
+     * Async tool contract: tools never block the calling thread
      */
-    public List<McpResponse.ToolDefinition> getAvailableTools() {
-        return List.of(
-            createToolDefinition("getUserHesitationData", 
+    @FunctionalInterface
+    public interface AsyncTool {
+        CompletableFuture<Map<String, Object>> execute(Map<String, Object> arguments);
+    }
+    
+    @PostConstruct
+    public void registerTools() {
+        register(createToolDefinition("getUserHesitationData", 
                 "Retrieves detailed user behavior data from Algolia to assess hesitation patterns",
                 Map.of(
                     "type", "object",
@@ -45,8 +65,9 @@ public class McpToolService {
                     ),
                     "required", List.of("userId")
                 )),
-            
-            createToolDefinition("getProductProfitMargin",
+            this::executeGetUserHesitationData);
+        
+        register(createToolDefinition("getProductProfitMargin",
                 "Retrieves product profit margin and inventory data from Algolia",
                 Map.of(
                     "type", "object",
@@ -55,8 +76,9 @@ public class McpToolService {
                     ),
                     "required", List.of("productId")
                 )),
-            
-            createToolDefinition("generateSmartDiscount",
+            this::executeGetProductProfitMargin);
+        
+        register(createToolDefinition("generateSmartDiscount",
                 "Generates AI-powered discount offer based on user behavior and product data",
                 Map.of(
                     "type", "object",
@@ -69,8 +91,9 @@ public class McpToolService {
                     ),
                     "required", List.of("userId", "productId", "behaviorSummary", "profitMargin")
                 )),
-            
-            createToolDefinition("logDiscountConversion",
+            this::executeGenerateSmartDiscount);
+        
+        register(createToolDefinition("logDiscountConversion",
                 "Logs discount conversion events for analytics and optimization",
                 Map.of(
                     "type", "object",
@@ -80,107 +103,141 @@ public class McpToolService {
                         "conversionStatus", Map.of("type", "string", "description", "Conversion status")
                     ),
                     "required", List.of("discountCode", "userId", "conversionStatus")
-                ))
-        );
+                )),
+            this::executeLogDiscountConversion);
+        
+        log.info("Registered {} MCP tools, cached: {}", tools.size(), cacheTtlMs);
+    }
+    
+    private void register(McpResponse.ToolDefinition definition, AsyncTool tool) {
+        long ttlMs = cacheTtlMs.getOrDefault(definition.getName(), 0L).longValue();
+        tools.put(definition.getName(), new RegisteredTool(definition, tool, ttlMs));
     }
     
     /**
-     * Executes MCP tool by name with given arguments
+     * Returns list of available MCP tools with their definitions
      */
-    public Map<String, Object> executeTool(String toolName, Map<String, Object> arguments) {
+    public List<McpResponse.ToolDefinition> getAvailableTools() {
+        return tools.values().stream().map(registered -> registered.definition).toList();
+    }
+    
+    public boolean hasTool(String toolName) {
+        return tools.containsKey(toolName);
+    }
+    
+    /**
+     * Executes MCP tool by name with given arguments without blocking the caller
+     */
+    public CompletableFuture<Map<String, Object>> executeToolAsync(String toolName, Map<String, Object> arguments) {
         log.info("Executing MCP tool: {} with arguments: {}", toolName, arguments);
         
+        RegisteredTool registered = tools.get(toolName);
+        if (registered == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Unknown tool: " + toolName));
+        }
+        Map<String, Object> safeArguments = arguments != null ? arguments : Map.of();
+        
+        return registered.call(safeArguments)
+                .exceptionallyCompose(throwable -> {
+                    Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                            ? throwable.getCause() : throwable;
+                    log.error("Error executing tool: {}", toolName, cause);
+                    return CompletableFuture.failedFuture(new RuntimeException("Tool execution failed: " + cause.getMessage(), cause));
+                });
+    }
+    
+    /**
+     * Executes MCP tool by name with given arguments, blocking until it completes
+     */
+    public Map<String, Object> executeTool(String toolName, Map<String, Object> arguments) {
         try {
-            return switch (toolName) {
-                case "getUserHesitationData" -> executeGetUserHesitationData(arguments);
-                case "getProductProfitMargin" -> executeGetProductProfitMargin(arguments);
-                case "generateSmartDiscount" -> executeGenerateSmartDiscount(arguments);
-                case "logDiscountConversion" -> executeLogDiscountConversion(arguments);
-                default -> throw new IllegalArgumentException("Unknown tool: " + toolName);
-            };
-        } catch (Exception e) {
-            log.error("Error executing tool: {}", toolName, e);
-            throw new RuntimeException("Tool execution failed: " + e.getMessage());
+            return executeToolAsync(toolName, arguments).get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Tool execution interrupted: " + toolName);
         }
     }
     
+    public Map<String, Object> getCacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        tools.forEach((name, registered) -> {
+            if (registered.ttlMs > 0) {
+                stats.put(name, Map.of(
+                        "ttlMs", registered.ttlMs,
+                        "entries", registered.cachedEntries(),
+                        "hits", registered.hits.get(),
+                        "misses", registered.misses.get()));
+            }
+        });
+        return stats;
+    }
+    
     /**
      * Tool: getUserHesitationData - Analyzes user behavior patterns
      */
-    private Map<String, Object> executeGetUserHesitationData(Map<String, Object> arguments) {
+    private CompletableFuture<Map<String, Object>> executeGetUserHesitationData(Map<String, Object> arguments) {
         String userId = (String) arguments.get("userId");
         log.info("Analyzing hesitation data for user: {}", userId);
         
-        try {
-            CompletableFuture<List<UserEvent>> behaviorFuture =
-                algoliaService.getUserBehaviorHistory(userId, 50);
-            List<com.dev.challenge.sdg.model.UserEvent> userEvents = behaviorFuture.get();
-            
-            // Convert UserEvent objects to Map format for analysis
-            List<Map<String, Object>> behaviorHistory = userEvents.stream()
-                .map(this::convertUserEventToMap)
-                .toList();
-            
-            // Analyze behavior patterns
-            Map<String, Object> analysis = analyzeBehaviorPatterns(behaviorHistory);
-            
-            Map<String, Object> result = new HashMap<>();
-            result.put("userId", userId);
-            result.put("behaviorHistory", behaviorHistory);
-            result.put("hesitationAnalysis", analysis);
-            result.put("timestamp", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-            
-            log.info("Completed hesitation analysis for user: {}", userId);
-            return result;
-            
-        } catch (Exception e) {
-            log.error("Error analyzing user hesitation data", e);
-            throw new RuntimeException("Failed to analyze user behavior: " + e.getMessage());
-        }
+        return algoliaService.getUserBehaviorHistory(userId, 50)
+            .thenApply(userEvents -> {
+                // Convert UserEvent objects to Map format for analysis
+                List<Map<String, Object>> behaviorHistory = userEvents.stream()
+                    .map(this::convertUserEventToMap)
+                    .toList();
+                
+                // Analyze behavior patterns
+                Map<String, Object> analysis = analyzeBehaviorPatterns(behaviorHistory);
+                
+                Map<String, Object> result = new HashMap<>();
+                result.put("userId", userId);
+                result.put("behaviorHistory", behaviorHistory);
+                result.put("hesitationAnalysis", analysis);
+                result.put("timestamp", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+                
+                log.info("Completed hesitation analysis for user: {}", userId);
+                return result;
+            });
     }
     
     /**
      * Tool: getProductProfitMargin - Retrieves product financial data
      */
-    private Map<String, Object> executeGetProductProfitMargin(Map<String, Object> arguments) {
+    private CompletableFuture<Map<String, Object>> executeGetProductProfitMargin(Map<String, Object> arguments) {
         String productId = (String) arguments.get("productId");
         log.info("Retrieving profit margin for product: {}", productId);
         
-        try {
-            CompletableFuture<com.dev.challenge.sdg.model.Product> productFuture = algoliaService.getProduct(productId);
-            com.dev.challenge.sdg.model.Product product = productFuture.get();
-            
-            if (product == null) {
-                throw new RuntimeException("Product not found: " + productId);
-            }
-            
-            // Calculate profit margin
-            double price = product.getPrice().doubleValue();
-            double cost = price * 0.7; // Assume 30% cost ratio if not available
-            double profitMargin = product.getProfitMargin() != null ? product.getProfitMargin() : (price - cost) / price;
-            
-            Map<String, Object> result = new HashMap<>();
-            result.put("productId", productId);
-            result.put("productName", product.getName());
-            result.put("price", price);
-            result.put("cost", cost);
-            result.put("profitMargin", profitMargin);
-            result.put("inventory", product.getInventoryLevel() != null ? product.getInventoryLevel() : 100);
-            result.put("category", product.getCategory());
-            
-            log.info("Retrieved profit margin for product: {} = {}", productId, profitMargin);
-            return result;
-            
-        } catch (Exception e) {
-            log.error("Error retrieving product profit margin", e);
-            throw new RuntimeException("Failed to get product data: " + e.getMessage());
-        }
+        return catalogReplicaService.getProduct(productId)
+            .thenApply(product -> {
+                if (product == null) {
+                    throw new IllegalArgumentException("Product not found: " + productId);
+                }
+                
+                // Calculate profit margin
+                double price = product.getPrice().doubleValue();
+                double cost = price * 0.7; // Assume 30% cost ratio if not available
+                double profitMargin = product.getProfitMargin() != null ? product.getProfitMargin() : (price - cost) / price;
+                
+                Map<String, Object> result = new HashMap<>();
+                result.put("productId", productId);
+                result.put("productName", product.getName());
+                result.put("price", price);
+                result.put("cost", cost);
+                result.put("profitMargin", profitMargin);
+                result.put("inventory", product.getInventoryLevel() != null ? product.getInventoryLevel() : 100);
+                result.put("category", product.getCategory());
+                
+                log.info("Retrieved profit margin for product: {} = {}", productId, profitMargin);
+                return result;
+            });
     }
     
     /**
      * Tool: generateSmartDiscount - Creates AI-powered discount offer
      */
-    private Map<String, Object> executeGenerateSmartDiscount(Map<String, Object> arguments) {
+    private CompletableFuture<Map<String, Object>> executeGenerateSmartDiscount(Map<String, Object> arguments) {
         String userId = (String) arguments.get("userId");
         String productId = (String) arguments.get("productId");
         @SuppressWarnings("unchecked")
@@ -232,18 +289,18 @@ public class McpToolService {
             result.put("expiresInSeconds", discount.getExpiresInSeconds());
             result.put("active", discount.isActive());
             
-            return result;
+            return CompletableFuture.completedFuture(result);
             
         } catch (Exception e) {
             log.error("Error generating smart discount", e);
-            throw new RuntimeException("Failed to generate discount: " + e.getMessage());
+            return CompletableFuture.failedFuture(new RuntimeException("Failed to generate discount: " + e.getMessage()));
         }
     }
     
     /**
      * Tool: logDiscountConversion - Tracks conversion events
      */
-    private Map<String, Object> executeLogDiscountConversion(Map<String, Object> arguments) {
+    private CompletableFuture<Map<String, Object>> executeLogDiscountConversion(Map<String, Object> arguments) {
         String discountCode = (String) arguments.get("discountCode");
         String userId = (String) arguments.get("userId");
         String conversionStatus = (String) arguments.get("conversionStatus");
@@ -251,44 +308,34 @@ public class McpToolService {
         log.info("Logging discount conversion: code={}, user={}, status={}", 
                 discountCode, userId, conversionStatus);
         
-        try {
-            Map<String, Object> conversionLog = new HashMap<>();
-            conversionLog.put("discountCode", discountCode);
-            conversionLog.put("userId", userId);
-            conversionLog.put("conversionStatus", conversionStatus);
-            conversionLog.put("timestamp", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-            conversionLog.put("eventType", "discount_conversion");
-            
-            // Create UserEvent for conversion tracking
-            UserEvent conversionEvent = UserEvent.builder()
-                    .objectId(UUID.randomUUID().toString())
-                    .userId(userId)
-                    .eventType("discount_conversion")
-                    .productId(null) // Not applicable for conversion events
-                    .query(null)
-                    .timestamp(Instant.now())
-                    .details(Map.of(
-                            "discountCode", discountCode,
-                            "conversionStatus", conversionStatus,
-                            "eventType", "discount_conversion"
-                    ))
-                    .build();
-            
-            // Store conversion event in Algolia
-            algoliaService.storeUserEvent(conversionEvent);
-            
-            Map<String, Object> result = new HashMap<>();
-            result.put("status", "logged");
-            result.put("conversionId", conversionLog.get("objectID"));
-            result.put("timestamp", conversionLog.get("timestamp"));
-            
-            log.info("Successfully logged discount conversion: {}", discountCode);
-            return result;
-            
-        } catch (Exception e) {
-            log.error("Error logging discount conversion", e);
-            throw new RuntimeException("Failed to log conversion: " + e.getMessage());
-        }
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        
+        // Create UserEvent for conversion tracking
+        UserEvent conversionEvent = UserEvent.builder()
+                .objectId(UUID.randomUUID().toString())
+                .userId(userId)
+                .eventType("discount_conversion")
+                .productId(null) // Not applicable for conversion events
+                .query(null)
+                .timestamp(Instant.now())
+                .details(Map.of(
+                        "discountCode", discountCode,
+                        "conversionStatus", conversionStatus,
+                        "eventType", "discount_conversion"
+                ))
+                .build();
+        
+        // Store conversion event in Algolia
+        return algoliaService.storeUserEvent(conversionEvent)
+                .thenApply(ignored -> {
+                    Map<String, Object> result = new HashMap<>();
+                    result.put("status", "logged");
+                    result.put("conversionId", conversionEvent.getObjectId());
+                    result.put("timestamp", timestamp);
+                    
+                    log.info("Successfully logged discount conversion: {}", discountCode);
+                    return result;
+                });
     }
     
     // Helper methods
@@ -418,4 +465,89 @@ public class McpToolService {
         discount.put("urgencyText", "Limited time offer - don't miss out!");
         return discount;
     }
+    
+    /**
+     * A registered tool with its optional TTL cache; cached entries hold the future, so
+     * concurrent identical calls share one execution. The cache keeps insertion order and
+     * evicts its oldest entries once it holds {@code cache-max-entries}.
+     */
+    private class RegisteredTool {
+        private final McpResponse.ToolDefinition definition;
+        private final AsyncTool tool;
+        private final long ttlMs;
+        private final Map<Map<String, Object>, CachedResult> cache = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Map<String, Object>, CachedResult> eldest) {
+                return size() > cacheMaxEntries;
+            }
+        };
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        
+        private RegisteredTool(McpResponse.ToolDefinition definition, AsyncTool tool, long ttlMs) {
+            this.definition = definition;
+            this.tool = tool;
+            this.ttlMs = ttlMs;
+        }
+        
+        private CompletableFuture<Map<String, Object>> call(Map<String, Object> arguments) {
+            if (ttlMs <= 0) {
+                return invoke(arguments);
+            }
+            
+            // Check and insert atomically; the tool itself runs outside the lock
+            long now = System.currentTimeMillis();
+            Map<String, Object> key = new HashMap<>(arguments);
+            CachedResult fresh;
+            synchronized (cache) {
+                CachedResult cached = cache.get(key);
+                if (cached != null && cached.expiresAt > now) {
+                    hits.incrementAndGet();
+                    return cached.result;
+                }
+                // Removed first so the refreshed entry moves to the young end of the eviction order
+                cache.remove(key);
+                fresh = new CachedResult(new CompletableFuture<>(), now + ttlMs);
+                cache.put(key, fresh);
+            }
+            
+            misses.incrementAndGet();
+            invoke(arguments).whenComplete((result, error) -> {
+                if (error != null) {
+                    // Failures are not cached
+                    synchronized (cache) {
+                        cache.remove(key, fresh);
+                    }
+                    fresh.result.completeExceptionally(error);
+                } else {
+                    fresh.result.complete(result);
+                }
+            });
+            return fresh.result;
+        }
+        
+        private int cachedEntries() {
+            synchronized (cache) {
+                return cache.size();
+            }
+        }
+        
+        private CompletableFuture<Map<String, Object>> invoke(Map<String, Object> arguments) {
+            try {
+                return tool.execute(arguments);
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+    }
+    
+    private static class CachedResult {
+        private final CompletableFuture<Map<String, Object>> result;
+        private final long expiresAt;
+        
+        private CachedResult(CompletableFuture<Map<String, Object>> result, long expiresAt) {
+            this.result = result;
+            this.expiresAt = expiresAt;
+        }
+    }
 }
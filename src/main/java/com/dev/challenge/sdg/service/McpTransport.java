@@ -0,0 +1,14 @@
+package com.dev.challenge.sdg.service;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Transport for MCP tool calls. Implementations return the tool's own result map, and a
+ * JSON-RPC style {@code {error: {code, message}}} map when the call fails, so callers do not
+ * depend on how the call was carried.
+ */
+public interface McpTransport {
+
+    CompletableFuture<Map<String, Object>> callTool(String toolName, Map<String, Object> arguments);
+}
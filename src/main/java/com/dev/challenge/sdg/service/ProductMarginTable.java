@@ -0,0 +1,152 @@
+package com.dev.challenge.sdg.service;
+
+import com.dev.challenge.sdg.model.Product;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory profit margin table for the whole catalog.
+ * Each product maps to an immutable entry holding its margin, category and brand, so lookups
+ * are lock-free reads and single updates or removals touch one entry. Products without a
+ * margin in the index are stored with NaN. The table is fed by {@link CatalogReplicaService}
+ * events.
+ */
+@Slf4j
+@Service
+public class ProductMarginTable {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile long lastRefreshMillis;
+
+    /**
+     * Profit margin in percent, or NaN when the product is not in the table
+     */
+    public double getMarginPercentage(String productId) {
+        Entry entry = find(productId);
+        return entry != null ? entry.marginPercentage : Double.NaN;
+    }
+
+    /**
+     * Product category, or null when unknown
+     */
+    public String getCategory(String productId) {
+        Entry entry = find(productId);
+        return entry != null ? entry.category : null;
+    }
+
+    /**
+     * Product brand, or null when unknown
+     */
+    public String getBrand(String productId) {
+        Entry entry = find(productId);
+        return entry != null ? entry.brand : null;
+    }
+
+    /**
+     * Records a single margin, e.g. after a read-through lookup; category and brand are kept
+     */
+    public void put(String productId, Double profitMargin) {
+        if (productId == null) {
+            return;
+        }
+        entries.compute(productId, (id, existing) -> new Entry(profitMargin,
+                existing != null ? existing.category : null, existing != null ? existing.brand : null));
+    }
+
+    /**
+     * Applies a batch of products, returning how many entries changed
+     */
+    public int putAll(List<Product> products) {
+        int changed = 0;
+        for (Product product : products) {
+            if (product.getObjectId() == null) {
+                continue;
+            }
+            Entry next = new Entry(product.getProfitMargin(), product.getCategory(), product.getBrand());
+            if (!next.equals(entries.put(product.getObjectId(), next))) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Forgets products that left the catalog
+     */
+    public void removeAll(List<String> productIds) {
+        for (String productId : productIds) {
+            if (productId != null) {
+                entries.remove(productId);
+            }
+        }
+    }
+
+    /**
+     * Applies margins from catalog replica loads and deltas, dropping products a full load no longer found
+     */
+    @EventListener
+    public void onCatalogRefreshed(CatalogRefreshedEvent event) {
+        int changed = putAll(event.getChangedProducts());
+        removeAll(event.getRemovedProductIds());
+        lastRefreshMillis = System.currentTimeMillis();
+        if (event.isFullLoad()) {
+            log.info("Profit margin table refreshed: {} products, {} changed, {} removed",
+                    event.getChangedProducts().size(), changed, event.getRemovedProductIds().size());
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Entry entry : entries.values()) {
+            if (!Double.isNaN(entry.marginPercentage)) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("products", size());
+        stats.put("entries", entries.size());
+        stats.put("lastRefreshMillis", lastRefreshMillis);
+        return stats;
+    }
+
+    private Entry find(String productId) {
+        return productId != null ? entries.get(productId) : null;
+    }
+
+    private static final class Entry {
+        private final double marginPercentage;
+        private final String category;
+        private final String brand;
+
+        private Entry(Double profitMargin, String category, String brand) {
+            // Margins are stored as fractions in the index; accept percentages as well
+            this.marginPercentage = profitMargin == null ? Double.NaN : profitMargin > 1.0 ? profitMargin : profitMargin * 100;
+            this.category = category;
+            this.brand = brand;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Entry entry
+                    && Double.compare(marginPercentage, entry.marginPercentage) == 0
+                    && Objects.equals(category, entry.category)
+                    && Objects.equals(brand, entry.brand);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(marginPercentage, category, brand);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.dev.challenge.sdg.service;
+
+import com.dev.challenge.sdg.model.Product;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Product search for the API and chat endpoints.
+ * Repeated queries are answered from the {@link SearchResultCache}. Algolia queries get a
+ * latency budget; when it is exceeded or the query fails, results come from the
+ * {@link LocalProductSearchIndex} instead of an empty list. Chat keyword lookups are served
+ * locally and only reach Algolia while the local index is not loaded yet.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProductSearchService {
+
+    private final AlgoliaService algoliaService;
+    private final LocalProductSearchIndex localIndex;
+    private final UserAffinityService userAffinityService;
+    private final SearchResultCache searchResultCache;
+
+    @Value("${search.algolia-latency-budget-ms:300}")
+    private long latencyBudgetMs;
+
+    private final AtomicLong algoliaQueries = new AtomicLong();
+    private final AtomicLong localFallbacks = new AtomicLong();
+    private final AtomicLong localLookups = new AtomicLong();
+
+    /**
+     * Cached results, else Algolia search within the latency budget, falling back to the local index
+     */
+    public CompletableFuture<List<Product>> searchProducts(String query, int limit) {
+        if (!localIndex.isReady()) {
+            return algoliaService.searchProducts(query, limit);
+        }
+        List<Product> cached = searchResultCache.get(query, limit, null);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        algoliaQueries.incrementAndGet();
+        // The read timeout ends the Algolia request itself; orTimeout bounds its host retries as well
+        return algoliaService.searchProductsAsync(query, limit, latencyBudgetMs)
+                .orTimeout(latencyBudgetMs, TimeUnit.MILLISECONDS)
+                .thenApply(products -> {
+                    // Local fallback results are not cached, so Algolia is retried on the next request
+                    searchResultCache.put(query, limit, null, products);
+                    return products;
+                })
+                .exceptionally(error -> {
+                    localFallbacks.incrementAndGet();
+                    log.warn("Algolia search for '{}' failed or exceeded {}ms, serving local results: {}",
+                            query, latencyBudgetMs, error.getMessage());
+                    return localIndex.search(query, limit);
+                });
+    }
+
+    /**
+     * Search reranked by the user's affinity profile
+     */
+    public CompletableFuture<List<Product>> performEnhancedSearch(String query, String userId, Map<String, Object> context) {
+        log.debug("Performing enhanced search for query: '{}' by user: {}", query, userId);
+
+        return searchProducts(query, 20)
+                .thenApply(products -> userId != null ? userAffinityService.rerank(products, userId) : products);
+    }
+
+    /**
+     * Products relevant to a chat message, matched on its longer keywords
+     */
+    public CompletableFuture<List<Product>> findRelevantProducts(String message) {
+        log.debug("Finding products relevant to message: '{}'", message);
+
+        StringBuilder queryBuilder = new StringBuilder();
+        for (String keyword : message.toLowerCase().split("\\s+")) {
+            if (keyword.length() > 3) { // Only use longer words
+                queryBuilder.append(keyword).append(" ");
+            }
+        }
+        String searchQuery = queryBuilder.toString().trim();
+        if (searchQuery.isEmpty()) {
+            searchQuery = message; // Use original message if no keywords found
+        }
+
+        if (localIndex.isReady()) {
+            localLookups.incrementAndGet();
+            return CompletableFuture.completedFuture(localIndex.search(searchQuery, 5));
+        }
+        return algoliaService.searchProducts(searchQuery, 5);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("latencyBudgetMs", latencyBudgetMs);
+        stats.put("algoliaQueries", algoliaQueries.get());
+        stats.put("localFallbacks", localFallbacks.get());
+        stats.put("localLookups", localLookups.get());
+        stats.put("localIndex", localIndex.getStats());
+        stats.put("cache", searchResultCache.getStats());
+        return stats;
+    }
+}
@@ -0,0 +1,19 @@
+package com.dev.challenge.sdg.service;
+
+import com.dev.challenge.sdg.model.Product;
+
+/**
+ * Published after a product was written to the products index by this instance
+ */
+public class ProductUpdatedEvent {
+
+    private final Product product;
+
+    public ProductUpdatedEvent(Product product) {
+        this.product = product;
+    }
+
+    public Product getProduct() {
+        return product;
+    }
+}
@@ -0,0 +1,387 @@
+package com.dev.challenge.sdg.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Category-, brand- and segment-aware discount guardrails.
+ * Rules come from {@code guardrails.rules} and, optionally, an Algolia index. They are compiled
+ * into an open-addressing table keyed by packed dimension ids and swapped in atomically, so
+ * lookups are a handful of array reads with no locking and no allocation. The most specific
+ * rule wins; unset dimensions act as wildcards down to the default rule.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProfitGuardrailEngine {
+
+    private static final int DIMENSION_BITS = 21;
+    private static final long DIMENSION_MASK = (1L << DIMENSION_BITS) - 1;
+
+    private final AlgoliaService algoliaService;
+    private final ProductMarginTable productMarginTable;
+
+    @Value("${guardrails.rules:}")
+    private String configuredRules;
+
+    @Value("${guardrails.index:}")
+    private String rulesIndex;
+
+    @Value("${guardrails.review-band:2.0}")
+    private double reviewBand;
+
+    @Value("${discount.max-discount-percentage:50}")
+    private double maxDiscountPercentage;
+
+    private volatile CompiledRules compiled;
+    private volatile long lastReloadMillis;
+    private final AtomicLong skippedRules = new AtomicLong();
+
+    /**
+     * Outcome of a guardrail check; REVIEW means the request is too close to the limit
+     * (or the margin is unknown) for the table to settle on its own
+     */
+    public enum Verdict { APPROVE, VETO, REVIEW }
+
+    @PostConstruct
+    public void init() {
+        compiled = compile(parseConfiguredRules());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        reload();
+    }
+
+    /**
+     * Recompiles configured and indexed rules and swaps them in; readers are never blocked
+     */
+    @Scheduled(fixedDelayString = "${guardrails.refresh-interval-ms:300000}",
+            initialDelayString = "${guardrails.refresh-interval-ms:300000}")
+    public synchronized int reload() {
+        List<RuleSpec> specs = parseConfiguredRules();
+        if (!rulesIndex.isBlank()) {
+            try {
+                for (Map<String, Object> record : algoliaService.browseRecords(rulesIndex).join()) {
+                    addRule(specs, record, "index");
+                }
+            } catch (Exception e) {
+                log.warn("Failed to load guardrail rules from index {}, keeping configured rules only: {}",
+                        rulesIndex, e.getMessage());
+            }
+        }
+        compiled = compile(specs);
+        lastReloadMillis = System.currentTimeMillis();
+        log.info("Compiled {} profit guardrail rules", compiled.ruleCount);
+        return compiled.ruleCount;
+    }
+
+    /**
+     * Most specific guardrail for the given attributes; any of them may be null
+     */
+    public Guardrail lookup(String category, String brand, String segment) {
+        CompiledRules rules = compiled;
+        long c = rules.categories.idOf(category);
+        long b = rules.brands.idOf(brand);
+        long s = rules.segments.idOf(segment);
+
+        Guardrail match;
+        if ((match = rules.find(c, b, s)) != null) return match;
+        if ((match = rules.find(c, b, 0)) != null) return match;
+        if ((match = rules.find(c, 0, s)) != null) return match;
+        if ((match = rules.find(0, b, s)) != null) return match;
+        if ((match = rules.find(c, 0, 0)) != null) return match;
+        if ((match = rules.find(0, b, 0)) != null) return match;
+        if ((match = rules.find(0, 0, s)) != null) return match;
+        return rules.defaultRule;
+    }
+
+    /**
+     * Guardrail for a catalog product and user; unknown products fall back to wildcard rules
+     */
+    public Guardrail lookupForProduct(String productId, String userId) {
+        return lookup(productMarginTable.getCategory(productId), productMarginTable.getBrand(productId), segmentOf(userId));
+    }
+
+    /**
+     * Settles a request against a maximum allowed discount, leaving near-limit requests for review
+     */
+    public Verdict classify(double requestedDiscount, double maxAllowedDiscount) {
+        if (Double.isNaN(maxAllowedDiscount)) {
+            return Verdict.REVIEW;
+        }
+        if (requestedDiscount <= maxAllowedDiscount - reviewBand) {
+            return Verdict.APPROVE;
+        }
+        if (requestedDiscount > maxAllowedDiscount + reviewBand) {
+            return Verdict.VETO;
+        }
+        return Verdict.REVIEW;
+    }
+
+    /**
+     * Simplified user segmentation shared by the guardrails and MCP requests
+     */
+    public String segmentOf(String userId) {
+        if (userId == null) {
+            return null;
+        }
+        return userId.hashCode() % 3 == 0 ? "premium" : userId.hashCode() % 3 == 1 ? "standard" : "budget";
+    }
+
+    public Map<String, Object> getStats() {
+        CompiledRules rules = compiled;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("rules", rules.ruleCount);
+        stats.put("tableSlots", rules.keys.length);
+        stats.put("reviewBand", reviewBand);
+        stats.put("rulesIndex", rulesIndex);
+        stats.put("lastReloadMillis", lastReloadMillis);
+        stats.put("skippedRules", skippedRules.get());
+        return stats;
+    }
+
+    /**
+     * Parses one rule per line, e.g. {@code category=Electronics segment=budget margin-share=0.6 max-discount=25}
+     */
+    private List<RuleSpec> parseConfiguredRules() {
+        List<RuleSpec> specs = new ArrayList<>();
+        for (String line : configuredRules.split("\\R")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            Map<String, Object> fields = new HashMap<>();
+            for (String token : trimmed.split("\\s+")) {
+                int separator = token.indexOf('=');
+                if (separator <= 0) {
+                    log.warn("Ignoring malformed guardrail token '{}' in rule '{}'", token, trimmed);
+                    continue;
+                }
+                fields.put(token.substring(0, separator), token.substring(separator + 1));
+            }
+            addRule(specs, fields, "config");
+        }
+        return specs;
+    }
+
+    /**
+     * Adds one parsed rule; a malformed rule is logged and skipped without affecting the others
+     */
+    private void addRule(List<RuleSpec> specs, Map<String, Object> record, String origin) {
+        try {
+            specs.add(RuleSpec.fromRecord(record, origin));
+        } catch (IllegalArgumentException e) {
+            skippedRules.incrementAndGet();
+            log.warn("Skipping malformed {} guardrail rule {}: {}", origin, record, e.getMessage());
+        }
+    }
+
+    private CompiledRules compile(List<RuleSpec> specs) {
+        Guardrail defaultRule = new Guardrail(ProfitProtectionService.PROFIT_PROTECTION_THRESHOLD,
+                maxDiscountPercentage, "default");
+        for (RuleSpec spec : specs) {
+            if (spec.isWildcard()) {
+                defaultRule = spec.toGuardrail(defaultRule);
+            }
+        }
+
+        Dimension categories = new Dimension();
+        Dimension brands = new Dimension();
+        Dimension segments = new Dimension();
+
+        // Later specs (index) override earlier ones (config) for the same attribute combination
+        Map<Long, Guardrail> byKey = new LinkedHashMap<>();
+        for (RuleSpec spec : specs) {
+            if (!spec.isWildcard()) {
+                long key = pack(categories.register(spec.category), brands.register(spec.brand), segments.register(spec.segment));
+                byKey.put(key, spec.toGuardrail(defaultRule));
+            }
+        }
+
+        int capacity = Integer.highestOneBit(Math.max(4, byKey.size() * 2 - 1)) << 1;
+        long[] keys = new long[capacity];
+        Guardrail[] values = new Guardrail[capacity];
+        for (Map.Entry<Long, Guardrail> entry : byKey.entrySet()) {
+            int slot = slotOf(entry.getKey(), capacity - 1);
+            while (keys[slot] != 0) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            keys[slot] = entry.getKey();
+            values[slot] = entry.getValue();
+        }
+        return new CompiledRules(keys, values, defaultRule, categories, brands, segments, byKey.size() + 1);
+    }
+
+    private static long pack(long category, long brand, long segment) {
+        return (category << (2 * DIMENSION_BITS)) | (brand << DIMENSION_BITS) | segment;
+    }
+
+    private static int slotOf(long key, int mask) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    /**
+     * Limits applied to one attribute combination
+     */
+    public static class Guardrail {
+        private final double marginShare;
+        private final double maxDiscount;
+        private final String source;
+
+        private Guardrail(double marginShare, double maxDiscount, String source) {
+            this.marginShare = marginShare;
+            this.maxDiscount = maxDiscount;
+            this.source = source;
+        }
+
+        /**
+         * Maximum discount for a margin in percent, or NaN when the margin is unknown
+         */
+        public double maxAllowedDiscount(double marginPercentage) {
+            return Math.min(marginPercentage * marginShare, maxDiscount);
+        }
+
+        public double getMarginShare() { return marginShare; }
+        public double getMaxDiscount() { return maxDiscount; }
+        public String getSource() { return source; }
+    }
+
+    /**
+     * Dense ids for one rule dimension; 0 means "not constrained"
+     */
+    private static class Dimension {
+        private final Map<String, Integer> ids = new HashMap<>();
+
+        private static boolean isWildcard(String value) {
+            return value == null || value.isBlank() || "*".equals(value);
+        }
+
+        private long register(String value) {
+            if (isWildcard(value)) {
+                return 0;
+            }
+            Integer id = ids.computeIfAbsent(value, key -> ids.size() + 1);
+            if (id > DIMENSION_MASK) {
+                throw new IllegalStateException("Too many distinct guardrail values");
+            }
+            return id;
+        }
+
+        private long idOf(String value) {
+            if (value == null) {
+                return -1;
+            }
+            Integer id = ids.get(value);
+            return id != null ? id : -1;
+        }
+    }
+
+    private static class CompiledRules {
+        private final long[] keys;
+        private final Guardrail[] values;
+        private final Guardrail defaultRule;
+        private final Dimension categories;
+        private final Dimension brands;
+        private final Dimension segments;
+        private final int ruleCount;
+
+        private CompiledRules(long[] keys, Guardrail[] values, Guardrail defaultRule,
+                              Dimension categories, Dimension brands, Dimension segments, int ruleCount) {
+            this.keys = keys;
+            this.values = values;
+            this.defaultRule = defaultRule;
+            this.categories = categories;
+            this.brands = brands;
+            this.segments = segments;
+            this.ruleCount = ruleCount;
+        }
+
+        private Guardrail find(long category, long brand, long segment) {
+            // A value without any rule can only match that dimension's wildcard
+            if (category < 0 || brand < 0 || segment < 0) {
+                return null;
+            }
+            long key = pack(category, brand, segment);
+            if (key == 0) {
+                return null;
+            }
+            int mask = keys.length - 1;
+            for (int slot = slotOf(key, mask); keys[slot] != 0; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+            }
+            return null;
+        }
+    }
+
+    private static class RuleSpec {
+        private String category;
+        private String brand;
+        private String segment;
+        private Double marginShare;
+        private Double maxDiscount;
+        private String origin;
+
+        private static RuleSpec fromRecord(Map<String, Object> record, String origin) {
+            RuleSpec spec = new RuleSpec();
+            spec.category = stringField(record, "category");
+            spec.brand = stringField(record, "brand");
+            spec.segment = stringField(record, "segment");
+            spec.marginShare = numberField(record, "margin-share", "marginShare");
+            spec.maxDiscount = numberField(record, "max-discount", "maxDiscount");
+            spec.origin = origin;
+            return spec;
+        }
+
+        private boolean isWildcard() {
+            return Dimension.isWildcard(category) && Dimension.isWildcard(brand) && Dimension.isWildcard(segment);
+        }
+
+        private Guardrail toGuardrail(Guardrail fallback) {
+            return new Guardrail(
+                    marginShare != null ? marginShare : fallback.marginShare,
+                    maxDiscount != null ? maxDiscount : fallback.maxDiscount,
+                    describe());
+        }
+
+        private String describe() {
+            return origin + "[category=" + (category != null ? category : "*")
+                    + ", brand=" + (brand != null ? brand : "*")
+                    + ", segment=" + (segment != null ? segment : "*") + "]";
+        }
+
+        private static String stringField(Map<String, Object> record, String name) {
+            Object value = record.get(name);
+            return value != null ? value.toString() : null;
+        }
+
+        private static Double numberField(Map<String, Object> record, String... names) {
+            for (String name : names) {
+                Object value = record.get(name);
+                if (value != null) {
+                    double parsed = value instanceof Number number ? number.doubleValue() : Double.parseDouble(value.toString());
+                    if (!Double.isFinite(parsed) || parsed < 0) {
+                        throw new IllegalArgumentException(name + " must be a non-negative number: " + value);
+                    }
+                    return parsed;
+                }
+            }
+            return null;
+        }
+    }
+}
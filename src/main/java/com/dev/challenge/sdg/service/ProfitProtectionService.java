@@ -7,7 +7,10 @@ import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
@@ -15,94 +18,204 @@ import java.util.concurrent.CompletableFuture;
 public class ProfitProtectionService {
     
     private static final Logger log = LoggerFactory.getLogger(ProfitProtectionService.class);
-    private static final double PROFIT_PROTECTION_THRESHOLD = 0.8; // 80% of profit margin
+    static final double PROFIT_PROTECTION_THRESHOLD = 0.8; // 80% of profit margin (default guardrail)
+    static final String VETO_DECISIONS_INDEX = "veto_decisions";
+    // Algolia's default pagination limit
+    private static final int MAX_AUDIT_HITS = 1000;
     
     @Autowired
     private AlgoliaService algoliaService;
     
+    @Autowired
+    private ProductMarginTable productMarginTable;
+    
+    @Autowired
+    private AuditSink auditSink;
+    
+    @Autowired
+    private DecisionRingBuffer decisionRingBuffer;
+    
+    @Autowired
+    private ProfitGuardrailEngine guardrailEngine;
+    
     /**
-     * Validates if a discount exceeds the profit protection threshold
+     * Validates if a discount exceeds the guardrail for the product's category, brand and user segment
      * @param productId The product ID
      * @param requestedDiscountPercentage The requested discount percentage (e.g., 15 for 15%)
      * @param userId The user ID for logging
      * @return ProfitProtectionResult containing validation result and details
      */
     public CompletableFuture<ProfitProtectionResult> validateDiscount(String productId, double requestedDiscountPercentage, String userId) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                log.info("Validating discount protection for product: {}, requested: {}%", productId, requestedDiscountPercentage);
-                
-                // Get profit margin from Algolia
-                CompletableFuture<Double> profitMarginFuture = algoliaService.getProductProfitMargin(productId);
-                Double profitMargin = profitMarginFuture.get();
-                
-                if (profitMargin == null) {
-                    log.warn("No profit margin found for product: {}, allowing discount", productId);
-                    return new ProfitProtectionResult(true, requestedDiscountPercentage, 0.0, "No profit margin data available");
-                }
-                
-                // Convert profit margin to percentage if it's in decimal format
-                double profitMarginPercentage = profitMargin > 1.0 ? profitMargin : profitMargin * 100;
-                
-                // Calculate maximum allowed discount (80% of profit margin)
-                double maxAllowedDiscount = profitMarginPercentage * PROFIT_PROTECTION_THRESHOLD;
-                
-                boolean isAllowed = requestedDiscountPercentage <= maxAllowedDiscount;
-                
-                log.info("Profit protection check - Product: {}, Profit Margin: {}%, Max Allowed: {}%, Requested: {}%, Allowed: {}", 
-                        productId, profitMarginPercentage, maxAllowedDiscount, requestedDiscountPercentage, isAllowed);
-                
-                if (!isAllowed) {
-                    // Log veto decision to Algolia
-                    logVetoDecision(productId, requestedDiscountPercentage, maxAllowedDiscount, userId, profitMarginPercentage);
+        log.debug("Validating discount protection for product: {}, requested: {}%", productId, requestedDiscountPercentage);
+        
+        // Fast path: margins for the whole catalog are held in memory
+        double profitMarginPercentage = productMarginTable.getMarginPercentage(productId);
+        if (!Double.isNaN(profitMarginPercentage)) {
+            return CompletableFuture.completedFuture(
+                    evaluate(productId, requestedDiscountPercentage, userId, profitMarginPercentage));
+        }
+        
+        // Unknown product (e.g. added since the last refresh): read through Algolia once
+        return algoliaService.getProductProfitMargin(productId)
+                .thenApply(profitMargin -> {
+                    if (profitMargin == null) {
+                        log.warn("No profit margin found for product: {}, allowing discount", productId);
+                        return new ProfitProtectionResult(true, requestedDiscountPercentage, 0.0, "No profit margin data available");
+                    }
                     
-                    return new ProfitProtectionResult(false, maxAllowedDiscount, profitMarginPercentage, 
-                            String.format("Discount blocked: Requested %.1f%% exceeds maximum allowed %.1f%% (80%% of %.1f%% profit margin)", 
-                                    requestedDiscountPercentage, maxAllowedDiscount, profitMarginPercentage));
-                }
-                
-                return new ProfitProtectionResult(true, requestedDiscountPercentage, profitMarginPercentage, "Discount approved");
-                
-            } catch (Exception e) {
-                log.error("Error in profit protection validation for product: " + productId, e);
-                // In case of error, allow the discount but log the issue
-                return new ProfitProtectionResult(true, requestedDiscountPercentage, 0.0, "Error in profit validation - discount allowed");
-            }
-        });
+                    productMarginTable.put(productId, profitMargin);
+                    return evaluate(productId, requestedDiscountPercentage, userId,
+                            productMarginTable.getMarginPercentage(productId));
+                })
+                .exceptionally(e -> {
+                    log.error("Error in profit protection validation for product: " + productId, e);
+                    // In case of error, allow the discount but log the issue
+                    return new ProfitProtectionResult(true, requestedDiscountPercentage, 0.0, "Error in profit validation - discount allowed");
+                });
+    }
+    
+    private ProfitProtectionResult evaluate(String productId, double requestedDiscountPercentage, String userId,
+                                            double profitMarginPercentage) {
+        ProfitGuardrailEngine.Guardrail guardrail = guardrailEngine.lookupForProduct(productId, userId);
+        double maxAllowedDiscount = guardrail.maxAllowedDiscount(profitMarginPercentage);
+        boolean isAllowed = requestedDiscountPercentage <= maxAllowedDiscount;
+        
+        log.debug("Profit protection check - Product: {}, Profit Margin: {}%, Max Allowed: {}% ({}), Requested: {}%, Allowed: {}", 
+                productId, profitMarginPercentage, maxAllowedDiscount, guardrail.getSource(), requestedDiscountPercentage, isAllowed);
+        
+        if (!isAllowed) {
+            // Log veto decision to Algolia
+            logVetoDecision(productId, requestedDiscountPercentage, maxAllowedDiscount, userId, profitMarginPercentage, guardrail);
+            
+            return new ProfitProtectionResult(false, maxAllowedDiscount, profitMarginPercentage, 
+                    String.format("Discount blocked: Requested %.1f%% exceeds maximum allowed %.1f%% (%.0f%% of %.1f%% profit margin, capped at %.1f%%)", 
+                            requestedDiscountPercentage, maxAllowedDiscount, guardrail.getMarginShare() * 100,
+                            profitMarginPercentage, guardrail.getMaxDiscount()));
+        }
+        
+        recordApproval(productId, requestedDiscountPercentage, maxAllowedDiscount, userId, profitMarginPercentage);
+        return new ProfitProtectionResult(true, requestedDiscountPercentage, profitMarginPercentage, "Discount approved");
     }
     
     /**
-     * Logs a veto decision to Algolia for analytics and audit purposes
+     * Approvals only go to the in-memory decision buffer, not to the audit index
      */
-    private void logVetoDecision(String productId, double requestedDiscount, double maxAllowedDiscount, String userId, double profitMargin) {
+    private void recordApproval(String productId, double requestedDiscount, double maxAllowedDiscount, String userId, double profitMargin) {
+        long now = System.currentTimeMillis();
+        Map<String, Object> approvalEvent = new HashMap<>();
+        approvalEvent.put("eventType", "discount_approval");
+        approvalEvent.put("productId", productId);
+        approvalEvent.put("userId", userId);
+        approvalEvent.put("requestedDiscount", requestedDiscount);
+        approvalEvent.put("maxAllowedDiscount", maxAllowedDiscount);
+        approvalEvent.put("profitMargin", profitMargin);
+        approvalEvent.put("timestamp", LocalDateTime.now().toInstant(ZoneOffset.UTC).toString());
+        approvalEvent.put("timestampMillis", now);
+        decisionRingBuffer.record(true, productId, userId, now, approvalEvent);
+    }
+    
+    /**
+     * Queues a veto decision for the batched audit writer
+     */
+    private void logVetoDecision(String productId, double requestedDiscount, double maxAllowedDiscount, String userId, double profitMargin,
+                                 ProfitGuardrailEngine.Guardrail guardrail) {
         try {
+            long now = System.currentTimeMillis();
             Map<String, Object> vetoEvent = new HashMap<>();
-            vetoEvent.put("objectID", "veto-" + System.currentTimeMillis() + "-" + productId);
+            vetoEvent.put("objectID", "veto-" + now + "-" + productId);
             vetoEvent.put("eventType", "discount_veto");
             vetoEvent.put("productId", productId);
             vetoEvent.put("userId", userId);
             vetoEvent.put("requestedDiscount", requestedDiscount);
             vetoEvent.put("maxAllowedDiscount", maxAllowedDiscount);
             vetoEvent.put("profitMargin", profitMargin);
-            vetoEvent.put("protectionThreshold", PROFIT_PROTECTION_THRESHOLD);
+            vetoEvent.put("protectionThreshold", guardrail.getMarginShare());
+            vetoEvent.put("guardrail", guardrail.getSource());
             vetoEvent.put("timestamp", LocalDateTime.now().toInstant(ZoneOffset.UTC).toString());
-            vetoEvent.put("reason", "Discount exceeds profit protection threshold");
+            vetoEvent.put("timestampMillis", now);
+            vetoEvent.put("reason", "Discount exceeds profit protection guardrail");
             
-            // Log to Algolia asynchronously
-            algoliaService.logUserEvent("veto_decisions", vetoEvent);
+            decisionRingBuffer.record(false, productId, userId, now, vetoEvent);
+            auditSink.record(VETO_DECISIONS_INDEX, vetoEvent);
             
-            log.info("Logged veto decision to Algolia for product: {}, user: {}", productId, userId);
+            log.info("Queued veto decision for product: {}, user: {}", productId, userId);
             
         } catch (Exception e) {
-            log.error("Failed to log veto decision to Algolia", e);
+            log.error("Failed to queue veto decision", e);
+        }
+    }
+    
+    /**
+     * Gets recent decisions newest first. Pages the in-memory buffer can fill never touch Algolia.
+     * Vetoes beyond the buffer (older ones, or any from before the last restart) continue from the
+     * veto and MCP decision audit indexes. Approvals are not audited, so for them the buffer is
+     * all there is; such pages are complete only while the buffer still reaches back to process start.
+     * @param approved true for approvals, false for vetoes, null for both
+     */
+    public CompletableFuture<DecisionRingBuffer.Page> getRecentDecisions(Boolean approved, String productId, String userId,
+                                                                        int offset, int limit) {
+        DecisionRingBuffer.Page page = decisionRingBuffer.query(approved, productId, userId, offset, limit);
+        if (page.isComplete()) {
+            return CompletableFuture.completedFuture(page);
         }
+        if (!Boolean.FALSE.equals(approved)) {
+            return CompletableFuture.completedFuture(new DecisionRingBuffer.Page(
+                    page.getDecisions(), decisionRingBuffer.retainsSinceStart(), "memory"));
+        }
+        
+        // Continue strictly before the oldest veto the buffer scanned, skipping what is left of the offset
+        List<Map<String, Object>> memory = page.getDecisions();
+        int indexOffset = Math.max(0, offset - page.getMatched());
+        int remaining = limit - memory.size();
+        return searchIndexedVetoes(productId, userId, page.getOldestMatchedMillis(), indexOffset, remaining)
+                .thenApply(older -> {
+                    List<Map<String, Object>> decisions = new ArrayList<>(memory);
+                    decisions.addAll(older);
+                    return new DecisionRingBuffer.Page(decisions, true, memory.isEmpty() ? "index" : "memory+index");
+                });
     }
     
     /**
-     * Gets recent veto decisions for analytics
+     * Vetoes from both audit indexes older than {@code beforeMillis}, merged newest first
      */
-    public CompletableFuture<java.util.List<Map<String, Object>>> getRecentVetoDecisions(int limit) {
-        return algoliaService.searchUserEvents("veto_decisions", "discount_veto", limit);
+    private CompletableFuture<List<Map<String, Object>>> searchIndexedVetoes(String productId, String userId, long beforeMillis,
+                                                                             int offset, int limit) {
+        StringBuilder common = new StringBuilder();
+        if (beforeMillis != Long.MAX_VALUE) {
+            common.append(" AND timestampMillis < ").append(beforeMillis);
+        }
+        if (productId != null) {
+            common.append(" AND productId:\"").append(productId).append('"');
+        }
+        if (userId != null) {
+            common.append(" AND userId:\"").append(userId).append('"');
+        }
+        // Both indexes rank newest first; each must supply up to offset + limit hits for the merge
+        int window = Math.min(offset + limit, MAX_AUDIT_HITS);
+        CompletableFuture<Map<String, Object>> vetoes = algoliaService.searchIndexRaw(
+                VETO_DECISIONS_INDEX, "", "eventType:discount_veto" + common, null, window);
+        CompletableFuture<Map<String, Object>> mcpVetoes = algoliaService.searchIndexRaw(
+                McpProfitProtectionService.MCP_DECISIONS_INDEX, "", "eventType:mcp_profit_analysis AND approved:false" + common, null, window);
+        
+        return vetoes.thenCombine(mcpVetoes, (first, second) -> {
+            List<Map<String, Object>> merged = new ArrayList<>(hitsOf(first));
+            merged.addAll(hitsOf(second));
+            merged.sort(Comparator.comparingLong(ProfitProtectionService::timestampMillisOf).reversed());
+            return merged.subList(Math.min(offset, merged.size()), Math.min(offset + limit, merged.size()));
+        }).exceptionally(error -> {
+            log.error("Error searching audited veto decisions: {}", error.getMessage());
+            return List.of();
+        });
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> hitsOf(Map<String, Object> result) {
+        Object hits = result.get("hits");
+        return hits instanceof List<?> list ? (List<Map<String, Object>>) list : List.of();
+    }
+    
+    private static long timestampMillisOf(Map<String, Object> decision) {
+        return decision.get("timestampMillis") instanceof Number millis ? millis.longValue() : 0L;
     }
     
     /**
@@ -0,0 +1,214 @@
+package com.dev.challenge.sdg.service;
+
+import com.dev.challenge.sdg.model.UserEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory per-user windows of recent behavior events.
+ * Events are kept encoded by {@link UserEventCodec} in one length-prefixed byte buffer
+ * per user, which keeps several days of history for active users affordable.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RecentEventStore implements UserEventListener {
+
+    private final UserEventCodec codec;
+
+    @Value("${events.recent.retention-hours:72}")
+    private int retentionHours;
+
+    @Value("${events.recent.max-events-per-user:500}")
+    private int maxEventsPerUser;
+
+    private final Map<String, UserWindow> windows = new ConcurrentHashMap<>();
+
+    @Override
+    public void onUserEvent(UserEvent event) {
+        append(event);
+    }
+
+    @Override
+    public boolean replayOnStartup() {
+        return true;
+    }
+
+    @Override
+    public long replayHorizonMillis() {
+        return TimeUnit.HOURS.toMillis(retentionHours);
+    }
+
+    public void append(UserEvent event) {
+        if (event == null || event.getUserId() == null) {
+            return;
+        }
+        if (event.getTimestamp() != null
+                && event.getTimestamp().toEpochMilli() < System.currentTimeMillis() - TimeUnit.HOURS.toMillis(retentionHours)) {
+            return;
+        }
+        byte[] record = codec.encode(event);
+        windows.compute(event.getUserId(), (key, window) -> {
+            UserWindow target = window != null ? window : new UserWindow();
+            target.append(record, maxEventsPerUser);
+            return target;
+        });
+    }
+
+    /**
+     * Returns up to limit decoded events for the user, newest first
+     */
+    public List<UserEvent> getRecentEvents(String userId, int limit) {
+        UserWindow window = windows.get(userId);
+        if (window == null) {
+            return List.of();
+        }
+        return window.decodeNewest(limit);
+    }
+
+    public boolean hasEvents(String userId) {
+        return countEvents(userId) > 0;
+    }
+
+    public int countEvents(String userId) {
+        UserWindow window = windows.get(userId);
+        return window != null ? window.count : 0;
+    }
+
+    public Map<String, Object> getStats() {
+        long events = 0;
+        long bytes = 0;
+        for (UserWindow window : windows.values()) {
+            events += window.count;
+            bytes += window.usedBytes();
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("users", windows.size());
+        stats.put("events", events);
+        stats.put("encodedBytes", bytes);
+        stats.put("avgBytesPerEvent", events > 0 ? (double) bytes / events : 0.0);
+        return stats;
+    }
+
+    /**
+     * Drops events past the retention period and empty windows
+     */
+    @Scheduled(fixedDelayString = "${events.recent.sweep-interval-ms:300000}")
+    public void evictExpired() {
+        long cutoff = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(retentionHours);
+        for (String userId : windows.keySet()) {
+            windows.computeIfPresent(userId, (key, window) -> window.trimOlderThan(cutoff) == 0 ? null : window);
+        }
+    }
+
+    private class UserWindow {
+        private byte[] data = new byte[256];
+        private int start;
+        private int end;
+        private volatile int count;
+
+        synchronized void append(byte[] record, int maxEvents) {
+            int needed = varIntSize(record.length) + record.length;
+            if (end + needed > data.length) {
+                compact(needed);
+            }
+            end = writeVarInt(data, end, record.length);
+            System.arraycopy(record, 0, data, end, record.length);
+            end += record.length;
+            count++;
+
+            while (count > maxEvents) {
+                dropOldest();
+            }
+        }
+
+        synchronized int trimOlderThan(long cutoffMillis) {
+            while (count > 0) {
+                UserEventCodec.ByteSource in = new UserEventCodec.ByteSource(data, start);
+                in.readVarInt();
+                if (codec.readTimestamp(data, in.position()) >= cutoffMillis) {
+                    break;
+                }
+                dropOldest();
+            }
+            return count;
+        }
+
+        synchronized List<UserEvent> decodeNewest(int limit) {
+            int[] offsets = new int[count];
+            UserEventCodec.ByteSource in = new UserEventCodec.ByteSource(data, start);
+            for (int i = 0; i < count; i++) {
+                int length = in.readVarInt();
+                offsets[i] = in.position();
+                in = new UserEventCodec.ByteSource(data, in.position() + length);
+            }
+
+            int size = Math.min(limit, count);
+            List<UserEvent> events = new ArrayList<>(size);
+            for (int i = count - 1; i >= count - size; i--) {
+                events.add(codec.decode(data, offsets[i]));
+            }
+            return events;
+        }
+
+        int usedBytes() {
+            return end - start;
+        }
+
+        private void dropOldest() {
+            UserEventCodec.ByteSource in = new UserEventCodec.ByteSource(data, start);
+            int length = in.readVarInt();
+            start = in.position() + length;
+            count--;
+            if (count == 0) {
+                start = 0;
+                end = 0;
+            }
+        }
+
+        private void compact(int needed) {
+            int used = end - start;
+            byte[] target = used + needed > data.length ? new byte[Math.max(data.length * 2, used + needed)] : data;
+            System.arraycopy(data, start, target, 0, used);
+            data = target;
+            start = 0;
+            end = used;
+            // Shrink buffers of users whose windows were trimmed back
+            if (data.length > 4096 && used + needed < data.length / 4) {
+                data = Arrays.copyOf(data, Math.max(256, (used + needed) * 2));
+            }
+        }
+    }
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static int writeVarInt(byte[] target, int offset, int value) {
+        while ((value & ~0x7F) != 0) {
+            target[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        target[offset++] = (byte) value;
+        return offset;
+    }
+}
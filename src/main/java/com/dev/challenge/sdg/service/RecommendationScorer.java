@@ -0,0 +1,298 @@
+package com.dev.challenge.sdg.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntPredicate;
+
+/**
+ * Scores every product of a {@link CatalogSnapshot} with a weighted formula over its primitive
+ * columns and keeps the best K in bounded min-heaps. Large catalogs are split into chunks that
+ * are scored in parallel on the common fork-join pool and whose heaps are merged pairwise.
+ * Equal scores are ordered by product id, so rankings are stable across runs and snapshots.
+ */
+@Slf4j
+@Service
+public class RecommendationScorer {
+
+    @Value("${recommendations.weights.rating:0.3}")
+    private float ratingWeight;
+
+    @Value("${recommendations.weights.margin:0.2}")
+    private float marginWeight;
+
+    @Value("${recommendations.weights.popularity:0.3}")
+    private float popularityWeight;
+
+    @Value("${recommendations.weights.availability:0.2}")
+    private float availabilityWeight;
+
+    @Value("${recommendations.parallel-threshold:50000}")
+    private int parallelThreshold;
+
+    @Value("${recommendations.chunk-size:16384}")
+    private int chunkSize;
+
+    private static final float REVIEW_SATURATION = 1000f;
+    private static final float INVENTORY_SATURATION = 100f;
+
+    private final AtomicLong rankings = new AtomicLong();
+    private final AtomicLong itemsScored = new AtomicLong();
+    private volatile long lastRankingNanos;
+
+    /**
+     * Configured weights with no category boosts; callers adjust them per user
+     */
+    public Weights defaultWeights() {
+        return new Weights(ratingWeight, marginWeight, popularityWeight, availabilityWeight, null);
+    }
+
+    /**
+     * Best {@code k} products matching the filter, highest score first
+     */
+    public List<Scored> topK(CatalogSnapshot catalog, Weights weights, int k, IntPredicate filter) {
+        long started = System.nanoTime();
+        int size = catalog.size();
+        TopK best;
+        if (k <= 0 || size == 0) {
+            best = new TopK(catalog, Math.max(k, 0));
+        } else if (size < parallelThreshold) {
+            best = score(catalog, weights, k, filter, 0, size);
+        } else {
+            best = ForkJoinPool.commonPool().invoke(new ScoreTask(catalog, weights, k, filter, 0, size, Math.max(1024, chunkSize)));
+        }
+
+        rankings.incrementAndGet();
+        itemsScored.addAndGet(size);
+        lastRankingNanos = System.nanoTime() - started;
+        return best.sortedDescending();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("rankings", rankings.get());
+        stats.put("itemsScored", itemsScored.get());
+        stats.put("lastRankingMicros", lastRankingNanos / 1000);
+        stats.put("parallelThreshold", parallelThreshold);
+        return stats;
+    }
+
+    /**
+     * Scores one chunk straight off the snapshot columns
+     */
+    private static TopK score(CatalogSnapshot catalog, Weights weights, int k, IntPredicate filter, int from, int to) {
+        float[] ratings = catalog.ratingColumn();
+        float[] margins = catalog.marginColumn();
+        int[] reviewCounts = catalog.reviewCountColumn();
+        int[] inventory = catalog.inventoryColumn();
+        int[] categoryIds = catalog.categoryIdColumn();
+        float[] boosts = weights.categoryBoosts;
+
+        TopK best = new TopK(catalog, k);
+        for (int position = from; position < to; position++) {
+            if (filter != null && !filter.test(position)) {
+                continue;
+            }
+            float margin = margins[position];
+            // Margins are fractions in the index; tolerate percentages and unknown values
+            margin = margin != margin ? 0f : margin > 1f ? margin * 0.01f : margin;
+            float score = weights.rating * Math.min(ratings[position] * 0.2f, 1f)
+                    + weights.margin * margin
+                    + weights.popularity * Math.min(reviewCounts[position] * (1f / REVIEW_SATURATION), 1f)
+                    + weights.availability * Math.min(Math.max(inventory[position], 0) * (1f / INVENTORY_SATURATION), 1f);
+            int categoryId = categoryIds[position];
+            if (boosts != null && categoryId >= 0 && categoryId < boosts.length) {
+                score += boosts[categoryId];
+            }
+            // Cheap rejection before the heap, which only needs the id on exact ties
+            if (best.size == k && score < best.scores[0]) {
+                continue;
+            }
+            best.offer(position, score);
+        }
+        return best;
+    }
+
+    private static class ScoreTask extends RecursiveTask<TopK> {
+        private final CatalogSnapshot catalog;
+        private final Weights weights;
+        private final int k;
+        private final IntPredicate filter;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+
+        private ScoreTask(CatalogSnapshot catalog, Weights weights, int k, IntPredicate filter, int from, int to, int chunkSize) {
+            this.catalog = catalog;
+            this.weights = weights;
+            this.k = k;
+            this.filter = filter;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected TopK compute() {
+            if (to - from <= chunkSize) {
+                return score(catalog, weights, k, filter, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            ScoreTask left = new ScoreTask(catalog, weights, k, filter, from, middle, chunkSize);
+            left.fork();
+            TopK right = new ScoreTask(catalog, weights, k, filter, middle, to, chunkSize).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    /**
+     * Bounded min-heap of (position, score); the root is the weakest kept entry
+     */
+    private static class TopK {
+        private final CatalogSnapshot catalog;
+        private final int[] positions;
+        private final float[] scores;
+        private int size;
+
+        private TopK(CatalogSnapshot catalog, int k) {
+            this.catalog = catalog;
+            this.positions = new int[k];
+            this.scores = new float[k];
+        }
+
+        private void offer(int position, float score) {
+            if (size < positions.length) {
+                positions[size] = position;
+                scores[size] = score;
+                siftUp(size++);
+            } else if (size > 0 && worse(positions[0], scores[0], position, score)) {
+                positions[0] = position;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        private TopK merge(TopK other) {
+            for (int i = 0; i < other.size; i++) {
+                offer(other.positions[i], other.scores[i]);
+            }
+            return this;
+        }
+
+        private List<Scored> sortedDescending() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> worse(positions[a], scores[a], positions[b], scores[b]) ? 1
+                    : worse(positions[b], scores[b], positions[a], scores[a]) ? -1 : 0);
+            List<Scored> result = new ArrayList<>(size);
+            for (Integer index : order) {
+                result.add(new Scored(positions[index], scores[index]));
+            }
+            return result;
+        }
+
+        /**
+         * Whether entry a ranks below entry b: lower score, or equal score and larger product id
+         */
+        private boolean worse(int positionA, float scoreA, int positionB, float scoreB) {
+            if (scoreA != scoreB) {
+                return scoreA < scoreB;
+            }
+            return catalog.product(positionA).getObjectId().compareTo(catalog.product(positionB).getObjectId()) > 0;
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (!worse(positions[index], scores[index], positions[parent], scores[parent])) {
+                    return;
+                }
+                swap(index, parent);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index) {
+            while (true) {
+                int left = 2 * index + 1;
+                if (left >= size) {
+                    return;
+                }
+                int weakest = left;
+                int right = left + 1;
+                if (right < size && worse(positions[right], scores[right], positions[left], scores[left])) {
+                    weakest = right;
+                }
+                if (!worse(positions[weakest], scores[weakest], positions[index], scores[index])) {
+                    return;
+                }
+                swap(index, weakest);
+                index = weakest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int position = positions[a];
+            positions[a] = positions[b];
+            positions[b] = position;
+            float score = scores[a];
+            scores[a] = scores[b];
+            scores[b] = score;
+        }
+    }
+
+    /**
+     * Scoring weights; {@code categoryBoosts} is indexed by snapshot category id and may be null
+     */
+    public static class Weights {
+        private final float rating;
+        private final float margin;
+        private final float popularity;
+        private final float availability;
+        private final float[] categoryBoosts;
+
+        public Weights(float rating, float margin, float popularity, float availability, float[] categoryBoosts) {
+            this.rating = rating;
+            this.margin = margin;
+            this.popularity = popularity;
+            this.availability = availability;
+            this.categoryBoosts = categoryBoosts;
+        }
+
+        public Weights withCategoryBoosts(float[] boosts) {
+            return new Weights(rating, margin, popularity, availability, boosts);
+        }
+
+        public float getRating() { return rating; }
+        public float getMargin() { return margin; }
+        public float getPopularity() { return popularity; }
+        public float getAvailability() { return availability; }
+    }
+
+    /**
+     * One ranked product: its snapshot position and score
+     */
+    public static class Scored {
+        private final int position;
+        private final float score;
+
+        public Scored(int position, float score) {
+            this.position = position;
+            this.score = score;
+        }
+
+        public int getPosition() { return position; }
+        public float getScore() { return score; }
+    }
+}
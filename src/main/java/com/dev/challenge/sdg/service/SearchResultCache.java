@@ -0,0 +1,224 @@
+package com.dev.challenge.sdg.service;
+
+import com.dev.challenge.sdg.model.Product;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Short-lived cache of product search results keyed by normalized query, limit and filters.
+ * Only product IDs are stored; hits are resolved against the catalog replica, so cached
+ * queries always return current product data. Entries expire after a short TTL and are
+ * dropped as soon as a catalog change touches one of their products or a product matching
+ * their query terms; a full catalog reload clears the cache.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SearchResultCache {
+
+    private final CatalogReplicaService catalogReplicaService;
+
+    @Value("${search.cache.ttl-ms:30000}")
+    private long ttlMs;
+
+    @Value("${search.cache.max-entries:10000}")
+    private int maxEntries;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * Cached results, or null on a miss (unknown, expired or no longer resolvable)
+     */
+    public List<Product> get(String query, int limit, String filters) {
+        String key = keyOf(query, limit, filters);
+        Entry entry = entries.get(key);
+        if (entry == null || entry.isExpired(ttlMs)) {
+            if (entry != null) {
+                entries.remove(key, entry);
+            }
+            misses.incrementAndGet();
+            return null;
+        }
+        CatalogSnapshot catalog = catalogReplicaService.getSnapshot();
+        List<Product> products = new ArrayList<>(entry.productIds.length);
+        for (String productId : entry.productIds) {
+            int position = catalog.positionOf(productId);
+            if (position < 0) {
+                entries.remove(key, entry);
+                misses.incrementAndGet();
+                return null;
+            }
+            products.add(catalog.product(position));
+        }
+        entry.hits.increment();
+        hits.incrementAndGet();
+        return products;
+    }
+
+    /**
+     * Caches results that the catalog replica can resolve
+     */
+    public void put(String query, int limit, String filters, List<Product> products) {
+        CatalogSnapshot catalog = catalogReplicaService.getSnapshot();
+        String[] productIds = new String[products.size()];
+        for (int i = 0; i < productIds.length; i++) {
+            productIds[i] = products.get(i).getObjectId();
+            if (catalog.positionOf(productIds[i]) < 0) {
+                return;
+            }
+        }
+        String key = keyOf(query, limit, filters);
+        if (entries.size() >= maxEntries && !entries.containsKey(key)) {
+            evict();
+        }
+        String normalizedQuery = normalize(query);
+        entries.put(key, new Entry(normalizedQuery, Set.copyOf(LocalProductSearchIndex.tokenize(normalizedQuery)), productIds));
+    }
+
+    /**
+     * Drops entries touched by a catalog delta; a full load clears everything
+     */
+    @EventListener
+    public void onCatalogRefreshed(CatalogRefreshedEvent event) {
+        if (event.isFullLoad()) {
+            invalidations.addAndGet(entries.size());
+            entries.clear();
+            return;
+        }
+        Set<String> changedIds = new HashSet<>();
+        Set<String> changedTerms = new HashSet<>();
+        for (Product product : event.getChangedProducts()) {
+            changedIds.add(product.getObjectId());
+            changedTerms.addAll(LocalProductSearchIndex.tokenize(product.getName()));
+            changedTerms.addAll(LocalProductSearchIndex.tokenize(product.getBrand()));
+            changedTerms.addAll(LocalProductSearchIndex.tokenize(product.getCategory()));
+            changedTerms.addAll(LocalProductSearchIndex.tokenize(product.getDescription()));
+            if (product.getTags() != null) {
+                product.getTags().forEach(tag -> changedTerms.addAll(LocalProductSearchIndex.tokenize(tag)));
+            }
+        }
+        int before = entries.size();
+        entries.values().removeIf(entry -> entry.touches(changedIds, changedTerms));
+        int removed = before - entries.size();
+        if (removed > 0) {
+            invalidations.addAndGet(removed);
+            log.debug("Invalidated {} cached searches after {} product changes", removed, changedIds.size());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("entries", entries.size());
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", hitCount + missCount > 0 ? (double) hitCount / (hitCount + missCount) : 0.0);
+        stats.put("invalidations", invalidations.get());
+        stats.put("ttlMs", ttlMs);
+
+        Map<String, Long> topQueries = new LinkedHashMap<>();
+        entries.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, Entry> e) -> e.getValue().hits.sum()).reversed())
+                .limit(20)
+                .forEach(e -> topQueries.put(e.getKey(), e.getValue().hits.sum()));
+        stats.put("topQueries", topQueries);
+        return stats;
+    }
+
+    /**
+     * Lower-cased query terms separated by single spaces, so case and punctuation variants share an entry
+     */
+    static String normalize(String query) {
+        if (query == null) {
+            return "";
+        }
+        StringBuilder normalized = new StringBuilder(query.length());
+        boolean separator = false;
+        for (int i = 0; i < query.length(); ) {
+            int codePoint = query.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (Character.isLetterOrDigit(codePoint)) {
+                if (separator && normalized.length() > 0) {
+                    normalized.append(' ');
+                }
+                normalized.appendCodePoint(Character.toLowerCase(codePoint));
+                separator = false;
+            } else {
+                separator = true;
+            }
+        }
+        return normalized.toString();
+    }
+
+    private static String keyOf(String query, int limit, String filters) {
+        return normalize(query) + "|" + limit + "|" + (filters != null ? filters.trim() : "");
+    }
+
+    // Expired entries go first; if that is not enough, the less popular half is dropped
+    private void evict() {
+        entries.values().removeIf(entry -> entry.isExpired(ttlMs));
+        if (entries.size() < maxEntries) {
+            return;
+        }
+        List<Map.Entry<String, Entry>> byHits = new ArrayList<>(entries.entrySet());
+        byHits.sort(Comparator.comparingLong(e -> e.getValue().hits.sum()));
+        for (int i = 0; i < byHits.size() / 2; i++) {
+            entries.remove(byHits.get(i).getKey(), byHits.get(i).getValue());
+        }
+    }
+
+    private static class Entry {
+        private final String query;
+        private final Set<String> queryTerms;
+        private final String[] productIds;
+        private final long createdAtMillis = System.currentTimeMillis();
+        private final LongAdder hits = new LongAdder();
+
+        private Entry(String query, Set<String> queryTerms, String[] productIds) {
+            this.query = query;
+            this.queryTerms = queryTerms;
+            this.productIds = productIds;
+        }
+
+        private boolean isExpired(long ttlMs) {
+            return System.currentTimeMillis() - createdAtMillis > ttlMs;
+        }
+
+        private boolean touches(Set<String> changedIds, Set<String> changedTerms) {
+            // A blank query lists the whole catalog, so any change can alter it
+            if (query.isEmpty()) {
+                return true;
+            }
+            for (String productId : productIds) {
+                if (changedIds.contains(productId)) {
+                    return true;
+                }
+            }
+            for (String term : queryTerms) {
+                if (changedTerms.contains(term)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package com.dev.challenge.sdg.service;
+
+import com.dev.challenge.sdg.model.Product;
+import com.dev.challenge.sdg.model.UserEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-user category and brand affinity, maintained incrementally from ingested events joined
+ * against the catalog replica. Each profile is two small sparse vectors (dictionary ids and
+ * float weights) that decay with a half-life and keep only the strongest entries.
+ * Events that arrive before the catalog is loaded (log replay on startup) are buffered and
+ * applied once it is. Profiles without events for {@code personalization.profile-idle-hours}
+ * are dropped, and the least recently active ones go once there are more than
+ * {@code personalization.max-profiles}.
+ * <p>
+ * Profiles are built only from events this instance ingests or replays from its own log, so a
+ * new instance serves unpersonalized results until its users generate events there.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserAffinityService implements UserEventListener {
+
+    // Resolved lazily: the replica depends on AlgoliaService, which reranks with this service
+    private final ObjectProvider<CatalogReplicaService> catalogReplica;
+
+    @Value("${personalization.max-entries-per-dimension:16}")
+    private int maxEntries;
+
+    @Value("${personalization.decay-half-life-hours:168}")
+    private double halfLifeHours;
+
+    @Value("${personalization.category-boost:0.3}")
+    private float categoryBoost;
+
+    @Value("${personalization.brand-weight:0.5}")
+    private float brandWeight;
+
+    @Value("${personalization.profile-idle-hours:672}")
+    private long profileIdleHours;
+
+    @Value("${personalization.max-profiles:500000}")
+    private int maxProfiles;
+
+    @Value("${personalization.pending-capacity:100000}")
+    private int pendingCapacity;
+
+    @Value("#{${personalization.event-weights:{:}}}")
+    private Map<String, Number> eventWeights;
+
+    private final EventDictionary categories = new EventDictionary();
+    private final EventDictionary brands = new EventDictionary();
+    private final Map<String, Profile> profiles = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<UserEvent> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingSize = new AtomicInteger();
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong unresolved = new AtomicLong();
+    private final AtomicLong evictedProfiles = new AtomicLong();
+
+    @Override
+    public void onUserEvent(UserEvent event) {
+        if (event == null || event.getUserId() == null || event.getProductId() == null) {
+            return;
+        }
+        CatalogReplicaService replica = catalogReplica.getIfAvailable();
+        CatalogSnapshot catalog = replica != null ? replica.getSnapshot() : CatalogSnapshot.empty();
+        if (catalog.size() == 0) {
+            if (pendingSize.incrementAndGet() <= pendingCapacity) {
+                pending.add(event);
+            } else {
+                pendingSize.decrementAndGet();
+                unresolved.incrementAndGet();
+            }
+            return;
+        }
+        apply(event, catalog);
+    }
+
+    @Override
+    public boolean replayOnStartup() {
+        return true;
+    }
+
+    @Override
+    public long replayHorizonMillis() {
+        // Older events would only rebuild profiles the sweep drops
+        return TimeUnit.HOURS.toMillis(profileIdleHours);
+    }
+
+    /**
+     * Drops idle profiles, then the least recently active ones above {@code max-profiles}
+     */
+    @Scheduled(fixedDelayString = "${personalization.sweep-interval-ms:600000}")
+    public void evictProfiles() {
+        long cutoff = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(profileIdleHours);
+        int before = profiles.size();
+        profiles.values().removeIf(profile -> profile.lastEventMillis < cutoff);
+        int excess = profiles.size() - maxProfiles;
+        if (excess > 0) {
+            long[] lastEvents = profiles.values().stream().mapToLong(profile -> profile.lastEventMillis).sorted().toArray();
+            long oldestKept = lastEvents[Math.min(excess, lastEvents.length - 1)];
+            profiles.values().removeIf(profile -> profile.lastEventMillis < oldestKept);
+        }
+        int evicted = before - profiles.size();
+        if (evicted > 0) {
+            evictedProfiles.addAndGet(evicted);
+            log.debug("Evicted {} user affinity profiles, {} remain", evicted, profiles.size());
+        }
+    }
+
+    /**
+     * Applies events buffered while the catalog was still empty
+     */
+    @EventListener
+    public void onCatalogRefreshed(CatalogRefreshedEvent event) {
+        if (pendingSize.get() == 0 || event.getSnapshot().size() == 0) {
+            return;
+        }
+        int drained = 0;
+        UserEvent buffered;
+        while ((buffered = pending.poll()) != null) {
+            pendingSize.decrementAndGet();
+            apply(buffered, event.getSnapshot());
+            drained++;
+        }
+        log.info("Applied {} buffered events to user affinity profiles", drained);
+    }
+
+    /**
+     * Reorders products by the user's category and brand affinity, then rating, keeping the
+     * incoming order for ties. Each product is scored once; the sort compares primitives.
+     */
+    public List<Product> rerank(List<Product> products, String userId) {
+        Profile profile = userId != null ? profiles.get(userId) : null;
+        if (profile == null || products.size() < 2) {
+            return products;
+        }
+        Vectors vectors = profile.snapshot();
+        int size = products.size();
+        double[] affinities = new double[size];
+        double[] ratings = new double[size];
+        for (int i = 0; i < size; i++) {
+            Product product = products.get(i);
+            affinities[i] = weightOf(vectors.categoryIds, vectors.categoryWeights, find(categories, product.getCategory()))
+                    + brandWeight * weightOf(vectors.brandIds, vectors.brandWeights, find(brands, product.getBrand()));
+            ratings[i] = product.getAverageRating() != null ? product.getAverageRating() : 0.0;
+        }
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int byAffinity = Double.compare(affinities[b], affinities[a]);
+            return byAffinity != 0 ? byAffinity : Double.compare(ratings[b], ratings[a]);
+        });
+        List<Product> reranked = new ArrayList<>(size);
+        for (Integer index : order) {
+            reranked.add(products.get(index));
+        }
+        return reranked;
+    }
+
+    /**
+     * Category boosts indexed by the snapshot's category ids, for catalog-wide scoring; null without a profile
+     */
+    public float[] categoryBoosts(String userId, CatalogSnapshot catalog) {
+        Profile profile = userId != null ? profiles.get(userId) : null;
+        if (profile == null) {
+            return null;
+        }
+        Vectors vectors = profile.snapshot();
+        float total = 0;
+        for (float weight : vectors.categoryWeights) {
+            total += weight;
+        }
+        if (total <= 0) {
+            return null;
+        }
+        float[] boosts = new float[catalog.categoryCount()];
+        for (int i = 0; i < vectors.categoryIds.length; i++) {
+            int categoryId = catalog.categoryIdOf(categories.valueOf(vectors.categoryIds[i]));
+            if (categoryId >= 0) {
+                boosts[categoryId] = categoryBoost * vectors.categoryWeights[i] / total;
+            }
+        }
+        return boosts;
+    }
+
+    /**
+     * Normalized category and brand affinities of a user, strongest first
+     */
+    public Map<String, Object> getProfile(String userId) {
+        Profile profile = profiles.get(userId);
+        Map<String, Object> result = new HashMap<>();
+        result.put("userId", userId);
+        if (profile == null) {
+            result.put("categories", Map.of());
+            result.put("brands", Map.of());
+            return result;
+        }
+        Vectors vectors = profile.snapshot();
+        result.put("categories", describe(vectors.categoryIds, vectors.categoryWeights, categories));
+        result.put("brands", describe(vectors.brandIds, vectors.brandWeights, brands));
+        return result;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("profiles", profiles.size());
+        stats.put("evictedProfiles", evictedProfiles.get());
+        stats.put("appliedEvents", applied.get());
+        stats.put("pendingEvents", pendingSize.get());
+        stats.put("droppedUnresolvedEvents", unresolved.get());
+        stats.put("categories", categories.size());
+        stats.put("brands", brands.size());
+        return stats;
+    }
+
+    private void apply(UserEvent event, CatalogSnapshot catalog) {
+        int position = catalog.positionOf(event.getProductId());
+        if (position < 0) {
+            unresolved.incrementAndGet();
+            return;
+        }
+        Number configuredWeight = eventWeights.get(event.getEventType());
+        float weight = configuredWeight != null ? configuredWeight.floatValue() : 1f;
+        if (weight <= 0) {
+            return;
+        }
+        Product product = catalog.product(position);
+        int category = product.getCategory() != null ? categories.idOf(product.getCategory()) : -1;
+        int brand = product.getBrand() != null ? brands.idOf(product.getBrand()) : -1;
+        long timestamp = event.getTimestamp() != null ? event.getTimestamp().toEpochMilli() : System.currentTimeMillis();
+
+        profiles.computeIfAbsent(event.getUserId(), key -> new Profile())
+                .add(category, brand, weight, timestamp, halfLifeHours * 3_600_000d, maxEntries);
+        applied.incrementAndGet();
+    }
+
+    private static int find(EventDictionary dictionary, String value) {
+        return value != null ? dictionary.find(value) : -1;
+    }
+
+    private static float weightOf(int[] ids, float[] weights, int id) {
+        if (id < 0) {
+            return 0f;
+        }
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == id) {
+                return weights[i];
+            }
+        }
+        return 0f;
+    }
+
+    private static Map<String, Double> describe(int[] ids, float[] weights, EventDictionary dictionary) {
+        float total = 0;
+        for (float weight : weights) {
+            total += weight;
+        }
+        Integer[] order = new Integer[ids.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Float.compare(weights[b], weights[a]));
+        Map<String, Double> described = new LinkedHashMap<>();
+        for (Integer index : order) {
+            described.put(dictionary.valueOf(ids[index]), total > 0 ? Math.round(1000.0 * weights[index] / total) / 1000.0 : 0.0);
+        }
+        return described;
+    }
+
+    /**
+     * Sparse category and brand vectors of one user. Weights are decayed to the time of the
+     * latest event whenever a newer one arrives.
+     */
+    private static class Profile {
+        private int[] categoryIds = new int[0];
+        private float[] categoryWeights = new float[0];
+        private int[] brandIds = new int[0];
+        private float[] brandWeights = new float[0];
+        private volatile long lastEventMillis;
+
+        synchronized void add(int category, int brand, float weight, long timestamp, double halfLifeMillis, int maxEntries) {
+            float scaledWeight = weight;
+            if (timestamp > lastEventMillis) {
+                float decay = (float) Math.pow(2, -(timestamp - lastEventMillis) / halfLifeMillis);
+                scale(categoryWeights, decay);
+                scale(brandWeights, decay);
+                lastEventMillis = timestamp;
+            } else {
+                // Late events count as if decayed from their own time
+                scaledWeight *= (float) Math.pow(2, -(lastEventMillis - timestamp) / halfLifeMillis);
+            }
+            if (category >= 0) {
+                int slot = slotOf(categoryIds, category);
+                if (slot < 0) {
+                    slot = evictOrGrow(true, maxEntries);
+                    categoryIds[slot] = category;
+                    categoryWeights[slot] = 0;
+                }
+                categoryWeights[slot] += scaledWeight;
+            }
+            if (brand >= 0) {
+                int slot = slotOf(brandIds, brand);
+                if (slot < 0) {
+                    slot = evictOrGrow(false, maxEntries);
+                    brandIds[slot] = brand;
+                    brandWeights[slot] = 0;
+                }
+                brandWeights[slot] += scaledWeight;
+            }
+        }
+
+        synchronized Vectors snapshot() {
+            return new Vectors(categoryIds.clone(), categoryWeights.clone(), brandIds.clone(), brandWeights.clone());
+        }
+
+        private int evictOrGrow(boolean category, int maxEntries) {
+            int[] ids = category ? categoryIds : brandIds;
+            float[] weights = category ? categoryWeights : brandWeights;
+            if (ids.length < maxEntries) {
+                if (category) {
+                    categoryIds = Arrays.copyOf(ids, ids.length + 1);
+                    categoryWeights = Arrays.copyOf(weights, weights.length + 1);
+                } else {
+                    brandIds = Arrays.copyOf(ids, ids.length + 1);
+                    brandWeights = Arrays.copyOf(weights, weights.length + 1);
+                }
+                return ids.length;
+            }
+            int weakest = 0;
+            for (int i = 1; i < weights.length; i++) {
+                if (weights[i] < weights[weakest]) {
+                    weakest = i;
+                }
+            }
+            return weakest;
+        }
+
+        private static int slotOf(int[] ids, int id) {
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] == id) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static void scale(float[] weights, float factor) {
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] *= factor;
+            }
+        }
+    }
+
+    /**
+     * Consistent copy of a profile's vectors for lock-free scoring
+     */
+    private static class Vectors {
+        private final int[] categoryIds;
+        private final float[] categoryWeights;
+        private final int[] brandIds;
+        private final float[] brandWeights;
+
+        private Vectors(int[] categoryIds, float[] categoryWeights, int[] brandIds, float[] brandWeights) {
+            this.categoryIds = categoryIds;
+            this.categoryWeights = categoryWeights;
+            this.brandIds = brandIds;
+            this.brandWeights = brandWeights;
+        }
+    }
+}
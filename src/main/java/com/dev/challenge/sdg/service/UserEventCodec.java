@@ -0,0 +1,372 @@
+package com.dev.challenge.sdg.service;
+
+import com.dev.challenge.sdg.model.UserEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Compact binary codec for {@link UserEvent}.
+ * <p>
+ * Layout: a presence-flags byte, the timestamp as a zig-zag varint of epoch millis,
+ * dictionary ids for event type, user and product, the object id as two longs when it is
+ * a UUID, and the details map as a small tagged encoding with dictionary-encoded keys.
+ * Values the full dictionary has no id for are written as the {@link EventDictionary#NO_ID}
+ * varint followed by the string itself.
+ * The timestamp always directly follows the flags so windows can be trimmed without a
+ * full decode.
+ */
+@Service
+@RequiredArgsConstructor
+public class UserEventCodec {
+
+    private static final int HAS_TIMESTAMP = 1;
+    private static final int HAS_EVENT_TYPE = 1 << 1;
+    private static final int HAS_USER = 1 << 2;
+    private static final int HAS_PRODUCT = 1 << 3;
+    private static final int UUID_OBJECT_ID = 1 << 4;
+    private static final int STRING_OBJECT_ID = 1 << 5;
+    private static final int HAS_QUERY = 1 << 6;
+    private static final int HAS_DETAILS = 1 << 7;
+
+    private static final int TAG_NULL = 0;
+    private static final int TAG_TRUE = 1;
+    private static final int TAG_FALSE = 2;
+    private static final int TAG_INT = 3;
+    private static final int TAG_LONG = 4;
+    private static final int TAG_DOUBLE = 5;
+    private static final int TAG_STRING = 6;
+    private static final int TAG_MAP = 7;
+    private static final int TAG_LIST = 8;
+
+    private final EventDictionary dictionary;
+
+    public byte[] encode(UserEvent event) {
+        ByteSink out = new ByteSink(48);
+        encodeTo(event, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Appends the encoded event to an existing sink, e.g. a log or window buffer
+     */
+    public void encodeTo(UserEvent event, ByteSink out) {
+        UUID uuid = parseUuid(event.getObjectId());
+
+        int flags = 0;
+        if (event.getTimestamp() != null) flags |= HAS_TIMESTAMP;
+        if (event.getEventType() != null) flags |= HAS_EVENT_TYPE;
+        if (event.getUserId() != null) flags |= HAS_USER;
+        if (event.getProductId() != null) flags |= HAS_PRODUCT;
+        if (uuid != null) flags |= UUID_OBJECT_ID;
+        else if (event.getObjectId() != null) flags |= STRING_OBJECT_ID;
+        if (event.getQuery() != null) flags |= HAS_QUERY;
+        if (event.getDetails() != null) flags |= HAS_DETAILS;
+
+        out.writeByte(flags);
+        if ((flags & HAS_TIMESTAMP) != 0) out.writeZigZag(event.getTimestamp().toEpochMilli());
+        if ((flags & HAS_EVENT_TYPE) != 0) writeRef(event.getEventType(), out);
+        if ((flags & HAS_USER) != 0) writeRef(event.getUserId(), out);
+        if ((flags & HAS_PRODUCT) != 0) writeRef(event.getProductId(), out);
+        if (uuid != null) {
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+        } else if (event.getObjectId() != null) {
+            out.writeString(event.getObjectId());
+        }
+        if ((flags & HAS_QUERY) != 0) out.writeString(event.getQuery());
+        if ((flags & HAS_DETAILS) != 0) writeMap(event.getDetails(), out);
+    }
+
+    public UserEvent decode(byte[] data) {
+        return decode(data, 0);
+    }
+
+    public UserEvent decode(byte[] data, int offset) {
+        ByteSource in = new ByteSource(data, offset);
+        int flags = in.readByte();
+
+        UserEvent event = new UserEvent();
+        if ((flags & HAS_TIMESTAMP) != 0) event.setTimestamp(Instant.ofEpochMilli(in.readZigZag()));
+        if ((flags & HAS_EVENT_TYPE) != 0) event.setEventType(readRef(in));
+        if ((flags & HAS_USER) != 0) event.setUserId(readRef(in));
+        if ((flags & HAS_PRODUCT) != 0) event.setProductId(readRef(in));
+        if ((flags & UUID_OBJECT_ID) != 0) {
+            event.setObjectId(new UUID(in.readLong(), in.readLong()).toString());
+        } else if ((flags & STRING_OBJECT_ID) != 0) {
+            event.setObjectId(in.readString());
+        }
+        if ((flags & HAS_QUERY) != 0) event.setQuery(in.readString());
+        if ((flags & HAS_DETAILS) != 0) event.setDetails(readMap(in));
+        return event;
+    }
+
+    /**
+     * Reads only the timestamp of an encoded event, or Long.MIN_VALUE when it has none
+     */
+    public long readTimestamp(byte[] data, int offset) {
+        if ((data[offset] & HAS_TIMESTAMP) == 0) {
+            return Long.MIN_VALUE;
+        }
+        return new ByteSource(data, offset + 1).readZigZag();
+    }
+
+    private void writeRef(String value, ByteSink out) {
+        int id = dictionary.idOf(value);
+        out.writeVarInt(id);
+        if (id == EventDictionary.NO_ID) {
+            out.writeString(value);
+        }
+    }
+
+    private String readRef(ByteSource in) {
+        int id = in.readVarInt();
+        return id == EventDictionary.NO_ID ? in.readString() : dictionary.valueOf(id);
+    }
+
+    private void writeMap(Map<?, ?> map, ByteSink out) {
+        out.writeVarInt(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            writeRef(String.valueOf(entry.getKey()), out);
+            writeValue(entry.getValue(), out);
+        }
+    }
+
+    private void writeValue(Object value, ByteSink out) {
+        if (value == null) {
+            out.writeByte(TAG_NULL);
+        } else if (value instanceof Boolean bool) {
+            out.writeByte(bool ? TAG_TRUE : TAG_FALSE);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.writeByte(TAG_INT);
+            out.writeZigZag(((Number) value).longValue());
+        } else if (value instanceof Long number) {
+            out.writeByte(TAG_LONG);
+            out.writeZigZag(number);
+        } else if (value instanceof Number number) {
+            out.writeByte(TAG_DOUBLE);
+            out.writeLong(Double.doubleToRawLongBits(number.doubleValue()));
+        } else if (value instanceof Map<?, ?> map) {
+            out.writeByte(TAG_MAP);
+            writeMap(map, out);
+        } else if (value instanceof Iterable<?> iterable) {
+            List<Object> items = new ArrayList<>();
+            iterable.forEach(items::add);
+            out.writeByte(TAG_LIST);
+            out.writeVarInt(items.size());
+            for (Object item : items) {
+                writeValue(item, out);
+            }
+        } else {
+            out.writeByte(TAG_STRING);
+            out.writeString(value.toString());
+        }
+    }
+
+    private Map<String, Object> readMap(ByteSource in) {
+        int size = in.readVarInt();
+        Map<String, Object> map = new LinkedHashMap<>(Math.max(4, size * 2));
+        for (int i = 0; i < size; i++) {
+            String key = readRef(in);
+            map.put(key, readValue(in));
+        }
+        return map;
+    }
+
+    private Object readValue(ByteSource in) {
+        int tag = in.readByte();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_TRUE:
+                return Boolean.TRUE;
+            case TAG_FALSE:
+                return Boolean.FALSE;
+            case TAG_INT:
+                return (int) in.readZigZag();
+            case TAG_LONG:
+                return in.readZigZag();
+            case TAG_DOUBLE:
+                return Double.longBitsToDouble(in.readLong());
+            case TAG_STRING:
+                return in.readString();
+            case TAG_MAP:
+                return readMap(in);
+            case TAG_LIST:
+                int size = in.readVarInt();
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                return list;
+            default:
+                throw new IllegalStateException("Unknown value tag: " + tag);
+        }
+    }
+
+    private static UUID parseUuid(String value) {
+        if (value == null || value.length() != 36) {
+            return null;
+        }
+        try {
+            UUID uuid = UUID.fromString(value);
+            // Only accept the canonical lower-case form so decoding reproduces the same string
+            return uuid.toString().equals(value) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Growable byte buffer with varint helpers
+     */
+    public static class ByteSink {
+        private byte[] buffer;
+        private int position;
+
+        public ByteSink(int initialCapacity) {
+            this.buffer = new byte[Math.max(16, initialCapacity)];
+        }
+
+        public void writeByte(int value) {
+            ensure(1);
+            buffer[position++] = (byte) value;
+        }
+
+        public void writeVarInt(int value) {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        public void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        public void writeZigZag(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        public void writeLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[position++] = (byte) (value >>> shift);
+            }
+        }
+
+        public void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            writeBytes(bytes, 0, bytes.length);
+        }
+
+        public void writeBytes(byte[] bytes, int offset, int length) {
+            ensure(length);
+            System.arraycopy(bytes, offset, buffer, position, length);
+            position += length;
+        }
+
+        public int size() {
+            return position;
+        }
+
+        public byte[] array() {
+            return buffer;
+        }
+
+        public void reset() {
+            position = 0;
+        }
+
+        public byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        private void ensure(int extra) {
+            if (position + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+            }
+        }
+    }
+
+    /**
+     * Read cursor over an encoded buffer
+     */
+    public static class ByteSource {
+        private final byte[] buffer;
+        private int position;
+
+        public ByteSource(byte[] buffer, int offset) {
+            this.buffer = buffer;
+            this.position = offset;
+        }
+
+        public int readByte() {
+            return buffer[position++] & 0xFF;
+        }
+
+        public int readVarInt() {
+            int result = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                byte b = buffer[position++];
+                result |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IllegalStateException("Malformed varint");
+        }
+
+        public long readVarLong() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = buffer[position++];
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IllegalStateException("Malformed varlong");
+        }
+
+        public long readZigZag() {
+            long raw = readVarLong();
+            return (raw >>> 1) ^ -(raw & 1);
+        }
+
+        public long readLong() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (buffer[position++] & 0xFF);
+            }
+            return value;
+        }
+
+        public String readString() {
+            int length = readVarInt();
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        public int position() {
+            return position;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.dev.challenge.sdg.service;
+
+import com.dev.challenge.sdg.model.UserEvent;
+
+/**
+ * Receives every behavior event accepted by the ingestion pipeline.
+ * Implementations are called on the ingesting thread and must not block.
+ */
+public interface UserEventListener {
+
+    void onUserEvent(UserEvent event);
+
+    /**
+     * Whether the listener should be rebuilt from the local event log on startup
+     */
+    default boolean replayOnStartup() {
+        return false;
+    }
+
+    /**
+     * How far back a replay should go; older logged events are not replayed into this listener
+     */
+    default long replayHorizonMillis() {
+        return Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,73 @@
+package com.dev.challenge.sdg.config;
+
+import com.dev.challenge.sdg.service.AlgoliaService;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class ApplicationInitializerTest {
+
+    private final AtomicInteger provisioningRuns = new AtomicInteger();
+    private CompletableFuture<Void> provisioning = CompletableFuture.completedFuture(null);
+
+    @Test
+    void blockingModeProvisionsDuringStartupOnly() throws Exception {
+        ApplicationInitializer initializer = initializer("blocking");
+
+        initializer.run();
+        initializer.initializeInBackground();
+
+        assertEquals(1, provisioningRuns.get());
+    }
+
+    @Test
+    void backgroundModeProvisionsOnceTheAppIsReadyWithoutWaiting() throws Exception {
+        provisioning = new CompletableFuture<>();
+        ApplicationInitializer initializer = initializer("BACKGROUND");
+
+        initializer.run();
+        initializer.initializeInBackground();
+
+        assertEquals(1, provisioningRuns.get());
+        assertFalse(provisioning.isDone());
+        provisioning.completeExceptionally(new IllegalStateException("unreachable"));
+    }
+
+    @Test
+    void disabledModeSkipsProvisioning() throws Exception {
+        ApplicationInitializer initializer = initializer("disabled");
+
+        initializer.run();
+        initializer.initializeInBackground();
+
+        assertEquals(0, provisioningRuns.get());
+    }
+
+    @Test
+    void blockingFailuresDoNotFailStartup() {
+        provisioning = CompletableFuture.failedFuture(new IllegalStateException("unreachable"));
+        ApplicationInitializer initializer = initializer("blocking");
+
+        assertDoesNotThrow(() -> initializer.run());
+        assertEquals(1, provisioningRuns.get());
+    }
+
+    private ApplicationInitializer initializer(String mode) {
+        AlgoliaService algolia = new AlgoliaService(null, null) {
+            @Override
+            public CompletableFuture<Void> initializeIndexes() {
+                provisioningRuns.incrementAndGet();
+                return provisioning;
+            }
+        };
+        ApplicationInitializer initializer = new ApplicationInitializer(algolia);
+        ReflectionTestUtils.setField(initializer, "initializationMode", mode);
+        return initializer;
+    }
+}
@@ -0,0 +1,136 @@
+package com.dev.challenge.sdg.controller;
+
+import com.dev.challenge.sdg.dto.McpResponse;
+import com.dev.challenge.sdg.service.McpSessionRegistry;
+import com.dev.challenge.sdg.service.McpToolService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class McpControllerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, CompletableFuture<Map<String, Object>>> pendingCalls = new ConcurrentHashMap<>();
+    private McpController controller;
+
+    @BeforeEach
+    void setUp() {
+        McpToolService tools = new McpToolService(null, null, null, null) {
+            @Override
+            public CompletableFuture<Map<String, Object>> executeToolAsync(String toolName, Map<String, Object> arguments) {
+                if ("fail".equals(toolName)) {
+                    return CompletableFuture.failedFuture(new IllegalStateException("boom"));
+                }
+                // Calls stay pending until the test completes them, so ordering does not depend on timing
+                return pendingCalls.computeIfAbsent(String.valueOf(arguments.get("key")), key -> new CompletableFuture<>());
+            }
+        };
+        controller = new McpController(tools, new McpSessionRegistry(), objectMapper);
+        ReflectionTestUtils.setField(controller, "maxBatchSize", 3);
+    }
+
+    @Test
+    void answersInRequestOrderWhateverTheCompletionOrder() throws Exception {
+        CompletableFuture<ResponseEntity<Object>> pending = batch("""
+                [{"jsonrpc":"2.0","id":"1","method":"tools/call","params":{"name":"t","arguments":{"key":"a"}}},
+                 {"jsonrpc":"2.0","id":"2","method":"tools/call","params":{"name":"t","arguments":{"key":"b"}}}]
+                """);
+
+        // Both calls were dispatched before either finished
+        assertEquals(2, pendingCalls.size());
+        pendingCalls.get("b").complete(Map.of("value", "B"));
+        assertFalse(pending.isDone());
+        pendingCalls.get("a").complete(Map.of("value", "A"));
+
+        List<McpResponse> responses = responses(pending);
+        assertEquals(List.of("1", "2"), responses.stream().map(McpResponse::getId).toList());
+        assertEquals(Map.of("value", "A"), ((McpResponse.ToolResult) responses.get(0).getResult()).getContent());
+        assertEquals(Map.of("value", "B"), ((McpResponse.ToolResult) responses.get(1).getResult()).getContent());
+    }
+
+    @Test
+    void notificationsGetNoResponseEntry() throws Exception {
+        CompletableFuture<ResponseEntity<Object>> pending = batch("""
+                [{"jsonrpc":"2.0","method":"notifications/initialized"},
+                 {"jsonrpc":"2.0","id":"7","method":"tools/list"}]
+                """);
+
+        List<McpResponse> responses = responses(pending);
+        assertEquals(1, responses.size());
+        assertEquals("7", responses.get(0).getId());
+    }
+
+    @Test
+    void batchOfOnlyNotificationsHasNoContent() throws Exception {
+        ResponseEntity<Object> response = batch("""
+                [{"jsonrpc":"2.0","method":"notifications/initialized"}]
+                """).get();
+
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
+    }
+
+    @Test
+    void failuresStayWithTheirOwnRequest() throws Exception {
+        CompletableFuture<ResponseEntity<Object>> pending = batch("""
+                [{"jsonrpc":"2.0","id":"1","method":"tools/call","params":{"name":"fail","arguments":{}}},
+                 {"jsonrpc":"2.0","id":"2","method":"unknown/method"},
+                 {"jsonrpc":"2.0","id":"3","method":"tools/list"}]
+                """);
+
+        List<McpResponse> responses = responses(pending);
+        assertEquals(-32000, responses.get(0).getError().getCode());
+        assertTrue(responses.get(0).getError().getMessage().contains("boom"));
+        assertEquals(-32601, responses.get(1).getError().getCode());
+        assertNull(responses.get(2).getError());
+    }
+
+    @Test
+    void malformedElementsGetAnInvalidRequestError() throws Exception {
+        CompletableFuture<ResponseEntity<Object>> pending = batch("""
+                [{"jsonrpc":"2.0","id":"1","method":["not","a","string"]},
+                 {"jsonrpc":"2.0","id":"2","method":"tools/list"}]
+                """);
+
+        List<McpResponse> responses = responses(pending);
+        assertEquals(-32600, responses.get(0).getError().getCode());
+        assertEquals("2", responses.get(1).getId());
+    }
+
+    @Test
+    void rejectsEmptyAndOversizedBatches() throws Exception {
+        McpResponse empty = (McpResponse) batch("[]").get().getBody();
+        McpResponse oversized = (McpResponse) batch("""
+                [{"method":"tools/list","id":"1"},{"method":"tools/list","id":"2"},
+                 {"method":"tools/list","id":"3"},{"method":"tools/list","id":"4"}]
+                """).get().getBody();
+
+        assertEquals(-32600, empty.getError().getCode());
+        assertEquals(-32600, oversized.getError().getCode());
+        assertTrue(oversized.getError().getMessage().contains("exceeds 3"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<ResponseEntity<Object>> batch(String json) throws Exception {
+        JsonNode body = objectMapper.readTree(json);
+        return (CompletableFuture<ResponseEntity<Object>>) controller.handleMcpRequest(body, null, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<McpResponse> responses(CompletableFuture<ResponseEntity<Object>> pending) throws Exception {
+        return (List<McpResponse>) pending.get().getBody();
+    }
+}
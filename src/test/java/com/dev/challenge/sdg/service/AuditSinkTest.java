@@ -0,0 +1,153 @@
+package com.dev.challenge.sdg.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuditSinkTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<String> writes = new CopyOnWriteArrayList<>();
+    private volatile boolean available = true;
+    private volatile CountDownLatch writeGate = new CountDownLatch(0);
+    private AuditSink sink;
+
+    @AfterEach
+    void tearDown() {
+        writeGate.countDown();
+        if (sink != null) {
+            sink.stop();
+        }
+    }
+
+    @Test
+    void writesFullBatchesGroupedByIndex() throws Exception {
+        sink = start(4, 60_000);
+
+        sink.record("veto", Map.of("objectID", "v1"));
+        sink.record("mcp", Map.of("objectID", "m1"));
+        sink.record("veto", Map.of("objectID", "v2"));
+        sink.record("mcp", Map.of("objectID", "m2"));
+        await(() -> writes.size() == 2);
+
+        assertEquals(List.of("veto:v1,v2", "mcp:m1,m2"), writes);
+        assertEquals(4L, sink.getStats().get("flushed"));
+    }
+
+    @Test
+    void flushesPartialBatchesAfterTheInterval() throws Exception {
+        sink = start(100, 20);
+
+        sink.record("veto", Map.of("objectID", "v1"));
+        await(() -> writes.size() == 1);
+
+        assertEquals(List.of("veto:v1"), writes);
+    }
+
+    @Test
+    void dropsRecordsWhenTheQueueIsFull() throws Exception {
+        writeGate = new CountDownLatch(1);
+        sink = start(1, 60_000, 1);
+
+        sink.record("veto", Map.of("objectID", "v1"));
+        await(() -> (Integer) sink.getStats().get("queueDepth") == 0);
+        assertTrue(sink.record("veto", Map.of("objectID", "v2")));
+
+        assertFalse(sink.record("veto", Map.of("objectID", "v3")));
+        assertEquals(1L, sink.getStats().get("dropped"));
+    }
+
+    @Test
+    void spillsFailedBatchesAndResendsThemOnceWritesSucceed() throws Exception {
+        available = false;
+        sink = start(2, 20);
+
+        sink.record("veto", Map.of("objectID", "v1"));
+        sink.record("veto", Map.of("objectID", "v2"));
+        await(() -> (Long) sink.getStats().get("spilled") == 2L);
+        assertTrue(Files.exists(directory.resolve("audit-spill.ndjson")));
+
+        available = true;
+        await(() -> (Long) sink.getStats().get("recoveredFromSpill") == 2L);
+
+        assertEquals(List.of("veto:v1,v2"), writes);
+        assertFalse((Boolean) sink.getStats().get("pendingSpill"));
+        assertFalse(Files.exists(directory.resolve("audit-spill.ndjson")));
+    }
+
+    @Test
+    void recoversSpillLeftByAPreviousRun() throws Exception {
+        Files.writeString(directory.resolve("audit-spill.ndjson"),
+                "{\"index\":\"veto\",\"record\":{\"objectID\":\"v1\"}}\n");
+
+        sink = start(10, 20);
+        await(() -> (Long) sink.getStats().get("recoveredFromSpill") == 1L);
+
+        assertEquals(List.of("veto:v1"), writes);
+    }
+
+    @Test
+    void stopFlushesQueuedRecords() throws Exception {
+        sink = start(100, 60_000);
+        sink.record("veto", Map.of("objectID", "v1"));
+
+        sink.stop();
+
+        assertEquals(List.of("veto:v1"), writes);
+    }
+
+    private AuditSink start(int batchSize, long flushIntervalMs) throws IOException {
+        return start(batchSize, flushIntervalMs, 100);
+    }
+
+    private AuditSink start(int batchSize, long flushIntervalMs, int queueCapacity) throws IOException {
+        AlgoliaService algolia = new AlgoliaService(null, null) {
+            @Override
+            public CompletableFuture<Void> saveRecords(String indexName, List<Map<String, Object>> records) {
+                try {
+                    writeGate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (!available) {
+                    return CompletableFuture.failedFuture(new IllegalStateException("unavailable"));
+                }
+                writes.add(indexName + ":" + String.join(",", records.stream().map(r -> (String) r.get("objectID")).toList()));
+                return CompletableFuture.completedFuture(null);
+            }
+        };
+        AuditSink auditSink = new AuditSink(algolia, new ObjectMapper());
+        ReflectionTestUtils.setField(auditSink, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(auditSink, "batchSize", batchSize);
+        ReflectionTestUtils.setField(auditSink, "flushIntervalMs", flushIntervalMs);
+        ReflectionTestUtils.setField(auditSink, "spillDirectory", directory.toString());
+        ReflectionTestUtils.setField(auditSink, "maxRecoveryBackoffMs", 40L);
+        auditSink.start();
+        return auditSink;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 500 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
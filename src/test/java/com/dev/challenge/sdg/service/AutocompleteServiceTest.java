@@ -0,0 +1,144 @@
+package com.dev.challenge.sdg.service;
+
+import com.dev.challenge.sdg.model.Product;
+import com.dev.challenge.sdg.model.UserEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AutocompleteServiceTest {
+
+    private CatalogSnapshot snapshot;
+    private AutocompleteService autocomplete;
+
+    @BeforeEach
+    void setUp() {
+        snapshot = CatalogSnapshot.of(List.of(), 1);
+        CatalogReplicaService replica = new CatalogReplicaService(null, null) {
+            @Override
+            public CatalogSnapshot getSnapshot() {
+                return snapshot;
+            }
+        };
+        autocomplete = new AutocompleteService(replica, null);
+        ReflectionTestUtils.setField(autocomplete, "maxTrackedQueries", 100);
+        ReflectionTestUtils.setField(autocomplete, "minQueryCount", 3L);
+        ReflectionTestUtils.setField(autocomplete, "maxSuggestedQueries", 10);
+        ReflectionTestUtils.setField(autocomplete, "queryDecayFactor", 0.5);
+        ReflectionTestUtils.setField(autocomplete, "queryWeight", 2.0f);
+        ReflectionTestUtils.setField(autocomplete, "analyticsRefreshIntervalMs", Long.MAX_VALUE);
+        ReflectionTestUtils.setField(autocomplete, "queryEventWeights", Map.of("search", 1, "search_click", 2));
+    }
+
+    @Test
+    void ranksProductsByPopularityWithinThePrefixRange() {
+        load(product("1", "Wireless Mouse", 10),
+                product("2", "Wireless Headphones", 500),
+                product("3", "Wired Keyboard", 50),
+                product("4", "Desk Lamp", 1000));
+
+        assertEquals(List.of("Wireless Headphones", "Wired Keyboard", "Wireless Mouse"),
+                texts(autocomplete.suggest("wir", 10)));
+        assertEquals(List.of("Wireless Headphones"), texts(autocomplete.suggest("WIRELESS h", 10)));
+        assertEquals("2", autocomplete.suggest("wireless", 1).get(0).get("productId"));
+    }
+
+    @Test
+    void matchesLaterWordsBelowLeadingWords() {
+        load(product("1", "Lamp Shade", 10),
+                product("2", "Desk Lamp", 10));
+
+        assertEquals(List.of("Lamp Shade", "Desk Lamp"), texts(autocomplete.suggest("lamp", 10)));
+    }
+
+    @Test
+    void returnsTheTopSuggestionsOfALargeRangeInOrder() {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            products.add(product(String.valueOf(i), "Cable " + i, (i * 7919) % 500));
+        }
+        load(products.toArray(new Product[0]));
+
+        List<String> expected = products.stream()
+                .sorted((a, b) -> Integer.compare(b.getNumberOfReviews(), a.getNumberOfReviews()))
+                .limit(20)
+                .map(Product::getName)
+                .toList();
+        assertEquals(expected, texts(autocomplete.suggest("cable", 20)));
+    }
+
+    @Test
+    void suggestsQueriesOnlyOnceTheyReachTheMinimumCount() {
+        autocomplete.onUserEvent(search("search", "Gaming Chair"));
+        autocomplete.onUserEvent(search("page_view", "gaming chair"));
+        autocomplete.onUserEvent(search("page_view", "gaming chair"));
+        autocomplete.rebuild();
+        assertTrue(autocomplete.suggest("gam", 10).isEmpty());
+
+        autocomplete.onUserEvent(search("search_click", "gaming  chair!"));
+        autocomplete.rebuild();
+        List<Map<String, Object>> suggestions = autocomplete.suggest("gam", 10);
+
+        assertEquals(List.of("gaming chair"), texts(suggestions));
+        assertEquals("query", suggestions.get(0).get("type"));
+    }
+
+    @Test
+    void queryMatchingAProductNameKeepsTheProduct() {
+        for (int i = 0; i < 5; i++) {
+            autocomplete.onUserEvent(search("search", "desk lamp"));
+        }
+        load(product("1", "Desk Lamp", 0));
+
+        List<Map<String, Object>> suggestions = autocomplete.suggest("desk", 10);
+
+        assertEquals(List.of("Desk Lamp"), texts(suggestions));
+        assertEquals("product", suggestions.get(0).get("type"));
+    }
+
+    @Test
+    void decayDropsQueriesThatReachZero() {
+        autocomplete.onUserEvent(search("search", "lamp"));
+        for (int i = 0; i < 4; i++) {
+            autocomplete.onUserEvent(search("search", "chair"));
+        }
+
+        autocomplete.decayQueryCounts();
+
+        assertEquals(1, autocomplete.getStats().get("trackedQueries"));
+        assertEquals(1L, autocomplete.getStats().get("prunedQueries"));
+    }
+
+    @Test
+    void blankPrefixesAndNonPositiveLimitsReturnNothing() {
+        load(product("1", "Desk Lamp", 10));
+
+        assertTrue(autocomplete.suggest("  ", 10).isEmpty());
+        assertTrue(autocomplete.suggest("desk", 0).isEmpty());
+        assertTrue(autocomplete.suggest("chair", 10).isEmpty());
+    }
+
+    private void load(Product... products) {
+        snapshot = CatalogSnapshot.of(List.of(products), snapshot.getVersion() + 1);
+        autocomplete.rebuild();
+    }
+
+    private static Product product(String id, String name, int reviews) {
+        return Product.builder().objectId(id).name(name).numberOfReviews(reviews).build();
+    }
+
+    private static UserEvent search(String eventType, String query) {
+        return UserEvent.builder().userId("user").eventType(eventType).query(query).build();
+    }
+
+    private static List<Object> texts(List<Map<String, Object>> suggestions) {
+        return suggestions.stream().map(suggestion -> suggestion.get("text")).toList();
+    }
+}
@@ -0,0 +1,59 @@
+package com.dev.challenge.sdg.service;
+
+import com.dev.challenge.sdg.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CatalogSnapshotTest {
+
+    @Test
+    void watermarkIsTheNewestUpdate() {
+        CatalogSnapshot snapshot = CatalogSnapshot.of(List.of(product("a", 100L), product("b", 300L), product("c", null)), 1);
+
+        assertEquals(300L, snapshot.getMaxUpdatedAt());
+    }
+
+    @Test
+    void deltaFromTheWatermarkKeepsOnlyChangedProducts() {
+        CatalogSnapshot snapshot = CatalogSnapshot.of(List.of(product("a", 100L), product("b", 300L)), 1);
+
+        // The overlap window returns the newest stored product again, unchanged
+        List<Product> changed = snapshot.changedIn(List.of(product("b", 300L), product("a", 305L), product("d", 310L)));
+
+        assertEquals(List.of("a", "d"), changed.stream().map(Product::getObjectId).toList());
+    }
+
+    @Test
+    void unchangedDeltaIsEmpty() {
+        CatalogSnapshot snapshot = CatalogSnapshot.of(List.of(product("a", 100L), product("b", 300L)), 1);
+
+        assertTrue(snapshot.changedIn(List.of(product("b", 300L))).isEmpty());
+    }
+
+    @Test
+    void watermarkAdvancesWithUpserts() {
+        CatalogSnapshot snapshot = CatalogSnapshot.of(List.of(product("a", 100L), product("b", 300L)), 1);
+
+        CatalogSnapshot next = snapshot.withUpserts(List.of(product("a", 400L)), 2);
+
+        assertEquals(400L, next.getMaxUpdatedAt());
+        assertEquals(2, next.size());
+        assertEquals(0, next.positionOf("a"));
+    }
+
+    @Test
+    void fullLoadReportsRemovedProducts() {
+        CatalogSnapshot snapshot = CatalogSnapshot.of(List.of(product("a", 100L), product("b", 300L), product("c", 200L)), 1);
+        CatalogSnapshot next = CatalogSnapshot.of(List.of(product("a", 100L), product("d", 500L)), 2);
+
+        assertEquals(List.of("b", "c"), snapshot.removedIn(next));
+    }
+
+    private static Product product(String id, Long updatedAt) {
+        return Product.builder().objectId(id).updatedAt(updatedAt).build();
+    }
+}
@@ -0,0 +1,119 @@
+package com.dev.challenge.sdg.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChatSessionStoreTest {
+
+    private final AtomicInteger summarizations = new AtomicInteger();
+    private ChatSessionStore store;
+
+    @BeforeEach
+    void setUp() {
+        GeminiService gemini = new GeminiService(null, null) {
+            @Override
+            public CompletableFuture<String> summarizeConversation(String previousSummary, List<Map<String, Object>> turns) {
+                summarizations.incrementAndGet();
+                return CompletableFuture.completedFuture("Summary of " + turns.size() + " turns");
+            }
+        };
+        store = new ChatSessionStore(gemini);
+        ReflectionTestUtils.setField(store, "maxTurns", 6);
+        ReflectionTestUtils.setField(store, "maxSummaryChars", 800);
+        ReflectionTestUtils.setField(store, "maxSessions", 100);
+    }
+
+    @Test
+    void ownerGetsTheSameSessionBack() {
+        ChatSessionStore.Conversation created = store.open(null, "alice", null);
+        store.recordTurn(created.getSessionId(), "Any deals on headphones?", "Yes, 10% off.");
+
+        ChatSessionStore.Conversation reopened = store.open(created.getSessionId(), "alice", null);
+
+        assertEquals(created.getSessionId(), reopened.getSessionId());
+        assertEquals(2, reopened.getTurns().size());
+    }
+
+    @Test
+    void anotherUserCannotReuseASession() {
+        ChatSessionStore.Conversation owned = store.open(null, "alice", null);
+        store.recordTurn(owned.getSessionId(), "My address is ...", "Noted.");
+
+        ChatSessionStore.Conversation other = store.open(owned.getSessionId(), "mallory", null);
+
+        assertNotEquals(owned.getSessionId(), other.getSessionId());
+        assertEquals("mallory", other.getUserId());
+        assertTrue(other.getTurns().isEmpty());
+        assertEquals(1L, store.getStats().get("rejectedSessionIds"));
+    }
+
+    @Test
+    void unknownIdsAreReplacedWithServerMintedOnes() {
+        ChatSessionStore.Conversation conversation = store.open("client-chosen-id", "alice",
+                List.of(Map.of("role", "user", "content", "Hi")));
+
+        assertNotNull(conversation.getSessionId());
+        assertNotEquals("client-chosen-id", conversation.getSessionId());
+        assertEquals(1, conversation.getTurns().size());
+    }
+
+    @Test
+    void seededSessionsAreCondensedLocally() {
+        ChatSessionStore.Conversation seeded = store.open(null, "alice", history(10));
+        store.recordTurn(seeded.getSessionId(), "And for laptops?", "5% off.");
+
+        ChatSessionStore.Conversation reopened = store.open(seeded.getSessionId(), "alice", null);
+
+        assertEquals(0, summarizations.get(), "a session nobody came back to must not cost a Gemini call");
+        assertEquals(6, reopened.getTurns().size());
+        assertTrue(reopened.getSummary().startsWith("Customer asked: question 0."));
+    }
+
+    @Test
+    void reusedSessionsAreSummarizedByGemini() {
+        ChatSessionStore.Conversation created = store.open(null, "alice", null);
+        store.open(created.getSessionId(), "alice", null);
+        for (int i = 0; i < 4; i++) {
+            store.recordTurn(created.getSessionId(), "question " + i, "answer " + i);
+        }
+
+        ChatSessionStore.Conversation reopened = store.open(created.getSessionId(), "alice", null);
+
+        assertEquals(1, summarizations.get());
+        assertEquals("Summary of 2 turns", reopened.getSummary());
+        assertEquals(6, reopened.getTurns().size());
+    }
+
+    @Test
+    void fullStoreEvictsSingleUseSessionsFirst() {
+        ReflectionTestUtils.setField(store, "maxSessions", 2);
+        ChatSessionStore.Conversation live = store.open(null, "alice", null);
+        store.open(live.getSessionId(), "alice", null);
+        ChatSessionStore.Conversation singleUse = store.open(null, "bob", null);
+        // The live session is now the least recently used one
+        store.open(null, "carol", null);
+
+        assertEquals(live.getSessionId(), store.open(live.getSessionId(), "alice", null).getSessionId());
+        assertNotEquals(singleUse.getSessionId(), store.open(singleUse.getSessionId(), "bob", null).getSessionId());
+    }
+
+    private static List<Map<String, Object>> history(int turns) {
+        List<Map<String, Object>> history = new ArrayList<>();
+        for (int i = 0; i < turns; i++) {
+            history.add(Map.of("role", i % 2 == 0 ? "user" : "assistant", "content", (i % 2 == 0 ? "question " : "answer ") + i));
+        }
+        return history;
+    }
+}
@@ -0,0 +1,123 @@
+package com.dev.challenge.sdg.service;
+
+import com.dev.challenge.sdg.model.UserEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CoOccurrenceModelTest {
+
+    private static final long GAP_MS = 60_000;
+
+    private CoOccurrenceModel model;
+    private long now;
+
+    @BeforeEach
+    void setUp() {
+        model = new CoOccurrenceModel();
+        ReflectionTestUtils.setField(model, "sessionGapMs", GAP_MS);
+        ReflectionTestUtils.setField(model, "maxSessionProducts", 20);
+        ReflectionTestUtils.setField(model, "maxProducts", 100);
+        ReflectionTestUtils.setField(model, "maxTrackedNeighbors", 50);
+        ReflectionTestUtils.setField(model, "topNeighbors", 5);
+        ReflectionTestUtils.setField(model, "halfLifeHours", 72.0);
+        ReflectionTestUtils.setField(model, "eventWeights", Map.<String, Number>of("view", 1, "add_to_cart", 3));
+        now = System.currentTimeMillis();
+    }
+
+    @Test
+    void pairsProductsSeenInTheSameSession() {
+        event("u1", "view", "A", 0);
+        event("u1", "view", "B", 1);
+        event("u1", "view", "C", 2);
+
+        assertEquals(Set.of("B", "C"), Set.copyOf(model.suggest("A", 5)));
+        assertEquals(Set.of("A", "B"), Set.copyOf(model.suggest("C", 5)));
+    }
+
+    @Test
+    void repeatedViewsCountOncePerSession() {
+        for (int i = 0; i < 6; i++) {
+            event("u1", "view", i % 2 == 0 ? "A" : "B", i);
+        }
+        event("u2", "view", "A", 0);
+        event("u2", "view", "C", 1);
+        event("u3", "view", "A", 0);
+        event("u3", "view", "C", 1);
+
+        assertEquals(List.of("C", "B"), model.suggest("A", 5));
+        assertEquals(3L, model.getStats().get("pairsRecorded"));
+    }
+
+    @Test
+    void strongerEventsRankHigher() {
+        event("u1", "view", "A", 0);
+        event("u1", "view", "B", 1);
+        event("u2", "view", "A", 0);
+        event("u2", "add_to_cart", "D", 1);
+
+        assertEquals(List.of("D", "B"), model.suggest("A", 5));
+    }
+
+    @Test
+    void cartUpgradeCreditsOnlyTheDifference() {
+        event("u1", "view", "A", 0);
+        event("u1", "view", "B", 1);
+        event("u1", "add_to_cart", "B", 2);
+        event("u2", "view", "A", 0);
+        event("u2", "add_to_cart", "C", 1);
+        event("u3", "view", "A", 0);
+        event("u3", "view", "E", 1);
+
+        // B ends with the cart weight once (3), not view plus cart (4), so it ties C and stays above E
+        List<String> suggestions = model.suggest("A", 5);
+        assertEquals(Set.of("B", "C"), Set.copyOf(suggestions.subList(0, 2)));
+        assertEquals("E", suggestions.get(2));
+    }
+
+    @Test
+    void sessionGapSeparatesSessions() {
+        event("u1", "view", "X", 0);
+        event("u1", "view", "Y", GAP_MS + 1);
+
+        assertTrue(model.suggest("X", 5).isEmpty());
+    }
+
+    @Test
+    void nonPositiveLimitsReturnNothing() {
+        event("u1", "view", "A", 0);
+        event("u1", "view", "B", 1);
+
+        assertTrue(model.suggest("A", 0).isEmpty());
+        assertTrue(model.suggest("A", -1).isEmpty());
+        assertTrue(model.suggest("unknown", 5).isEmpty());
+    }
+
+    @Test
+    void stopsTrackingNewProductsAtTheLimit() {
+        ReflectionTestUtils.setField(model, "maxProducts", 2);
+        event("u1", "view", "A", 0);
+        event("u1", "view", "B", 1);
+        event("u1", "view", "C", 2);
+
+        assertEquals(List.of("B"), model.suggest("A", 5));
+        assertEquals(1L, model.getStats().get("untrackedProductEvents"));
+    }
+
+    private void event(String userId, String type, String productId, long offsetMs) {
+        UserEvent event = new UserEvent();
+        event.setUserId(userId);
+        event.setEventType(type);
+        event.setProductId(productId);
+        event.setTimestamp(Instant.ofEpochMilli(now + offsetMs));
+        model.onUserEvent(event);
+    }
+}
@@ -0,0 +1,82 @@
+package com.dev.challenge.sdg.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DecisionRingBufferTest {
+
+    @Test
+    void partialPageIsNotComplete() {
+        DecisionRingBuffer buffer = buffer(8);
+        record(buffer, 3);
+
+        DecisionRingBuffer.Page page = buffer.query(null, null, null, 0, 10);
+
+        assertEquals(3, page.getDecisions().size());
+        assertFalse(page.isComplete(), "older decisions may exist outside the buffer");
+        assertTrue(buffer.retainsSinceStart());
+    }
+
+    @Test
+    void fullPageIsCompleteAndNewestFirst() {
+        DecisionRingBuffer buffer = buffer(8);
+        record(buffer, 5);
+
+        DecisionRingBuffer.Page page = buffer.query(null, null, null, 1, 2);
+
+        assertTrue(page.isComplete());
+        assertEquals(List.of(3, 2), sequences(page));
+        assertEquals(3, page.getMatched());
+        assertEquals(1002L, page.getOldestMatchedMillis());
+    }
+
+    @Test
+    void overwrittenDecisionsAreNotReturned() {
+        DecisionRingBuffer buffer = buffer(8);
+        record(buffer, 20);
+
+        DecisionRingBuffer.Page page = buffer.query(null, null, null, 0, 100);
+
+        assertFalse(buffer.retainsSinceStart());
+        assertFalse(page.isComplete());
+        assertEquals(List.of(19, 18, 17, 16, 15, 14, 13, 12), sequences(page));
+        assertEquals(1012L, page.getOldestMatchedMillis());
+    }
+
+    @Test
+    void filtersByOutcomeAndIds() {
+        DecisionRingBuffer buffer = buffer(16);
+        record(buffer, 10);
+
+        DecisionRingBuffer.Page vetoes = buffer.query(false, null, null, 0, 100);
+        DecisionRingBuffer.Page product = buffer.query(null, "product-3", "user-1", 0, 100);
+
+        assertEquals(List.of(9, 7, 5, 3, 1), sequences(vetoes));
+        assertEquals(List.of(3), sequences(product));
+    }
+
+    private static DecisionRingBuffer buffer(int capacity) {
+        DecisionRingBuffer buffer = new DecisionRingBuffer();
+        ReflectionTestUtils.setField(buffer, "requestedCapacity", capacity);
+        buffer.init();
+        return buffer;
+    }
+
+    // Even decisions are approvals; users alternate between user-0 and user-1
+    private static void record(DecisionRingBuffer buffer, int count) {
+        for (int i = 0; i < count; i++) {
+            buffer.record(i % 2 == 0, "product-" + i, "user-" + (i % 2), 1000L + i, Map.of("sequence", i));
+        }
+    }
+
+    private static List<Integer> sequences(DecisionRingBuffer.Page page) {
+        return page.getDecisions().stream().map(decision -> (Integer) decision.get("sequence")).toList();
+    }
+}
@@ -0,0 +1,130 @@
+package com.dev.challenge.sdg.service;
+
+import com.dev.challenge.sdg.model.Discount;
+import com.dev.challenge.sdg.model.UserEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class DiscountPrecomputeServiceTest {
+
+    private final List<String> generated = new CopyOnWriteArrayList<>();
+    private volatile LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(10);
+    private DiscountPrecomputeService precompute;
+
+    @BeforeEach
+    void setUp() {
+        DiscountService discounts = new DiscountService(null, null, null, null, null, null, null, null, null) {
+            @Override
+            public CompletableFuture<Discount> generatePersonalizedDiscount(String userId, String productId) {
+                generated.add(userId + ":" + productId);
+                if ("stingy".equals(userId)) {
+                    return CompletableFuture.completedFuture(null);
+                }
+                return CompletableFuture.completedFuture(Discount.builder()
+                        .code("CODE-" + userId).userId(userId).productId(productId).expiresAt(expiresAt).build());
+            }
+        };
+        precompute = new DiscountPrecomputeService(discounts);
+        ReflectionTestUtils.setField(precompute, "enabled", true);
+        ReflectionTestUtils.setField(precompute, "queueCapacity", 10);
+        ReflectionTestUtils.setField(precompute, "workerCount", 1);
+        ReflectionTestUtils.setField(precompute, "priceHoverThreshold", 2);
+        ReflectionTestUtils.setField(precompute, "timeoutSeconds", 5);
+        ReflectionTestUtils.setField(precompute, "hesitationIdleMinutes", 30);
+    }
+
+    @AfterEach
+    void tearDown() {
+        precompute.stop();
+    }
+
+    @Test
+    void cartAbandonParksAnOfferThatIsServedOnce() throws InterruptedException {
+        precompute.start();
+        precompute.onUserEvent(event("alice", UserEvent.EventType.CART_ABANDON, "p1"));
+        awaitStat("precomputed", 1L);
+
+        Discount discount = precompute.takePrecomputedDiscount("alice", "p1");
+
+        assertEquals("CODE-alice", discount.getCode());
+        assertNull(precompute.takePrecomputedDiscount("alice", "p1"));
+        assertEquals(1L, precompute.getStats().get("served"));
+    }
+
+    @Test
+    void priceHoversScheduleOnlyAtTheThreshold() throws InterruptedException {
+        precompute.start();
+        precompute.onUserEvent(event("bob", UserEvent.EventType.PRICE_HOVER, "p1"));
+        assertEquals(0L, precompute.getStats().get("scheduled"));
+
+        precompute.onUserEvent(event("bob", UserEvent.EventType.PRICE_HOVER, "p1"));
+        awaitStat("precomputed", 1L);
+
+        assertEquals(List.of("bob:p1"), generated);
+    }
+
+    @Test
+    void offerForAnotherProductStaysParked() throws InterruptedException {
+        precompute.start();
+        precompute.onUserEvent(event("carol", UserEvent.EventType.CART_ABANDON, "p1"));
+        awaitStat("precomputed", 1L);
+
+        assertNull(precompute.takePrecomputedDiscount("carol", "p2"));
+        assertEquals("p1", precompute.takePrecomputedDiscount("carol", null).getProductId());
+    }
+
+    @Test
+    void expiredOffersAreMisses() throws InterruptedException {
+        expiresAt = LocalDateTime.now().minusSeconds(1);
+        precompute.start();
+        precompute.onUserEvent(event("dave", UserEvent.EventType.CART_ABANDON, "p1"));
+        awaitStat("precomputed", 1L);
+
+        assertNull(precompute.takePrecomputedDiscount("dave", "p1"));
+        assertEquals(1L, precompute.getStats().get("expiredUnused"));
+    }
+
+    @Test
+    void deduplicatesPerUserAndDropsWhenTheQueueIsFull() {
+        ReflectionTestUtils.setField(precompute, "queueCapacity", 1);
+
+        precompute.onUserEvent(event("erin", UserEvent.EventType.CART_ABANDON, "p1"));
+        precompute.onUserEvent(event("erin", UserEvent.EventType.CART_ABANDON, "p2"));
+        precompute.onUserEvent(event("frank", UserEvent.EventType.CART_ABANDON, "p1"));
+
+        assertEquals(1, precompute.getStats().get("queueDepth"));
+        assertEquals(1L, precompute.getStats().get("deduplicated"));
+        assertEquals(1L, precompute.getStats().get("dropped"));
+    }
+
+    @Test
+    void countsRequestsWithoutAnOffer() throws InterruptedException {
+        precompute.start();
+        precompute.onUserEvent(event("stingy", UserEvent.EventType.CART_ABANDON, "p1"));
+        awaitStat("noOffer", 1L);
+
+        assertNull(precompute.takePrecomputedDiscount("stingy", "p1"));
+        assertEquals(0, precompute.getStats().get("parked"));
+    }
+
+    private void awaitStat(String name, Object expected) throws InterruptedException {
+        for (int i = 0; i < 500 && !expected.equals(precompute.getStats().get(name)); i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, precompute.getStats().get(name));
+    }
+
+    private static UserEvent event(String userId, UserEvent.EventType type, String productId) {
+        return UserEvent.builder().userId(userId).eventType(type.getValue()).productId(productId).build();
+    }
+}
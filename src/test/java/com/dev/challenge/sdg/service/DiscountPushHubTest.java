@@ -0,0 +1,69 @@
+package com.dev.challenge.sdg.service;
+
+import com.dev.challenge.sdg.model.Discount;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DiscountPushHubTest {
+
+    private DiscountPushHub hub;
+
+    @BeforeEach
+    void setUp() {
+        hub = new DiscountPushHub();
+        ReflectionTestUtils.setField(hub, "emitterTimeoutMs", 60000L);
+        ReflectionTestUtils.setField(hub, "bufferSize", 4);
+        ReflectionTestUtils.setField(hub, "maxConnections", 3);
+        ReflectionTestUtils.setField(hub, "maxConnectionsPerUser", 2);
+        ReflectionTestUtils.setField(hub, "senderThreads", 1);
+        ReflectionTestUtils.setField(hub, "sendTimeoutMs", 10000L);
+        hub.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        hub.stop();
+    }
+
+    @Test
+    void rejectsConnectionsPastThePerUserLimit() {
+        assertNotNull(hub.subscribe("alice"));
+        assertNotNull(hub.subscribe("alice"));
+
+        assertNull(hub.subscribe("alice"));
+        assertNotNull(hub.subscribe("bob"), "other users keep their own allowance");
+        assertEquals(3, hub.getStats().get("connections"));
+        assertEquals(1L, hub.getStats().get("rejectedConnections"));
+    }
+
+    @Test
+    void rejectsConnectionsPastTheGlobalLimit() {
+        hub.subscribe("alice");
+        hub.subscribe("bob");
+        hub.subscribe("carol");
+
+        assertNull(hub.subscribe("dave"));
+        assertFalse(hub.hasSubscribers("dave"));
+        assertEquals(3, hub.getStats().get("connections"), "a rejected connection is not counted");
+    }
+
+    @Test
+    void publishesOnlyToConnectedOwners() {
+        hub.subscribe("alice");
+
+        hub.publish(Discount.builder().code("SAVE10").userId("alice").build());
+        hub.publish(Discount.builder().code("SAVE20").userId("bob").build());
+        hub.publish(Discount.builder().code("NOUSER").build());
+
+        assertTrue(hub.hasSubscribers("alice"));
+        assertEquals(2L, hub.getStats().get("published"));
+    }
+}
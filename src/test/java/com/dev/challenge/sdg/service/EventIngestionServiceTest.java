@@ -0,0 +1,157 @@
+package com.dev.challenge.sdg.service;
+
+import com.dev.challenge.sdg.model.UserEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.hibernate.validator.messageinterpolation.ParameterMessageInterpolator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventIngestionServiceTest {
+
+    private static final Validator VALIDATOR = Validation.byDefaultProvider().configure()
+            .messageInterpolator(new ParameterMessageInterpolator())
+            .buildValidatorFactory()
+            .getValidator();
+
+    @TempDir
+    Path directory;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final List<EventLog> opened = new ArrayList<>();
+
+    @AfterEach
+    void closeLogs() {
+        opened.forEach(EventLog::close);
+    }
+
+    @Test
+    void acceptsValidLinesAndReportsTheRest() throws IOException {
+        RecordingListener listener = new RecordingListener(false, Long.MAX_VALUE);
+        EventIngestionService ingestion = start(List.of(listener));
+
+        EventIngestionService.IngestionResult result = ingestion.ingestNdjson(new StringReader("""
+                {"userId":"u1","eventType":"view","productId":"p1"}
+                {"eventType":"view","productId":"p2"}
+                {"userId":"u2","eventType":"search","query":"lamp"}
+                """));
+
+        assertEquals(2, result.getAccepted());
+        assertEquals(1, result.getRejected());
+        assertFalse(result.isTruncated());
+        assertEquals(List.of("line 2: User ID is required"), result.getErrors());
+        assertEquals(List.of("u1", "u2"), listener.userIds());
+        assertNotNull(listener.events.get(0).getObjectId());
+    }
+
+    @Test
+    void stopsAtMalformedJson() throws IOException {
+        EventIngestionService ingestion = start(List.of());
+
+        EventIngestionService.IngestionResult result = ingestion.ingestNdjson(new StringReader("""
+                {"userId":"u1","eventType":"view"}
+                {"userId":"u2",
+                """));
+
+        assertEquals(1, result.getAccepted());
+        assertTrue(result.isTruncated());
+        assertEquals(1L, ingestion.getStats().get("rejected"));
+    }
+
+    @Test
+    void failingListenerDoesNotStopTheOthers() throws IOException {
+        RecordingListener listener = new RecordingListener(false, Long.MAX_VALUE);
+        UserEventListener failing = event -> {
+            throw new IllegalStateException("boom");
+        };
+        EventIngestionService ingestion = start(List.of(failing, listener));
+
+        assertTrue(ingestion.submit(UserEvent.builder().userId("u1").eventType("view").build()));
+
+        assertEquals(List.of("u1"), listener.userIds());
+    }
+
+    @Test
+    void replaysTheLogWithinEachListenersHorizon() throws IOException {
+        EventIngestionService first = start(List.of());
+        Instant now = Instant.now();
+        first.submit(event("old", now.minus(2, ChronoUnit.HOURS)));
+        first.submit(event("recent", now.minus(1, ChronoUnit.MINUTES)));
+        opened.remove(opened.size() - 1).close();
+
+        RecordingListener everything = new RecordingListener(true, Long.MAX_VALUE);
+        RecordingListener lastHour = new RecordingListener(true, ChronoUnit.HOURS.getDuration().toMillis());
+        RecordingListener live = new RecordingListener(false, Long.MAX_VALUE);
+        start(List.of(everything, lastHour, live));
+
+        assertEquals(List.of("old", "recent"), everything.userIds());
+        assertEquals(List.of("recent"), lastHour.userIds());
+        assertTrue(live.events.isEmpty());
+    }
+
+    private EventIngestionService start(List<UserEventListener> listeners) throws IOException {
+        EventDictionary dictionary = new EventDictionary();
+        EventLog eventLog = new EventLog(dictionary);
+        ReflectionTestUtils.setField(eventLog, "directory", directory.toString());
+        ReflectionTestUtils.setField(eventLog, "segmentSizeBytes", 4096);
+        ReflectionTestUtils.setField(eventLog, "fsyncIntervalMs", 0L);
+        ReflectionTestUtils.setField(eventLog, "retentionHours", 24);
+        eventLog.open();
+        opened.add(eventLog);
+
+        EventIngestionService ingestion = new EventIngestionService(eventLog, new UserEventCodec(dictionary),
+                objectMapper, VALIDATOR, listeners);
+        ingestion.start();
+        return ingestion;
+    }
+
+    private static UserEvent event(String userId, Instant timestamp) {
+        return UserEvent.builder().userId(userId).eventType("view").timestamp(timestamp).build();
+    }
+
+    private static class RecordingListener implements UserEventListener {
+        private final List<UserEvent> events = new ArrayList<>();
+        private final boolean replay;
+        private final long horizonMillis;
+
+        private RecordingListener(boolean replay, long horizonMillis) {
+            this.replay = replay;
+            this.horizonMillis = horizonMillis;
+        }
+
+        @Override
+        public void onUserEvent(UserEvent event) {
+            events.add(event);
+        }
+
+        @Override
+        public boolean replayOnStartup() {
+            return replay;
+        }
+
+        @Override
+        public long replayHorizonMillis() {
+            return horizonMillis;
+        }
+
+        private List<String> userIds() {
+            return events.stream().map(UserEvent::getUserId).toList();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.dev.challenge.sdg.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EventLogTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<EventLog> opened = new ArrayList<>();
+
+    @AfterEach
+    void closeLogs() {
+        opened.forEach(EventLog::close);
+    }
+
+    @Test
+    void continuesSequenceFromSurvivingSegments() throws IOException {
+        EventLog first = open();
+        append(first, 3);
+        first.close();
+
+        EventLog reopened = open();
+        assertEquals(3, reopened.nextSequence());
+        assertEquals(0, reopened.firstSequence());
+    }
+
+    @Test
+    void keepsSequenceWhenNoSegmentSurvives() throws IOException {
+        EventLog first = open();
+        append(first, 5);
+        first.close();
+        deleteSegments();
+
+        EventLog reopened = open();
+        assertEquals(5, reopened.nextSequence(), "sequences must not restart below what was already handed out");
+        assertEquals(5, reopened.append(payload(5)));
+    }
+
+    @Test
+    void keepsSequenceAcrossRestartsWithoutWrites() throws IOException {
+        EventLog first = open();
+        append(first, 4);
+        first.close();
+
+        // The empty segment opened by this run is dropped on recovery, then retention removes the rest
+        open().close();
+        deleteSegments();
+
+        assertEquals(4, open().nextSequence());
+    }
+
+    @Test
+    void readsRecordsBackAcrossSegmentRotation() throws IOException {
+        EventLog log = open();
+        append(log, 40);
+
+        List<String> read = new ArrayList<>();
+        long next = log.read(10, 100, (sequence, payload) -> read.add(new String(payload, StandardCharsets.UTF_8)));
+
+        assertEquals(40, next);
+        assertEquals(30, read.size());
+        assertEquals("event-10", read.get(0));
+        assertEquals("event-39", read.get(29));
+    }
+
+    private EventLog open() throws IOException {
+        EventLog log = new EventLog(new EventDictionary());
+        ReflectionTestUtils.setField(log, "directory", directory.toString());
+        ReflectionTestUtils.setField(log, "segmentSizeBytes", 256);
+        ReflectionTestUtils.setField(log, "fsyncIntervalMs", 0L);
+        ReflectionTestUtils.setField(log, "retentionHours", 1);
+        log.open();
+        opened.add(log);
+        return log;
+    }
+
+    private static void append(EventLog log, int count) {
+        for (int i = 0; i < count; i++) {
+            log.append(payload(i));
+        }
+    }
+
+    private static byte[] payload(int i) {
+        return ("event-" + i).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void deleteSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(path -> path.toString().endsWith(".seg")).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.dev.challenge.sdg.service;
+
+import com.dev.challenge.sdg.dto.DiscountResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpCookie;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.codec.HttpMessageWriter;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.reactive.function.BodyInserter;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GeminiOrchestratorServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Deque<String> geminiReplies = new ArrayDeque<>();
+    private final List<JsonNode> geminiRequests = new ArrayList<>();
+    private final Map<String, CompletableFuture<Map<String, Object>>> toolCalls = new ConcurrentHashMap<>();
+    private GeminiOrchestratorService orchestrator;
+
+    @BeforeEach
+    void setUp() {
+        McpToolService tools = new McpToolService(null, null, null, null) {
+            @Override
+            public CompletableFuture<Map<String, Object>> executeToolAsync(String toolName, Map<String, Object> arguments) {
+                if ("failingTool".equals(toolName)) {
+                    return CompletableFuture.failedFuture(new IllegalStateException("boom"));
+                }
+                return toolCalls.computeIfAbsent(toolName, name -> new CompletableFuture<>());
+            }
+        };
+        WebClient.Builder gemini = WebClient.builder().exchangeFunction(this::exchange);
+        orchestrator = new GeminiOrchestratorService(gemini, objectMapper, tools);
+        ReflectionTestUtils.setField(orchestrator, "geminiApiKey", "key");
+        ReflectionTestUtils.setField(orchestrator, "baseUrl", "http://gemini.test");
+        ReflectionTestUtils.setField(orchestrator, "maxTurns", 5);
+        ReflectionTestUtils.setField(orchestrator, "defaultToolTimeoutMs", 5_000L);
+        ReflectionTestUtils.setField(orchestrator, "toolTimeoutsMs", Map.of("slowTool", 50));
+    }
+
+    @Test
+    void runsAllCallsOfATurnConcurrentlyAndAnswersInCallOrder() throws Exception {
+        geminiReplies.add(functionCalls("getUserHesitationData", "getProductProfitMargin"));
+        geminiReplies.add(text("{\"discountCode\":\"SAVE10\",\"discountType\":\"percentage\",\"discountValue\":10,"
+                + "\"message\":\"Enjoy\",\"expiresInSeconds\":600}"));
+
+        CompletableFuture<DiscountResponse> response = orchestrator.orchestrateDiscountGeneration("u1");
+
+        // Both tools were started before either finished
+        assertEquals(2, toolCalls.size());
+        toolCalls.get("getProductProfitMargin").complete(Map.of("margin", 40));
+        assertFalse(response.isDone());
+        toolCalls.get("getUserHesitationData").complete(Map.of("hesitation", "high"));
+
+        assertEquals("offer_generated", response.get().getStatus());
+        assertEquals(List.of("getUserHesitationData", "getProductProfitMargin"), responseNames(geminiRequests.get(1)));
+        JsonNode contents = geminiRequests.get(1).path("contents");
+        assertEquals(3, contents.size());
+        assertEquals("model", contents.path(1).path("role").asText());
+        assertTrue(geminiRequests.get(1).has("tools"));
+    }
+
+    @Test
+    void reportsFailedAndTimedOutToolsToGemini() throws Exception {
+        geminiReplies.add(functionCalls("failingTool", "slowTool"));
+        geminiReplies.add(text("No offer today"));
+
+        DiscountResponse response = orchestrator.orchestrateDiscountGeneration("u1").get();
+
+        assertEquals("No offer today", response.getMessage());
+        JsonNode parts = geminiRequests.get(1).path("contents").path(2).path("parts");
+        assertEquals("boom", parts.path(0).path("functionResponse").path("response").path("error").asText());
+        assertEquals("Tool timed out after 50ms",
+                parts.path(1).path("functionResponse").path("response").path("error").asText());
+    }
+
+    @Test
+    void stopsAfterTheMaximumNumberOfTurns() throws Exception {
+        ReflectionTestUtils.setField(orchestrator, "maxTurns", 2);
+        toolCalls.put("getUserHesitationData", CompletableFuture.completedFuture(Map.of()));
+        geminiReplies.add(functionCalls("getUserHesitationData"));
+        geminiReplies.add(functionCalls("getUserHesitationData"));
+        geminiReplies.add(text("unreachable"));
+
+        DiscountResponse response = orchestrator.orchestrateDiscountGeneration("u1").get();
+
+        assertEquals("no_offer", response.getStatus());
+        assertEquals(2, geminiRequests.size());
+    }
+
+    private Mono<ClientResponse> exchange(ClientRequest request) {
+        CapturedRequest captured = new CapturedRequest(request.method(), request.url());
+        ExchangeStrategies strategies = ExchangeStrategies.withDefaults();
+        return request.body().insert(captured, new BodyInserter.Context() {
+                    @Override
+                    public List<HttpMessageWriter<?>> messageWriters() {
+                        return strategies.messageWriters();
+                    }
+
+                    @Override
+                    public Optional<ServerHttpRequest> serverRequest() {
+                        return Optional.empty();
+                    }
+
+                    @Override
+                    public Map<String, Object> hints() {
+                        return Map.of();
+                    }
+                })
+                .then(Mono.fromCallable(() -> {
+                    synchronized (geminiRequests) {
+                        geminiRequests.add(objectMapper.readTree(captured.body.toString()));
+                        return ClientResponse.create(HttpStatus.OK)
+                                .header(HttpHeaders.CONTENT_TYPE, "application/json")
+                                .body(geminiReplies.removeFirst())
+                                .build();
+                    }
+                }));
+    }
+
+    private List<String> responseNames(JsonNode request) {
+        JsonNode contents = request.path("contents");
+        List<String> names = new ArrayList<>();
+        contents.path(contents.size() - 1).path("parts")
+                .forEach(part -> names.add(part.path("functionResponse").path("name").asText()));
+        return names;
+    }
+
+    private String functionCalls(String... names) throws Exception {
+        List<Map<String, Object>> parts = new ArrayList<>();
+        for (String name : names) {
+            parts.add(Map.of("functionCall", Map.of("name", name, "args", Map.of("userId", "u1"))));
+        }
+        return reply(parts);
+    }
+
+    private String text(String text) throws Exception {
+        return reply(List.of(Map.of("text", text)));
+    }
+
+    private String reply(List<Map<String, Object>> parts) throws Exception {
+        return objectMapper.writeValueAsString(Map.of("candidates",
+                List.of(Map.of("content", Map.of("role", "model", "parts", parts)))));
+    }
+
+    /**
+     * Collects the serialized request body instead of sending it
+     */
+    private static class CapturedRequest implements ClientHttpRequest {
+        private final HttpMethod method;
+        private final URI uri;
+        private final HttpHeaders headers = new HttpHeaders();
+        private final StringBuilder body = new StringBuilder();
+
+        private CapturedRequest(HttpMethod method, URI uri) {
+            this.method = method;
+            this.uri = uri;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> buffers) {
+            return Flux.from(buffers).doOnNext(buffer -> body.append(buffer.toString(StandardCharsets.UTF_8))).then();
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> buffers) {
+            return Flux.from(buffers).concatMap(this::writeWith).then();
+        }
+
+        @Override
+        public HttpMethod getMethod() { return method; }
+        @Override
+        public URI getURI() { return uri; }
+        @Override
+        public HttpHeaders getHeaders() { return headers; }
+        @Override
+        public MultiValueMap<String, HttpCookie> getCookies() { return new LinkedMultiValueMap<>(); }
+        @Override
+        public <T> T getNativeRequest() { throw new UnsupportedOperationException(); }
+        @Override
+        public DataBufferFactory bufferFactory() { return DefaultDataBufferFactory.sharedInstance; }
+        @Override
+        public void beforeCommit(Supplier<? extends Mono<Void>> action) { }
+        @Override
+        public boolean isCommitted() { return false; }
+        @Override
+        public Mono<Void> setComplete() { return Mono.empty(); }
+    }
+}
@@ -0,0 +1,87 @@
+package com.dev.challenge.sdg.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GeminiServiceTest {
+
+    private static final String DEFAULT_REPLY = "I'm here to help you find great products! What are you looking for today?";
+
+    private final List<ClientRequest> requests = new ArrayList<>();
+
+    @Test
+    void streamsCleanedTextDeltasFromTheSseEndpoint() {
+        GeminiService gemini = gemini(ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_EVENT_STREAM_VALUE)
+                .body(event("## Hello") + event("**there**") + event("") + event("not json {") + event(" friend"))
+                .build(), 500);
+
+        List<String> deltas = stream(gemini);
+
+        assertEquals(List.of("Hello", "there", " friend"), deltas);
+        String uri = requests.get(0).url().toString();
+        assertTrue(uri.startsWith("https://gemini.test/v1/models/flash:streamGenerateContent?alt=sse"), uri);
+    }
+
+    @Test
+    void capsTheStreamAtTheMaximumReplyLength() {
+        GeminiService gemini = gemini(ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_EVENT_STREAM_VALUE)
+                .body(event("12345") + event("67890") + event("never sent"))
+                .build(), 8);
+
+        assertEquals(List.of("12345", "678..."), stream(gemini));
+    }
+
+    @Test
+    void fallsBackToTheDefaultReplyWhenNothingWasStreamed() {
+        GeminiService failing = gemini(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build(), 500);
+        GeminiService empty = gemini(ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_EVENT_STREAM_VALUE)
+                .body(event(""))
+                .build(), 500);
+
+        assertEquals(List.of(DEFAULT_REPLY), stream(failing));
+        assertEquals(List.of(DEFAULT_REPLY), stream(empty));
+    }
+
+    private List<String> stream(GeminiService gemini) {
+        return gemini.streamChatResponse("any lamps?", null, List.of(), List.of(), Map.of())
+                .collectList()
+                .block();
+    }
+
+    private GeminiService gemini(ClientResponse response, int maxChars) {
+        WebClient.Builder builder = WebClient.builder().exchangeFunction(request -> {
+            requests.add(request);
+            return Mono.just(response);
+        });
+        GeminiService gemini = new GeminiService(builder, new ObjectMapper());
+        ReflectionTestUtils.setField(gemini, "apiKey", "test-key");
+        ReflectionTestUtils.setField(gemini, "baseUrl", "https://gemini.test/v1/models/flash:generateContent");
+        ReflectionTestUtils.setField(gemini, "maxChatResponseChars", maxChars);
+        ReflectionTestUtils.setField(gemini, "promptTokenBudget", 1500);
+        return gemini;
+    }
+
+    private static String event(String text) {
+        String data = text.equals("not json {") ? text
+                : "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"" + text + "\"}]}}]}";
+        return "data: " + data + "\n\n";
+    }
+}
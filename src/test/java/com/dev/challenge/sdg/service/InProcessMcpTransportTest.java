@@ -0,0 +1,125 @@
+package com.dev.challenge.sdg.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class InProcessMcpTransportTest {
+
+    private final List<String> remoteCalls = new ArrayList<>();
+    private final List<Map<String, Object>> savedRecords = new ArrayList<>();
+    private final Map<String, Object> searchResult = Map.of("hits", List.of());
+    private volatile boolean algoliaAvailable = true;
+    private InProcessMcpTransport transport;
+
+    @BeforeEach
+    void setUp() {
+        AlgoliaService algolia = new AlgoliaService(null, null) {
+            @Override
+            public CompletableFuture<Map<String, Object>> searchIndexRaw(String indexName, String query, String filters,
+                                                                         List<String> attributesToRetrieve, int hitsPerPage) {
+                return algoliaAvailable
+                        ? CompletableFuture.completedFuture(searchResult)
+                        : CompletableFuture.failedFuture(new IllegalStateException("index " + indexName + " does not exist"));
+            }
+
+            @Override
+            public CompletableFuture<Void> saveRecords(String indexName, List<Map<String, Object>> records) {
+                savedRecords.addAll(records);
+                return CompletableFuture.completedFuture(null);
+            }
+        };
+        McpClient remote = new McpClient(WebClient.builder(), new ObjectMapper()) {
+            @Override
+            public CompletableFuture<Map<String, Object>> callTool(String toolName, Map<String, Object> arguments) {
+                remoteCalls.add(toolName);
+                return CompletableFuture.completedFuture(Map.of("remote", toolName));
+            }
+        };
+        McpToolService tools = new McpToolService(algolia, null, null, null) {
+            @Override
+            public boolean hasTool(String toolName) {
+                return "getUserHesitationData".equals(toolName);
+            }
+
+            @Override
+            public CompletableFuture<Map<String, Object>> executeToolAsync(String toolName, Map<String, Object> arguments) {
+                return CompletableFuture.completedFuture(Map.of("local", toolName));
+            }
+        };
+        StaticListableBeanFactory beans = new StaticListableBeanFactory(Map.of("mcpToolService", tools));
+        transport = new InProcessMcpTransport(algolia, remote, beans.getBeanProvider(McpToolService.class));
+        ReflectionTestUtils.setField(transport, "mode", "in-process");
+    }
+
+    @Test
+    void searchesAlgoliaDirectly() {
+        Map<String, Object> result = transport.callTool("algolia_search", Map.of("index_name", "products", "query", "lamp")).join();
+
+        assertSame(searchResult, result);
+        assertEquals(List.of(), remoteCalls);
+    }
+
+    @Test
+    void savesTheObjectByReference() {
+        Map<String, Object> record = Map.of("objectID", "d1");
+
+        Map<String, Object> result = transport.callTool("algolia_save", Map.of("indexName", "decisions", "object", record)).join();
+
+        assertEquals(Map.of("index", "decisions", "saved", 1), result);
+        assertSame(record, savedRecords.get(0));
+    }
+
+    @Test
+    void answersInvalidArgumentsWithAnError() {
+        Map<String, Object> result = transport.callTool("algolia_save", Map.of("index_name", "decisions")).join();
+
+        assertEquals(-32602, errorCode(result));
+        assertEquals(1L, transport.getStats().get("failedCalls"));
+    }
+
+    @Test
+    void answersFailedAlgoliaCallsWithAnError() {
+        algoliaAvailable = false;
+
+        Map<String, Object> result = transport.callTool("algolia_search", Map.of("index_name", "missing")).join();
+
+        assertEquals(-32603, errorCode(result));
+    }
+
+    @Test
+    void routesRegisteredToolsLocallyAndTheRestRemotely() {
+        assertEquals(Map.of("local", "getUserHesitationData"),
+                transport.callTool("getUserHesitationData", Map.of("userId", "u1")).join());
+        assertEquals(Map.of("remote", "unknownTool"), transport.callTool("unknownTool", null).join());
+
+        assertEquals(List.of("unknownTool"), remoteCalls);
+        assertEquals(1L, transport.getStats().get("localCalls"));
+        assertEquals(1L, transport.getStats().get("remoteCalls"));
+    }
+
+    @Test
+    void httpModeSendsEverythingRemotely() {
+        ReflectionTestUtils.setField(transport, "mode", "http");
+
+        transport.callTool("algolia_search", Map.of("index_name", "products"));
+        transport.callTool("getUserHesitationData", Map.of("userId", "u1"));
+
+        assertEquals(List.of("algolia_search", "getUserHesitationData"), remoteCalls);
+    }
+
+    private static Object errorCode(Map<String, Object> result) {
+        return ((Map<?, ?>) result.get("error")).get("code");
+    }
+}
@@ -0,0 +1,104 @@
+package com.dev.challenge.sdg.service;
+
+import com.dev.challenge.sdg.model.Product;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalProductSearchIndexTest {
+
+    private LocalProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new LocalProductSearchIndex();
+        ReflectionTestUtils.setField(index, "maxPrefixExpansions", 50);
+        ReflectionTestUtils.setField(index, "nameWeight", 3f);
+        ReflectionTestUtils.setField(index, "brandWeight", 2f);
+        ReflectionTestUtils.setField(index, "categoryWeight", 2f);
+        ReflectionTestUtils.setField(index, "tagsWeight", 2f);
+        ReflectionTestUtils.setField(index, "descriptionWeight", 1f);
+        index.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        index.stop();
+    }
+
+    @Test
+    void ranksNameMatchesAboveDescriptionMatches() throws InterruptedException {
+        load(1,
+                product("1", "Travel Mug", "Keeps coffee hot", "Kitchen"),
+                product("2", "Coffee Grinder", "Burr grinder", "Kitchen"),
+                product("3", "Desk Lamp", "Bright light", "Office"));
+
+        assertEquals(List.of("2", "1"), ids(index.search("coffee", 10)));
+        assertEquals(List.of("2"), ids(index.search("coffee", 1)));
+    }
+
+    @Test
+    void matchesTheLastTokenAsPrefix() throws InterruptedException {
+        load(1,
+                product("1", "Wireless Headphones", "Noise cancelling", "Audio"),
+                product("2", "Headband", "Sports", "Fitness"),
+                product("3", "Speaker", "Wireless audio", "Audio"));
+
+        assertEquals(List.of("1", "2"), ids(index.search("head", 10)).stream().sorted().toList());
+        assertEquals("1", ids(index.search("wireless headph", 10)).get(0));
+        assertTrue(index.search("he", 10).isEmpty());
+    }
+
+    @Test
+    void blankOrStopWordQueriesReturnCatalogOrder() throws InterruptedException {
+        load(1,
+                product("1", "Lamp", "", "Office"),
+                product("2", "Chair", "", "Office"),
+                product("3", "Desk", "", "Office"));
+
+        assertEquals(List.of("1", "2"), ids(index.search("  ", 2)));
+        assertEquals(List.of("1", "2", "3"), ids(index.search("show me the", 10)));
+        assertTrue(index.search("lamp", 0).isEmpty());
+    }
+
+    @Test
+    void ignoresSnapshotsOlderThanTheCurrentIndex() throws InterruptedException {
+        load(2, product("1", "Lamp", "", "Office"));
+        load(1, product("2", "Lamp", "", "Office"));
+        load(3, product("3", "Lamp", "", "Office"));
+
+        assertEquals(List.of("3"), ids(index.search("lamp", 10)));
+        assertEquals(3L, index.getStats().get("catalogVersion"));
+    }
+
+    @Test
+    void tokenizesOnNonAlphanumericsAndDropsStopWords() {
+        assertEquals(List.of("usb", "c", "cable", "2m"), LocalProductSearchIndex.tokenize("The USB-C cable, 2m"));
+        assertTrue(LocalProductSearchIndex.tokenize(null).isEmpty());
+    }
+
+    private void load(long version, Product... products) throws InterruptedException {
+        long builds = (Long) index.getStats().get("builds");
+        CatalogSnapshot snapshot = CatalogSnapshot.of(List.of(products), version);
+        index.onCatalogRefreshed(new CatalogRefreshedEvent(snapshot, List.of(products), List.of(), true));
+        // Stale snapshots are skipped without counting a build, so wait on the queue draining instead
+        for (int i = 0; i < 200 && (Long) index.getStats().get("builds") == builds
+                && version > (Long) index.getStats().get("catalogVersion"); i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static Product product(String id, String name, String description, String category) {
+        return Product.builder().objectId(id).name(name).description(description).category(category).build();
+    }
+
+    private static List<String> ids(List<Product> products) {
+        return products.stream().map(Product::getObjectId).toList();
+    }
+}
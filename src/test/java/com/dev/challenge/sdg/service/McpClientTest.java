@@ -0,0 +1,102 @@
+package com.dev.challenge.sdg.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class McpClientTest {
+
+    private final McpClient client = new McpClient(WebClient.builder(), new ObjectMapper());
+
+    @Test
+    void collidingCallerIdsGetDistinctBatchIds() {
+        McpClient.PendingCall first = client.newPendingCall(request("search_1"), "search");
+        McpClient.PendingCall second = client.newPendingCall(request("search_1"), "search");
+
+        assertNotEquals(first.batchId(), second.batchId());
+    }
+
+    @Test
+    void responsesAreRoutedByBatchIdRegardlessOfOrder() {
+        McpClient.PendingCall first = client.newPendingCall(request("search_1"), "search");
+        McpClient.PendingCall second = client.newPendingCall(request("search_1"), "search");
+
+        client.completeBatch(List.of(first, second), List.of(
+                Map.of("id", second.batchId(), "result", "second"),
+                Map.of("id", first.batchId(), "result", "first")));
+
+        assertEquals("first", first.result.join().get("result"));
+        assertEquals("second", second.result.join().get("result"));
+        assertEquals("search_1", first.result.join().get("id"), "the caller's id is restored");
+    }
+
+    @Test
+    void callWithoutCallerIdGetsNoId() {
+        McpClient.PendingCall call = client.newPendingCall(Map.of("method", "tools/call"), "search");
+
+        client.completeBatch(List.of(call), List.of(Map.of("id", call.batchId(), "result", "ok")));
+
+        assertFalse(call.result.join().containsKey("id"));
+    }
+
+    @Test
+    void missingResponseFailsOnlyThatCall() {
+        McpClient.PendingCall answered = client.newPendingCall(request("a"), "search");
+        McpClient.PendingCall unanswered = client.newPendingCall(request("b"), "analytics");
+
+        client.completeBatch(List.of(answered, unanswered), List.of(Map.of("id", answered.batchId(), "result", "ok")));
+
+        assertEquals("ok", answered.result.join().get("result"));
+        assertTrue(unanswered.result.isCompletedExceptionally());
+    }
+
+    @Test
+    void unwrapsToolMapFromLocalServerResult() {
+        Map<String, Object> toolMap = Map.of("hits", List.of());
+        Map<String, Object> response = Map.of("jsonrpc", "2.0", "id", "call_1",
+                "result", Map.of("content", toolMap, "error", false));
+
+        assertEquals(toolMap, client.toolResult(response));
+    }
+
+    @Test
+    void parsesJsonTextContentBlocks() {
+        Map<String, Object> response = Map.of("result", Map.of("isError", false,
+                "content", List.of(Map.of("type", "text", "text", "{\"nbHits\":3}"))));
+
+        assertEquals(Map.of("nbHits", 3), client.toolResult(response));
+    }
+
+    @Test
+    void failuresUseTheInProcessErrorShape() {
+        Map<String, Object> rpcError = Map.of("code", -32601, "message", "Method not found");
+
+        assertEquals(Map.of("error", rpcError), client.toolResult(Map.of("error", rpcError)));
+        assertEquals(-32000, errorCode(client.toolResult(Map.of("result",
+                Map.of("error", true, "errorMessage", "boom")))));
+    }
+
+    @Test
+    void disabledClientAnswersWithAnError() {
+        ReflectionTestUtils.setField(client, "mcpEnabled", false);
+
+        assertEquals(-32603, errorCode(client.callTool("algolia_search", Map.of()).join()));
+    }
+
+    private static int errorCode(Map<String, Object> result) {
+        return (Integer) ((Map<?, ?>) result.get("error")).get("code");
+    }
+
+    private static Map<String, Object> request(String id) {
+        return Map.of("id", id, "method", "tools/call");
+    }
+}
@@ -0,0 +1,158 @@
+package com.dev.challenge.sdg.service;
+
+import com.dev.challenge.sdg.model.Product;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class McpDataEnrichmentServiceTest {
+
+    private final List<String> productLookups = new CopyOnWriteArrayList<>();
+    private final List<CompletableFuture<Product>> pendingLookups = new CopyOnWriteArrayList<>();
+    private volatile boolean holdLookups;
+
+    @Test
+    void freshEntriesAreServedFromTheCache() throws Exception {
+        McpDataEnrichmentService enrichment = enrichment(60_000, 120_000, 10);
+
+        Map<String, Object> first = enrichment.enrichProductData("p1", null).get();
+        Map<String, Object> second = enrichment.enrichProductData("p1", null).get();
+
+        assertEquals("success", first.get("enrichment_status"));
+        assertEquals("mid-range", ((Map<?, ?>) first.get("ai_enrichment")).get("market_position"));
+        assertEquals(first, second);
+        assertNotSame(first, second);
+        assertEquals(List.of("p1"), productLookups);
+        assertEquals(1L, enrichment.getCacheStats().get("hits"));
+        assertEquals(1L, enrichment.getCacheStats().get("misses"));
+    }
+
+    @Test
+    void contextBucketsAreCachedSeparately() throws Exception {
+        McpDataEnrichmentService enrichment = enrichment(60_000, 120_000, 10);
+
+        enrichment.enrichProductData("p1", Map.of("user_engagement", Map.of("engagement_score", 0.9))).get();
+        enrichment.enrichProductData("p1", Map.of("user_engagement", Map.of("engagement_score", 0.8))).get();
+        enrichment.enrichProductData("p1", Map.of("user_engagement", Map.of("engagement_score", 0.1))).get();
+
+        assertEquals(List.of("p1", "p1"), productLookups);
+        assertEquals(2, enrichment.getCacheStats().get("entries"));
+    }
+
+    @Test
+    void staleEntriesAreServedWhileOneBackgroundRefreshRuns() throws Exception {
+        McpDataEnrichmentService enrichment = enrichment(0, 120_000, 10);
+        Map<String, Object> original = enrichment.enrichProductData("p1", null).get();
+
+        holdLookups = true;
+        Map<String, Object> stale = enrichment.enrichProductData("p1", null).get();
+        enrichment.enrichProductData("p1", null).get();
+
+        assertEquals(original, stale);
+        assertEquals(2, productLookups.size());
+        assertEquals(2L, enrichment.getCacheStats().get("staleHits"));
+        assertEquals(1L, enrichment.getCacheStats().get("backgroundRefreshes"));
+
+        pendingLookups.get(0).complete(product("p1"));
+        await(() -> enrichment.getCacheStats().get("inFlight").equals(0));
+    }
+
+    @Test
+    void concurrentMissesShareOneEnrichment() throws Exception {
+        McpDataEnrichmentService enrichment = enrichment(60_000, 120_000, 10);
+        holdLookups = true;
+
+        CompletableFuture<Map<String, Object>> first = enrichment.enrichProductData("p1", null);
+        CompletableFuture<Map<String, Object>> second = enrichment.enrichProductData("p1", null);
+        pendingLookups.get(0).complete(product("p1"));
+
+        assertEquals(first.get(), second.get());
+        assertEquals(1, productLookups.size());
+        assertEquals(2L, enrichment.getCacheStats().get("misses"));
+    }
+
+    @Test
+    void fallbacksAreNotCached() throws Exception {
+        McpDataEnrichmentService enrichment = enrichment(60_000, 120_000, 10);
+
+        Map<String, Object> missing = enrichment.enrichProductData("unknown", null).get();
+        enrichment.enrichProductData("unknown", null).get();
+
+        assertEquals("fallback", missing.get("enrichment_status"));
+        assertEquals(List.of("unknown", "unknown"), productLookups);
+        assertEquals(0, enrichment.getCacheStats().get("entries"));
+    }
+
+    @Test
+    void leastRecentlyServedEntryIsEvictedBeyondTheLimit() throws Exception {
+        McpDataEnrichmentService enrichment = enrichment(60_000, 120_000, 2);
+
+        enrichment.enrichProductData("p1", null).get();
+        enrichment.enrichProductData("p2", null).get();
+        enrichment.enrichProductData("p1", null).get();
+        enrichment.enrichProductData("p3", null).get();
+        enrichment.enrichProductData("p1", null).get();
+        enrichment.enrichProductData("p2", null).get();
+
+        assertEquals(List.of("p1", "p2", "p3", "p2"), productLookups);
+        assertEquals(2, enrichment.getCacheStats().get("entries"));
+    }
+
+    private McpDataEnrichmentService enrichment(long freshMs, long staleMs, int maxEntries) {
+        CatalogReplicaService replica = new CatalogReplicaService(null, null) {
+            @Override
+            public CompletableFuture<Product> getProduct(String productId) {
+                productLookups.add(productId);
+                if (holdLookups) {
+                    CompletableFuture<Product> pending = new CompletableFuture<>();
+                    pendingLookups.add(pending);
+                    return pending;
+                }
+                return CompletableFuture.completedFuture(productId.startsWith("p") ? product(productId) : null);
+            }
+        };
+        AlgoliaService algolia = new AlgoliaService(null, null) {
+            @Override
+            public void indexEnrichedProduct(String productId, Map<String, Object> enrichedData) {
+            }
+        };
+        McpTransport transport = (toolName, arguments) -> CompletableFuture.completedFuture(
+                Map.of("content", "{\"market_position\": \"mid-range\", \"confidence_score\": 0.8}"));
+
+        McpDataEnrichmentService enrichment = new McpDataEnrichmentService();
+        ReflectionTestUtils.setField(enrichment, "catalogReplicaService", replica);
+        ReflectionTestUtils.setField(enrichment, "algoliaService", algolia);
+        ReflectionTestUtils.setField(enrichment, "mcpTransport", transport);
+        ReflectionTestUtils.setField(enrichment, "freshMs", freshMs);
+        ReflectionTestUtils.setField(enrichment, "staleMs", staleMs);
+        ReflectionTestUtils.setField(enrichment, "cacheMaxEntries", maxEntries);
+        return enrichment;
+    }
+
+    private static Product product(String id) {
+        return Product.builder()
+                .objectId(id)
+                .name("Product " + id)
+                .category("Electronics")
+                .price(new BigDecimal("49.99"))
+                .build();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met in time");
+            Thread.sleep(5);
+        }
+    }
+}
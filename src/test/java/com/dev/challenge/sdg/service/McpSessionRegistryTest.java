@@ -0,0 +1,115 @@
+package com.dev.challenge.sdg.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class McpSessionRegistryTest {
+
+    private McpSessionRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new McpSessionRegistry();
+        ReflectionTestUtils.setField(registry, "sessionIdleTimeoutMs", 60_000L);
+        ReflectionTestUtils.setField(registry, "maxSessions", 2);
+        ReflectionTestUtils.setField(registry, "streamTimeoutMs", 10_000L);
+        ReflectionTestUtils.setField(registry, "progressIntervalMs", 10L);
+        registry.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.stop();
+    }
+
+    @Test
+    void sessionsLiveUntilClosed() {
+        String sessionId = registry.createSession();
+
+        assertTrue(registry.touch(sessionId));
+        assertTrue(registry.closeSession(sessionId));
+        assertFalse(registry.touch(sessionId));
+        assertFalse(registry.closeSession(sessionId));
+    }
+
+    @Test
+    void rejectsSessionsBeyondTheLimit() {
+        assertNotNull(registry.createSession());
+        assertNotNull(registry.createSession());
+
+        assertNull(registry.createSession());
+        assertEquals(2, registry.getStats().get("activeSessions"));
+    }
+
+    @Test
+    void expiresIdleSessions() {
+        String sessionId = registry.createSession();
+        ReflectionTestUtils.setField(registry, "sessionIdleTimeoutMs", -1L);
+
+        registry.expireIdleSessions();
+
+        assertFalse(registry.touch(sessionId));
+        assertEquals(1L, registry.getStats().get("expiredSessions"));
+    }
+
+    @Test
+    void streamsProgressUntilTheResponseArrives() throws InterruptedException {
+        CompletableFuture<Map<String, Object>> response = new CompletableFuture<>();
+
+        SseEmitter emitter = registry.stream(response, "token-1", "searchProducts");
+        Thread.sleep(60);
+        response.complete(Map.of("jsonrpc", "2.0", "id", "1", "result", Map.of()));
+
+        List<Map<?, ?>> messages = messages(emitter);
+        Map<?, ?> last = messages.get(messages.size() - 1);
+        assertTrue(messages.size() >= 2);
+        assertEquals("1", last.get("id"));
+        for (Map<?, ?> progress : messages.subList(0, messages.size() - 1)) {
+            assertEquals("notifications/progress", progress.get("method"));
+            assertEquals("token-1", ((Map<?, ?>) progress.get("params")).get("progressToken"));
+        }
+        assertTrue((Boolean) ReflectionTestUtils.getField(emitter, "complete"));
+    }
+
+    @Test
+    void sendsOnlyTheResponseWithoutAProgressToken() throws InterruptedException {
+        CompletableFuture<Map<String, Object>> response = new CompletableFuture<>();
+
+        SseEmitter emitter = registry.stream(response, null, "searchProducts");
+        Thread.sleep(30);
+        response.complete(Map.of("jsonrpc", "2.0", "id", "1", "result", Map.of()));
+
+        assertEquals(1, messages(emitter).size());
+        assertEquals(1L, registry.getStats().get("streamedCalls"));
+    }
+
+    /**
+     * JSON-RPC messages buffered by an emitter that no response has been attached to yet
+     */
+    private static List<Map<?, ?>> messages(SseEmitter emitter) {
+        List<Map<?, ?>> messages = new ArrayList<>();
+        for (Object item : (Collection<?>) ReflectionTestUtils.getField(emitter, "earlySendAttempts")) {
+            Object data = ((ResponseBodyEmitter.DataWithMediaType) item).getData();
+            if (data instanceof Map<?, ?> message) {
+                messages.add(message);
+            }
+        }
+        return messages;
+    }
+}
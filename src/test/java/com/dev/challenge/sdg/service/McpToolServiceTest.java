@@ -0,0 +1,118 @@
+package com.dev.challenge.sdg.service;
+
+import com.dev.challenge.sdg.model.UserEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class McpToolServiceTest {
+
+    private final List<CompletableFuture<List<UserEvent>>> historyCalls = new ArrayList<>();
+
+    @Test
+    void concurrentIdenticalCallsShareOneExecution() throws Exception {
+        McpToolService tools = tools(Map.of("getUserHesitationData", 60_000), 10);
+
+        CompletableFuture<Map<String, Object>> first = tools.executeToolAsync("getUserHesitationData", Map.of("userId", "u1"));
+        CompletableFuture<Map<String, Object>> second = tools.executeToolAsync("getUserHesitationData", Map.of("userId", "u1"));
+        historyCalls.get(0).complete(List.of());
+
+        assertEquals(1, historyCalls.size());
+        assertEquals("u1", first.get().get("userId"));
+        assertSame(first.get(), second.get());
+        assertEquals(Map.of("ttlMs", 60_000L, "entries", 1, "hits", 1L, "misses", 1L),
+                tools.getCacheStats().get("getUserHesitationData"));
+    }
+
+    @Test
+    void differentArgumentsAreCachedSeparately() {
+        McpToolService tools = tools(Map.of("getUserHesitationData", 60_000), 10);
+
+        tools.executeToolAsync("getUserHesitationData", Map.of("userId", "u1"));
+        tools.executeToolAsync("getUserHesitationData", Map.of("userId", "u2"));
+
+        assertEquals(2, historyCalls.size());
+    }
+
+    @Test
+    void failuresAreNotCached() {
+        McpToolService tools = tools(Map.of("getUserHesitationData", 60_000), 10);
+
+        CompletableFuture<Map<String, Object>> failed = tools.executeToolAsync("getUserHesitationData", Map.of("userId", "u1"));
+        historyCalls.get(0).completeExceptionally(new IllegalStateException("unavailable"));
+        tools.executeToolAsync("getUserHesitationData", Map.of("userId", "u1"));
+
+        ExecutionException error = assertThrows(ExecutionException.class, failed::get);
+        assertTrue(error.getCause().getMessage().contains("unavailable"));
+        assertEquals(2, historyCalls.size());
+    }
+
+    @Test
+    void expiredEntriesRunTheToolAgain() throws InterruptedException {
+        McpToolService tools = tools(Map.of("getUserHesitationData", 1), 10);
+
+        tools.executeToolAsync("getUserHesitationData", Map.of("userId", "u1"));
+        historyCalls.get(0).complete(List.of());
+        Thread.sleep(5);
+        tools.executeToolAsync("getUserHesitationData", Map.of("userId", "u1"));
+
+        assertEquals(2, historyCalls.size());
+    }
+
+    @Test
+    void evictsTheOldestEntriesBeyondTheLimit() {
+        McpToolService tools = tools(Map.of("getUserHesitationData", 60_000), 2);
+
+        tools.executeToolAsync("getUserHesitationData", Map.of("userId", "u1"));
+        tools.executeToolAsync("getUserHesitationData", Map.of("userId", "u2"));
+        tools.executeToolAsync("getUserHesitationData", Map.of("userId", "u3"));
+        tools.executeToolAsync("getUserHesitationData", Map.of("userId", "u1"));
+
+        assertEquals(4, historyCalls.size());
+    }
+
+    @Test
+    void uncachedToolsAlwaysRun() {
+        McpToolService tools = tools(Map.of(), 10);
+
+        tools.executeToolAsync("getUserHesitationData", Map.of("userId", "u1"));
+        tools.executeToolAsync("getUserHesitationData", Map.of("userId", "u1"));
+
+        assertEquals(2, historyCalls.size());
+        assertTrue(tools.getCacheStats().isEmpty());
+    }
+
+    @Test
+    void unknownToolsFail() {
+        McpToolService tools = tools(Map.of(), 10);
+
+        assertTrue(tools.executeToolAsync("missing", Map.of()).isCompletedExceptionally());
+        assertTrue(tools.hasTool("getUserHesitationData"));
+    }
+
+    private McpToolService tools(Map<String, Number> cacheTtlMs, int cacheMaxEntries) {
+        AlgoliaService algolia = new AlgoliaService(null, null) {
+            @Override
+            public CompletableFuture<List<UserEvent>> getUserBehaviorHistory(String userId, int limit) {
+                CompletableFuture<List<UserEvent>> history = new CompletableFuture<>();
+                historyCalls.add(history);
+                return history;
+            }
+        };
+        McpToolService tools = new McpToolService(algolia, null, null, null);
+        ReflectionTestUtils.setField(tools, "cacheTtlMs", cacheTtlMs);
+        ReflectionTestUtils.setField(tools, "cacheMaxEntries", cacheMaxEntries);
+        tools.registerTools();
+        return tools;
+    }
+}
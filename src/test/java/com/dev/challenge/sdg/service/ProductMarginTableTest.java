@@ -0,0 +1,82 @@
+package com.dev.challenge.sdg.service;
+
+import com.dev.challenge.sdg.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductMarginTableTest {
+
+    private final ProductMarginTable table = new ProductMarginTable();
+
+    @Test
+    void storesFractionsAsPercentages() {
+        table.putAll(List.of(product("1", 0.35, "Audio", "Acme"), product("2", 42.0, "Office", null)));
+
+        assertEquals(35.0, table.getMarginPercentage("1"), 1e-9);
+        assertEquals(42.0, table.getMarginPercentage("2"), 1e-9);
+        assertEquals("Audio", table.getCategory("1"));
+        assertEquals("Acme", table.getBrand("1"));
+        assertNull(table.getBrand("2"));
+    }
+
+    @Test
+    void unknownProductsHaveNoMargin() {
+        assertTrue(Double.isNaN(table.getMarginPercentage("missing")));
+        assertTrue(Double.isNaN(table.getMarginPercentage(null)));
+        assertNull(table.getCategory(null));
+    }
+
+    @Test
+    void countsOnlyEntriesThatChanged() {
+        table.putAll(List.of(product("1", 0.35, "Audio", "Acme"), product("2", 0.2, "Office", null)));
+
+        int changed = table.putAll(List.of(product("1", 0.35, "Audio", "Acme"), product("2", 0.25, "Office", null),
+                product(null, 0.5, "Office", null)));
+
+        assertEquals(1, changed);
+        assertEquals(25.0, table.getMarginPercentage("2"), 1e-9);
+    }
+
+    @Test
+    void productsWithoutMarginAreTrackedButNotCounted() {
+        table.putAll(List.of(product("1", null, "Audio", "Acme"), product("2", 0.2, "Office", null)));
+
+        assertEquals(1, table.size());
+        assertEquals(2, table.getStats().get("entries"));
+        assertEquals("Audio", table.getCategory("1"));
+    }
+
+    @Test
+    void singlePutKeepsCategoryAndBrand() {
+        table.putAll(List.of(product("1", 0.35, "Audio", "Acme")));
+
+        table.put("1", 0.1);
+        table.put("3", 0.5);
+
+        assertEquals(10.0, table.getMarginPercentage("1"), 1e-9);
+        assertEquals("Audio", table.getCategory("1"));
+        assertEquals(50.0, table.getMarginPercentage("3"), 1e-9);
+        assertNull(table.getCategory("3"));
+    }
+
+    @Test
+    void catalogEventsApplyChangesAndRemovals() {
+        table.putAll(List.of(product("1", 0.35, "Audio", "Acme"), product("2", 0.2, "Office", null)));
+
+        table.onCatalogRefreshed(new CatalogRefreshedEvent(CatalogSnapshot.empty(),
+                List.of(product("1", 0.4, "Audio", "Acme")), List.of("2"), true));
+
+        assertEquals(40.0, table.getMarginPercentage("1"), 1e-9);
+        assertTrue(Double.isNaN(table.getMarginPercentage("2")));
+        assertEquals(1, table.size());
+    }
+
+    private static Product product(String id, Double margin, String category, String brand) {
+        return Product.builder().objectId(id).profitMargin(margin).category(category).brand(brand).build();
+    }
+}
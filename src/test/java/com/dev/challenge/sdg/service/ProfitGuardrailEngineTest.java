@@ -0,0 +1,142 @@
+package com.dev.challenge.sdg.service;
+
+import com.dev.challenge.sdg.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProfitGuardrailEngineTest {
+
+    private final List<Map<String, Object>> indexedRules = new ArrayList<>();
+    private final ProductMarginTable marginTable = new ProductMarginTable();
+    private ProfitGuardrailEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        AlgoliaService algolia = new AlgoliaService(null, null) {
+            @Override
+            public CompletableFuture<List<Map<String, Object>>> browseRecords(String indexName) {
+                return CompletableFuture.completedFuture(indexedRules);
+            }
+        };
+        engine = new ProfitGuardrailEngine(algolia, marginTable);
+        ReflectionTestUtils.setField(engine, "rulesIndex", "");
+        ReflectionTestUtils.setField(engine, "reviewBand", 2.0);
+        ReflectionTestUtils.setField(engine, "maxDiscountPercentage", 50.0);
+        configure("");
+    }
+
+    @Test
+    void fallsBackToTheDefaultRule() {
+        ProfitGuardrailEngine.Guardrail guardrail = engine.lookup("Audio", "Acme", "premium");
+
+        assertEquals("default", guardrail.getSource());
+        assertEquals(0.8, guardrail.getMarginShare(), 1e-9);
+        assertEquals(50.0, guardrail.getMaxDiscount(), 1e-9);
+    }
+
+    @Test
+    void mostSpecificRuleWins() {
+        configure("""
+                category=Audio margin-share=0.5
+                category=Audio brand=Acme margin-share=0.4
+                category=Audio brand=Acme segment=budget margin-share=0.3
+                segment=budget max-discount=20
+                """);
+
+        assertEquals(0.3, engine.lookup("Audio", "Acme", "budget").getMarginShare(), 1e-9);
+        assertEquals(0.4, engine.lookup("Audio", "Acme", "premium").getMarginShare(), 1e-9);
+        assertEquals(0.5, engine.lookup("Audio", "Other", "premium").getMarginShare(), 1e-9);
+        assertEquals(20.0, engine.lookup("Office", null, "budget").getMaxDiscount(), 1e-9);
+        assertEquals("default", engine.lookup("Office", null, "premium").getSource());
+    }
+
+    @Test
+    void wildcardRuleReplacesTheDefaultAndFillsUnsetLimits() {
+        configure("""
+                category=* max-discount=30
+                category=Audio margin-share=0.5
+                """);
+
+        ProfitGuardrailEngine.Guardrail audio = engine.lookup("Audio", null, null);
+
+        assertEquals(0.5, audio.getMarginShare(), 1e-9);
+        assertEquals(30.0, audio.getMaxDiscount(), 1e-9);
+        assertEquals(30.0, engine.lookup(null, null, null).getMaxDiscount(), 1e-9);
+    }
+
+    @Test
+    void skipsMalformedRulesOnly() {
+        configure("""
+                category=Audio margin-share=-1
+                # comment
+                category=Office margin-share=0.6 oops
+                """);
+
+        assertEquals("default", engine.lookup("Audio", null, null).getSource());
+        assertEquals(0.6, engine.lookup("Office", null, null).getMarginShare(), 1e-9);
+        assertEquals(1L, engine.getStats().get("skippedRules"));
+    }
+
+    @Test
+    void indexedRulesOverrideConfiguredOnes() {
+        ReflectionTestUtils.setField(engine, "configuredRules", "category=Audio margin-share=0.5");
+        ReflectionTestUtils.setField(engine, "rulesIndex", "guardrails");
+        indexedRules.add(Map.of("category", "Audio", "marginShare", 0.25));
+        indexedRules.add(Map.of("brand", "Acme", "maxDiscount", "15"));
+
+        assertEquals(3, engine.reload());
+        assertEquals(0.25, engine.lookup("Audio", null, null).getMarginShare(), 1e-9);
+        assertEquals(15.0, engine.lookup(null, "Acme", null).getMaxDiscount(), 1e-9);
+    }
+
+    @Test
+    void manyRulesStayReachable() {
+        StringBuilder rules = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            rules.append("category=C").append(i).append(" brand=B").append(i % 7)
+                    .append(" max-discount=").append(i % 50).append('\n');
+        }
+        configure(rules.toString());
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i % 50, engine.lookup("C" + i, "B" + (i % 7), null).getMaxDiscount(), 1e-9);
+        }
+        assertEquals("default", engine.lookup("C1", "B0", null).getSource());
+    }
+
+    @Test
+    void classifiesAroundTheReviewBand() {
+        assertEquals(ProfitGuardrailEngine.Verdict.APPROVE, engine.classify(18, 20));
+        assertEquals(ProfitGuardrailEngine.Verdict.REVIEW, engine.classify(19, 20));
+        assertEquals(ProfitGuardrailEngine.Verdict.REVIEW, engine.classify(22, 20));
+        assertEquals(ProfitGuardrailEngine.Verdict.VETO, engine.classify(22.5, 20));
+        assertEquals(ProfitGuardrailEngine.Verdict.REVIEW, engine.classify(1, Double.NaN));
+    }
+
+    @Test
+    void productLookupUsesTheMarginTable() {
+        configure("category=Audio brand=Acme margin-share=0.4");
+        marginTable.putAll(List.of(Product.builder().objectId("1").profitMargin(0.3)
+                .category("Audio").brand("Acme").build()));
+
+        ProfitGuardrailEngine.Guardrail guardrail = engine.lookupForProduct("1", null);
+
+        assertEquals(0.4, guardrail.getMarginShare(), 1e-9);
+        assertEquals(12.0, guardrail.maxAllowedDiscount(marginTable.getMarginPercentage("1")), 1e-9);
+        assertTrue(Double.isNaN(engine.lookupForProduct("missing", null).maxAllowedDiscount(Double.NaN)));
+    }
+
+    private void configure(String rules) {
+        ReflectionTestUtils.setField(engine, "configuredRules", rules);
+        engine.init();
+    }
+}
@@ -0,0 +1,120 @@
+package com.dev.challenge.sdg.service;
+
+import com.dev.challenge.sdg.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecommendationScorerTest {
+
+    private RecommendationScorer scorer;
+
+    @BeforeEach
+    void setUp() {
+        scorer = new RecommendationScorer();
+        ReflectionTestUtils.setField(scorer, "ratingWeight", 0.3f);
+        ReflectionTestUtils.setField(scorer, "marginWeight", 0.2f);
+        ReflectionTestUtils.setField(scorer, "popularityWeight", 0.3f);
+        ReflectionTestUtils.setField(scorer, "availabilityWeight", 0.2f);
+        ReflectionTestUtils.setField(scorer, "parallelThreshold", Integer.MAX_VALUE);
+        ReflectionTestUtils.setField(scorer, "chunkSize", 1024);
+    }
+
+    @Test
+    void keepsTheBestKInDescendingOrder() {
+        CatalogSnapshot catalog = randomCatalog(3000, 7);
+        List<RecommendationScorer.Scored> all = scorer.topK(catalog, scorer.defaultWeights(), catalog.size(), null);
+
+        List<RecommendationScorer.Scored> top = scorer.topK(catalog, scorer.defaultWeights(), 25, null);
+
+        assertEquals(positions(all.subList(0, 25)), positions(top));
+        for (int i = 1; i < all.size(); i++) {
+            assertTrue(all.get(i - 1).getScore() >= all.get(i).getScore());
+        }
+    }
+
+    @Test
+    void parallelScoringMatchesSequential() {
+        CatalogSnapshot catalog = randomCatalog(20_000, 11);
+        List<Integer> sequential = positions(scorer.topK(catalog, scorer.defaultWeights(), 50, null));
+
+        ReflectionTestUtils.setField(scorer, "parallelThreshold", 1000);
+        List<Integer> parallel = positions(scorer.topK(catalog, scorer.defaultWeights(), 50, null));
+
+        assertEquals(sequential, parallel);
+    }
+
+    @Test
+    void breaksTiesByProductId() {
+        CatalogSnapshot catalog = CatalogSnapshot.of(List.of(
+                product("C", 4.0, "Books"), product("A", 4.0, "Books"), product("B", 4.0, "Books"),
+                product("D", 3.0, "Books")), 1);
+
+        List<RecommendationScorer.Scored> top = scorer.topK(catalog, scorer.defaultWeights(), 2, null);
+
+        assertEquals(List.of("A", "B"), ids(catalog, top));
+    }
+
+    @Test
+    void appliesFilterAndCategoryBoosts() {
+        CatalogSnapshot catalog = CatalogSnapshot.of(List.of(
+                product("A", 5.0, "Books"), product("B", 1.0, "Games"), product("C", 4.0, "Games")), 1);
+        float[] boosts = new float[catalog.categoryCount()];
+        boosts[catalog.categoryIdOf("Games")] = 1f;
+
+        List<RecommendationScorer.Scored> boosted = scorer.topK(catalog,
+                scorer.defaultWeights().withCategoryBoosts(boosts), 3, null);
+        List<RecommendationScorer.Scored> filtered = scorer.topK(catalog, scorer.defaultWeights(), 3,
+                position -> !"C".equals(catalog.product(position).getObjectId()));
+
+        assertEquals(List.of("C", "B", "A"), ids(catalog, boosted));
+        assertEquals(List.of("A", "B"), ids(catalog, filtered));
+    }
+
+    @Test
+    void handlesEdgeSizes() {
+        CatalogSnapshot catalog = randomCatalog(5, 3);
+
+        assertTrue(scorer.topK(catalog, scorer.defaultWeights(), 0, null).isEmpty());
+        assertTrue(scorer.topK(catalog, scorer.defaultWeights(), -1, null).isEmpty());
+        assertEquals(5, scorer.topK(catalog, scorer.defaultWeights(), 10, null).size());
+        assertTrue(scorer.topK(CatalogSnapshot.empty(), scorer.defaultWeights(), 10, null).isEmpty());
+    }
+
+    private static CatalogSnapshot randomCatalog(int size, long seed) {
+        Random random = new Random(seed);
+        List<Product> products = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            // Coarse values so that many products tie on score
+            products.add(Product.builder()
+                    .objectId(String.format("P%05d", random.nextInt(1_000_000)) + "-" + i)
+                    .averageRating(random.nextInt(6) * 1.0)
+                    .profitMargin(random.nextInt(5) * 0.1)
+                    .numberOfReviews(random.nextInt(4) * 500)
+                    .inventoryLevel(random.nextInt(3) * 60)
+                    .category("C" + random.nextInt(4))
+                    .build());
+        }
+        return CatalogSnapshot.of(products, 1);
+    }
+
+    private static Product product(String id, double rating, String category) {
+        return Product.builder().objectId(id).averageRating(rating).profitMargin(0.2)
+                .numberOfReviews(100).inventoryLevel(10).category(category).build();
+    }
+
+    private static List<Integer> positions(List<RecommendationScorer.Scored> scored) {
+        return scored.stream().map(RecommendationScorer.Scored::getPosition).toList();
+    }
+
+    private static List<String> ids(CatalogSnapshot catalog, List<RecommendationScorer.Scored> scored) {
+        return scored.stream().map(entry -> catalog.product(entry.getPosition()).getObjectId()).toList();
+    }
+}
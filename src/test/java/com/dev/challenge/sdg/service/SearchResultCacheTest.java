@@ -0,0 +1,129 @@
+package com.dev.challenge.sdg.service;
+
+import com.dev.challenge.sdg.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SearchResultCacheTest {
+
+    private CatalogSnapshot snapshot;
+    private SearchResultCache cache;
+
+    @BeforeEach
+    void setUp() {
+        snapshot = catalog(1, product("1", "Coffee Grinder", "Kitchen"), product("2", "Desk Lamp", "Office"));
+        CatalogReplicaService replica = new CatalogReplicaService(null, null) {
+            @Override
+            public CatalogSnapshot getSnapshot() {
+                return snapshot;
+            }
+        };
+        cache = new SearchResultCache(replica);
+        ReflectionTestUtils.setField(cache, "ttlMs", 60_000L);
+        ReflectionTestUtils.setField(cache, "maxEntries", 100);
+    }
+
+    @Test
+    void resolvesHitsAgainstTheCurrentCatalog() {
+        cache.put("coffee", 10, null, List.of(snapshot.product(0)));
+        Product renamed = product("1", "Coffee Grinder Pro", "Kitchen");
+        snapshot = catalog(2, renamed, product("2", "Desk Lamp", "Office"));
+
+        List<Product> hit = cache.get("  COFFEE!", 10, "");
+
+        assertEquals(List.of(renamed), hit);
+        assertNull(cache.get("coffee", 5, null));
+        assertEquals(1L, cache.getStats().get("hits"));
+    }
+
+    @Test
+    void missesOnceAProductLeavesTheCatalog() {
+        cache.put("lamp", 10, null, List.of(snapshot.product(1)));
+        snapshot = catalog(2, product("1", "Coffee Grinder", "Kitchen"));
+
+        assertNull(cache.get("lamp", 10, null));
+        assertEquals(0, cache.getStats().get("entries"));
+    }
+
+    @Test
+    void skipsResultsTheReplicaCannotResolve() {
+        cache.put("chair", 10, null, List.of(product("9", "Chair", "Office")));
+
+        assertNull(cache.get("chair", 10, null));
+    }
+
+    @Test
+    void expiresAfterTheTtl() throws InterruptedException {
+        ReflectionTestUtils.setField(cache, "ttlMs", 1L);
+        cache.put("coffee", 10, null, List.of(snapshot.product(0)));
+        Thread.sleep(5);
+
+        assertNull(cache.get("coffee", 10, null));
+    }
+
+    @Test
+    void deltaInvalidatesEntriesByProductOrQueryTerm() {
+        cache.put("coffee", 10, null, List.of(snapshot.product(0)));
+        cache.put("lamp", 10, null, List.of(snapshot.product(1)));
+        cache.put("grinder", 10, null, List.of());
+        cache.put("", 10, null, List.of(snapshot.product(0), snapshot.product(1)));
+
+        Product changed = product("1", "Burr Grinder", "Kitchen");
+        cache.onCatalogRefreshed(new CatalogRefreshedEvent(snapshot, List.of(changed), List.of(), false));
+
+        assertNull(cache.get("coffee", 10, null));
+        assertNull(cache.get("grinder", 10, null));
+        assertNull(cache.get("", 10, null));
+        assertNotNull(cache.get("lamp", 10, null));
+        assertEquals(3L, cache.getStats().get("invalidations"));
+    }
+
+    @Test
+    void fullLoadClearsEverything() {
+        cache.put("coffee", 10, null, List.of(snapshot.product(0)));
+        cache.put("lamp", 10, null, List.of(snapshot.product(1)));
+
+        cache.onCatalogRefreshed(new CatalogRefreshedEvent(snapshot, List.of(), List.of(), true));
+
+        assertEquals(0, cache.getStats().get("entries"));
+        assertEquals(2L, cache.getStats().get("invalidations"));
+    }
+
+    @Test
+    void evictsTheLessPopularHalfWhenFull() {
+        ReflectionTestUtils.setField(cache, "maxEntries", 4);
+        for (int i = 0; i < 4; i++) {
+            cache.put("query " + i, 10, null, List.of(snapshot.product(0)));
+        }
+        cache.get("query 2", 10, null);
+        cache.get("query 3", 10, null);
+
+        cache.put("query 4", 10, null, List.of(snapshot.product(0)));
+
+        assertEquals(3, cache.getStats().get("entries"));
+        assertNotNull(cache.get("query 2", 10, null));
+        assertNotNull(cache.get("query 3", 10, null));
+        assertNotNull(cache.get("query 4", 10, null));
+    }
+
+    @Test
+    void normalizesCaseAndPunctuation() {
+        assertEquals("usb c cable", SearchResultCache.normalize("  USB-C   cable! "));
+        assertEquals("", SearchResultCache.normalize(null));
+    }
+
+    private static CatalogSnapshot catalog(long version, Product... products) {
+        return CatalogSnapshot.of(List.of(products), version);
+    }
+
+    private static Product product(String id, String name, String category) {
+        return Product.builder().objectId(id).name(name).category(category).build();
+    }
+}
@@ -0,0 +1,160 @@
+package com.dev.challenge.sdg.service;
+
+import com.dev.challenge.sdg.model.Product;
+import com.dev.challenge.sdg.model.UserEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class UserAffinityServiceTest {
+
+    private static final Instant NOW = Instant.now();
+
+    private final Product grinder = product("1", "Kitchen", "Acme", 4.0);
+    private final Product kettle = product("2", "Kitchen", "Brewco", 4.5);
+    private final Product lamp = product("3", "Office", "Acme", 4.8);
+    private final Product chair = product("4", "Office", "Sitwell", 3.0);
+    private final Product tent = product("5", "Outdoor", "Camply", 5.0);
+
+    private CatalogSnapshot snapshot;
+    private UserAffinityService affinity;
+
+    @BeforeEach
+    void setUp() {
+        snapshot = CatalogSnapshot.of(List.of(grinder, kettle, lamp, chair, tent), 1);
+        CatalogReplicaService replica = new CatalogReplicaService(null, null) {
+            @Override
+            public CatalogSnapshot getSnapshot() {
+                return snapshot;
+            }
+        };
+        StaticListableBeanFactory beans = new StaticListableBeanFactory(Map.of("catalogReplicaService", replica));
+        affinity = new UserAffinityService(beans.getBeanProvider(CatalogReplicaService.class));
+        ReflectionTestUtils.setField(affinity, "maxEntries", 16);
+        ReflectionTestUtils.setField(affinity, "halfLifeHours", 24.0);
+        ReflectionTestUtils.setField(affinity, "categoryBoost", 0.3f);
+        ReflectionTestUtils.setField(affinity, "brandWeight", 0.5f);
+        ReflectionTestUtils.setField(affinity, "profileIdleHours", 24L);
+        ReflectionTestUtils.setField(affinity, "maxProfiles", 100);
+        ReflectionTestUtils.setField(affinity, "pendingCapacity", 100);
+        ReflectionTestUtils.setField(affinity, "eventWeights", Map.of("purchase", 3, "impression", 0));
+    }
+
+    @Test
+    void reranksByCategoryThenBrandThenRating() {
+        affinity.onUserEvent(event("u1", "view", "4", NOW));
+
+        List<Product> reranked = affinity.rerank(List.of(grinder, kettle, tent, lamp, chair), "u1");
+
+        assertEquals(List.of(chair, lamp, tent, kettle, grinder), reranked);
+    }
+
+    @Test
+    void leavesResultsUntouchedWithoutAProfile() {
+        List<Product> products = List.of(grinder, lamp);
+
+        assertSame(products, affinity.rerank(products, "unknown"));
+        assertSame(products, affinity.rerank(products, null));
+        assertNull(affinity.categoryBoosts("unknown", snapshot));
+    }
+
+    @Test
+    void weighsEventsByTypeAndDecaysThemWithTheHalfLife() {
+        affinity.onUserEvent(event("u1", "view", "1", NOW.minus(Duration.ofHours(24))));
+        affinity.onUserEvent(event("u1", "view", "3", NOW));
+        affinity.onUserEvent(event("u1", "purchase", "5", NOW));
+        affinity.onUserEvent(event("u1", "impression", "2", NOW));
+
+        Map<String, Object> profile = affinity.getProfile("u1");
+
+        assertEquals(Map.of("Outdoor", 0.667, "Office", 0.222, "Kitchen", 0.111), profile.get("categories"));
+        assertEquals(List.of("Outdoor", "Office", "Kitchen"), List.copyOf(((Map<?, ?>) profile.get("categories")).keySet()));
+        assertEquals(3L, affinity.getStats().get("appliedEvents"));
+    }
+
+    @Test
+    void lateEventsCountAsDecayedFromTheirOwnTime() {
+        affinity.onUserEvent(event("u1", "view", "3", NOW));
+        affinity.onUserEvent(event("u1", "view", "1", NOW.minus(Duration.ofHours(24))));
+
+        assertEquals(Map.of("Office", 0.667, "Kitchen", 0.333), affinity.getProfile("u1").get("categories"));
+    }
+
+    @Test
+    void keepsOnlyTheStrongestEntriesPerDimension() {
+        ReflectionTestUtils.setField(affinity, "maxEntries", 2);
+        affinity.onUserEvent(event("u1", "purchase", "1", NOW));
+        affinity.onUserEvent(event("u1", "view", "3", NOW));
+        affinity.onUserEvent(event("u1", "view", "5", NOW));
+
+        assertEquals(Map.of("Kitchen", 0.75, "Outdoor", 0.25), affinity.getProfile("u1").get("categories"));
+        assertEquals(Map.of("Acme", 0.8, "Camply", 0.2), affinity.getProfile("u1").get("brands"));
+    }
+
+    @Test
+    void categoryBoostsAreNormalizedToTheConfiguredBoost() {
+        affinity.onUserEvent(event("u1", "purchase", "1", NOW));
+        affinity.onUserEvent(event("u1", "view", "3", NOW));
+
+        float[] boosts = affinity.categoryBoosts("u1", snapshot);
+
+        float[] expected = new float[snapshot.categoryCount()];
+        expected[snapshot.categoryIdOf("Kitchen")] = 0.225f;
+        expected[snapshot.categoryIdOf("Office")] = 0.075f;
+        assertArrayEquals(expected, boosts, 1e-6f);
+    }
+
+    @Test
+    void buffersEventsUntilTheCatalogIsLoaded() {
+        snapshot = CatalogSnapshot.empty();
+        ReflectionTestUtils.setField(affinity, "pendingCapacity", 2);
+        affinity.onUserEvent(event("u1", "view", "1", NOW));
+        affinity.onUserEvent(event("u1", "view", "3", NOW));
+        affinity.onUserEvent(event("u1", "view", "5", NOW));
+
+        assertEquals(2, affinity.getStats().get("pendingEvents"));
+        assertEquals(1L, affinity.getStats().get("droppedUnresolvedEvents"));
+
+        CatalogSnapshot loaded = CatalogSnapshot.of(List.of(grinder, kettle, lamp, chair, tent), 2);
+        affinity.onCatalogRefreshed(new CatalogRefreshedEvent(loaded, List.of(), List.of(), true));
+
+        assertEquals(0, affinity.getStats().get("pendingEvents"));
+        assertEquals(Map.of("Kitchen", 0.5, "Office", 0.5), affinity.getProfile("u1").get("categories"));
+    }
+
+    @Test
+    void sweepDropsIdleProfilesThenTheLeastRecentlyActive() {
+        ReflectionTestUtils.setField(affinity, "maxProfiles", 2);
+        affinity.onUserEvent(event("idle", "view", "1", NOW.minus(Duration.ofHours(48))));
+        affinity.onUserEvent(event("u1", "view", "1", NOW.minus(Duration.ofHours(3))));
+        affinity.onUserEvent(event("u2", "view", "1", NOW.minus(Duration.ofHours(2))));
+        affinity.onUserEvent(event("u3", "view", "1", NOW.minus(Duration.ofHours(1))));
+
+        affinity.evictProfiles();
+
+        assertEquals(Map.of(), affinity.getProfile("idle").get("categories"));
+        assertEquals(Map.of(), affinity.getProfile("u1").get("categories"));
+        assertEquals(Map.of("Kitchen", 1.0), affinity.getProfile("u2").get("categories"));
+        assertEquals(Map.of("Kitchen", 1.0), affinity.getProfile("u3").get("categories"));
+        assertEquals(2L, affinity.getStats().get("evictedProfiles"));
+    }
+
+    private static UserEvent event(String userId, String type, String productId, Instant timestamp) {
+        return UserEvent.builder().userId(userId).eventType(type).productId(productId).timestamp(timestamp).build();
+    }
+
+    private static Product product(String id, String category, String brand, double rating) {
+        return Product.builder().objectId(id).name("Product " + id).category(category).brand(brand).averageRating(rating).build();
+    }
+}
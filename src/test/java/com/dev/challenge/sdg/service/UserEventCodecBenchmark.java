@@ -0,0 +1,116 @@
+package com.dev.challenge.sdg.service;
+
+import com.dev.challenge.sdg.model.UserEvent;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Footprint and throughput comparison between {@link UserEvent} objects and the
+ * compact {@link UserEventCodec} form. Run manually:
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.dev.challenge.sdg.service.UserEventCodecBenchmark
+ * </pre>
+ */
+public class UserEventCodecBenchmark {
+
+    private static final String[] EVENT_TYPES = {
+            "product_view", "price_hover", "cart_abandon", "search_query", "no_results_search"
+    };
+
+    private static final int EVENTS = 200_000;
+    private static final int ROUNDS = 5;
+
+    // Keeps the measured structure reachable across the second GC
+    private static Object retained;
+
+    public static void main(String[] args) {
+        UserEventCodec codec = new UserEventCodec(new EventDictionary());
+
+        long objectBytes = measureHeap(() -> generate(EVENTS));
+        List<UserEvent> events = generate(EVENTS);
+        long encodedBytes = measureHeap(() -> encodeAll(codec, events));
+
+        System.out.printf("Heap per event: object=%.1f bytes, encoded=%.1f bytes (%.1fx smaller)%n",
+                (double) objectBytes / EVENTS, (double) encodedBytes / EVENTS,
+                (double) objectBytes / Math.max(1, encodedBytes));
+
+        List<byte[]> encoded = encodeAll(codec, events);
+        long payload = encoded.stream().mapToLong(bytes -> bytes.length).sum();
+        System.out.printf("Average encoded payload: %.1f bytes%n", (double) payload / EVENTS);
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            long start = System.nanoTime();
+            List<byte[]> out = encodeAll(codec, events);
+            long encodeNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            long checksum = 0;
+            for (byte[] bytes : out) {
+                checksum += codec.decode(bytes).getTimestamp().toEpochMilli();
+            }
+            long decodeNanos = System.nanoTime() - start;
+
+            System.out.printf("Round %d: encode %.0f ops/ms, decode %.0f ops/ms (checksum %d)%n",
+                    round, EVENTS / (encodeNanos / 1e6), EVENTS / (decodeNanos / 1e6), checksum);
+        }
+    }
+
+    private static List<UserEvent> generate(int count) {
+        List<UserEvent> events = new ArrayList<>(count);
+        long now = Instant.now().toEpochMilli();
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> details = new HashMap<>();
+            details.put("page", "product_detail");
+            details.put("durationMs", 1200 + (i % 5000));
+            details.put("price", 19.99 + (i % 100));
+            events.add(UserEvent.builder()
+                    .objectId(UUID.randomUUID().toString())
+                    .userId("user-" + (i % 5000))
+                    .eventType(EVENT_TYPES[i % EVENT_TYPES.length])
+                    .productId("PROD" + String.format("%03d", i % 300))
+                    .timestamp(Instant.ofEpochMilli(now - i * 1000L))
+                    .details(details)
+                    .build());
+        }
+        return events;
+    }
+
+    private static List<byte[]> encodeAll(UserEventCodec codec, List<UserEvent> events) {
+        List<byte[]> encoded = new ArrayList<>(events.size());
+        for (UserEvent event : events) {
+            encoded.add(codec.encode(event));
+        }
+        return encoded;
+    }
+
+    /**
+     * Approximate retained heap of the supplied structure, measured around forced GCs
+     */
+    private static long measureHeap(java.util.function.Supplier<Object> allocation) {
+        Runtime runtime = Runtime.getRuntime();
+        gc();
+        long before = runtime.totalMemory() - runtime.freeMemory();
+        retained = allocation.get();
+        gc();
+        long after = runtime.totalMemory() - runtime.freeMemory();
+        retained = null;
+        return after - before;
+    }
+
+    private static void gc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
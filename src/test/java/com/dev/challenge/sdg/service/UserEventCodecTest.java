@@ -0,0 +1,120 @@
+package com.dev.challenge.sdg.service;
+
+import com.dev.challenge.sdg.model.UserEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserEventCodecTest {
+
+    private final EventDictionary dictionary = new EventDictionary();
+    private final UserEventCodec codec = new UserEventCodec(dictionary);
+
+    @Test
+    void roundTripsEveryField() {
+        Map<String, Object> nested = new LinkedHashMap<>();
+        nested.put("source", "search");
+        nested.put("position", 3);
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("durationMs", 1250);
+        details.put("sequence", 9_000_000_000L);
+        details.put("price", 19.99);
+        details.put("abandoned", true);
+        details.put("coupon", null);
+        details.put("tags", List.of("sale", 2L));
+        details.put("context", nested);
+        UserEvent event = UserEvent.builder()
+                .objectId("6f1c2a4e-9b7d-4c3a-8e5f-0a1b2c3d4e5f")
+                .userId("user-1")
+                .eventType("cart_abandon")
+                .productId("PROD001")
+                .query("wireless headphones")
+                .timestamp(Instant.ofEpochMilli(1_700_000_000_123L))
+                .details(details)
+                .build();
+
+        assertEquals(event, codec.decode(codec.encode(event)));
+    }
+
+    @Test
+    void leavesMissingFieldsNull() {
+        UserEvent decoded = codec.decode(codec.encode(UserEvent.builder().userId("user-1").build()));
+
+        assertEquals("user-1", decoded.getUserId());
+        assertNull(decoded.getTimestamp());
+        assertNull(decoded.getEventType());
+        assertNull(decoded.getObjectId());
+        assertNull(decoded.getDetails());
+    }
+
+    @Test
+    void keepsNonCanonicalObjectIdsVerbatim() {
+        // Upper-case UUIDs would come back lower-cased if stored as two longs
+        String upperCase = "6F1C2A4E-9B7D-4C3A-8E5F-0A1B2C3D4E5F";
+
+        assertEquals(upperCase, roundTrip(UserEvent.builder().objectId(upperCase).build()).getObjectId());
+        assertEquals("evt_42", roundTrip(UserEvent.builder().objectId("evt_42").build()).getObjectId());
+    }
+
+    @Test
+    void encodesRepeatedStringsAsDictionaryIds() {
+        UserEvent event = UserEvent.builder().userId("user-1").eventType("product_view").productId("PROD001").build();
+
+        byte[] first = codec.encode(event);
+        byte[] second = codec.encode(event);
+
+        assertTrue(Arrays.equals(first, second));
+        assertEquals(3, dictionary.size());
+        assertTrue(first.length < 8, "ids, not strings, are stored for known values");
+    }
+
+    @Test
+    void readsTimestampWithoutDecoding() {
+        byte[] encoded = codec.encode(UserEvent.builder().userId("u").timestamp(Instant.ofEpochMilli(-5)).build());
+        byte[] withoutTimestamp = codec.encode(UserEvent.builder().userId("u").build());
+
+        assertEquals(-5L, codec.readTimestamp(encoded, 0));
+        assertEquals(Long.MIN_VALUE, codec.readTimestamp(withoutTimestamp, 0));
+    }
+
+    @Test
+    void decodesFromAnOffsetInASharedBuffer() {
+        UserEventCodec.ByteSink sink = new UserEventCodec.ByteSink(16);
+        codec.encodeTo(UserEvent.builder().userId("first").build(), sink);
+        int offset = sink.size();
+        codec.encodeTo(UserEvent.builder().userId("second").timestamp(Instant.ofEpochMilli(7)).build(), sink);
+
+        UserEvent decoded = codec.decode(sink.toByteArray(), offset);
+
+        assertEquals("second", decoded.getUserId());
+        assertEquals(7L, codec.readTimestamp(sink.toByteArray(), offset));
+    }
+
+    @Test
+    void storesValuesInlineOnceTheDictionaryIsFull() {
+        ReflectionTestUtils.setField(dictionary, "maxEntries", 2);
+        UserEvent event = UserEvent.builder()
+                .userId("user-1")
+                .eventType("product_view")
+                .productId("PROD001")
+                .details(Map.of("page", "detail"))
+                .build();
+
+        assertEquals(event, roundTrip(event));
+        assertEquals(2, dictionary.size());
+        assertEquals(2L, dictionary.overflows());
+    }
+
+    private UserEvent roundTrip(UserEvent event) {
+        return codec.decode(codec.encode(event));
+    }
+}